@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mcpg.nbt.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import io.github.mcpg.nbt.TagCompound.CompoundContent;
+import io.github.mcpg.nbt.TagInt;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building and querying compounds with many keys, like block entities or villager trades.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompoundBenchmark
+{
+    @Param({"16", "256", "2048"})
+    public int keys;
+
+    private String[] names;
+    private CompoundContent content;
+
+    @Setup
+    public void setUp()
+    {
+        names = new String[keys];
+        for (int i = 0; i < keys; i++)
+        {
+            names[i] = "key_" + i;
+        }
+        content = build();
+    }
+
+    @Benchmark
+    public CompoundContent build()
+    {
+        CompoundContent content = new CompoundContent();
+        for (int i = 0; i < names.length; i++)
+        {
+            content.addTag(new TagInt(names[i], i));
+        }
+        return content;
+    }
+
+    @Benchmark
+    public int lookup()
+    {
+        int found = 0;
+        for (String name : names)
+        {
+            if (content.getTag(name) != null)
+            {
+                found++;
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mcpg.nbt.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import io.github.mcpg.nbt.NbtCompression;
+import io.github.mcpg.nbt.NbtIO;
+import io.github.mcpg.nbt.Tag;
+import io.github.mcpg.nbt.TagCompound;
+import io.github.mcpg.nbt.TagReadingUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares {@link NbtIO} against wrapping GZIP streams around tags by hand, which creates
+ * new native zlib streams and buffers for each file.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CompressionBenchmark
+{
+    @Param({"PLAYER", "CHUNK_SECTIONS"})
+    public NbtWorkload workload;
+
+    @Param({"1", "6"})
+    public int level;
+
+    private TagCompound root;
+    private byte[] compressed;
+    private int size;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        root = workload.create();
+        size = workload.serialize().length;
+        compressed = NbtIO.writeCompressed(root, NbtCompression.GZIP, level);
+    }
+
+    @Benchmark
+    public int writeStreams(ByteCounter counter) throws IOException
+    {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (DataOutputStream outputStream = new DataOutputStream(new GZIPOutputStream(byteArrayOutputStream)
+        {
+            {
+                def.setLevel(level);
+            }
+        }))
+        {
+            root.writeTag(outputStream);
+        }
+        counter.bytes += size;
+        return byteArrayOutputStream.size();
+    }
+
+    @Benchmark
+    public int writeNbtIO(ByteCounter counter) throws IOException
+    {
+        counter.bytes += size;
+        return NbtIO.writeCompressed(root, NbtCompression.GZIP, level).length;
+    }
+
+    @Benchmark
+    public Tag<?> readStreams(ByteCounter counter) throws IOException
+    {
+        counter.bytes += size;
+        try (DataInputStream inputStream = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(compressed))))
+        {
+            return TagReadingUtils.readTag(inputStream);
+        }
+    }
+
+    @Benchmark
+    public Tag<?> readNbtIO(ByteCounter counter) throws IOException
+    {
+        counter.bytes += size;
+        return NbtIO.readCompressed(compressed);
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mcpg.nbt.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import io.github.mcpg.nbt.NbtReader;
+import io.github.mcpg.nbt.NbtWriter;
+import io.github.mcpg.nbt.Tag;
+import io.github.mcpg.nbt.TagCompound;
+import io.github.mcpg.nbt.TagInt;
+import io.github.mcpg.nbt.TagList;
+import io.github.mcpg.nbt.TagString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cloning a tree and changing one of its tags: a serialization round trip, a deep copy and
+ * a copy-on-write copy. The write benchmarks also write the changed copy, as copy-on-write
+ * copies write tags they haven't touched straight from the original tree. The last one
+ * changes the deepest string of the original instead, which makes the original copy the tags
+ * above it for the copy-on-write copy first.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CopyBenchmark
+{
+    @Param
+    public NbtWorkload workload;
+
+    private TagCompound tree;
+    private NbtWriter writer;
+    private int counter;
+    private TagString leaf;
+    private String leafValue;
+
+    @Setup
+    public void setUp()
+    {
+        tree = workload.create();
+        writer = new NbtWriter();
+        leaf = findDeepestString(tree, 0, new TagString[1], new int[] {-1});
+        leafValue = leaf.getValue();
+    }
+
+    @Benchmark
+    public TagCompound roundTrip() throws IOException
+    {
+        TagCompound copy = (TagCompound) new NbtReader(writer.write(tree)).readTag();
+        copy.getValue().replaceTag(new TagInt("counter", counter++));
+        return copy;
+    }
+
+    @Benchmark
+    public TagCompound copy()
+    {
+        TagCompound copy = tree.copy();
+        copy.getValue().replaceTag(new TagInt("counter", counter++));
+        return copy;
+    }
+
+    @Benchmark
+    public TagCompound copyOnWrite()
+    {
+        TagCompound copy = tree.copyOnWrite();
+        copy.getValue().replaceTag(new TagInt("counter", counter++));
+        return copy;
+    }
+
+    @Benchmark
+    public byte[] copyAndWrite()
+    {
+        return writer.write(copy());
+    }
+
+    @Benchmark
+    public byte[] copyOnWriteAndWrite()
+    {
+        return writer.write(copyOnWrite());
+    }
+
+    @Benchmark
+    public TagCompound copyOnWriteAndChangeOriginal()
+    {
+        TagCompound copy = tree.copyOnWrite();
+        leaf.setValue((counter++ & 1) == 0 ? "changed" : leafValue);
+        return copy;
+    }
+
+    private static TagString findDeepestString(Tag<?> tag, int depth, TagString[] found, int[] foundDepth)
+    {
+        if (tag instanceof TagString && depth > foundDepth[0])
+        {
+            found[0] = (TagString) tag;
+            foundDepth[0] = depth;
+        }
+        else if (tag instanceof TagCompound)
+        {
+            for (Tag<?> child : ((TagCompound) tag).getValue().getTagsList())
+            {
+                findDeepestString(child, depth + 1, found, foundDepth);
+            }
+        }
+        else if (tag instanceof TagList && !((TagList) tag).isPacked())
+        {
+            for (Tag<?> element : ((TagList) tag).getValue())
+            {
+                findDeepestString(element, depth + 1, found, foundDepth);
+            }
+        }
+        return found[0];
+    }
+}
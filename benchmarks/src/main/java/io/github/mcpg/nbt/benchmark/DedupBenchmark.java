@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mcpg.nbt.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import io.github.mcpg.nbt.NbtDedupStore;
+import io.github.mcpg.nbt.NbtWriter;
+import io.github.mcpg.nbt.TagCompound;
+import io.github.mcpg.nbt.TagInt;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Backing up a batch of similar trees (versions of the same tree, which differ in one tag of
+ * the root), each saved on its own versus put into a deduplicating store. The store's
+ * counters show how many bytes the batch takes in NBT and how many the store keeps.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DedupBenchmark
+{
+    private static final int BATCH = 16;
+
+    @Param
+    public NbtWorkload workload;
+
+    private TagCompound[] trees;
+    private NbtWriter writer;
+
+    @Setup
+    public void setUp()
+    {
+        TagCompound tree = workload.create();
+        trees = new TagCompound[BATCH];
+        for (int i = 0; i < BATCH; i++)
+        {
+            trees[i] = tree.copy();
+            trees[i].getValue().replaceTag(new TagInt("version", i));
+        }
+        writer = new NbtWriter();
+    }
+
+    @Benchmark
+    public int writeEach(ByteCounter counter)
+    {
+        int size = 0;
+        for (TagCompound tree : trees)
+        {
+            size += writer.write(tree).length;
+        }
+        counter.bytes += size;
+        return size;
+    }
+
+    @Benchmark
+    public NbtDedupStore dedupStore(StoreCounter counter)
+    {
+        NbtDedupStore store = new NbtDedupStore();
+        for (TagCompound tree : trees)
+        {
+            store.put(tree);
+        }
+        counter.totalBytes += store.getTotalSize();
+        counter.storedBytes += store.getStoredSize();
+        return store;
+    }
+
+    /**
+     * Sizes of the batches put into stores, and of what the stores kept.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class StoreCounter
+    {
+        public long totalBytes;
+        public long storedBytes;
+
+        @Setup(Level.Iteration)
+        public void reset()
+        {
+            totalBytes = 0;
+            storedBytes = 0;
+        }
+    }
+}
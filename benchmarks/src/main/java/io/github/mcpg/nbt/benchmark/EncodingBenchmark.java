@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mcpg.nbt.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import io.github.mcpg.nbt.NbtEncoding;
+import io.github.mcpg.nbt.NbtWriter;
+import io.github.mcpg.nbt.Tag;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading and writing the workload in each {@link NbtEncoding}. Counted bytes are bytes of
+ * the encoded data.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EncodingBenchmark
+{
+    @Param
+    public NbtWorkload workload;
+
+    @Param
+    public NbtEncoding encoding;
+
+    private Tag<?> tag;
+    private byte[] data;
+    private NbtWriter writer;
+
+    @Setup
+    public void setUp()
+    {
+        tag = workload.create();
+        writer = encoding.newWriter();
+        data = writer.write(tag);
+    }
+
+    @Benchmark
+    public Tag<?> read(ByteCounter counter) throws IOException
+    {
+        counter.bytes += data.length;
+        return encoding.newReader(data).readTag();
+    }
+
+    @Benchmark
+    public int write(ByteCounter counter)
+    {
+        counter.bytes += data.length;
+        return writer.write(tag, data, 0);
+    }
+}
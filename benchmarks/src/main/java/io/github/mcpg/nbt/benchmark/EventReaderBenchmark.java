@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mcpg.nbt.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import io.github.mcpg.nbt.NbtEventReader;
+import io.github.mcpg.nbt.NbtToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Scanning data with {@link NbtEventReader}: visiting every event without reading values,
+ * and looking up a single top-level field while skipping everything else.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventReaderBenchmark
+{
+    @Param
+    public NbtWorkload workload;
+
+    private byte[] data;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        data = workload.serialize();
+    }
+
+    @Benchmark
+    public int walk(ByteCounter counter) throws IOException
+    {
+        counter.bytes += data.length;
+        NbtEventReader reader = new NbtEventReader(new DataInputStream(new ByteArrayInputStream(data)));
+        int events = 0;
+        while (reader.next() != NbtToken.END_DOCUMENT)
+        {
+            events++;
+        }
+        return events;
+    }
+
+    @Benchmark
+    public int findLastField(ByteCounter counter) throws IOException
+    {
+        counter.bytes += data.length;
+        NbtEventReader reader = new NbtEventReader(new DataInputStream(new ByteArrayInputStream(data)));
+        reader.next();
+        int found = 0;
+        while (reader.next() != NbtToken.END_COMPOUND)
+        {
+            // Skips every top-level value, which is the worst case of looking up one field
+            reader.skipValue();
+            found++;
+        }
+        return found;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mcpg.nbt.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import io.github.mcpg.nbt.NbtReader;
+import io.github.mcpg.nbt.NbtWriter;
+import io.github.mcpg.nbt.TagCompound;
+import io.github.mcpg.nbt.TagInt;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Hashing and comparing trees, like a map keyed by item stacks does: the first hash of a
+ * tree, a cached hash, a hash after changing one tag of the root (only the root is hashed
+ * again) and comparing a tree with an equal one read from its bytes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HashBenchmark
+{
+    @Param
+    public NbtWorkload workload;
+
+    private TagCompound tree;
+    private TagCompound equal;
+    private TagInt counter;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        tree = workload.create();
+        counter = new TagInt("counter", 0);
+        tree.getValue().addTag(counter);
+        tree.hashCode();
+        equal = (TagCompound) new NbtReader(new NbtWriter().write(tree)).readTag();
+        equal.hashCode();
+    }
+
+    @Benchmark
+    public int firstHash(FreshTree fresh)
+    {
+        return fresh.tree.hashCode();
+    }
+
+    @Benchmark
+    public int cachedHash()
+    {
+        return tree.hashCode();
+    }
+
+    @Benchmark
+    public int changedHash()
+    {
+        counter.setInt(counter.getInt() + 1);
+        return tree.hashCode();
+    }
+
+    @Benchmark
+    public boolean equalTrees()
+    {
+        return tree.equals(equal);
+    }
+
+    /**
+     * A copy of the tree which hasn't been hashed yet.
+     */
+    @State(Scope.Thread)
+    public static class FreshTree
+    {
+        private TagCompound source;
+        private TagCompound tree;
+
+        @Setup(Level.Trial)
+        public void setUp(HashBenchmark benchmark)
+        {
+            source = benchmark.workload.create();
+        }
+
+        @Setup(Level.Invocation)
+        public void setUpInvocation()
+        {
+            tree = source.copy();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mcpg.nbt.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.github.mcpg.nbt.NbtReader;
+import io.github.mcpg.nbt.Tag;
+import io.github.mcpg.nbt.TagCompound;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Read-mostly access: reading a document and looking up two of its top-level tags, and
+ * reading a document and writing it back unmodified, with eager and lazy compounds.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LazyReadBenchmark
+{
+    @Param
+    public NbtWorkload workload;
+
+    @Param({"false", "true"})
+    public boolean lazy;
+
+    private byte[] data;
+    private String firstName;
+    private String lastName;
+    private ByteArrayOutputStream byteArrayOutputStream;
+    private DataOutputStream outputStream;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        TagCompound root = workload.create();
+        data = workload.serialize();
+        List<Tag<?>> tags = root.getValue().getTagsList();
+        firstName = tags.get(0).getName();
+        lastName = tags.get(tags.size() - 1).getName();
+        byteArrayOutputStream = new ByteArrayOutputStream(data.length);
+        outputStream = new DataOutputStream(byteArrayOutputStream);
+    }
+
+    @Benchmark
+    public Object readAndLookup(ByteCounter counter) throws IOException
+    {
+        counter.bytes += data.length;
+        NbtReader reader = new NbtReader(data);
+        reader.setLazyCompounds(lazy);
+        TagCompound root = (TagCompound) reader.readTag();
+        root.getValue().getTag(firstName);
+        return root.getValue().getTag(lastName);
+    }
+
+    @Benchmark
+    public int readAndWrite(ByteCounter counter) throws IOException
+    {
+        counter.bytes += data.length;
+        NbtReader reader = new NbtReader(data);
+        reader.setLazyCompounds(lazy);
+        byteArrayOutputStream.reset();
+        reader.readTag().writeTag(outputStream);
+        return byteArrayOutputStream.size();
+    }
+}
@@ -0,0 +1,367 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mcpg.nbt.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import io.github.mcpg.nbt.Tag;
+import io.github.mcpg.nbt.TagByte;
+import io.github.mcpg.nbt.TagByteArray;
+import io.github.mcpg.nbt.TagCompound;
+import io.github.mcpg.nbt.TagCompound.CompoundContent;
+import io.github.mcpg.nbt.TagDouble;
+import io.github.mcpg.nbt.TagFloat;
+import io.github.mcpg.nbt.TagInt;
+import io.github.mcpg.nbt.TagIntArray;
+import io.github.mcpg.nbt.TagList;
+import io.github.mcpg.nbt.TagLong;
+import io.github.mcpg.nbt.TagLongArray;
+import io.github.mcpg.nbt.TagShort;
+import io.github.mcpg.nbt.TagString;
+import io.github.mcpg.nbt.TagType;
+
+/**
+ * Generated NBT shapes used by the benchmarks. Every workload is created from a fixed seed,
+ * so all runs (and all versions of the library) measure exactly the same data.
+ */
+public enum NbtWorkload
+{
+    /**
+     * Player data file: position lists, abilities, a full inventory with enchanted items
+     * and a large recipe book.
+     */
+    PLAYER
+    {
+        @Override
+        public TagCompound create()
+        {
+            Random random = new Random(1);
+            CompoundContent player = new CompoundContent();
+            player.addTag(new TagInt("DataVersion", 3465));
+            player.addTag(doubles("Pos", random.nextDouble() * 1000, 64.0, random.nextDouble() * 1000));
+            player.addTag(doubles("Motion", 0.0, -0.0784, 0.0));
+            player.addTag(floats("Rotation", random.nextFloat() * 360, random.nextFloat() * 90));
+            player.addTag(new TagFloat("Health", 20.0f));
+            player.addTag(new TagShort("Air", (short) 300));
+            player.addTag(new TagShort("Fire", (short) -20));
+            player.addTag(new TagByte("OnGround", (byte) 1));
+            player.addTag(new TagInt("XpLevel", 30));
+            player.addTag(new TagFloat("XpP", 0.25f));
+            player.addTag(new TagIntArray("UUID", new int[] {random.nextInt(), random.nextInt(), random.nextInt(), random.nextInt()}));
+            player.addTag(new TagString("Dimension", "minecraft:overworld"));
+
+            CompoundContent abilities = new CompoundContent();
+            abilities.addTag(new TagByte("flying", (byte) 0));
+            abilities.addTag(new TagByte("instabuild", (byte) 0));
+            abilities.addTag(new TagByte("mayfly", (byte) 0));
+            abilities.addTag(new TagFloat("flySpeed", 0.05f));
+            abilities.addTag(new TagFloat("walkSpeed", 0.1f));
+            player.addTag(new TagCompound("abilities", abilities));
+
+            player.addTag(items("Inventory", random, 36));
+            player.addTag(items("EnderItems", random, 27));
+
+            List<Tag<?>> recipes = new ArrayList<>();
+            for (int i = 0; i < 800; i++)
+            {
+                recipes.add(new TagString("", "minecraft:recipe_" + i));
+            }
+            CompoundContent recipeBook = new CompoundContent();
+            recipeBook.addTag(new TagList("recipes", recipes, TagType.TAG_STRING));
+            recipeBook.addTag(new TagByte("isGuiOpen", (byte) 0));
+            player.addTag(new TagCompound("recipeBook", recipeBook));
+            return new TagCompound("", player);
+        }
+    },
+
+    /**
+     * Chunk with 24 sections, each carrying a big {@link TagLongArray} of block states,
+     * a palette and light arrays.
+     */
+    CHUNK_SECTIONS
+    {
+        @Override
+        public TagCompound create()
+        {
+            Random random = new Random(2);
+            CompoundContent chunk = new CompoundContent();
+            chunk.addTag(new TagInt("DataVersion", 3465));
+            chunk.addTag(new TagInt("xPos", 12));
+            chunk.addTag(new TagInt("zPos", -31));
+            chunk.addTag(new TagInt("yPos", -4));
+            chunk.addTag(new TagString("Status", "minecraft:full"));
+            chunk.addTag(new TagLong("LastUpdate", 987654321L));
+            chunk.addTag(new TagLong("InhabitedTime", 123456L));
+
+            List<Tag<?>> sections = new ArrayList<>();
+            for (int y = -4; y < 20; y++)
+            {
+                CompoundContent section = new CompoundContent();
+                section.addTag(new TagByte("Y", (byte) y));
+
+                // 4096 block states packed with 8 bits per entry
+                long[] data = new long[512];
+                for (int i = 0; i < data.length; i++)
+                {
+                    data[i] = random.nextLong();
+                }
+                List<Tag<?>> palette = new ArrayList<>();
+                for (int i = 0; i < 32; i++)
+                {
+                    CompoundContent entry = new CompoundContent();
+                    entry.addTag(new TagString("Name", "minecraft:block_" + i));
+                    if (i % 4 == 0)
+                    {
+                        CompoundContent properties = new CompoundContent();
+                        properties.addTag(new TagString("facing", "north"));
+                        properties.addTag(new TagString("waterlogged", "false"));
+                        entry.addTag(new TagCompound("Properties", properties));
+                    }
+                    palette.add(new TagCompound("", entry));
+                }
+                CompoundContent blockStates = new CompoundContent();
+                blockStates.addTag(new TagList("palette", palette, TagType.TAG_COMPOUND));
+                blockStates.addTag(new TagLongArray("data", data));
+                section.addTag(new TagCompound("block_states", blockStates));
+
+                long[] biomeData = new long[4];
+                for (int i = 0; i < biomeData.length; i++)
+                {
+                    biomeData[i] = random.nextLong();
+                }
+                List<Tag<?>> biomePalette = new ArrayList<>();
+                biomePalette.add(new TagString("", "minecraft:plains"));
+                biomePalette.add(new TagString("", "minecraft:river"));
+                CompoundContent biomes = new CompoundContent();
+                biomes.addTag(new TagList("palette", biomePalette, TagType.TAG_STRING));
+                biomes.addTag(new TagLongArray("data", biomeData));
+                section.addTag(new TagCompound("biomes", biomes));
+
+                byte[] blockLight = new byte[2048];
+                byte[] skyLight = new byte[2048];
+                random.nextBytes(blockLight);
+                random.nextBytes(skyLight);
+                section.addTag(new TagByteArray("BlockLight", blockLight));
+                section.addTag(new TagByteArray("SkyLight", skyLight));
+                sections.add(new TagCompound("", section));
+            }
+            chunk.addTag(new TagList("sections", sections, TagType.TAG_COMPOUND));
+
+            CompoundContent heightmaps = new CompoundContent();
+            for (String name : new String[] {"MOTION_BLOCKING", "MOTION_BLOCKING_NO_LEAVES", "OCEAN_FLOOR", "WORLD_SURFACE"})
+            {
+                long[] heightmap = new long[37];
+                for (int i = 0; i < heightmap.length; i++)
+                {
+                    heightmap[i] = random.nextLong();
+                }
+                heightmaps.addTag(new TagLongArray(name, heightmap));
+            }
+            chunk.addTag(new TagCompound("Heightmaps", heightmaps));
+            return new TagCompound("", chunk);
+        }
+    },
+
+    /**
+     * Long {@link TagList} of entity compounds, each with position lists, attributes with
+     * nested modifier lists and a stack of passengers.
+     */
+    ENTITY_LIST
+    {
+        @Override
+        public TagCompound create()
+        {
+            Random random = new Random(3);
+            List<Tag<?>> entities = new ArrayList<>();
+            for (int i = 0; i < 500; i++)
+            {
+                entities.add(entity(random, 3));
+            }
+            CompoundContent root = new CompoundContent();
+            root.addTag(new TagInt("DataVersion", 3465));
+            root.addTag(new TagIntArray("Position", new int[] {12, -31}));
+            root.addTag(new TagList("Entities", entities, TagType.TAG_COMPOUND));
+            return new TagCompound("", root);
+        }
+    },
+
+    /**
+     * Compound dominated by strings: many text keys, long lore lines and JSON text components.
+     */
+    STRING_HEAVY
+    {
+        @Override
+        public TagCompound create()
+        {
+            Random random = new Random(4);
+            CompoundContent root = new CompoundContent();
+            for (int i = 0; i < 1000; i++)
+            {
+                root.addTag(new TagString("key_" + i, text(random, 8 + random.nextInt(120))));
+            }
+            List<Tag<?>> lore = new ArrayList<>();
+            for (int i = 0; i < 200; i++)
+            {
+                lore.add(new TagString("", "{\"text\":\"" + text(random, 200) + "\",\"italic\":false}"));
+            }
+            root.addTag(new TagList("Lore", lore, TagType.TAG_STRING));
+            return new TagCompound("", root);
+        }
+    };
+
+    /**
+     * Creates new tree for this workload.
+     *
+     * @return root compound of the workload
+     */
+    public abstract TagCompound create();
+
+    /**
+     * Creates this workload and serializes it with {@link Tag#writeTag(DataOutputStream)}.
+     *
+     * @return serialized workload
+     *
+     * @throws IOException if any I/O error occurs
+     */
+    public byte[] serialize() throws IOException
+    {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        create().writeTag(new DataOutputStream(byteArrayOutputStream));
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    private static TagList doubles(String name, double... values)
+    {
+        List<Tag<?>> list = new ArrayList<>(values.length);
+        for (double value : values)
+        {
+            list.add(new TagDouble("", value));
+        }
+        return new TagList(name, list, TagType.TAG_DOUBLE);
+    }
+
+    private static TagList floats(String name, float... values)
+    {
+        List<Tag<?>> list = new ArrayList<>(values.length);
+        for (float value : values)
+        {
+            list.add(new TagFloat("", value));
+        }
+        return new TagList(name, list, TagType.TAG_FLOAT);
+    }
+
+    private static TagList items(String name, Random random, int count)
+    {
+        List<Tag<?>> items = new ArrayList<>(count);
+        for (int slot = 0; slot < count; slot++)
+        {
+            CompoundContent item = new CompoundContent();
+            item.addTag(new TagByte("Slot", (byte) slot));
+            item.addTag(new TagString("id", "minecraft:item_" + random.nextInt(100)));
+            item.addTag(new TagByte("Count", (byte) (1 + random.nextInt(64))));
+            if (slot % 3 == 0)
+            {
+                List<Tag<?>> enchantments = new ArrayList<>();
+                for (int i = 0; i < 3; i++)
+                {
+                    CompoundContent enchantment = new CompoundContent();
+                    enchantment.addTag(new TagString("id", "minecraft:enchantment_" + i));
+                    enchantment.addTag(new TagShort("lvl", (short) (1 + random.nextInt(5))));
+                    enchantments.add(new TagCompound("", enchantment));
+                }
+                CompoundContent tag = new CompoundContent();
+                tag.addTag(new TagInt("Damage", random.nextInt(1500)));
+                tag.addTag(new TagList("Enchantments", enchantments, TagType.TAG_COMPOUND));
+                item.addTag(new TagCompound("tag", tag));
+            }
+            items.add(new TagCompound("", item));
+        }
+        return new TagList(name, items, TagType.TAG_COMPOUND);
+    }
+
+    private static TagCompound entity(Random random, int passengers)
+    {
+        CompoundContent entity = new CompoundContent();
+        entity.addTag(new TagString("id", "minecraft:entity_" + random.nextInt(20)));
+        entity.addTag(doubles("Pos", random.nextDouble() * 16, random.nextDouble() * 256, random.nextDouble() * 16));
+        entity.addTag(doubles("Motion", random.nextDouble() - 0.5, -0.0784, random.nextDouble() - 0.5));
+        entity.addTag(floats("Rotation", random.nextFloat() * 360, random.nextFloat() * 90 - 45));
+        entity.addTag(new TagFloat("FallDistance", 0.0f));
+        entity.addTag(new TagShort("Fire", (short) -1));
+        entity.addTag(new TagShort("Air", (short) 300));
+        entity.addTag(new TagByte("OnGround", (byte) 1));
+        entity.addTag(new TagInt("PortalCooldown", 0));
+        entity.addTag(new TagFloat("Health", 20.0f));
+        entity.addTag(new TagIntArray("UUID", new int[] {random.nextInt(), random.nextInt(), random.nextInt(), random.nextInt()}));
+
+        List<Tag<?>> attributes = new ArrayList<>();
+        for (int i = 0; i < 3; i++)
+        {
+            CompoundContent attribute = new CompoundContent();
+            attribute.addTag(new TagString("Name", "minecraft:generic.attribute_" + i));
+            attribute.addTag(new TagDouble("Base", random.nextDouble()));
+            List<Tag<?>> modifiers = new ArrayList<>();
+            CompoundContent modifier = new CompoundContent();
+            modifier.addTag(new TagString("Name", "Random spawn bonus"));
+            modifier.addTag(new TagDouble("Amount", random.nextGaussian()));
+            modifier.addTag(new TagInt("Operation", 1));
+            modifier.addTag(new TagIntArray("UUID", new int[] {random.nextInt(), random.nextInt(), random.nextInt(), random.nextInt()}));
+            modifiers.add(new TagCompound("", modifier));
+            attribute.addTag(new TagList("Modifiers", modifiers, TagType.TAG_COMPOUND));
+            attributes.add(new TagCompound("", attribute));
+        }
+        entity.addTag(new TagList("Attributes", attributes, TagType.TAG_COMPOUND));
+
+        if (passengers > 0 && random.nextInt(4) == 0)
+        {
+            List<Tag<?>> list = new ArrayList<>(1);
+            list.add(entity(random, passengers - 1));
+            entity.addTag(new TagList("Passengers", list, TagType.TAG_COMPOUND));
+        }
+        return new TagCompound("", entity);
+    }
+
+    private static String text(Random random, int length)
+    {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++)
+        {
+            // Mostly ASCII with some Latin-1 supplement and Cyrillic characters mixed in
+            int roll = random.nextInt(100);
+            if (roll < 90)
+            {
+                chars[i] = (char) ('a' + random.nextInt(26));
+            }
+            else if (roll < 95)
+            {
+                chars[i] = (char) (0xC0 + random.nextInt(0x3F));
+            }
+            else
+            {
+                chars[i] = (char) (0x410 + random.nextInt(0x40));
+            }
+        }
+        return new String(chars);
+    }
+}
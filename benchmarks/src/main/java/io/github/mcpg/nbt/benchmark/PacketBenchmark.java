@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mcpg.nbt.benchmark;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import io.github.mcpg.nbt.NbtReader;
+import io.github.mcpg.nbt.NbtWriter;
+import io.github.mcpg.nbt.Snbt;
+import io.github.mcpg.nbt.Tag;
+import io.github.mcpg.nbt.TagCompound;
+import io.github.mcpg.nbt.TagInt;
+import io.github.mcpg.nbt.TagReadingUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Rewriting item NBT of a network packet, with a nameless root: the tag is read from a
+ * direct buffer, changed and written into another one. Stream variants wrap the buffers
+ * for every packet, like a proxy without buffer support has to.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PacketBenchmark
+{
+    private static final String ITEM = "{id:\"minecraft:diamond_sword\",Count:1b,tag:{Damage:12,"
+            + "Enchantments:[{id:\"minecraft:sharpness\",lvl:5s},{id:\"minecraft:unbreaking\",lvl:3s}],"
+            + "display:{Name:'{\"text\":\"Blade\",\"italic\":false}',Lore:['{\"text\":\"Line 1\"}',"
+            + "'{\"text\":\"Line 2\"}']},RepairCost:3}}";
+
+    private ByteBuffer input;
+    private ByteBuffer output;
+    private NbtWriter writer;
+    private int length;
+
+    @Setup
+    public void setUp()
+    {
+        Tag<?> item = Snbt.parse(ITEM);
+        writer = new NbtWriter();
+        writer.setNamelessRoot(true);
+        length = writer.getSize(item);
+        input = ByteBuffer.allocateDirect(length);
+        writer.write(item, input);
+        input.flip();
+        output = ByteBuffer.allocateDirect(length * 2);
+    }
+
+    @Benchmark
+    public int streams(ByteCounter counter) throws IOException
+    {
+        counter.bytes += length;
+        input.rewind();
+        output.clear();
+        Tag<?> item = TagReadingUtils.readNamelessTag(new DataInputStream(new BufferInputStream(input)));
+        rewrite(item);
+        DataOutputStream outputStream = new DataOutputStream(new BufferOutputStream(output));
+        item.writeNamelessTag(outputStream);
+        outputStream.flush();
+        return output.position();
+    }
+
+    @Benchmark
+    public int buffers(ByteCounter counter) throws IOException
+    {
+        counter.bytes += length;
+        output.clear();
+        NbtReader reader = new NbtReader(input);
+        reader.setNamelessRoot(true);
+        Tag<?> item = reader.readTag();
+        rewrite(item);
+        return writer.write(item, output);
+    }
+
+    @Benchmark
+    public int lazyBuffers(ByteCounter counter) throws IOException
+    {
+        counter.bytes += length;
+        output.clear();
+        NbtReader reader = new NbtReader(input);
+        reader.setNamelessRoot(true);
+        reader.setLazyCompounds(true);
+        Tag<?> item = reader.readTag();
+        rewrite(item);
+        return writer.write(item, output);
+    }
+
+    private static void rewrite(Tag<?> item)
+    {
+        TagCompound tag = (TagCompound) ((TagCompound) item).getValue().getTag("tag");
+        ((TagInt) tag.getValue().getTag("Damage")).setValue(0);
+    }
+
+    private static final class BufferInputStream extends InputStream
+    {
+        private final ByteBuffer buffer;
+
+        private BufferInputStream(ByteBuffer buffer)
+        {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read()
+        {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length)
+        {
+            if (!buffer.hasRemaining())
+            {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+    }
+
+    private static final class BufferOutputStream extends OutputStream
+    {
+        private final ByteBuffer buffer;
+
+        private BufferOutputStream(ByteBuffer buffer)
+        {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void write(int b)
+        {
+            buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length)
+        {
+            buffer.put(bytes, offset, length);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mcpg.nbt.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.github.mcpg.nbt.NbtPath;
+import io.github.mcpg.nbt.NbtReader;
+import io.github.mcpg.nbt.Tag;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Evaluating a compiled path on a document: after reading the whole tree, and directly on
+ * the serialized data.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PathBenchmark
+{
+    /**
+     * Queried document and path, separated with a space.
+     */
+    @Param({
+            "CHUNK_SECTIONS sections[{Y:3b}].block_states.palette",
+            "ENTITY_LIST Entities[{id:\"minecraft:entity_7\"}].Pos"
+    })
+    public String query;
+
+    private byte[] data;
+    private NbtPath path;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        int separator = query.indexOf(' ');
+        data = NbtWorkload.valueOf(query.substring(0, separator)).serialize();
+        path = NbtPath.compile(query.substring(separator + 1));
+    }
+
+    @Benchmark
+    public List<Tag<?>> tree(ByteCounter counter) throws IOException
+    {
+        counter.bytes += data.length;
+        return path.select(new NbtReader(data).readTag());
+    }
+
+    @Benchmark
+    public List<Tag<?>> bytes(ByteCounter counter) throws IOException
+    {
+        counter.bytes += data.length;
+        return path.select(data);
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mcpg.nbt.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import io.github.mcpg.nbt.NbtReader;
+import io.github.mcpg.nbt.NbtWriter;
+import io.github.mcpg.nbt.PersistentCompound;
+import io.github.mcpg.nbt.TagCompound;
+import io.github.mcpg.nbt.TagInt;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Producing a changed version of a tree that can be handed to another thread: a defensive
+ * deep copy of the mutable tree (through the fastest existing copy, a serialization round
+ * trip) versus a change of a persistent compound.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PersistentBenchmark
+{
+    @Param
+    public NbtWorkload workload;
+
+    private TagCompound tree;
+    private PersistentCompound persistent;
+    private NbtWriter writer;
+    private int counter;
+
+    @Setup
+    public void setUp()
+    {
+        tree = workload.create();
+        persistent = PersistentCompound.of(tree.getValue());
+        writer = new NbtWriter();
+    }
+
+    @Benchmark
+    public TagCompound deepCopy() throws IOException
+    {
+        TagCompound copy = (TagCompound) new NbtReader(writer.write(tree)).readTag();
+        copy.getValue().replaceTag(new TagInt("counter", counter++));
+        return copy;
+    }
+
+    @Benchmark
+    public PersistentCompound persistentWith()
+    {
+        return persistent.with("counter", new TagInt("", counter++));
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mcpg.nbt.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import io.github.mcpg.nbt.NbtProjection;
+import io.github.mcpg.nbt.NbtReader;
+import io.github.mcpg.nbt.Tag;
+import io.github.mcpg.nbt.TagReadingUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading only the inventories of a player file, compared to reading the whole file, from
+ * a stream and from an array.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProjectionBenchmark
+{
+    private byte[] data;
+    private NbtProjection projection;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        data = NbtWorkload.PLAYER.serialize();
+        projection = NbtProjection.of("Inventory", "EnderItems");
+    }
+
+    @Benchmark
+    public Tag<?> readTag(ByteCounter counter) throws IOException
+    {
+        counter.bytes += data.length;
+        return TagReadingUtils.readTag(new DataInputStream(new ByteArrayInputStream(data)));
+    }
+
+    @Benchmark
+    public Tag<?> projectStream(ByteCounter counter) throws IOException
+    {
+        counter.bytes += data.length;
+        return projection.read(new DataInputStream(new ByteArrayInputStream(data)));
+    }
+
+    @Benchmark
+    public Tag<?> nbtReader(ByteCounter counter) throws IOException
+    {
+        counter.bytes += data.length;
+        return new NbtReader(data).readTag();
+    }
+
+    @Benchmark
+    public Tag<?> projectArray(ByteCounter counter) throws IOException
+    {
+        counter.bytes += data.length;
+        return projection.read(data);
+    }
+}
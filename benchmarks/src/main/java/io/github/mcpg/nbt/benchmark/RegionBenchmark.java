@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mcpg.nbt.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import io.github.mcpg.nbt.NbtCompression;
+import io.github.mcpg.nbt.NbtReader;
+import io.github.mcpg.nbt.RegionFile;
+import io.github.mcpg.nbt.Tag;
+import io.github.mcpg.nbt.TagCompound;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading all 1024 chunks of a region file filled with {@link NbtWorkload#CHUNK_SECTIONS}
+ * chunks. Results are in regions/s.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RegionBenchmark
+{
+    @Param({"ZLIB", "NONE"})
+    public NbtCompression compression;
+
+    private Path directory;
+    private RegionFile region;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException
+    {
+        directory = Files.createTempDirectory("mcpg-nbt-region");
+        TagCompound chunk = NbtWorkload.CHUNK_SECTIONS.create();
+        try (RegionFile region = new RegionFile(directory.resolve("r.0.0.mca")))
+        {
+            for (int i = 0; i < RegionFile.CHUNKS; i++)
+            {
+                region.writeChunk(i & 31, i >> 5, chunk, compression);
+            }
+        }
+        region = new RegionFile(directory.resolve("r.0.0.mca"), true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException
+    {
+        region.close();
+        Files.delete(directory.resolve("r.0.0.mca"));
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public int readAllChunks() throws IOException
+    {
+        int read = 0;
+        for (int i = 0; i < RegionFile.CHUNKS; i++)
+        {
+            Tag<?> chunk = region.readChunk(i & 31, i >> 5);
+            if (chunk != null)
+            {
+                read++;
+            }
+        }
+        return read;
+    }
+
+    @Benchmark
+    public int decompressAllChunks() throws IOException
+    {
+        int bytes = 0;
+        for (int i = 0; i < RegionFile.CHUNKS; i++)
+        {
+            NbtReader reader = region.openChunk(i & 31, i >> 5);
+            bytes += reader.remaining();
+        }
+        return bytes;
+    }
+}
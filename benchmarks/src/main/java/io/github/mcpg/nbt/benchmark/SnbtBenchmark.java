@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mcpg.nbt.benchmark;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import io.github.mcpg.nbt.Snbt;
+import io.github.mcpg.nbt.Tag;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing and printing SNBT of at least 4 MB: a list of copies of the workload. Counted
+ * bytes are characters of the SNBT.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SnbtBenchmark
+{
+    private static final int MIN_LENGTH = 4 << 20;
+
+    @Param
+    public NbtWorkload workload;
+
+    private String snbt;
+    private Tag<?> tag;
+    private StringBuilder builder;
+    private Writer writer;
+
+    @Setup
+    public void setUp()
+    {
+        String document = Snbt.toString(workload.create());
+        StringBuilder list = new StringBuilder("[");
+        while (list.length() < MIN_LENGTH)
+        {
+            if (list.length() > 1)
+            {
+                list.append(',');
+            }
+            list.append(document);
+        }
+        snbt = list.append(']').toString();
+        tag = Snbt.parse(snbt);
+        builder = new StringBuilder(snbt.length());
+        writer = new Writer()
+        {
+            @Override
+            public void write(char[] chars, int offset, int length)
+            {
+            }
+
+            @Override
+            public void flush()
+            {
+            }
+
+            @Override
+            public void close()
+            {
+            }
+        };
+    }
+
+    @Benchmark
+    public Tag<?> parse(ByteCounter counter)
+    {
+        counter.bytes += snbt.length();
+        return Snbt.parse(snbt);
+    }
+
+    @Benchmark
+    public int printToBuilder(ByteCounter counter) throws IOException
+    {
+        counter.bytes += snbt.length();
+        builder.setLength(0);
+        Snbt.write(tag, builder);
+        return builder.length();
+    }
+
+    @Benchmark
+    public void printToWriter(ByteCounter counter) throws IOException
+    {
+        counter.bytes += snbt.length();
+        Snbt.write(tag, writer);
+    }
+}
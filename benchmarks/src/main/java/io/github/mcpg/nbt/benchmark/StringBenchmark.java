@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mcpg.nbt.benchmark;
+
+import java.io.UTFDataFormatException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import io.github.mcpg.nbt.ModifiedUtf8;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares {@link ModifiedUtf8} with the JDK's standard UTF-8 coder on short identifiers and
+ * long lore-like text.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StringBenchmark
+{
+    @Param({"ASCII", "NON_ASCII"})
+    public String text;
+
+    @Param({"16", "1024"})
+    public int length;
+
+    private String string;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp()
+    {
+        Random random = new Random(text.hashCode() + length);
+        String alphabet = text.equals("ASCII") ? "abcdefghijklmnopqrstuvwxyz _:" : "abcdefgh \u00e9\u015b\u0142\u00a7\u4e16\u754c";
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++)
+        {
+            builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        string = builder.toString();
+        encoded = ModifiedUtf8.encode(string);
+    }
+
+    @Benchmark
+    public String decodeModifiedUtf8(ByteCounter counter) throws UTFDataFormatException
+    {
+        counter.bytes += encoded.length;
+        return ModifiedUtf8.decode(encoded, 0, encoded.length);
+    }
+
+    @Benchmark
+    public String decodeJdkUtf8(ByteCounter counter)
+    {
+        counter.bytes += encoded.length;
+        return new String(encoded, 0, encoded.length, StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] encodeModifiedUtf8(ByteCounter counter)
+    {
+        counter.bytes += encoded.length;
+        return ModifiedUtf8.encode(string);
+    }
+
+    @Benchmark
+    public byte[] encodeJdkUtf8(ByteCounter counter)
+    {
+        counter.bytes += encoded.length;
+        return string.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mcpg.nbt;
+
+import java.io.UTFDataFormatException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encoder and decoder of Java's Modified UTF-8, the encoding of names and strings in NBT
+ * (the same as used by {@link java.io.DataInput#readUTF()}). It differs from standard UTF-8
+ * in two ways: the null character is encoded as two bytes, and supplementary characters are
+ * encoded as their two surrogates, three bytes each.
+ * <p>
+ * Decoding goes through the JDK's UTF-8 decoder, which has a vectorized path for ASCII
+ * (by far the most common case), and falls back to a Modified UTF-8 decoder only if the
+ * string contains sequences standard UTF-8 doesn't accept. For compatibility with other
+ * tools, standard 4-byte sequences of supplementary characters are accepted as well.
+ */
+public final class ModifiedUtf8
+{
+    private static final char REPLACEMENT_CHARACTER = '\ufffd';
+
+    private ModifiedUtf8()
+    {
+    }
+
+    /**
+     * Returns amount of bytes given string takes when encoded.
+     *
+     * @param string string to measure
+     *
+     * @return encoded length in bytes
+     */
+    public static int getEncodedLength(String string)
+    {
+        int length = string.length();
+        int encodedLength = length;
+        for (int i = 0; i < length; i++)
+        {
+            char c = string.charAt(i);
+            if (c >= 0x80 || c == 0)
+            {
+                encodedLength += c >= 0x800 ? 2 : 1;
+            }
+        }
+        return encodedLength;
+    }
+
+    /**
+     * Encodes given string into a new array.
+     *
+     * @param string string to encode
+     *
+     * @return encoded string
+     */
+    public static byte[] encode(String string)
+    {
+        byte[] encoded = new byte[getEncodedLength(string)];
+        encode(string, encoded, 0);
+        return encoded;
+    }
+
+    /**
+     * Encodes given string into an array, starting at <code>offset</code>. The array must
+     * have at least {@link #getEncodedLength(String)} bytes left.
+     *
+     * @param string string to encode
+     * @param target array to write to
+     * @param offset index of the first byte to write
+     *
+     * @return amount of written bytes
+     *
+     * @throws IndexOutOfBoundsException if the array is too small
+     */
+    public static int encode(String string, byte[] target, int offset)
+    {
+        int length = string.length();
+        int index = offset;
+        int i = 0;
+        // ASCII prefix
+        for (; i < length; i++)
+        {
+            char c = string.charAt(i);
+            if (c >= 0x80 || c == 0)
+            {
+                break;
+            }
+            target[index++] = (byte) c;
+        }
+        for (; i < length; i++)
+        {
+            char c = string.charAt(i);
+            if (c < 0x80 && c != 0)
+            {
+                target[index++] = (byte) c;
+            }
+            else if (c < 0x800)
+            {
+                target[index++] = (byte) (0xc0 | c >> 6);
+                target[index++] = (byte) (0x80 | c & 0x3f);
+            }
+            else
+            {
+                target[index++] = (byte) (0xe0 | c >> 12);
+                target[index++] = (byte) (0x80 | c >> 6 & 0x3f);
+                target[index++] = (byte) (0x80 | c & 0x3f);
+            }
+        }
+        return index - offset;
+    }
+
+    /**
+     * Decodes a string.
+     *
+     * @param data   array with encoded string
+     * @param offset index of the first byte of the string
+     * @param length length of the encoded string in bytes
+     *
+     * @return decoded string
+     *
+     * @throws UTFDataFormatException if data isn't valid Modified UTF-8
+     */
+    public static String decode(byte[] data, int offset, int length) throws UTFDataFormatException
+    {
+        // Modified UTF-8 is standard UTF-8 except for the null character and supplementary
+        // characters, which the JDK decoder (vectorized for ASCII) replaces with U+FFFD
+        String string = new String(data, offset, length, StandardCharsets.UTF_8);
+        if (string.indexOf(REPLACEMENT_CHARACTER) < 0)
+        {
+            return string;
+        }
+        return decodeSlow(data, offset, offset + length);
+    }
+
+    private static String decodeSlow(byte[] data, int offset, int end) throws UTFDataFormatException
+    {
+        char[] chars = new char[end - offset];
+        int count = 0;
+        int i = offset;
+        while (i < end)
+        {
+            int b = data[i] & 0xff;
+            if (b < 0x80)
+            {
+                chars[count++] = (char) b;
+                i++;
+            }
+            else if ((b & 0xe0) == 0xc0)
+            {
+                if (i + 1 >= end || (data[i + 1] & 0xc0) != 0x80)
+                {
+                    throw malformed(i - offset);
+                }
+                chars[count++] = (char) ((b & 0x1f) << 6 | data[i + 1] & 0x3f);
+                i += 2;
+            }
+            else if ((b & 0xf0) == 0xe0)
+            {
+                if (i + 2 >= end || (data[i + 1] & 0xc0) != 0x80 || (data[i + 2] & 0xc0) != 0x80)
+                {
+                    throw malformed(i - offset);
+                }
+                chars[count++] = (char) ((b & 0x0f) << 12 | (data[i + 1] & 0x3f) << 6 | data[i + 2] & 0x3f);
+                i += 3;
+            }
+            else if ((b & 0xf8) == 0xf0)
+            {
+                // Standard 4-byte sequence of a supplementary character
+                if (i + 3 >= end || (data[i + 1] & 0xc0) != 0x80 || (data[i + 2] & 0xc0) != 0x80
+                        || (data[i + 3] & 0xc0) != 0x80)
+                {
+                    throw malformed(i - offset);
+                }
+                int codePoint = (b & 0x07) << 18 | (data[i + 1] & 0x3f) << 12 | (data[i + 2] & 0x3f) << 6
+                        | data[i + 3] & 0x3f;
+                if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT || codePoint > Character.MAX_CODE_POINT)
+                {
+                    throw malformed(i - offset);
+                }
+                chars[count++] = Character.highSurrogate(codePoint);
+                chars[count++] = Character.lowSurrogate(codePoint);
+                i += 4;
+            }
+            else
+            {
+                throw malformed(i - offset);
+            }
+        }
+        return new String(chars, 0, count);
+    }
+
+    private static UTFDataFormatException malformed(int index)
+    {
+        return new UTFDataFormatException("Malformed Modified UTF-8 input around byte " + index + "!");
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mcpg.nbt;
+
+/**
+ * Compression formats NBT data is stored with.
+ */
+public enum NbtCompression
+{
+    /**
+     * GZIP, used by <code>level.dat</code> and player files.
+     */
+    GZIP(1),
+
+    /**
+     * zlib, used by chunks in region files and by network packets.
+     */
+    ZLIB(2),
+
+    /**
+     * No compression at all.
+     */
+    NONE(3);
+
+    private final int regionId;
+
+    NbtCompression(int regionId)
+    {
+        this.regionId = regionId;
+    }
+
+    /**
+     * Returns id of this compression in chunk headers of region files.
+     *
+     * @return id of this compression
+     */
+    public int getRegionId()
+    {
+        return regionId;
+    }
+
+    /**
+     * Finds compression by its id in chunk headers of region files.
+     *
+     * @param regionId id of the compression
+     *
+     * @return compression with given id, or null if there's none
+     */
+    public static NbtCompression byRegionId(int regionId)
+    {
+        for (NbtCompression compression : values())
+        {
+            if (compression.regionId == regionId)
+            {
+                return compression;
+            }
+        }
+        return null;
+    }
+}
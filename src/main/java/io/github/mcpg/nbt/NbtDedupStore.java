@@ -0,0 +1,662 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mcpg.nbt;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UTFDataFormatException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.github.mcpg.nbt.TagCompound.CompoundContent;
+
+/**
+ * Content-addressed store of tag trees, which keeps every distinct subtree only once. Many
+ * trees of a world have parts in common (the same enchanted item in several inventories,
+ * block entities created from the same template, uniform chunk sections), and a store
+ * shared by all of them keeps each such part once, no matter how many trees contain it.
+ * <p>
+ * Compounds, lists and arrays whose payload takes at least {@link #getMinNodeSize()} bytes
+ * are stored as separate nodes. A node is the payload in NBT format, except that subtrees
+ * stored as nodes are replaced by 8 byte references. A node is identified by the
+ * {@link XxHash64} hash of its contents, so the identifier of a subtree depends only on the
+ * subtree, and equal subtrees end up in the same node. Nodes are never removed.
+ * <p>
+ * {@link #put(Tag)} returns identifier of the tree's root node, which is all that's needed
+ * to get the tree back with {@link #get(long)}. The store can be saved with
+ * {@link #writeTo(OutputStream)} and loaded with {@link #readFrom(InputStream)}, and
+ * identifiers stay valid. This class isn't thread safe.
+ */
+public final class NbtDedupStore
+{
+    /**
+     * Default value of {@link #getMinNodeSize()}.
+     */
+    public static final int DEFAULT_MIN_NODE_SIZE = 64;
+
+    /**
+     * Flag set on type id of a compound's tag, or on marker of a list's element, if the
+     * payload is replaced by a reference.
+     */
+    private static final int REFERENCE = 0x80;
+
+    private final int minNodeSize;
+    private final Map<Long, byte[]> nodes = new HashMap<>();
+    private final NbtWriter sizeWriter = new NbtWriter();
+    private byte[] buffer = new byte[256];
+    private int size;
+    private int treeCount;
+    private long duplicateCount;
+    private long storedSize;
+    private long totalSize;
+
+    /**
+     * Creates new empty store, with the default minimal size of a node.
+     */
+    public NbtDedupStore()
+    {
+        this(DEFAULT_MIN_NODE_SIZE);
+    }
+
+    /**
+     * Creates new empty store. Smaller nodes make smaller subtrees shared as well, but every
+     * node costs a map entry and a reference of 8 bytes.
+     *
+     * @param minNodeSize minimal size of payload of a compound, list or array to be stored
+     *                    as a separate node
+     *
+     * @throws IllegalArgumentException if minNodeSize is negative
+     */
+    public NbtDedupStore(int minNodeSize)
+    {
+        if (minNodeSize < 0)
+        {
+            throw new IllegalArgumentException("Negative node size " + minNodeSize + "!");
+        }
+        this.minNodeSize = minNodeSize;
+    }
+
+    /**
+     * Reads a store written by {@link #writeTo(OutputStream)}. Identifiers of the nodes are
+     * computed again, so the stream doesn't have to be trusted to have them right.
+     *
+     * @param inputStream input stream to use
+     *
+     * @return read store, with the default minimal size of a node
+     *
+     * @throws IOException           if any I/O error occurs
+     * @throws IllegalStateException if data is malformed
+     */
+    public static NbtDedupStore readFrom(InputStream inputStream) throws IOException
+    {
+        DataInputStream input = new DataInputStream(inputStream);
+        NbtDedupStore store = new NbtDedupStore();
+        int count = input.readInt();
+        if (count < 0)
+        {
+            throw new IllegalStateException("Negative node count " + count + "!");
+        }
+        for (int i = 0; i < count; i++)
+        {
+            int length = input.readInt();
+            if (length < 1)
+            {
+                throw new IllegalStateException("Node of length " + length + "!");
+            }
+            byte[] node = new byte[length];
+            input.readFully(node);
+            long id = XxHash64.hash(node, 1, length - 1, node[0]);
+            if (store.nodes.put(id, node) != null)
+            {
+                throw new IllegalStateException("Node " + Long.toHexString(id) + " is stored twice!");
+            }
+            store.storedSize += length;
+        }
+        return store;
+    }
+
+    /**
+     * Returns minimal size of payload of a compound, list or array to be stored as a
+     * separate node.
+     *
+     * @return minimal size of a node
+     */
+    public int getMinNodeSize()
+    {
+        return minNodeSize;
+    }
+
+    /**
+     * Stores given tag, and returns identifier of its root node. The root node is created
+     * even if it's smaller than {@link #getMinNodeSize()}. The tag's name isn't stored.
+     *
+     * @param tag tag to store
+     *
+     * @return identifier of the tag
+     *
+     * @throws NullPointerException  if tag is null
+     * @throws IllegalStateException if two different nodes have the same hash
+     */
+    public long put(Tag<?> tag)
+    {
+        if (tag == null)
+        {
+            throw new NullPointerException("tag is null");
+        }
+        totalSize += sizeWriter.getSize(tag);
+        treeCount++;
+        size = 0;
+        writePayload(tag);
+        return storeNode(tag.getType(), 0);
+    }
+
+    /**
+     * Reads tag stored by {@link #put(Tag)}. Every call creates new tag, which shares
+     * nothing with other tags read from the store.
+     *
+     * @param id identifier of the tag
+     *
+     * @return the tag, with empty name
+     *
+     * @throws IllegalArgumentException if there's no node with this identifier
+     * @throws IllegalStateException    if stored data is malformed
+     */
+    public Tag<?> get(long id)
+    {
+        byte[] node = getNode(id);
+        return readNode(node, TagType.byId(node[0]), "");
+    }
+
+    /**
+     * Checks if there's a node with given identifier.
+     *
+     * @param id identifier of the node
+     *
+     * @return <code>true</code> if found
+     */
+    public boolean contains(long id)
+    {
+        return nodes.containsKey(id);
+    }
+
+    /**
+     * Returns amount of distinct nodes in the store.
+     *
+     * @return amount of nodes
+     */
+    public int getNodeCount()
+    {
+        return nodes.size();
+    }
+
+    /**
+     * Returns how many nodes created by {@link #put(Tag)} were already in the store.
+     *
+     * @return amount of deduplicated nodes
+     */
+    public long getDuplicateCount()
+    {
+        return duplicateCount;
+    }
+
+    /**
+     * Returns amount of trees stored by {@link #put(Tag)}.
+     *
+     * @return amount of trees
+     */
+    public int getTreeCount()
+    {
+        return treeCount;
+    }
+
+    /**
+     * Returns size of all distinct nodes, roughly the size of the store written by
+     * {@link #writeTo(OutputStream)}.
+     *
+     * @return size of the nodes in bytes
+     */
+    public long getStoredSize()
+    {
+        return storedSize;
+    }
+
+    /**
+     * Returns size all trees stored by {@link #put(Tag)} take in NBT, that is how much
+     * would be taken if each of them was saved on its own.
+     *
+     * @return size of the trees in bytes
+     */
+    public long getTotalSize()
+    {
+        return totalSize;
+    }
+
+    /**
+     * Writes all nodes of this store. Statistics of {@link #put(Tag)} calls aren't written.
+     *
+     * @param outputStream output stream to use
+     *
+     * @throws IOException if any I/O error occurs
+     */
+    public void writeTo(OutputStream outputStream) throws IOException
+    {
+        DataOutputStream output = new DataOutputStream(outputStream);
+        output.writeInt(nodes.size());
+        for (byte[] node : nodes.values())
+        {
+            output.writeInt(node.length);
+            output.write(node);
+        }
+        output.flush();
+    }
+
+    /**
+     * Writes payload of the tag at the end of the buffer, replacing large enough subtrees
+     * by references.
+     */
+    private void writePayload(Tag<?> tag)
+    {
+        switch (tag.getType())
+        {
+            case TAG_BYTE:
+                writeByte(((TagByte) tag).getByte());
+                break;
+            case TAG_SHORT:
+                writeShort(((TagShort) tag).getShort());
+                break;
+            case TAG_INT:
+                writeInt(((TagInt) tag).getInt());
+                break;
+            case TAG_LONG:
+                writeLong(((TagLong) tag).getLong());
+                break;
+            case TAG_FLOAT:
+                writeInt(Float.floatToIntBits(((TagFloat) tag).getFloat()));
+                break;
+            case TAG_DOUBLE:
+                writeLong(Double.doubleToLongBits(((TagDouble) tag).getDouble()));
+                break;
+            case TAG_BYTE_ARRAY:
+                byte[] bytes = ((TagByteArray) tag).getValue();
+                writeInt(bytes.length);
+                writeBytes(bytes);
+                break;
+            case TAG_STRING:
+                byte[] string = ((TagString) tag).getEncodedValue();
+                writeShort(string.length);
+                writeBytes(string);
+                break;
+            case TAG_LIST:
+                writeList((TagList) tag);
+                break;
+            case TAG_COMPOUND:
+                for (Tag<?> child : ((TagCompound) tag).getValue().getTagsList())
+                {
+                    int marker = size;
+                    writeByte(child.getType().getId());
+                    byte[] name = child.getEncodedName();
+                    writeShort(name.length);
+                    writeBytes(name);
+                    writeChild(child, marker);
+                }
+                writeByte(TagType.TAG_END.getId());
+                break;
+            case TAG_INT_ARRAY:
+                int[] ints = ((TagIntArray) tag).getValue();
+                writeInt(ints.length);
+                for (int element : ints)
+                {
+                    writeInt(element);
+                }
+                break;
+            case TAG_LONG_ARRAY:
+                long[] longs = ((TagLongArray) tag).getValue();
+                writeInt(longs.length);
+                for (long element : longs)
+                {
+                    writeLong(element);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Can't store " + tag.getType() + "!");
+        }
+    }
+
+    private void writeList(TagList list)
+    {
+        TagType listType = list.getListType() == null ? TagType.TAG_END : list.getListType();
+        int count = list.getSize();
+        writeByte(listType.getId());
+        writeInt(count);
+        for (int i = 0; i < count; i++)
+        {
+            switch (listType)
+            {
+                case TAG_BYTE:
+                    writeByte(list.getByte(i));
+                    break;
+                case TAG_SHORT:
+                    writeShort(list.getShort(i));
+                    break;
+                case TAG_INT:
+                    writeInt(list.getInt(i));
+                    break;
+                case TAG_LONG:
+                    writeLong(list.getLong(i));
+                    break;
+                case TAG_FLOAT:
+                    writeInt(Float.floatToIntBits(list.getFloat(i)));
+                    break;
+                case TAG_DOUBLE:
+                    writeLong(Double.doubleToLongBits(list.getDouble(i)));
+                    break;
+                case TAG_STRING:
+                    writePayload(list.getValue().get(i));
+                    break;
+                default:
+                    // Elements which can be stored as nodes have a marker
+                    int marker = size;
+                    writeByte(0);
+                    writeChild(list.getValue().get(i), marker);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Writes payload of a compound's tag or of a list's element, and replaces it by a
+     * reference if it's large enough, flagging the byte at <code>marker</code>.
+     */
+    private void writeChild(Tag<?> tag, int marker)
+    {
+        int start = size;
+        writePayload(tag);
+        if (isNodeType(tag.getType()) && size - start >= minNodeSize)
+        {
+            long id = storeNode(tag.getType(), start);
+            writeLong(id);
+            buffer[marker] |= REFERENCE;
+        }
+    }
+
+    /**
+     * Stores payload at the end of the buffer as a node, and removes it from the buffer.
+     */
+    private long storeNode(TagType type, int start)
+    {
+        int length = size - start;
+        // Type is a part of the node, so it's hashed as seed
+        long id = XxHash64.hash(buffer, start, length, type.getId());
+        byte[] node = nodes.get(id);
+        if (node == null)
+        {
+            node = new byte[length + 1];
+            node[0] = (byte) type.getId();
+            System.arraycopy(buffer, start, node, 1, length);
+            nodes.put(id, node);
+            storedSize += node.length;
+        }
+        else
+        {
+            if (node[0] != type.getId() || node.length != length + 1 || !regionEquals(node, start))
+            {
+                throw new IllegalStateException("Different nodes with hash " + Long.toHexString(id) + "!");
+            }
+            duplicateCount++;
+        }
+        size = start;
+        return id;
+    }
+
+    private boolean regionEquals(byte[] node, int start)
+    {
+        for (int i = 1; i < node.length; i++)
+        {
+            if (node[i] != buffer[start + i - 1])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isNodeType(TagType type)
+    {
+        switch (type)
+        {
+            case TAG_BYTE_ARRAY:
+            case TAG_LIST:
+            case TAG_COMPOUND:
+            case TAG_INT_ARRAY:
+            case TAG_LONG_ARRAY:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private byte[] getNode(long id)
+    {
+        byte[] node = nodes.get(id);
+        if (node == null)
+        {
+            throw new IllegalArgumentException("There's no node " + Long.toHexString(id) + "!");
+        }
+        return node;
+    }
+
+    private Tag<?> readNode(byte[] node, TagType type, String name)
+    {
+        if (type == null || type == TagType.TAG_END)
+        {
+            throw new IllegalStateException("Node of unknown type " + node[0] + "!");
+        }
+        ByteBuffer input = ByteBuffer.wrap(node, 1, node.length - 1);
+        try
+        {
+            return readPayload(input, type, name);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e)
+        {
+            throw new IllegalStateException("Node is truncated!", e);
+        } catch (UTFDataFormatException e)
+        {
+            throw new IllegalStateException("Node has malformed string!", e);
+        }
+    }
+
+    /**
+     * Reads a reference to a node of given type.
+     */
+    private Tag<?> readReference(ByteBuffer input, TagType type, String name)
+    {
+        byte[] node = getNode(input.getLong());
+        if (node[0] != type.getId())
+        {
+            throw new IllegalStateException("Expected node of " + type + ", found " + TagType.byId(node[0]) + "!");
+        }
+        return readNode(node, type, name);
+    }
+
+    private Tag<?> readPayload(ByteBuffer input, TagType type, String name) throws UTFDataFormatException
+    {
+        switch (type)
+        {
+            case TAG_BYTE:
+                return new TagByte(name, input.get());
+            case TAG_SHORT:
+                return new TagShort(name, input.getShort());
+            case TAG_INT:
+                return new TagInt(name, input.getInt());
+            case TAG_LONG:
+                return new TagLong(name, input.getLong());
+            case TAG_FLOAT:
+                return new TagFloat(name, input.getFloat());
+            case TAG_DOUBLE:
+                return new TagDouble(name, input.getDouble());
+            case TAG_BYTE_ARRAY:
+                byte[] bytes = new byte[input.getInt()];
+                input.get(bytes);
+                return new TagByteArray(name, bytes);
+            case TAG_STRING:
+                int length = input.getShort() & 0xFFFF;
+                String value = ModifiedUtf8.decode(input.array(), input.position(), length);
+                input.position(input.position() + length);
+                return new TagString(name, value);
+            case TAG_LIST:
+                return readList(input, name);
+            case TAG_COMPOUND:
+                CompoundContent content = new CompoundContent();
+                int id;
+                while ((id = input.get() & 0xFF) != TagType.TAG_END.getId())
+                {
+                    TagType childType = TagType.byId(id & ~REFERENCE);
+                    if (childType == null || childType == TagType.TAG_END)
+                    {
+                        throw new IllegalStateException("Detected unknown tag with ID " + id + "!");
+                    }
+                    int nameLength = input.getShort() & 0xFFFF;
+                    String childName = StringCache.getDefaultNameCache().get(input.array(), input.position(), nameLength);
+                    input.position(input.position() + nameLength);
+                    content.addTag((id & REFERENCE) != 0 ? readReference(input, childType, childName)
+                            : readPayload(input, childType, childName));
+                }
+                return new TagCompound(name, content);
+            case TAG_INT_ARRAY:
+                int[] ints = new int[input.getInt()];
+                input.asIntBuffer().get(ints);
+                input.position(input.position() + ints.length * 4);
+                return new TagIntArray(name, ints);
+            case TAG_LONG_ARRAY:
+                long[] longs = new long[input.getInt()];
+                input.asLongBuffer().get(longs);
+                input.position(input.position() + longs.length * 8);
+                return new TagLongArray(name, longs);
+            default:
+                throw new IllegalStateException("Detected unknown tag " + type + "!");
+        }
+    }
+
+    private TagList readList(ByteBuffer input, String name) throws UTFDataFormatException
+    {
+        TagType listType = TagType.byId(input.get() & 0xFF);
+        int count = input.getInt();
+        if (listType == null || count < 0 || (count > 0 && listType == TagType.TAG_END))
+        {
+            throw new IllegalStateException("Incorrect list!");
+        }
+        switch (listType)
+        {
+            case TAG_BYTE:
+                byte[] bytes = new byte[count];
+                input.get(bytes);
+                return new TagList(name, bytes);
+            case TAG_SHORT:
+                short[] shorts = new short[count];
+                input.asShortBuffer().get(shorts);
+                input.position(input.position() + count * 2);
+                return new TagList(name, shorts);
+            case TAG_INT:
+                int[] ints = new int[count];
+                input.asIntBuffer().get(ints);
+                input.position(input.position() + count * 4);
+                return new TagList(name, ints);
+            case TAG_LONG:
+                long[] longs = new long[count];
+                input.asLongBuffer().get(longs);
+                input.position(input.position() + count * 8);
+                return new TagList(name, longs);
+            case TAG_FLOAT:
+                float[] floats = new float[count];
+                input.asFloatBuffer().get(floats);
+                input.position(input.position() + count * 4);
+                return new TagList(name, floats);
+            case TAG_DOUBLE:
+                double[] doubles = new double[count];
+                input.asDoubleBuffer().get(doubles);
+                input.position(input.position() + count * 8);
+                return new TagList(name, doubles);
+            default:
+                break;
+        }
+        List<Tag<?>> elements = new ArrayList<>(Math.min(count, 1024));
+        for (int i = 0; i < count; i++)
+        {
+            if (listType == TagType.TAG_STRING)
+            {
+                elements.add(readPayload(input, listType, ""));
+            }
+            else
+            {
+                boolean reference = (input.get() & REFERENCE) != 0;
+                elements.add(reference ? readReference(input, listType, "") : readPayload(input, listType, ""));
+            }
+        }
+        return new TagList(name, elements, listType);
+    }
+
+    private void writeByte(int value)
+    {
+        ensureCapacity(1);
+        buffer[size++] = (byte) value;
+    }
+
+    private void writeShort(int value)
+    {
+        ensureCapacity(2);
+        buffer[size++] = (byte) (value >>> 8);
+        buffer[size++] = (byte) value;
+    }
+
+    private void writeInt(int value)
+    {
+        ensureCapacity(4);
+        buffer[size++] = (byte) (value >>> 24);
+        buffer[size++] = (byte) (value >>> 16);
+        buffer[size++] = (byte) (value >>> 8);
+        buffer[size++] = (byte) value;
+    }
+
+    private void writeLong(long value)
+    {
+        writeInt((int) (value >>> 32));
+        writeInt((int) value);
+    }
+
+    private void writeBytes(byte[] bytes)
+    {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    private void ensureCapacity(int extra)
+    {
+        if (size + extra > buffer.length)
+        {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+}
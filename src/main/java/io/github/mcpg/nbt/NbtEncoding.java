@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mcpg.nbt;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Binary encodings of NBT data. All of them share the same tag types and structure, but
+ * differ in how numbers and lengths are written. Each encoding has its own
+ * {@link NbtReader} and {@link NbtWriter} code path, so no value is converted from another
+ * encoding while it's read or written.
+ */
+public enum NbtEncoding
+{
+    /**
+     * Big-endian encoding of Java Edition, used by files, region files and network packets.
+     */
+    JAVA
+    {
+        @Override
+        public NbtReader newReader(ByteBuffer buffer)
+        {
+            return new NbtReader(buffer);
+        }
+
+        @Override
+        public NbtWriter newWriter()
+        {
+            return new NbtWriter();
+        }
+    },
+
+    /**
+     * Little-endian encoding of Bedrock Edition, used by <code>level.dat</code> and LevelDB
+     * entries.
+     */
+    BEDROCK
+    {
+        @Override
+        public NbtReader newReader(ByteBuffer buffer)
+        {
+            return new NbtReader(buffer, ByteOrder.LITTLE_ENDIAN);
+        }
+
+        @Override
+        public NbtWriter newWriter()
+        {
+            return new NbtWriter(ByteOrder.LITTLE_ENDIAN);
+        }
+    },
+
+    /**
+     * Encoding of Bedrock Edition network packets. It's little-endian, but TAG_Int and
+     * TAG_Long values (including elements of arrays and lists) are zigzag-encoded varints,
+     * lengths of lists and arrays are zigzag-encoded varints, and lengths of names and
+     * strings are unsigned varints.
+     */
+    BEDROCK_NETWORK
+    {
+        @Override
+        public NbtReader newReader(ByteBuffer buffer)
+        {
+            return new NetworkNbtReader(buffer);
+        }
+
+        @Override
+        public NbtWriter newWriter()
+        {
+            return new NetworkNbtWriter();
+        }
+    };
+
+    /**
+     * Creates new reader reading whole given array in this encoding.
+     *
+     * @param data data to read
+     *
+     * @return new reader
+     */
+    public NbtReader newReader(byte[] data)
+    {
+        return newReader(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Creates new reader reading <code>length</code> bytes of given array in this encoding,
+     * starting at <code>offset</code>.
+     *
+     * @param data   data to read
+     * @param offset offset of the first byte to read
+     * @param length amount of bytes that can be read
+     *
+     * @return new reader
+     *
+     * @throws IndexOutOfBoundsException if offset or length is out of array's bounds
+     */
+    public NbtReader newReader(byte[] data, int offset, int length)
+    {
+        return newReader(ByteBuffer.wrap(data, offset, length));
+    }
+
+    /**
+     * Creates new reader reading bytes between buffer's position and its limit in this
+     * encoding. Reading doesn't change the position of given buffer.
+     *
+     * @param buffer buffer to read
+     *
+     * @return new reader
+     */
+    public abstract NbtReader newReader(ByteBuffer buffer);
+
+    /**
+     * Creates new writer writing in this encoding.
+     *
+     * @return new writer
+     */
+    public abstract NbtWriter newWriter();
+}
@@ -0,0 +1,717 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mcpg.nbt;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Pull parser reading NBT data as a sequence of events ({@link NbtToken}s), without
+ * creating {@link Tag} objects. Only the path to the current tag is kept in memory,
+ * so data of any size can be processed with constant memory.
+ * <p>
+ * Typical usage:
+ * <pre>
+ * NbtEventReader reader = new NbtEventReader(inputStream);
+ * while (reader.next() != NbtToken.END_DOCUMENT)
+ * {
+ *     if (reader.getDepth() == 1 &amp;&amp; "DataVersion".equals(reader.getName()))
+ *     {
+ *         return reader.getInt();
+ *     }
+ *     if (reader.getDepth() &gt; 0)
+ *     {
+ *         reader.skipValue();
+ *     }
+ * }
+ * </pre>
+ * Payloads of {@link NbtToken#VALUE} events are read only when one of the value getters
+ * is called; otherwise they're skipped when {@link #next()} is called. Whole compounds and
+ * lists can be skipped with {@link #skipValue()}, which uses length prefixes where possible.
+ * <p>
+ * Instances of this class aren't thread safe.
+ */
+public class NbtEventReader
+{
+    private static final int COMPOUND = 0;
+    private static final int LIST = 1;
+
+    private final DataInputStream inputStream;
+
+    private int[] containers = new int[16];
+    private int[] remaining = new int[16];
+    private TagType[] listTypes = new TagType[16];
+    private int depth;
+
+    private NbtToken token;
+    private TagType type;
+    private String name;
+    private TagType listType;
+    private int listSize;
+    private int arrayLength;
+    private boolean payloadPending;
+    private boolean namelessRoot;
+
+    /**
+     * Creates new event reader reading from given input stream.
+     *
+     * @param inputStream input stream to use
+     */
+    public NbtEventReader(DataInputStream inputStream)
+    {
+        this.inputStream = inputStream;
+    }
+
+    /**
+     * Returns whether the root tag is read without a name.
+     *
+     * @return <code>true</code> if nameless root mode is enabled
+     */
+    public boolean isNamelessRoot()
+    {
+        return namelessRoot;
+    }
+
+    /**
+     * Enables or disables nameless root mode, in which the root tag has no name after its
+     * type id (see {@link NbtReader#setNamelessRoot(boolean)}). It has to be set before the
+     * first event is read. Nameless root mode is disabled by default.
+     *
+     * @param namelessRoot <code>true</code> to enable nameless root mode
+     */
+    public void setNamelessRoot(boolean namelessRoot)
+    {
+        this.namelessRoot = namelessRoot;
+    }
+
+    /**
+     * Moves to the next event. If current event is {@link NbtToken#VALUE} and its payload
+     * hasn't been read, it's skipped.
+     *
+     * @return kind of the next event
+     *
+     * @throws IOException           if any I/O error occurs
+     * @throws IllegalStateException if data is malformed
+     */
+    public NbtToken next() throws IOException
+    {
+        if (token == NbtToken.END_DOCUMENT)
+        {
+            return token;
+        }
+        if (payloadPending)
+        {
+            skipPayloadRest();
+        }
+        if (depth == 0)
+        {
+            if (token != null)
+            {
+                return token = NbtToken.END_DOCUMENT;
+            }
+            TagType rootType = readType();
+            if (rootType == TagType.TAG_END)
+            {
+                return token = NbtToken.END_DOCUMENT;
+            }
+            return start(rootType, namelessRoot ? "" : readName());
+        }
+        int top = depth - 1;
+        if (containers[top] == COMPOUND)
+        {
+            TagType entryType = readType();
+            if (entryType == TagType.TAG_END)
+            {
+                depth--;
+                type = TagType.TAG_COMPOUND;
+                name = null;
+                return token = NbtToken.END_COMPOUND;
+            }
+            return start(entryType, readName());
+        }
+        if (remaining[top] == 0)
+        {
+            depth--;
+            type = TagType.TAG_LIST;
+            name = null;
+            return token = NbtToken.END_LIST;
+        }
+        remaining[top]--;
+        return start(listTypes[top], null);
+    }
+
+    /**
+     * Skips current value. For {@link NbtToken#START_COMPOUND} and {@link NbtToken#START_LIST}
+     * the whole compound or list is skipped, and the reader behaves as if the matching end
+     * event has been returned. For other events this method does nothing, except for marking
+     * payload of {@link NbtToken#VALUE} as consumed.
+     *
+     * @throws IOException           if any I/O error occurs
+     * @throws IllegalStateException if data is malformed
+     */
+    public void skipValue() throws IOException
+    {
+        if (token == NbtToken.VALUE)
+        {
+            if (payloadPending)
+            {
+                skipPayloadRest();
+            }
+        }
+        else if (token == NbtToken.START_COMPOUND)
+        {
+            skipCompound();
+            depth--;
+            token = NbtToken.END_COMPOUND;
+        }
+        else if (token == NbtToken.START_LIST)
+        {
+            int top = depth - 1;
+            skipElements(listTypes[top], remaining[top]);
+            depth--;
+            token = NbtToken.END_LIST;
+        }
+    }
+
+    /**
+     * Reads current value as a tag. For {@link NbtToken#START_COMPOUND} and
+     * {@link NbtToken#START_LIST} the whole compound or list is read, and the reader behaves
+     * as if the matching end event has been returned.
+     *
+     * @return readied tag
+     *
+     * @throws IOException           if any I/O error occurs
+     * @throws IllegalStateException if there's no value at current position
+     */
+    public Tag<?> readTag() throws IOException
+    {
+        String tagName = name == null ? "" : name;
+        if (token == NbtToken.START_COMPOUND)
+        {
+            TagCompound compound = new TagCompound(tagName);
+            compound.readTagPayload(inputStream);
+            depth--;
+            token = NbtToken.END_COMPOUND;
+            return compound;
+        }
+        if (token == NbtToken.START_LIST)
+        {
+            int top = depth - 1;
+            TagList list = new TagList(tagName);
+            list.readElements(inputStream, listTypes[top], remaining[top]);
+            remaining[top] = 0;
+            depth--;
+            token = NbtToken.END_LIST;
+            return list;
+        }
+        switch (checkValue(null))
+        {
+            case TAG_BYTE:
+                return new TagByte(tagName, getByte());
+            case TAG_SHORT:
+                return new TagShort(tagName, getShort());
+            case TAG_INT:
+                return new TagInt(tagName, getInt());
+            case TAG_LONG:
+                return new TagLong(tagName, getLong());
+            case TAG_FLOAT:
+                return new TagFloat(tagName, getFloat());
+            case TAG_DOUBLE:
+                return new TagDouble(tagName, getDouble());
+            case TAG_BYTE_ARRAY:
+                return new TagByteArray(tagName, getByteArray());
+            case TAG_STRING:
+                return new TagString(tagName, getString());
+            case TAG_INT_ARRAY:
+                return new TagIntArray(tagName, getIntArray());
+            case TAG_LONG_ARRAY:
+                return new TagLongArray(tagName, getLongArray());
+            default:
+                throw new IllegalStateException("Unsupported tag type " + type + "!");
+        }
+    }
+
+    /**
+     * Returns kind of the current event.
+     *
+     * @return current event, or null if {@link #next()} hasn't been called yet
+     */
+    public NbtToken getToken()
+    {
+        return token;
+    }
+
+    /**
+     * Returns type of the current tag. For end events it's type of the ended container.
+     *
+     * @return type of the current tag
+     */
+    public TagType getTagType()
+    {
+        return type;
+    }
+
+    /**
+     * Returns name of the current tag. Elements of lists and end events have no name.
+     *
+     * @return name of the current tag, or null if it has no name
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Returns depth of the current tag. Root tag has depth 0, its direct children 1 and
+     * so on. For end events it's depth of the ended container.
+     *
+     * @return depth of the current tag
+     */
+    public int getDepth()
+    {
+        return token == NbtToken.START_COMPOUND || token == NbtToken.START_LIST ? depth - 1 : depth;
+    }
+
+    /**
+     * Returns element type of the list started with {@link NbtToken#START_LIST}.
+     *
+     * @return element type of the current list
+     */
+    public TagType getListType()
+    {
+        return listType;
+    }
+
+    /**
+     * Returns size of the list started with {@link NbtToken#START_LIST}.
+     *
+     * @return size of the current list
+     */
+    public int getListSize()
+    {
+        return listSize;
+    }
+
+    /**
+     * Returns length of the current TAG_Byte_Array, TAG_Int_Array or TAG_Long_Array value.
+     *
+     * @return length of the current array
+     */
+    public int getArrayLength()
+    {
+        return arrayLength;
+    }
+
+    /**
+     * Reads payload of the current TAG_Byte value.
+     *
+     * @return value of the current tag
+     *
+     * @throws IOException           if any I/O error occurs
+     * @throws IllegalStateException if current event isn't an unread TAG_Byte value
+     */
+    public byte getByte() throws IOException
+    {
+        checkValue(TagType.TAG_BYTE);
+        payloadPending = false;
+        return inputStream.readByte();
+    }
+
+    /**
+     * Reads payload of the current TAG_Short value.
+     *
+     * @return value of the current tag
+     *
+     * @throws IOException           if any I/O error occurs
+     * @throws IllegalStateException if current event isn't an unread TAG_Short value
+     */
+    public short getShort() throws IOException
+    {
+        checkValue(TagType.TAG_SHORT);
+        payloadPending = false;
+        return inputStream.readShort();
+    }
+
+    /**
+     * Reads payload of the current TAG_Int value.
+     *
+     * @return value of the current tag
+     *
+     * @throws IOException           if any I/O error occurs
+     * @throws IllegalStateException if current event isn't an unread TAG_Int value
+     */
+    public int getInt() throws IOException
+    {
+        checkValue(TagType.TAG_INT);
+        payloadPending = false;
+        return inputStream.readInt();
+    }
+
+    /**
+     * Reads payload of the current TAG_Long value.
+     *
+     * @return value of the current tag
+     *
+     * @throws IOException           if any I/O error occurs
+     * @throws IllegalStateException if current event isn't an unread TAG_Long value
+     */
+    public long getLong() throws IOException
+    {
+        checkValue(TagType.TAG_LONG);
+        payloadPending = false;
+        return inputStream.readLong();
+    }
+
+    /**
+     * Reads payload of the current TAG_Float value.
+     *
+     * @return value of the current tag
+     *
+     * @throws IOException           if any I/O error occurs
+     * @throws IllegalStateException if current event isn't an unread TAG_Float value
+     */
+    public float getFloat() throws IOException
+    {
+        checkValue(TagType.TAG_FLOAT);
+        payloadPending = false;
+        return inputStream.readFloat();
+    }
+
+    /**
+     * Reads payload of the current TAG_Double value.
+     *
+     * @return value of the current tag
+     *
+     * @throws IOException           if any I/O error occurs
+     * @throws IllegalStateException if current event isn't an unread TAG_Double value
+     */
+    public double getDouble() throws IOException
+    {
+        checkValue(TagType.TAG_DOUBLE);
+        payloadPending = false;
+        return inputStream.readDouble();
+    }
+
+    /**
+     * Reads payload of the current TAG_String value.
+     *
+     * @return value of the current tag
+     *
+     * @throws IOException           if any I/O error occurs
+     * @throws IllegalStateException if current event isn't an unread TAG_String value
+     */
+    public String getString() throws IOException
+    {
+        checkValue(TagType.TAG_STRING);
+        payloadPending = false;
+        return readString();
+    }
+
+    /**
+     * Reads payload of the current TAG_Byte_Array value.
+     *
+     * @return value of the current tag
+     *
+     * @throws IOException           if any I/O error occurs
+     * @throws IllegalStateException if current event isn't an unread TAG_Byte_Array value
+     */
+    public byte[] getByteArray() throws IOException
+    {
+        checkValue(TagType.TAG_BYTE_ARRAY);
+        payloadPending = false;
+        byte[] value = new byte[arrayLength];
+        inputStream.readFully(value);
+        return value;
+    }
+
+    /**
+     * Reads payload of the current TAG_Int_Array value.
+     *
+     * @return value of the current tag
+     *
+     * @throws IOException           if any I/O error occurs
+     * @throws IllegalStateException if current event isn't an unread TAG_Int_Array value
+     */
+    public int[] getIntArray() throws IOException
+    {
+        checkValue(TagType.TAG_INT_ARRAY);
+        payloadPending = false;
+        int[] value = new int[arrayLength];
+        for (int i = 0; i < value.length; i++)
+        {
+            value[i] = inputStream.readInt();
+        }
+        return value;
+    }
+
+    /**
+     * Reads payload of the current TAG_Long_Array value.
+     *
+     * @return value of the current tag
+     *
+     * @throws IOException           if any I/O error occurs
+     * @throws IllegalStateException if current event isn't an unread TAG_Long_Array value
+     */
+    public long[] getLongArray() throws IOException
+    {
+        checkValue(TagType.TAG_LONG_ARRAY);
+        payloadPending = false;
+        long[] value = new long[arrayLength];
+        for (int i = 0; i < value.length; i++)
+        {
+            value[i] = inputStream.readLong();
+        }
+        return value;
+    }
+
+    private TagType checkValue(TagType expected)
+    {
+        if (token != NbtToken.VALUE || !payloadPending)
+        {
+            throw new IllegalStateException("There's no unread value at current position!");
+        }
+        if (expected != null && type != expected)
+        {
+            throw new IllegalStateException("Current value is " + type + ", not " + expected + "!");
+        }
+        return type;
+    }
+
+    private NbtToken start(TagType tagType, String tagName) throws IOException
+    {
+        type = tagType;
+        name = tagName;
+        switch (tagType)
+        {
+            case TAG_COMPOUND:
+                push(COMPOUND, 0, null);
+                return token = NbtToken.START_COMPOUND;
+            case TAG_LIST:
+                int id = inputStream.readUnsignedByte();
+                listType = TagType.byId(id);
+                listSize = inputStream.readInt();
+                if (listSize < 0)
+                {
+                    throw new IllegalStateException("Negative list size " + listSize + "!");
+                }
+                if (listSize > 0 && (listType == TagType.TAG_END || listType == null))
+                {
+                    throw new IllegalStateException("Incorrect list type!");
+                }
+                if (listType == null)
+                {
+                    listType = TagType.TAG_END;
+                }
+                push(LIST, listSize, listType);
+                return token = NbtToken.START_LIST;
+            case TAG_BYTE_ARRAY:
+            case TAG_INT_ARRAY:
+            case TAG_LONG_ARRAY:
+                arrayLength = inputStream.readInt();
+                if (arrayLength < 0)
+                {
+                    throw new IllegalStateException("Negative array length " + arrayLength + "!");
+                }
+                break;
+            default:
+                break;
+        }
+        payloadPending = true;
+        return token = NbtToken.VALUE;
+    }
+
+    private void push(int container, int count, TagType elementType)
+    {
+        if (depth == containers.length)
+        {
+            containers = Arrays.copyOf(containers, depth * 2);
+            remaining = Arrays.copyOf(remaining, depth * 2);
+            listTypes = Arrays.copyOf(listTypes, depth * 2);
+        }
+        containers[depth] = container;
+        remaining[depth] = count;
+        listTypes[depth] = elementType;
+        depth++;
+    }
+
+    private TagType readType() throws IOException
+    {
+        int id = inputStream.readUnsignedByte();
+        TagType tagType = TagType.byId(id);
+        if (tagType == null)
+        {
+            throw new IllegalStateException("Detected unknown tag with ID " + id + "!");
+        }
+        return tagType;
+    }
+
+    private String readName() throws IOException
+    {
+        byte[] rawName = new byte[inputStream.readUnsignedShort()];
+        inputStream.readFully(rawName);
+        return StringCache.getDefaultNameCache().get(rawName, 0, rawName.length);
+    }
+
+    private String readString() throws IOException
+    {
+        byte[] rawString = new byte[inputStream.readUnsignedShort()];
+        inputStream.readFully(rawString);
+        return ModifiedUtf8.decode(rawString, 0, rawString.length);
+    }
+
+    /**
+     * Skips rest of the current value's payload (length prefix of arrays is already read).
+     */
+    private void skipPayloadRest() throws IOException
+    {
+        payloadPending = false;
+        switch (type)
+        {
+            case TAG_BYTE_ARRAY:
+                skipFully(arrayLength);
+                break;
+            case TAG_INT_ARRAY:
+                skipFully(arrayLength * 4L);
+                break;
+            case TAG_LONG_ARRAY:
+                skipFully(arrayLength * 8L);
+                break;
+            default:
+                skipPayload(type);
+                break;
+        }
+    }
+
+    private void skipPayload(TagType tagType) throws IOException
+    {
+        switch (tagType)
+        {
+            case TAG_END:
+                break;
+            case TAG_BYTE:
+                skipFully(1);
+                break;
+            case TAG_SHORT:
+                skipFully(2);
+                break;
+            case TAG_INT:
+            case TAG_FLOAT:
+                skipFully(4);
+                break;
+            case TAG_LONG:
+            case TAG_DOUBLE:
+                skipFully(8);
+                break;
+            case TAG_BYTE_ARRAY:
+                skipFully(readLength());
+                break;
+            case TAG_STRING:
+                skipFully(inputStream.readUnsignedShort());
+                break;
+            case TAG_LIST:
+                TagType elementType = TagType.byId(inputStream.readUnsignedByte());
+                int size = readLength();
+                if (size > 0 && (elementType == TagType.TAG_END || elementType == null))
+                {
+                    throw new IllegalStateException("Incorrect list type!");
+                }
+                skipElements(elementType, size);
+                break;
+            case TAG_COMPOUND:
+                skipCompound();
+                break;
+            case TAG_INT_ARRAY:
+                skipFully(readLength() * 4L);
+                break;
+            case TAG_LONG_ARRAY:
+                skipFully(readLength() * 8L);
+                break;
+            default:
+                throw new IllegalStateException("Unsupported tag type " + tagType + "!");
+        }
+    }
+
+    private void skipElements(TagType elementType, int count) throws IOException
+    {
+        if (count == 0)
+        {
+            return;
+        }
+        switch (elementType)
+        {
+            case TAG_BYTE:
+                skipFully(count);
+                break;
+            case TAG_SHORT:
+                skipFully(count * 2L);
+                break;
+            case TAG_INT:
+            case TAG_FLOAT:
+                skipFully(count * 4L);
+                break;
+            case TAG_LONG:
+            case TAG_DOUBLE:
+                skipFully(count * 8L);
+                break;
+            default:
+                for (int i = 0; i < count; i++)
+                {
+                    skipPayload(elementType);
+                }
+                break;
+        }
+    }
+
+    private void skipCompound() throws IOException
+    {
+        TagType entryType;
+        while ((entryType = readType()) != TagType.TAG_END)
+        {
+            skipFully(inputStream.readUnsignedShort());
+            skipPayload(entryType);
+        }
+    }
+
+    private int readLength() throws IOException
+    {
+        int length = inputStream.readInt();
+        if (length < 0)
+        {
+            throw new IllegalStateException("Negative length " + length + "!");
+        }
+        return length;
+    }
+
+    private void skipFully(long count) throws IOException
+    {
+        while (count > 0)
+        {
+            int skipped = inputStream.skipBytes((int) Math.min(count, Integer.MAX_VALUE));
+            if (skipped <= 0)
+            {
+                // skipBytes doesn't tell end of stream apart from a stream that can't skip
+                inputStream.readByte();
+                skipped = 1;
+            }
+            count -= skipped;
+        }
+    }
+}
@@ -0,0 +1,637 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mcpg.nbt;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Reads and writes compressed NBT files, like <code>level.dat</code>, player files or
+ * network packets. Compression of read data is detected from its header, so the same
+ * methods read GZIP, zlib and uncompressed data.
+ * <p>
+ * Every thread keeps its own {@link Inflater}s, {@link Deflater}s and buffers, which are
+ * reused by all calls made from it, so reading or writing many small files doesn't create
+ * new native zlib streams each time. Buffers grown above 2 MiB aren't kept after a call.
+ */
+public final class NbtIO
+{
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_POOLED_BUFFER = 2 << 20;
+    private static final int MAX_DEFLATE_RATIO = 1032;
+
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int GZIP_FHCRC = 2;
+    private static final int GZIP_FEXTRA = 4;
+    private static final int GZIP_FNAME = 8;
+    private static final int GZIP_FCOMMENT = 16;
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+
+    private static final ThreadLocal<Codec> CODECS = ThreadLocal.withInitial(Codec::new);
+
+    private NbtIO()
+    {
+    }
+
+    /**
+     * Detects compression of given data from its header.
+     *
+     * @param data data to check
+     *
+     * @return detected compression, {@link NbtCompression#NONE} if data isn't compressed
+     */
+    public static NbtCompression detectCompression(byte[] data)
+    {
+        return detectCompression(data, 0, data.length);
+    }
+
+    /**
+     * Detects compression of given data from its header.
+     *
+     * @param data   array with data to check
+     * @param offset index of the first byte of data
+     * @param length length of data
+     *
+     * @return detected compression, {@link NbtCompression#NONE} if data isn't compressed
+     */
+    public static NbtCompression detectCompression(byte[] data, int offset, int length)
+    {
+        if (length < 2)
+        {
+            return NbtCompression.NONE;
+        }
+        int first = data[offset] & 0xff;
+        int second = data[offset + 1] & 0xff;
+        if ((first | second << 8) == GZIP_MAGIC)
+        {
+            return NbtCompression.GZIP;
+        }
+        // zlib header: deflate method with window up to 32K, and a checksum of both bytes
+        if ((first & 0x0f) == Deflater.DEFLATED && (first >>> 4) <= 7 && (first << 8 | second) % 31 == 0)
+        {
+            return NbtCompression.ZLIB;
+        }
+        return NbtCompression.NONE;
+    }
+
+    /**
+     * Reads a tag from possibly compressed data.
+     *
+     * @param data data to read
+     *
+     * @return readied tag
+     *
+     * @throws IOException           if data is truncated or corrupted
+     * @throws IllegalStateException if NBT data is malformed
+     */
+    public static Tag<?> readCompressed(byte[] data) throws IOException
+    {
+        return readCompressed(data, 0, data.length);
+    }
+
+    /**
+     * Reads a tag from possibly compressed data.
+     *
+     * @param data   array with data to read
+     * @param offset index of the first byte of data
+     * @param length length of data
+     *
+     * @return readied tag
+     *
+     * @throws IOException           if data is truncated or corrupted
+     * @throws IllegalStateException if NBT data is malformed
+     */
+    public static Tag<?> readCompressed(byte[] data, int offset, int length) throws IOException
+    {
+        Codec codec = CODECS.get();
+        try
+        {
+            NbtCompression compression = detectCompression(data, offset, length);
+            if (compression == NbtCompression.NONE)
+            {
+                return new NbtReader(data, offset, length).readTag();
+            }
+            int decompressed = codec.decompress(compression, data, offset, length);
+            return new NbtReader(codec.output, 0, decompressed).readTag();
+        } finally
+        {
+            codec.trim();
+        }
+    }
+
+    /**
+     * Reads a tag from possibly compressed stream. Whole stream is read, but not closed.
+     *
+     * @param inputStream stream to read
+     *
+     * @return readied tag
+     *
+     * @throws IOException           if any I/O error occurs, or if data is truncated or corrupted
+     * @throws IllegalStateException if NBT data is malformed
+     */
+    public static Tag<?> readCompressed(InputStream inputStream) throws IOException
+    {
+        Codec codec = CODECS.get();
+        try
+        {
+            codec.buffer.reset();
+            codec.buffer.readFrom(inputStream);
+            byte[] data = codec.buffer.array();
+            int length = codec.buffer.size();
+            NbtCompression compression = detectCompression(data, 0, length);
+            if (compression == NbtCompression.NONE)
+            {
+                return new NbtReader(data, 0, length).readTag();
+            }
+            int decompressed = codec.decompress(compression, data, 0, length);
+            return new NbtReader(codec.output, 0, decompressed).readTag();
+        } finally
+        {
+            codec.trim();
+        }
+    }
+
+    /**
+     * Reads a tag from possibly compressed file.
+     *
+     * @param path file to read
+     *
+     * @return readied tag
+     *
+     * @throws IOException           if any I/O error occurs, or if data is truncated or corrupted
+     * @throws IllegalStateException if NBT data is malformed
+     */
+    public static Tag<?> readCompressed(Path path) throws IOException
+    {
+        try (InputStream inputStream = Files.newInputStream(path))
+        {
+            return readCompressed(inputStream);
+        }
+    }
+
+    /**
+     * Decompresses data with compression detected from its header. Returned array can be
+     * read with {@link NbtReader}.
+     *
+     * @param data   array with data to decompress
+     * @param offset index of the first byte of data
+     * @param length length of data
+     *
+     * @return decompressed data
+     *
+     * @throws IOException if data is truncated or corrupted
+     */
+    public static byte[] decompress(byte[] data, int offset, int length) throws IOException
+    {
+        return decompress(detectCompression(data, offset, length), data, offset, length);
+    }
+
+    /**
+     * Decompresses data compressed with given compression.
+     *
+     * @param compression compression of data
+     * @param data        array with data to decompress
+     * @param offset      index of the first byte of data
+     * @param length      length of data
+     *
+     * @return decompressed data
+     *
+     * @throws IOException if data is truncated or corrupted
+     */
+    public static byte[] decompress(NbtCompression compression, byte[] data, int offset, int length) throws IOException
+    {
+        if (compression == NbtCompression.NONE)
+        {
+            return Arrays.copyOfRange(data, offset, offset + length);
+        }
+        Codec codec = CODECS.get();
+        try
+        {
+            int decompressed = codec.decompress(compression, data, offset, length);
+            return Arrays.copyOf(codec.output, decompressed);
+        } finally
+        {
+            codec.trim();
+        }
+    }
+
+    /**
+     * Writes a tag compressed with default compression level.
+     *
+     * @param tag         tag to write
+     * @param compression compression to use
+     *
+     * @return compressed data
+     *
+     * @throws IOException if any I/O error occurs
+     */
+    public static byte[] writeCompressed(Tag<?> tag, NbtCompression compression) throws IOException
+    {
+        return writeCompressed(tag, compression, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Writes a tag compressed with given compression level. Lower levels are faster, higher
+     * ones produce smaller data.
+     *
+     * @param tag         tag to write
+     * @param compression compression to use
+     * @param level       compression level, from {@link Deflater#BEST_SPEED} to
+     *                    {@link Deflater#BEST_COMPRESSION}, or {@link Deflater#DEFAULT_COMPRESSION};
+     *                    ignored for {@link NbtCompression#NONE}
+     *
+     * @return compressed data
+     *
+     * @throws IOException              if any I/O error occurs
+     * @throws IllegalArgumentException if level is invalid
+     */
+    public static byte[] writeCompressed(Tag<?> tag, NbtCompression compression, int level) throws IOException
+    {
+        Codec codec = CODECS.get();
+        try
+        {
+            int length = codec.compress(tag, compression, level);
+            return Arrays.copyOf(codec.compressed(compression), length);
+        } finally
+        {
+            codec.trim();
+        }
+    }
+
+    /**
+     * Writes a tag compressed with given compression level into a stream. Stream isn't closed.
+     *
+     * @param tag          tag to write
+     * @param outputStream stream to write to
+     * @param compression  compression to use
+     * @param level        compression level, see {@link #writeCompressed(Tag, NbtCompression, int)}
+     *
+     * @throws IOException              if any I/O error occurs
+     * @throws IllegalArgumentException if level is invalid
+     */
+    public static void writeCompressed(Tag<?> tag, OutputStream outputStream, NbtCompression compression, int level)
+            throws IOException
+    {
+        Codec codec = CODECS.get();
+        try
+        {
+            int length = codec.compress(tag, compression, level);
+            outputStream.write(codec.compressed(compression), 0, length);
+        } finally
+        {
+            codec.trim();
+        }
+    }
+
+    /**
+     * Writes a tag compressed with given compression level into a file, replacing it if it
+     * exists.
+     *
+     * @param tag         tag to write
+     * @param path        file to write
+     * @param compression compression to use
+     * @param level       compression level, see {@link #writeCompressed(Tag, NbtCompression, int)}
+     *
+     * @throws IOException              if any I/O error occurs
+     * @throws IllegalArgumentException if level is invalid
+     */
+    public static void writeCompressed(Tag<?> tag, Path path, NbtCompression compression, int level)
+            throws IOException
+    {
+        try (OutputStream outputStream = Files.newOutputStream(path))
+        {
+            writeCompressed(tag, outputStream, compression, level);
+        }
+    }
+
+    private static int readIntLE(byte[] data, int index)
+    {
+        return (data[index] & 0xff) | (data[index + 1] & 0xff) << 8 | (data[index + 2] & 0xff) << 16
+                | (data[index + 3] & 0xff) << 24;
+    }
+
+    private static void writeIntLE(byte[] data, int index, int value)
+    {
+        data[index] = (byte) value;
+        data[index + 1] = (byte) (value >>> 8);
+        data[index + 2] = (byte) (value >>> 16);
+        data[index + 3] = (byte) (value >>> 24);
+    }
+
+    private static int skipGzipHeader(byte[] data, int position, int end) throws IOException
+    {
+        if (end - position < GZIP_HEADER.length || (data[position] & 0xff | (data[position + 1] & 0xff) << 8) != GZIP_MAGIC)
+        {
+            throw new IOException("Data isn't in GZIP format!");
+        }
+        if (data[position + 2] != Deflater.DEFLATED)
+        {
+            throw new IOException("Unsupported GZIP compression method " + data[position + 2] + "!");
+        }
+        int flags = data[position + 3] & 0xff;
+        position += GZIP_HEADER.length;
+        if ((flags & GZIP_FEXTRA) != 0)
+        {
+            if (end - position < 2)
+            {
+                throw new EOFException("GZIP header is truncated!");
+            }
+            position += 2 + ((data[position] & 0xff) | (data[position + 1] & 0xff) << 8);
+        }
+        if ((flags & GZIP_FNAME) != 0)
+        {
+            position = skipZeroTerminated(data, position, end);
+        }
+        if ((flags & GZIP_FCOMMENT) != 0)
+        {
+            position = skipZeroTerminated(data, position, end);
+        }
+        if ((flags & GZIP_FHCRC) != 0)
+        {
+            position += 2;
+        }
+        if (position > end)
+        {
+            throw new EOFException("GZIP header is truncated!");
+        }
+        return position;
+    }
+
+    private static int skipZeroTerminated(byte[] data, int position, int end) throws IOException
+    {
+        while (position < end && data[position] != 0)
+        {
+            position++;
+        }
+        if (position >= end)
+        {
+            throw new EOFException("GZIP header is truncated!");
+        }
+        return position + 1;
+    }
+
+    private static void checkLevel(int level)
+    {
+        if ((level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION)
+                && level != Deflater.NO_COMPRESSION && level != Deflater.DEFAULT_COMPRESSION)
+        {
+            throw new IllegalArgumentException("Invalid compression level " + level + "!");
+        }
+    }
+
+    /**
+     * Compression state and buffers of a single thread.
+     */
+    private static final class Codec
+    {
+        private final Inflater zlibInflater = new Inflater();
+        private final Inflater gzipInflater = new Inflater(true);
+        private final Deflater zlibDeflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        private final Deflater gzipDeflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        private int zlibLevel = Deflater.DEFAULT_COMPRESSION;
+        private int gzipLevel = Deflater.DEFAULT_COMPRESSION;
+        private final CRC32 crc = new CRC32();
+        private final PooledOutputStream buffer = new PooledOutputStream();
+        private final NbtWriter writer = new NbtWriter();
+        private byte[] output = new byte[BUFFER_SIZE];
+        private int remainingInput;
+
+        int decompress(NbtCompression compression, byte[] data, int offset, int length) throws IOException
+        {
+            switch (compression)
+            {
+                case ZLIB:
+                    zlibInflater.setInput(data, offset, length);
+                    return inflate(zlibInflater, 0, Math.max(length * 4, BUFFER_SIZE));
+                case GZIP:
+                    return inflateGzip(data, offset, length);
+                default:
+                    throw new IOException("Unsupported compression " + compression + "!");
+            }
+        }
+
+        private int inflateGzip(byte[] data, int offset, int length) throws IOException
+        {
+            int end = offset + length;
+            int position = offset;
+            int outputLength = 0;
+            // size of the last member is stored at the end, it's exact for usual single member files
+            long expected = length >= 18 ? readIntLE(data, end - 4) & 0xffffffffL : 0;
+            if (expected == 0 || expected > (long) length * MAX_DEFLATE_RATIO || expected > Integer.MAX_VALUE - 8)
+            {
+                expected = Math.max(length * 4, BUFFER_SIZE);
+            }
+            do
+            {
+                position = skipGzipHeader(data, position, end);
+                int memberStart = outputLength;
+                gzipInflater.setInput(data, position, end - position);
+                outputLength = inflate(gzipInflater, outputLength, (int) expected + 1);
+                position = end - remainingInput;
+                if (end - position < 8)
+                {
+                    throw new EOFException("GZIP trailer is truncated!");
+                }
+                crc.reset();
+                crc.update(output, memberStart, outputLength - memberStart);
+                if (readIntLE(data, position) != (int) crc.getValue()
+                        || readIntLE(data, position + 4) != outputLength - memberStart)
+                {
+                    throw new IOException("GZIP data is corrupted, checksum doesn't match!");
+                }
+                position += 8;
+                expected = Math.max((end - position) * 4, BUFFER_SIZE);
+            } while (end - position >= 2 && (data[position] & 0xff | (data[position + 1] & 0xff) << 8) == GZIP_MAGIC);
+            return outputLength;
+        }
+
+        private int inflate(Inflater inflater, int length, int expected) throws IOException
+        {
+            ensureOutput(length, length + expected);
+            try
+            {
+                while (!inflater.finished())
+                {
+                    if (length == output.length)
+                    {
+                        ensureOutput(length, output.length * 2);
+                    }
+                    int inflated = inflater.inflate(output, length, output.length - length);
+                    if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    {
+                        throw new EOFException("Compressed data is truncated!");
+                    }
+                    length += inflated;
+                }
+                remainingInput = inflater.getRemaining();
+                return length;
+            } catch (DataFormatException e)
+            {
+                throw new IOException("Compressed data is corrupted!", e);
+            } finally
+            {
+                // also drops the reference to caller's array
+                inflater.reset();
+            }
+        }
+
+        int compress(Tag<?> tag, NbtCompression compression, int level) throws IOException
+        {
+            if (compression != NbtCompression.NONE)
+            {
+                checkLevel(level);
+            }
+            int length = writer.getSize(tag);
+            byte[] data = buffer.array(length);
+            writer.write(tag, data, 0);
+            switch (compression)
+            {
+                case NONE:
+                    return length;
+                case ZLIB:
+                    if (zlibLevel != level)
+                    {
+                        zlibDeflater.setLevel(level);
+                        zlibLevel = level;
+                    }
+                    return deflate(zlibDeflater, data, length, 0);
+                case GZIP:
+                    if (gzipLevel != level)
+                    {
+                        gzipDeflater.setLevel(level);
+                        gzipLevel = level;
+                    }
+                    ensureOutput(0, Math.max(length / 2, BUFFER_SIZE));
+                    System.arraycopy(GZIP_HEADER, 0, output, 0, GZIP_HEADER.length);
+                    int outputLength = deflate(gzipDeflater, data, length, GZIP_HEADER.length);
+                    crc.reset();
+                    crc.update(data, 0, length);
+                    ensureOutput(outputLength, outputLength + 8);
+                    writeIntLE(output, outputLength, (int) crc.getValue());
+                    writeIntLE(output, outputLength + 4, length);
+                    return outputLength + 8;
+                default:
+                    throw new IOException("Unsupported compression " + compression + "!");
+            }
+        }
+
+        byte[] compressed(NbtCompression compression)
+        {
+            return compression == NbtCompression.NONE ? buffer.array() : output;
+        }
+
+        private int deflate(Deflater deflater, byte[] data, int length, int outputLength)
+        {
+            ensureOutput(outputLength, outputLength + Math.max(length / 2, 1024));
+            try
+            {
+                deflater.setInput(data, 0, length);
+                deflater.finish();
+                while (!deflater.finished())
+                {
+                    if (outputLength == output.length)
+                    {
+                        ensureOutput(outputLength, output.length * 2);
+                    }
+                    outputLength += deflater.deflate(output, outputLength, output.length - outputLength);
+                }
+                return outputLength;
+            } finally
+            {
+                deflater.reset();
+            }
+        }
+
+        private void ensureOutput(int used, int capacity)
+        {
+            if (capacity > output.length)
+            {
+                byte[] grown = new byte[Math.max(capacity, output.length + (output.length >> 1))];
+                System.arraycopy(output, 0, grown, 0, used);
+                output = grown;
+            }
+        }
+
+        void trim()
+        {
+            if (output.length > MAX_POOLED_BUFFER)
+            {
+                output = new byte[BUFFER_SIZE];
+            }
+            buffer.trim();
+        }
+    }
+
+    /**
+     * Byte array stream exposing its buffer, so its data doesn't have to be copied.
+     */
+    private static final class PooledOutputStream extends ByteArrayOutputStream
+    {
+        PooledOutputStream()
+        {
+            super(BUFFER_SIZE);
+        }
+
+        byte[] array()
+        {
+            return buf;
+        }
+
+        byte[] array(int capacity)
+        {
+            if (buf.length < capacity)
+            {
+                buf = new byte[capacity];
+            }
+            return buf;
+        }
+
+        void readFrom(InputStream inputStream) throws IOException
+        {
+            int read;
+            while ((read = inputStream.read(buf, count, buf.length - count)) != -1)
+            {
+                count += read;
+                if (count == buf.length)
+                {
+                    buf = Arrays.copyOf(buf, buf.length * 2);
+                }
+            }
+        }
+
+        void trim()
+        {
+            if (buf.length > MAX_POOLED_BUFFER)
+            {
+                buf = new byte[BUFFER_SIZE];
+            }
+            count = 0;
+        }
+    }
+}
@@ -0,0 +1,844 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mcpg.nbt;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import io.github.mcpg.nbt.TagCompound.CompoundContent;
+
+/**
+ * Compiled NBT path, selecting tags inside a tree in the same way as paths of Minecraft's
+ * <code>/data</code> command. A path is compiled once and can then be evaluated on any
+ * amount of trees, both on {@link Tag} objects and directly on serialized data, where
+ * subtrees that can't match are skipped without being decoded.
+ * <p>
+ * A path is a sequence of nodes, evaluated starting at the root tag:
+ * <ul>
+ * <li><code>name</code> or <code>"quoted name"</code> - tag of a compound, separated from
+ * previous node with a dot,</li>
+ * <li><code>{Key:value}</code> - the current compound, if it contains given tags,</li>
+ * <li><code>[index]</code> - element of a list or an array, negative indexes count from
+ * the end,</li>
+ * <li><code>[]</code> - all elements of a list or an array,</li>
+ * <li><code>[{Key:value}]</code> - compounds of a list which contain given tags.</li>
+ * </ul>
+ * For example, <code>Level.Sections[3].BlockStates</code> or
+ * <code>Inventory[{Slot:3b}].id</code>. Filters are written in SNBT (see {@link Snbt});
+ * a filter matches a compound if it contains every given tag with the same type and value,
+ * nested compounds are matched the same way. Lists and arrays can't be used in filters.
+ * <p>
+ * Elements of arrays and of packed lists (see {@link TagList#isPacked()}) are selected as
+ * new tags, so selecting them doesn't unpack the list, and changing them doesn't change the
+ * array or the list.
+ * <p>
+ * Instances of this class are immutable and thread safe.
+ */
+public final class NbtPath
+{
+    private static final int NAME = 0;
+    private static final int INDEX = 1;
+    private static final int ALL = 2;
+    private static final int ELEMENT_FILTER = 3;
+    private static final int COMPOUND_FILTER = 4;
+
+    private final String path;
+    private final Node[] nodes;
+
+    private NbtPath(String path, Node[] nodes)
+    {
+        this.path = path;
+        this.nodes = nodes;
+    }
+
+    /**
+     * Compiles given path.
+     *
+     * @param path path to compile
+     *
+     * @return compiled path
+     *
+     * @throws IllegalArgumentException if the path is malformed
+     */
+    public static NbtPath compile(String path)
+    {
+        return new NbtPath(path, new Parser(path).parsePath());
+    }
+
+    /**
+     * Selects all tags matching the path.
+     *
+     * @param root root tag of the tree
+     *
+     * @return matching tags, in order they appear in the tree
+     */
+    public List<Tag<?>> select(Tag<?> root)
+    {
+        List<Tag<?>> current = Collections.<Tag<?>>singletonList(root);
+        for (Node node : nodes)
+        {
+            List<Tag<?>> next = new ArrayList<>();
+            for (Tag<?> tag : current)
+            {
+                node.select(tag, next);
+            }
+            if (next.isEmpty())
+            {
+                return next;
+            }
+            current = next;
+        }
+        return current;
+    }
+
+    /**
+     * Selects the first tag matching the path.
+     *
+     * @param root root tag of the tree
+     *
+     * @return the first matching tag, or null if there is no such tag
+     */
+    public Tag<?> selectFirst(Tag<?> root)
+    {
+        List<Tag<?>> tags = select(root);
+        return tags.isEmpty() ? null : tags.get(0);
+    }
+
+    /**
+     * Selects all tags matching the path from a serialized tree. Only the matching tags are
+     * decoded.
+     *
+     * @param data serialized tree
+     *
+     * @return matching tags, in order they appear in the tree
+     *
+     * @throws IOException           if data ends before the tree does
+     * @throws IllegalStateException if data isn't a valid tag
+     */
+    public List<Tag<?>> select(byte[] data) throws IOException
+    {
+        return select(new NbtReader(data));
+    }
+
+    /**
+     * Selects all tags matching the path from the tree at reader's position. Only the
+     * matching tags are decoded, reader's cursor is left after the tree.
+     *
+     * @param reader reader of the serialized tree
+     *
+     * @return matching tags, in order they appear in the tree
+     *
+     * @throws IOException           if data ends before the tree does
+     * @throws IllegalStateException if data isn't a valid tag
+     */
+    public List<Tag<?>> select(NbtReader reader) throws IOException
+    {
+        List<Tag<?>> results = new ArrayList<>();
+        selectRoot(reader, results, false);
+        return results;
+    }
+
+    /**
+     * Selects the first tag matching the path from a serialized tree. Scanning stops at the
+     * first match.
+     *
+     * @param data serialized tree
+     *
+     * @return the first matching tag, or null if there is no such tag
+     *
+     * @throws IOException           if data ends before the tree does
+     * @throws IllegalStateException if data isn't a valid tag
+     */
+    public Tag<?> selectFirst(byte[] data) throws IOException
+    {
+        return selectFirst(new NbtReader(data));
+    }
+
+    /**
+     * Selects the first tag matching the path from the tree at reader's position. Scanning
+     * stops at the first match, so the position of reader's cursor is unspecified
+     * afterwards.
+     *
+     * @param reader reader of the serialized tree
+     *
+     * @return the first matching tag, or null if there is no such tag
+     *
+     * @throws IOException           if data ends before the tree does
+     * @throws IllegalStateException if data isn't a valid tag
+     */
+    public Tag<?> selectFirst(NbtReader reader) throws IOException
+    {
+        List<Tag<?>> results = new ArrayList<>(1);
+        selectRoot(reader, results, true);
+        return results.isEmpty() ? null : results.get(0);
+    }
+
+    /**
+     * Returns amount of nodes of the path.
+     */
+    int getNodeCount()
+    {
+        return nodes.length;
+    }
+
+    /**
+     * Returns name selected by given node, or null if it doesn't select a name.
+     */
+    String getNodeName(int index)
+    {
+        return nodes[index].kind == NAME ? nodes[index].name : null;
+    }
+
+    /**
+     * Checks whether given node selects all elements.
+     */
+    boolean isAllElementsNode(int index)
+    {
+        return nodes[index].kind == ALL;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        return obj instanceof NbtPath && ((NbtPath) obj).path.equals(path);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return path.hashCode();
+    }
+
+    @Override
+    public String toString()
+    {
+        return path;
+    }
+
+    private void selectRoot(NbtReader reader, List<Tag<?>> results, boolean first) throws IOException
+    {
+        TagType type = reader.readType();
+        int nameIndex = -1;
+        if (!reader.isNamelessRoot())
+        {
+            nameIndex = reader.position;
+            reader.advance(reader.readStringLength());
+        }
+        select(reader, 0, type, nameIndex, results, first);
+    }
+
+    /**
+     * Evaluates nodes starting at <code>index</code> on the payload at reader's position,
+     * leaving the cursor after the payload. Returns true if the evaluation should stop.
+     */
+    private boolean select(NbtReader reader, int index, TagType type, int nameIndex, List<Tag<?>> results,
+                           boolean first) throws IOException
+    {
+        if (index == nodes.length)
+        {
+            String name = "";
+            if (nameIndex >= 0)
+            {
+                int payloadIndex = reader.position;
+                reader.position = nameIndex;
+                name = reader.readName();
+                reader.position = payloadIndex;
+            }
+            results.add(reader.readPayload(type, name));
+            return first;
+        }
+        Node node = nodes[index];
+        switch (node.kind)
+        {
+            case NAME:
+                if (type != TagType.TAG_COMPOUND)
+                {
+                    break;
+                }
+                TagType entryType;
+                while ((entryType = reader.readType()) != TagType.TAG_END)
+                {
+                    int entryNameIndex = reader.position;
+                    int length = reader.readStringLength();
+                    boolean matches = length == node.encodedName.length
+                            && reader.regionEquals(reader.position, node.encodedName);
+                    reader.advance(length);
+                    if (!matches)
+                    {
+                        reader.skipPayload(entryType);
+                    }
+                    else if (select(reader, index + 1, entryType, entryNameIndex, results, first))
+                    {
+                        return true;
+                    }
+                }
+                return false;
+            case INDEX:
+            case ALL:
+            case ELEMENT_FILTER:
+                TagType elementType;
+                if (type == TagType.TAG_LIST)
+                {
+                    elementType = TagType.byId(reader.readUnsignedByte());
+                    if (elementType == null)
+                    {
+                        elementType = TagType.TAG_END;
+                    }
+                }
+                else
+                {
+                    elementType = getArrayElementType(type);
+                    if (elementType == null)
+                    {
+                        break;
+                    }
+                }
+                int size = reader.readLength();
+                if (size > 0 && elementType == TagType.TAG_END)
+                {
+                    throw new IllegalStateException("Incorrect list type!");
+                }
+                if (node.kind == INDEX)
+                {
+                    int element = node.index < 0 ? size + node.index : node.index;
+                    if (element < 0 || element >= size)
+                    {
+                        reader.skipElements(elementType, size);
+                        return false;
+                    }
+                    reader.skipElements(elementType, element);
+                    if (select(reader, index + 1, elementType, -1, results, first))
+                    {
+                        return true;
+                    }
+                    reader.skipElements(elementType, size - element - 1);
+                    return false;
+                }
+                for (int i = 0; i < size; i++)
+                {
+                    if (node.kind == ELEMENT_FILTER)
+                    {
+                        if (elementType != TagType.TAG_COMPOUND)
+                        {
+                            reader.skipElements(elementType, size - i);
+                            break;
+                        }
+                        int start = reader.position;
+                        if (!node.filter.matches(reader))
+                        {
+                            continue;
+                        }
+                        reader.position = start;
+                    }
+                    if (select(reader, index + 1, elementType, -1, results, first))
+                    {
+                        return true;
+                    }
+                }
+                return false;
+            case COMPOUND_FILTER:
+                if (type != TagType.TAG_COMPOUND)
+                {
+                    break;
+                }
+                int start = reader.position;
+                if (!node.filter.matches(reader))
+                {
+                    return false;
+                }
+                reader.position = start;
+                return select(reader, index + 1, type, nameIndex, results, first);
+            default:
+                break;
+        }
+        reader.skipPayload(type);
+        return false;
+    }
+
+    /**
+     * Returns type of elements of arrays, or null for other tags.
+     */
+    private static TagType getArrayElementType(TagType type)
+    {
+        switch (type)
+        {
+            case TAG_BYTE_ARRAY:
+                return TagType.TAG_BYTE;
+            case TAG_INT_ARRAY:
+                return TagType.TAG_INT;
+            case TAG_LONG_ARRAY:
+                return TagType.TAG_LONG;
+            default:
+                return null;
+        }
+    }
+
+    private static final class Node
+    {
+        private final int kind;
+        private final String name;
+        private final byte[] encodedName;
+        private final int index;
+        private final Filter filter;
+
+        private Node(int kind, String name, int index, Filter filter)
+        {
+            this.kind = kind;
+            this.name = name;
+            this.encodedName = name == null ? null : ModifiedUtf8.encode(name);
+            this.index = index;
+            this.filter = filter;
+        }
+
+        private void select(Tag<?> tag, List<Tag<?>> results)
+        {
+            switch (kind)
+            {
+                case NAME:
+                    if (tag instanceof TagCompound)
+                    {
+                        Tag<?> child = ((TagCompound) tag).getValue().getTag(name);
+                        if (child != null)
+                        {
+                            results.add(child);
+                        }
+                    }
+                    break;
+                case INDEX:
+                    int size = getSize(tag);
+                    int element = index < 0 ? size + index : index;
+                    if (element >= 0 && element < size)
+                    {
+                        results.add(getElement(tag, element));
+                    }
+                    break;
+                case ALL:
+                    results.addAll(getElements(tag));
+                    break;
+                case ELEMENT_FILTER:
+                    for (Tag<?> child : getElements(tag))
+                    {
+                        if (child instanceof TagCompound && filter.matches(((TagCompound) child).getValue()))
+                        {
+                            results.add(child);
+                        }
+                    }
+                    break;
+                case COMPOUND_FILTER:
+                    if (tag instanceof TagCompound && filter.matches(((TagCompound) tag).getValue()))
+                    {
+                        results.add(tag);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private static int getSize(Tag<?> tag)
+        {
+            switch (tag.getType())
+            {
+                case TAG_LIST:
+                    return ((TagList) tag).getSize();
+                case TAG_BYTE_ARRAY:
+                    return ((TagByteArray) tag).getValue().length;
+                case TAG_INT_ARRAY:
+                    return ((TagIntArray) tag).getValue().length;
+                case TAG_LONG_ARRAY:
+                    return ((TagLongArray) tag).getValue().length;
+                default:
+                    return 0;
+            }
+        }
+
+        private static Tag<?> getElement(Tag<?> tag, int index)
+        {
+            switch (tag.getType())
+            {
+                case TAG_BYTE_ARRAY:
+                    return new TagByte("", ((TagByteArray) tag).getValue()[index]);
+                case TAG_INT_ARRAY:
+                    return new TagInt("", ((TagIntArray) tag).getValue()[index]);
+                case TAG_LONG_ARRAY:
+                    return new TagLong("", ((TagLongArray) tag).getValue()[index]);
+                default:
+                    TagList list = (TagList) tag;
+                    return list.isPacked() ? getPackedElement(list, index) : list.getValue().get(index);
+            }
+        }
+
+        /**
+         * Creates a tag holding element of a packed list.
+         */
+        private static Tag<?> getPackedElement(TagList list, int index)
+        {
+            switch (list.getListType())
+            {
+                case TAG_BYTE:
+                    return new TagByte("", list.getByte(index));
+                case TAG_SHORT:
+                    return new TagShort("", list.getShort(index));
+                case TAG_INT:
+                    return new TagInt("", list.getInt(index));
+                case TAG_LONG:
+                    return new TagLong("", list.getLong(index));
+                case TAG_FLOAT:
+                    return new TagFloat("", list.getFloat(index));
+                case TAG_DOUBLE:
+                    return new TagDouble("", list.getDouble(index));
+                default:
+                    return list.getValue().get(index);
+            }
+        }
+
+        private static List<Tag<?>> getElements(Tag<?> tag)
+        {
+            switch (tag.getType())
+            {
+                case TAG_LIST:
+                    TagList list = (TagList) tag;
+                    if (!list.isPacked())
+                    {
+                        return list.getValue();
+                    }
+                    List<Tag<?>> elements = new ArrayList<>(list.getSize());
+                    for (int i = 0; i < list.getSize(); i++)
+                    {
+                        elements.add(getPackedElement(list, i));
+                    }
+                    return elements;
+                case TAG_BYTE_ARRAY:
+                    byte[] bytes = ((TagByteArray) tag).getValue();
+                    List<Tag<?>> byteTags = new ArrayList<>(bytes.length);
+                    for (byte value : bytes)
+                    {
+                        byteTags.add(new TagByte("", value));
+                    }
+                    return byteTags;
+                case TAG_INT_ARRAY:
+                    int[] ints = ((TagIntArray) tag).getValue();
+                    List<Tag<?>> intTags = new ArrayList<>(ints.length);
+                    for (int value : ints)
+                    {
+                        intTags.add(new TagInt("", value));
+                    }
+                    return intTags;
+                case TAG_LONG_ARRAY:
+                    long[] longs = ((TagLongArray) tag).getValue();
+                    List<Tag<?>> longTags = new ArrayList<>(longs.length);
+                    for (long value : longs)
+                    {
+                        longTags.add(new TagLong("", value));
+                    }
+                    return longTags;
+                default:
+                    return Collections.emptyList();
+            }
+        }
+    }
+
+    /**
+     * Compound filter, matching compounds containing all of its tags.
+     */
+    private static final class Filter
+    {
+        private final String[] names;
+        private final byte[][] encodedNames;
+        private final Tag<?>[] values;
+        private final byte[][] payloads;
+        private final Filter[] nested;
+
+        private Filter(List<Tag<?>> tags)
+        {
+            if (tags.size() > 64)
+            {
+                throw new IllegalArgumentException("Filters can't have more than 64 tags!");
+            }
+            int size = tags.size();
+            this.names = new String[size];
+            this.encodedNames = new byte[size][];
+            this.values = new Tag<?>[size];
+            this.payloads = new byte[size][];
+            this.nested = new Filter[size];
+            NbtWriter writer = new NbtWriter();
+            for (int i = 0; i < size; i++)
+            {
+                Tag<?> tag = tags.get(i);
+                if (tag instanceof TagList || tag instanceof TagByteArray || tag instanceof TagIntArray
+                        || tag instanceof TagLongArray)
+                {
+                    throw new IllegalArgumentException("Lists and arrays in filters aren't supported!");
+                }
+                names[i] = tag.getName();
+                encodedNames[i] = ModifiedUtf8.encode(tag.getName());
+                values[i] = tag;
+                if (tag instanceof TagCompound)
+                {
+                    nested[i] = new Filter(((TagCompound) tag).getValue().getTagsList());
+                }
+                else
+                {
+                    byte[] bytes = writer.write(tag);
+                    int header = 3 + encodedNames[i].length;
+                    payloads[i] = Arrays.copyOfRange(bytes, header, bytes.length);
+                }
+            }
+        }
+
+        private boolean matches(CompoundContent content)
+        {
+            for (int i = 0; i < names.length; i++)
+            {
+                Tag<?> tag = content.getTag(names[i]);
+                if (tag == null || tag.getType() != values[i].getType())
+                {
+                    return false;
+                }
+                if (nested[i] != null ? !nested[i].matches(((TagCompound) tag).getValue())
+                        : !tag.valueEquals(values[i]))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Matches compound payload at reader's position, leaving the cursor after it.
+         */
+        private boolean matches(NbtReader reader) throws IOException
+        {
+            long found = 0;
+            TagType type;
+            while ((type = reader.readType()) != TagType.TAG_END)
+            {
+                int length = reader.readStringLength();
+                int entry = -1;
+                for (int i = 0; i < encodedNames.length; i++)
+                {
+                    if (encodedNames[i].length == length && reader.regionEquals(reader.position, encodedNames[i]))
+                    {
+                        entry = i;
+                        break;
+                    }
+                }
+                reader.advance(length);
+                if (entry < 0 || type != values[entry].getType())
+                {
+                    reader.skipPayload(type);
+                }
+                else if (nested[entry] != null)
+                {
+                    if (nested[entry].matches(reader))
+                    {
+                        found |= 1L << entry;
+                    }
+                }
+                else if (reader.getEncoding() != NbtEncoding.JAVA)
+                {
+                    // Payloads are encoded for Java Edition, so other encodings compare values
+                    if (reader.readPayload(type, "").valueEquals(values[entry]))
+                    {
+                        found |= 1L << entry;
+                    }
+                }
+                else
+                {
+                    int start = reader.position;
+                    reader.skipPayload(type);
+                    if (reader.position - start == payloads[entry].length
+                            && reader.regionEquals(start, payloads[entry]))
+                    {
+                        found |= 1L << entry;
+                    }
+                }
+            }
+            return found == (names.length == 64 ? -1L : (1L << names.length) - 1);
+        }
+    }
+
+    private static final class Parser
+    {
+        private final String path;
+        private int index;
+
+        private Parser(String path)
+        {
+            this.path = path;
+        }
+
+        private Node[] parsePath()
+        {
+            List<Node> nodes = new ArrayList<>();
+            boolean nameExpected = false;
+            while (index < path.length())
+            {
+                char c = path.charAt(index);
+                if (c == '{')
+                {
+                    nodes.add(new Node(COMPOUND_FILTER, null, 0, new Filter(parseCompound())));
+                }
+                else if (c == '[')
+                {
+                    index++;
+                    skipWhitespace();
+                    if (peek() == ']')
+                    {
+                        nodes.add(new Node(ALL, null, 0, null));
+                    }
+                    else if (peek() == '{')
+                    {
+                        nodes.add(new Node(ELEMENT_FILTER, null, 0, new Filter(parseCompound())));
+                    }
+                    else
+                    {
+                        nodes.add(new Node(INDEX, null, parseIndex(), null));
+                    }
+                    skipWhitespace();
+                    expect(']');
+                }
+                else if (c == '.' && !nodes.isEmpty() && !nameExpected)
+                {
+                    index++;
+                    nameExpected = true;
+                    continue;
+                }
+                else if (nameExpected || nodes.isEmpty())
+                {
+                    nodes.add(new Node(NAME, parseName(), 0, null));
+                }
+                else
+                {
+                    throw error();
+                }
+                nameExpected = false;
+            }
+            if (nameExpected)
+            {
+                throw error();
+            }
+            return nodes.toArray(new Node[0]);
+        }
+
+        /**
+         * Parses an SNBT compound into its tags.
+         */
+        private List<Tag<?>> parseCompound()
+        {
+            SnbtParser parser = new SnbtParser(path, index);
+            List<Tag<?>> tags = parser.parseCompoundContent().getTagsList();
+            index = parser.getIndex();
+            return tags;
+        }
+
+        private int parseIndex()
+        {
+            int start = index;
+            if (peek() == '-')
+            {
+                index++;
+            }
+            while (index < path.length() && Character.isDigit(path.charAt(index)))
+            {
+                index++;
+            }
+            try
+            {
+                return Integer.parseInt(path.substring(start, index));
+            } catch (NumberFormatException e)
+            {
+                throw error();
+            }
+        }
+
+        private String parseName()
+        {
+            if (peek() == '"' || peek() == '\'')
+            {
+                return parseQuoted();
+            }
+            int start = index;
+            while (index < path.length() && ".[]{}\"'".indexOf(path.charAt(index)) < 0
+                    && !Character.isWhitespace(path.charAt(index)))
+            {
+                index++;
+            }
+            if (start == index)
+            {
+                throw error();
+            }
+            return path.substring(start, index);
+        }
+
+        private String parseQuoted()
+        {
+            char quote = path.charAt(index++);
+            StringBuilder builder = new StringBuilder();
+            while (index < path.length())
+            {
+                char c = path.charAt(index++);
+                if (c == quote)
+                {
+                    return builder.toString();
+                }
+                if (c == '\\')
+                {
+                    if (index == path.length())
+                    {
+                        break;
+                    }
+                    c = path.charAt(index++);
+                }
+                builder.append(c);
+            }
+            throw error();
+        }
+
+        private char peek()
+        {
+            return index < path.length() ? path.charAt(index) : '\0';
+        }
+
+        private void expect(char c)
+        {
+            if (peek() != c)
+            {
+                throw error();
+            }
+            index++;
+        }
+
+        private void skipWhitespace()
+        {
+            while (index < path.length() && Character.isWhitespace(path.charAt(index)))
+            {
+                index++;
+            }
+        }
+
+        private IllegalArgumentException error()
+        {
+            return new IllegalArgumentException("Malformed path " + path + " at index " + index + "!");
+        }
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mcpg.nbt;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.github.mcpg.nbt.TagCompound.CompoundContent;
+
+/**
+ * Set of paths to read out of a tree, with everything else skipped without being decoded.
+ * Reading produces a pruned copy of the tree: the requested tags are read whole, and
+ * compounds and lists on the way to them only contain tags leading to requested ones.
+ * <p>
+ * Paths use the syntax of {@link NbtPath}, limited to names and <code>[]</code>, which
+ * applies the rest of the path to every element of a list. For example, a projection of
+ * <code>Inventory</code> and <code>EnderItems</code> reads only these two lists out of a
+ * player file, and a projection of <code>Entities[].id</code> reads a list of compounds
+ * containing only ids of the entities. Compounds leading to requested tags are kept even if
+ * none of the tags exists, so elements of projected lists of compounds keep their indexes.
+ * Tags that don't have the structure expected by the projection, like numbers in place of
+ * compounds, are left out.
+ * <p>
+ * Instances of this class are immutable and thread safe.
+ */
+public final class NbtProjection
+{
+    private final Node root;
+
+    private NbtProjection(Node root)
+    {
+        this.root = root;
+    }
+
+    /**
+     * Creates projection of given paths.
+     *
+     * @param paths paths of tags to read
+     *
+     * @return created projection
+     *
+     * @throws IllegalArgumentException if any path is malformed or selects list elements by
+     *                                  index or filter
+     */
+    public static NbtProjection of(String... paths)
+    {
+        return of(Arrays.asList(paths));
+    }
+
+    /**
+     * Creates projection of given paths.
+     *
+     * @param paths paths of tags to read
+     *
+     * @return created projection
+     *
+     * @throws IllegalArgumentException if any path is malformed or selects list elements by
+     *                                  index or filter
+     */
+    public static NbtProjection of(Collection<String> paths)
+    {
+        Node root = new Node();
+        for (String path : paths)
+        {
+            NbtPath compiled = NbtPath.compile(path);
+            Node node = root;
+            for (int i = 0; i < compiled.getNodeCount() && !node.whole; i++)
+            {
+                String name = compiled.getNodeName(i);
+                if (name != null)
+                {
+                    Node child = node.children.get(name);
+                    if (child == null)
+                    {
+                        child = new Node();
+                        node.children.put(name, child);
+                    }
+                    node = child;
+                }
+                else if (compiled.isAllElementsNode(i))
+                {
+                    if (node.elements == null)
+                    {
+                        node.elements = new Node();
+                    }
+                    node = node.elements;
+                }
+                else
+                {
+                    throw new IllegalArgumentException("Projections can only contain names and [], got " + path + "!");
+                }
+            }
+            node.setWhole();
+        }
+        return new NbtProjection(root);
+    }
+
+    /**
+     * Reads projected tags of the tree from given input stream.
+     *
+     * @param inputStream input stream to read from
+     *
+     * @return pruned root tag, or null if the stream contains only TAG_End
+     *
+     * @throws IOException           if any I/O error occurs
+     * @throws IllegalStateException if data is malformed
+     */
+    public Tag<?> read(DataInputStream inputStream) throws IOException
+    {
+        return read(new NbtEventReader(inputStream));
+    }
+
+    /**
+     * Reads projected tags of the next tree of given event reader, which mustn't have
+     * returned any events of that tree yet.
+     *
+     * @param reader event reader to read from
+     *
+     * @return pruned root tag, or null if there are no more trees
+     *
+     * @throws IOException           if any I/O error occurs
+     * @throws IllegalStateException if data is malformed
+     */
+    public Tag<?> read(NbtEventReader reader) throws IOException
+    {
+        if (reader.next() == NbtToken.END_DOCUMENT)
+        {
+            return null;
+        }
+        return read(reader, root);
+    }
+
+    /**
+     * Reads projected tags of the tree stored in given array.
+     *
+     * @param data serialized tree
+     *
+     * @return pruned root tag
+     *
+     * @throws IOException           if data ends before the tree does
+     * @throws IllegalStateException if data is malformed
+     */
+    public Tag<?> read(byte[] data) throws IOException
+    {
+        return read(new NbtReader(data));
+    }
+
+    /**
+     * Reads projected tags of the tree at reader's position, leaving its cursor after the
+     * tree.
+     *
+     * @param reader reader to read from
+     *
+     * @return pruned root tag
+     *
+     * @throws IOException           if data ends before the tree does
+     * @throws IllegalStateException if data is malformed
+     */
+    public Tag<?> read(NbtReader reader) throws IOException
+    {
+        TagType type = reader.readType();
+        return read(reader, type, reader.isNamelessRoot() ? "" : reader.readName(), root);
+    }
+
+    private static Tag<?> read(NbtEventReader reader, Node node) throws IOException
+    {
+        if (node.whole)
+        {
+            return reader.readTag();
+        }
+        String name = reader.getName() == null ? "" : reader.getName();
+        if (reader.getToken() == NbtToken.START_COMPOUND)
+        {
+            CompoundContent content = new CompoundContent();
+            while (reader.next() != NbtToken.END_COMPOUND)
+            {
+                Node child = node.children.get(reader.getName());
+                Tag<?> tag = child == null ? null : read(reader, child);
+                if (tag != null)
+                {
+                    content.addTag(tag);
+                }
+                else
+                {
+                    reader.skipValue();
+                }
+            }
+            return new TagCompound(name, content);
+        }
+        if (reader.getToken() == NbtToken.START_LIST && node.elements != null)
+        {
+            if (node.elements.whole)
+            {
+                return reader.readTag();
+            }
+            TagType listType = reader.getListType();
+            List<Tag<?>> elements = new ArrayList<>();
+            while (reader.next() != NbtToken.END_LIST)
+            {
+                Tag<?> element = read(reader, node.elements);
+                if (element != null)
+                {
+                    elements.add(element);
+                }
+                else
+                {
+                    reader.skipValue();
+                }
+            }
+            return new TagList(name, elements, elements.isEmpty() ? TagType.TAG_END : listType);
+        }
+        return null;
+    }
+
+    private static Tag<?> read(NbtReader reader, TagType type, String name, Node node) throws IOException
+    {
+        if (node.whole)
+        {
+            return reader.readPayload(type, name);
+        }
+        if (type == TagType.TAG_COMPOUND)
+        {
+            CompoundContent content = new CompoundContent();
+            TagType entryType;
+            while ((entryType = reader.readType()) != TagType.TAG_END)
+            {
+                String entryName = reader.readName();
+                Node child = node.children.get(entryName);
+                if (child == null)
+                {
+                    reader.skipPayload(entryType);
+                    continue;
+                }
+                Tag<?> tag = read(reader, entryType, entryName, child);
+                if (tag != null)
+                {
+                    content.addTag(tag);
+                }
+            }
+            return new TagCompound(name, content);
+        }
+        if (type == TagType.TAG_LIST && node.elements != null)
+        {
+            if (node.elements.whole)
+            {
+                // Every element is projected whole, so the list is read as it is
+                return reader.readPayload(type, name);
+            }
+            TagType listType = TagType.byId(reader.readUnsignedByte());
+            int size = reader.readLength();
+            if (size > 0 && (listType == TagType.TAG_END || listType == null))
+            {
+                throw new IllegalStateException("Incorrect list type!");
+            }
+            if (size == 0 || listType != TagType.TAG_COMPOUND && listType != TagType.TAG_LIST)
+            {
+                reader.skipElements(listType == null ? TagType.TAG_END : listType, size);
+                return new TagList(name, new ArrayList<>(), TagType.TAG_END);
+            }
+            List<Tag<?>> elements = new ArrayList<>(Math.min(size, reader.remaining()));
+            for (int i = 0; i < size; i++)
+            {
+                Tag<?> element = read(reader, listType, "", node.elements);
+                if (element != null)
+                {
+                    elements.add(element);
+                }
+            }
+            return new TagList(name, elements, elements.isEmpty() ? TagType.TAG_END : listType);
+        }
+        reader.skipPayload(type);
+        return null;
+    }
+
+    /**
+     * Node of the tree of projected paths.
+     */
+    private static final class Node
+    {
+        private Map<String, Node> children = new HashMap<>();
+        private Node elements;
+        private boolean whole;
+
+        private void setWhole()
+        {
+            whole = true;
+            children = null;
+            elements = null;
+        }
+    }
+}
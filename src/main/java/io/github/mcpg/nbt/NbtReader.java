@@ -0,0 +1,944 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mcpg.nbt;
+
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.github.mcpg.nbt.Tag.EncodedString;
+import io.github.mcpg.nbt.TagCompound.CompoundContent;
+
+/**
+ * Reads tags straight from a <code>byte[]</code> or a (heap or direct) {@link ByteBuffer},
+ * without going through {@link java.io.DataInputStream}. The reader keeps its own cursor,
+ * so the buffer it was created for isn't modified. Produced tags are the same as the ones
+ * read by {@link TagReadingUtils#readTag(java.io.DataInputStream)}.
+ * <p>
+ * Names and strings of heap buffers are decoded in place, and payloads of TAG_Int_Array and
+ * TAG_Long_Array are copied in bulk through {@link java.nio.IntBuffer} and
+ * {@link java.nio.LongBuffer} views.
+ * <p>
+ * Data is read in the big-endian encoding of Java Edition, readers of other encodings are
+ * created by {@link NbtEncoding#newReader(ByteBuffer)}.
+ * <p>
+ * Instances of this class aren't thread safe.
+ */
+public class NbtReader
+{
+    /**
+     * Arrays shorter than this are copied element by element, as creating buffer views for
+     * bulk copying costs more for them.
+     */
+    private static final int BULK_THRESHOLD = 16;
+
+    /**
+     * Buffer the data is read from. Only absolute get methods are used on it.
+     */
+    protected final ByteBuffer buffer;
+
+    /**
+     * Backing array of the buffer, or null if the buffer isn't array-backed.
+     */
+    protected final byte[] array;
+
+    /**
+     * Offset of the buffer's first byte in {@link #array}.
+     */
+    protected final int arrayOffset;
+
+    /**
+     * Index of the next byte to read.
+     */
+    protected int position;
+
+    /**
+     * Index of the first byte that can't be read.
+     */
+    protected final int limit;
+
+    private byte[] stringBuffer;
+    private ByteBuffer bulkBuffer;
+    // Encoded form of the last string read through a cache, null if it wasn't cached
+    private EncodedString lastEncoded;
+    private boolean lazyCompounds;
+    private boolean namelessRoot;
+    private StringCache nameCache = StringCache.getDefaultNameCache();
+    private StringCache valueCache;
+
+    /**
+     * Creates new reader reading whole given array.
+     *
+     * @param data data to read
+     */
+    public NbtReader(byte[] data)
+    {
+        this(data, 0, data.length);
+    }
+
+    /**
+     * Creates new reader reading <code>length</code> bytes of given array, starting at
+     * <code>offset</code>.
+     *
+     * @param data   data to read
+     * @param offset offset of the first byte to read
+     * @param length amount of bytes that can be read
+     *
+     * @throws IndexOutOfBoundsException if offset or length is out of array's bounds
+     */
+    public NbtReader(byte[] data, int offset, int length)
+    {
+        this(ByteBuffer.wrap(data, offset, length));
+    }
+
+    /**
+     * Creates new reader reading bytes between buffer's position and its limit. Reading
+     * doesn't change the position of given buffer.
+     *
+     * @param buffer buffer to read
+     */
+    public NbtReader(ByteBuffer buffer)
+    {
+        this(buffer, ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Creates new reader reading bytes between buffer's position and its limit, with given
+     * byte order of multi-byte values.
+     *
+     * @param buffer buffer to read
+     * @param order  byte order of the data
+     */
+    protected NbtReader(ByteBuffer buffer, ByteOrder order)
+    {
+        this.buffer = buffer.duplicate().order(order);
+        this.position = buffer.position();
+        this.limit = buffer.limit();
+        if (buffer.hasArray())
+        {
+            this.array = buffer.array();
+            this.arrayOffset = buffer.arrayOffset();
+        }
+        else
+        {
+            this.array = null;
+            this.arrayOffset = 0;
+        }
+    }
+
+    /**
+     * Returns whether compounds are read lazily.
+     *
+     * @return <code>true</code> if lazy mode is enabled
+     */
+    public boolean isLazyCompounds()
+    {
+        return lazyCompounds;
+    }
+
+    /**
+     * Enables or disables lazy mode. In lazy mode, reading TAG_Compound only scans its tags
+     * and remembers where each of them is; a tag is decoded when it's accessed through its
+     * {@link TagCompound.CompoundContent} for the first time (compounds inside it are lazy
+     * as well). Tags that have never been accessed are written back by copying their bytes.
+     * <p>
+     * Lazy compounds keep a reference to this reader and its data, until all of their tags
+     * are decoded. The data mustn't be modified while any lazy compound read from it is in
+     * use. Each lazy tag is decoded by a new reader with a cursor of its own, so this reader
+     * can go on reading, and different lazy compounds read from it can be decoded by
+     * different threads at once. A single compound content mustn't be accessed by several
+     * threads without synchronization though, as decoding a tag stores it in the content.
+     * Lazy mode is disabled by default.
+     *
+     * @param lazyCompounds <code>true</code> to enable lazy mode
+     */
+    public void setLazyCompounds(boolean lazyCompounds)
+    {
+        this.lazyCompounds = lazyCompounds;
+    }
+
+    /**
+     * Returns whether root tags are read without a name.
+     *
+     * @return <code>true</code> if nameless root mode is enabled
+     */
+    public boolean isNamelessRoot()
+    {
+        return namelessRoot;
+    }
+
+    /**
+     * Enables or disables nameless root mode. In this mode {@link #readTag()} doesn't read a
+     * name after the type id, and the tag gets an empty name, as Java Edition's network
+     * protocol has sent root tags without names since 1.20.2. Nameless root mode is
+     * disabled by default.
+     *
+     * @param namelessRoot <code>true</code> to enable nameless root mode
+     */
+    public void setNamelessRoot(boolean namelessRoot)
+    {
+        this.namelessRoot = namelessRoot;
+    }
+
+    /**
+     * Returns cache of tag names, or null if names aren't cached.
+     *
+     * @return cache used for names
+     */
+    public StringCache getNameCache()
+    {
+        return nameCache;
+    }
+
+    /**
+     * Sets cache used to share instances of tag names between read tags. By default, it's
+     * {@link StringCache#getDefaultNameCache()}.
+     *
+     * @param nameCache cache for names, or null to create a new string for every name
+     */
+    public void setNameCache(StringCache nameCache)
+    {
+        this.nameCache = nameCache;
+    }
+
+    /**
+     * Returns cache of TAG_String values, or null if values aren't cached.
+     *
+     * @return cache used for values
+     */
+    public StringCache getValueCache()
+    {
+        return valueCache;
+    }
+
+    /**
+     * Sets cache used to share instances of TAG_String values between read tags, which is
+     * worth it for repeated values like item or block ids. Values aren't cached by default.
+     *
+     * @param valueCache cache for values, or null to create a new string for every value
+     */
+    public void setValueCache(StringCache valueCache)
+    {
+        this.valueCache = valueCache;
+    }
+
+    /**
+     * Returns encoding of the data this reader reads.
+     *
+     * @return reader's encoding
+     */
+    public NbtEncoding getEncoding()
+    {
+        return buffer.order() == ByteOrder.BIG_ENDIAN ? NbtEncoding.JAVA : NbtEncoding.BEDROCK;
+    }
+
+    /**
+     * Returns index of the next byte to be read.
+     *
+     * @return reader's position
+     */
+    public int getPosition()
+    {
+        return position;
+    }
+
+    /**
+     * Moves reader's cursor.
+     *
+     * @param position index of the next byte to read
+     *
+     * @throws IndexOutOfBoundsException if position is beyond the readable data
+     */
+    public void setPosition(int position)
+    {
+        if (position < 0 || position > limit)
+        {
+            throw new IndexOutOfBoundsException("Position " + position + " is out of bounds!");
+        }
+        this.position = position;
+    }
+
+    /**
+     * Returns amount of bytes left to read.
+     *
+     * @return remaining bytes
+     */
+    public int remaining()
+    {
+        return limit - position;
+    }
+
+    /**
+     * Reads new tag (type id, name and payload).
+     *
+     * @return readied tag
+     *
+     * @throws IOException           if data ends before the tag does
+     * @throws IllegalStateException if detected tag isn't registered
+     */
+    public Tag<?> readTag() throws IOException
+    {
+        TagType type = readType();
+        if (type == TagType.TAG_END)
+        {
+            return new TagEnd();
+        }
+        return namelessRoot ? readPayload(type, "") : readNamedPayload(type);
+    }
+
+    /**
+     * Reads payload of a tag with given type and creates the tag.
+     *
+     * @param type type of the tag
+     * @param name name of the new tag
+     *
+     * @return readied tag
+     *
+     * @throws IOException           if data ends before the tag does
+     * @throws IllegalStateException if detected tag isn't registered
+     */
+    public Tag<?> readPayload(TagType type, String name) throws IOException
+    {
+        switch (type)
+        {
+            case TAG_END:
+                return new TagEnd();
+            case TAG_BYTE:
+                return new TagByte(name, readByte());
+            case TAG_SHORT:
+                return new TagShort(name, readShort());
+            case TAG_INT:
+                return new TagInt(name, readInt());
+            case TAG_LONG:
+                return new TagLong(name, readLong());
+            case TAG_FLOAT:
+                return new TagFloat(name, readFloat());
+            case TAG_DOUBLE:
+                return new TagDouble(name, readDouble());
+            case TAG_BYTE_ARRAY:
+                return new TagByteArray(name, readByteArray());
+            case TAG_STRING:
+                TagString string = new TagString(name, readString());
+                string.setEncodedValue(lastEncoded);
+                return string;
+            case TAG_LIST:
+                return readList(name);
+            case TAG_COMPOUND:
+                return new TagCompound(name, readCompoundContent());
+            case TAG_INT_ARRAY:
+                return new TagIntArray(name, readIntArray());
+            case TAG_LONG_ARRAY:
+                return new TagLongArray(name, readLongArray());
+            default:
+                throw new IllegalStateException("Unsupported tag type " + type + "!");
+        }
+    }
+
+    /**
+     * Reads TAG_List payload.
+     */
+    protected TagList readList(String name) throws IOException
+    {
+        int id = readUnsignedByte();
+        TagType listType = TagType.byId(id);
+        int size = readLength();
+        if (size > 0 && (listType == TagType.TAG_END || listType == null))
+        {
+            throw new IllegalStateException("Incorrect list type!");
+        }
+        if (listType == null)
+        {
+            listType = TagType.TAG_END;
+        }
+        switch (listType)
+        {
+            case TAG_BYTE:
+                return new TagList(name, readBytes(size));
+            case TAG_SHORT:
+                return new TagList(name, readShorts(size));
+            case TAG_INT:
+                return new TagList(name, readInts(size));
+            case TAG_LONG:
+                return new TagList(name, readLongs(size));
+            case TAG_FLOAT:
+                return new TagList(name, readFloats(size));
+            case TAG_DOUBLE:
+                return new TagList(name, readDoubles(size));
+            default:
+                break;
+        }
+        List<Tag<?>> tags = new ArrayList<>(Math.min(size, remaining()));
+        for (int i = 0; i < size; i++)
+        {
+            tags.add(readPayload(listType, ""));
+        }
+        return new TagList(name, tags, listType);
+    }
+
+    /**
+     * Reads TAG_Compound payload.
+     */
+    protected CompoundContent readCompoundContent() throws IOException
+    {
+        CompoundContent content = new CompoundContent();
+        if (lazyCompounds)
+        {
+            while (true)
+            {
+                int start = position;
+                TagType type = readType();
+                if (type == TagType.TAG_END)
+                {
+                    break;
+                }
+                String name = readName();
+                int payloadStart = position;
+                skipPayload(type);
+                content.addLazyTag(type, name, this, start, payloadStart, position);
+            }
+            return content;
+        }
+        TagType type;
+        while ((type = readType()) != TagType.TAG_END)
+        {
+            content.addTag(readNamedPayload(type));
+        }
+        return content;
+    }
+
+    /**
+     * Reads name and payload of a tag with given type. Names taken from the cache come with
+     * their encoded bytes, which are kept in the tag so writing it doesn't encode the name.
+     */
+    private Tag<?> readNamedPayload(TagType type) throws IOException
+    {
+        String name = readName();
+        EncodedString encodedName = lastEncoded;
+        Tag<?> tag = readPayload(type, name);
+        tag.setEncodedName(encodedName);
+        return tag;
+    }
+
+    /**
+     * Skips payload of a tag with given type, using length prefixes where possible.
+     *
+     * @param type type of the tag
+     *
+     * @throws IOException           if data ends before the tag does
+     * @throws IllegalStateException if detected tag isn't registered
+     */
+    public void skipPayload(TagType type) throws IOException
+    {
+        switch (type)
+        {
+            case TAG_END:
+                break;
+            case TAG_BYTE:
+                advance(1);
+                break;
+            case TAG_SHORT:
+                advance(2);
+                break;
+            case TAG_INT:
+                readInt();
+                break;
+            case TAG_LONG:
+                readLong();
+                break;
+            case TAG_FLOAT:
+                advance(4);
+                break;
+            case TAG_DOUBLE:
+                advance(8);
+                break;
+            case TAG_BYTE_ARRAY:
+                advance(readLength());
+                break;
+            case TAG_STRING:
+                advance(readStringLength());
+                break;
+            case TAG_LIST:
+                TagType listType = TagType.byId(readUnsignedByte());
+                int size = readLength();
+                if (size > 0 && (listType == TagType.TAG_END || listType == null))
+                {
+                    throw new IllegalStateException("Incorrect list type!");
+                }
+                skipElements(listType, size);
+                break;
+            case TAG_COMPOUND:
+                TagType entryType;
+                while ((entryType = readType()) != TagType.TAG_END)
+                {
+                    advance(readStringLength());
+                    skipPayload(entryType);
+                }
+                break;
+            case TAG_INT_ARRAY:
+                advanceElements(readLength(), 4);
+                break;
+            case TAG_LONG_ARRAY:
+                advanceElements(readLength(), 8);
+                break;
+            default:
+                throw new IllegalStateException("Unsupported tag type " + type + "!");
+        }
+    }
+
+    /**
+     * Skips <code>count</code> elements of a list.
+     */
+    protected void skipElements(TagType type, int count) throws IOException
+    {
+        switch (type)
+        {
+            case TAG_BYTE:
+                advanceElements(count, 1);
+                break;
+            case TAG_SHORT:
+                advanceElements(count, 2);
+                break;
+            case TAG_INT:
+            case TAG_FLOAT:
+                advanceElements(count, 4);
+                break;
+            case TAG_LONG:
+            case TAG_DOUBLE:
+                advanceElements(count, 8);
+                break;
+            default:
+                for (int i = 0; i < count; i++)
+                {
+                    skipPayload(type);
+                }
+                break;
+        }
+    }
+
+    /**
+     * Decodes payload of a lazily read tag. It's decoded by a new reader of the same data
+     * and settings, so neither the cursor nor the buffers of this reader are touched.
+     */
+    Tag<?> readLazyPayload(TagType type, String name, int payloadStart) throws IOException
+    {
+        ByteBuffer data = buffer.duplicate();
+        // Cast to Buffer keeps this compatible with Java 8 runtime when compiled on newer JDKs
+        ((Buffer) data).position(payloadStart);
+        NbtReader reader = getEncoding().newReader(data);
+        reader.lazyCompounds = lazyCompounds;
+        reader.nameCache = nameCache;
+        reader.valueCache = valueCache;
+        return reader.readPayload(type, name);
+    }
+
+    /**
+     * Checks whether bytes starting at given index are equal to given array, without moving
+     * the cursor.
+     */
+    boolean regionEquals(int index, byte[] bytes)
+    {
+        if (index < 0 || limit - index < bytes.length)
+        {
+            return false;
+        }
+        if (array != null)
+        {
+            int offset = arrayOffset + index;
+            for (int i = 0; i < bytes.length; i++)
+            {
+                if (array[offset + i] != bytes[i])
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+        for (int i = 0; i < bytes.length; i++)
+        {
+            if (buffer.get(index + i) != bytes[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copies bytes between given indexes into the output stream.
+     */
+    void copyTo(DataOutputStream outputStream, int start, int end) throws IOException
+    {
+        if (array != null)
+        {
+            outputStream.write(array, arrayOffset + start, end - start);
+            return;
+        }
+        // Lazy compounds may be written by several threads, so no buffer of this reader is used
+        ByteBuffer source = slice(start, end - start);
+        byte[] bytes = new byte[Math.min(end - start, 8192)];
+        while (source.hasRemaining())
+        {
+            int length = Math.min(bytes.length, source.remaining());
+            source.get(bytes, 0, length);
+            outputStream.write(bytes, 0, length);
+        }
+    }
+
+    /**
+     * Copies bytes between given indexes into the target buffer, starting at
+     * <code>index</code>. Target's position isn't changed.
+     */
+    void copyTo(ByteBuffer target, int index, int start, int end)
+    {
+        if (array != null && target.hasArray())
+        {
+            System.arraycopy(array, arrayOffset + start, target.array(), target.arrayOffset() + index, end - start);
+            return;
+        }
+        ByteBuffer destination = target.duplicate();
+        ((Buffer) destination).position(index);
+        destination.put(slice(start, end - start));
+    }
+
+    /**
+     * Reads type id and resolves it into {@link TagType}.
+     */
+    protected TagType readType() throws IOException
+    {
+        int id = readUnsignedByte();
+        TagType type = TagType.byId(id);
+        if (type == null)
+        {
+            throw new IllegalStateException("Detected unknown tag with ID " + id + "!");
+        }
+        return type;
+    }
+
+    /**
+     * Checks if there are at least <code>count</code> bytes left and returns index of the
+     * first one, moving the cursor after them.
+     *
+     * @param count amount of bytes to consume
+     *
+     * @return index of the first consumed byte
+     *
+     * @throws EOFException if there isn't enough data left
+     */
+    protected int advance(int count) throws EOFException
+    {
+        int index = position;
+        if (count < 0 || limit - index < count)
+        {
+            throw new EOFException("Tried to read " + count + " bytes, " + (limit - index) + " left!");
+        }
+        position = index + count;
+        return index;
+    }
+
+    /**
+     * Same as {@link #advance(int)}, but for <code>count</code> elements of
+     * <code>size</code> bytes each.
+     */
+    protected int advanceElements(int count, int size) throws EOFException
+    {
+        if ((long) count * size > limit - position)
+        {
+            throw new EOFException("Tried to read " + count + " elements of " + size + " bytes, "
+                    + (limit - position) + " bytes left!");
+        }
+        return advance(count * size);
+    }
+
+    protected byte readByte() throws IOException
+    {
+        return buffer.get(advance(1));
+    }
+
+    protected int readUnsignedByte() throws IOException
+    {
+        return buffer.get(advance(1)) & 0xff;
+    }
+
+    protected short readShort() throws IOException
+    {
+        return buffer.getShort(advance(2));
+    }
+
+    protected int readInt() throws IOException
+    {
+        return buffer.getInt(advance(4));
+    }
+
+    protected long readLong() throws IOException
+    {
+        return buffer.getLong(advance(8));
+    }
+
+    protected float readFloat() throws IOException
+    {
+        return buffer.getFloat(advance(4));
+    }
+
+    protected double readDouble() throws IOException
+    {
+        return buffer.getDouble(advance(8));
+    }
+
+    /**
+     * Reads length of a list or an array.
+     */
+    protected int readLength() throws IOException
+    {
+        int length = readInt();
+        if (length < 0)
+        {
+            throw new IllegalStateException("Negative length " + length + "!");
+        }
+        return length;
+    }
+
+    /**
+     * Reads length of a string (or a name) in bytes.
+     */
+    protected int readStringLength() throws IOException
+    {
+        return readShort() & 0xffff;
+    }
+
+    /**
+     * Reads a tag name.
+     */
+    protected String readName() throws IOException
+    {
+        return readString(nameCache);
+    }
+
+    /**
+     * Reads a string value.
+     */
+    protected String readString() throws IOException
+    {
+        return readString(valueCache);
+    }
+
+    /**
+     * Reads a string, taking it from given cache if it isn't null.
+     */
+    protected String readString(StringCache cache) throws IOException
+    {
+        int length = readStringLength();
+        int index = advance(length);
+        byte[] bytes;
+        int offset;
+        if (array != null)
+        {
+            bytes = array;
+            offset = arrayOffset + index;
+        }
+        else
+        {
+            bytes = stringBuffer(length);
+            offset = 0;
+            getBytes(index, bytes, length);
+        }
+        lastEncoded = cache != null ? cache.getEncoded(bytes, offset, length) : null;
+        return lastEncoded != null ? lastEncoded.source : ModifiedUtf8.decode(bytes, offset, length);
+    }
+
+    protected byte[] readByteArray() throws IOException
+    {
+        return readBytes(readLength());
+    }
+
+    protected int[] readIntArray() throws IOException
+    {
+        return readInts(readLength());
+    }
+
+    protected long[] readLongArray() throws IOException
+    {
+        return readLongs(readLength());
+    }
+
+    /**
+     * Reads <code>count</code> bytes, elements of a TAG_Byte_Array or a list.
+     */
+    protected byte[] readBytes(int count) throws IOException
+    {
+        int index = advance(count);
+        byte[] value = new byte[count];
+        if (array != null)
+        {
+            System.arraycopy(array, arrayOffset + index, value, 0, count);
+        }
+        else
+        {
+            getBytes(index, value, count);
+        }
+        return value;
+    }
+
+    /**
+     * Reads <code>count</code> shorts, elements of a list.
+     */
+    protected short[] readShorts(int count) throws IOException
+    {
+        int index = advanceElements(count, 2);
+        short[] value = new short[count];
+        if (count < BULK_THRESHOLD)
+        {
+            for (int i = 0; i < count; i++)
+            {
+                value[i] = buffer.getShort(index + i * 2);
+            }
+        }
+        else
+        {
+            slice(index, count * 2).asShortBuffer().get(value);
+        }
+        return value;
+    }
+
+    /**
+     * Reads <code>count</code> ints, elements of a TAG_Int_Array or a list.
+     */
+    protected int[] readInts(int count) throws IOException
+    {
+        int index = advanceElements(count, 4);
+        int[] value = new int[count];
+        if (count < BULK_THRESHOLD)
+        {
+            for (int i = 0; i < count; i++)
+            {
+                value[i] = buffer.getInt(index + i * 4);
+            }
+        }
+        else
+        {
+            slice(index, count * 4).asIntBuffer().get(value);
+        }
+        return value;
+    }
+
+    /**
+     * Reads <code>count</code> longs, elements of a TAG_Long_Array or a list.
+     */
+    protected long[] readLongs(int count) throws IOException
+    {
+        int index = advanceElements(count, 8);
+        long[] value = new long[count];
+        if (count < BULK_THRESHOLD)
+        {
+            for (int i = 0; i < count; i++)
+            {
+                value[i] = buffer.getLong(index + i * 8);
+            }
+        }
+        else
+        {
+            slice(index, count * 8).asLongBuffer().get(value);
+        }
+        return value;
+    }
+
+    /**
+     * Reads <code>count</code> floats, elements of a list.
+     */
+    protected float[] readFloats(int count) throws IOException
+    {
+        int index = advanceElements(count, 4);
+        float[] value = new float[count];
+        if (count < BULK_THRESHOLD)
+        {
+            for (int i = 0; i < count; i++)
+            {
+                value[i] = buffer.getFloat(index + i * 4);
+            }
+        }
+        else
+        {
+            slice(index, count * 4).asFloatBuffer().get(value);
+        }
+        return value;
+    }
+
+    /**
+     * Reads <code>count</code> doubles, elements of a list.
+     */
+    protected double[] readDoubles(int count) throws IOException
+    {
+        int index = advanceElements(count, 8);
+        double[] value = new double[count];
+        if (count < BULK_THRESHOLD)
+        {
+            for (int i = 0; i < count; i++)
+            {
+                value[i] = buffer.getDouble(index + i * 8);
+            }
+        }
+        else
+        {
+            slice(index, count * 8).asDoubleBuffer().get(value);
+        }
+        return value;
+    }
+
+    /**
+     * Returns a view of <code>length</code> bytes starting at given index, with the byte
+     * order of this reader.
+     */
+    protected ByteBuffer slice(int index, int length)
+    {
+        ByteBuffer slice = buffer.duplicate();
+        // Cast to Buffer keeps this compatible with Java 8 runtime when compiled on newer JDKs
+        ((Buffer) slice).limit(index + length);
+        ((Buffer) slice).position(index);
+        return slice.slice().order(buffer.order());
+    }
+
+    /**
+     * Copies <code>length</code> bytes starting at given index of a buffer without backing
+     * array. Java 8 has no absolute bulk get, so a reusable duplicate of the buffer is moved
+     * instead of creating a slice for every copy.
+     */
+    private void getBytes(int index, byte[] target, int length)
+    {
+        if (bulkBuffer == null)
+        {
+            bulkBuffer = buffer.duplicate();
+        }
+        // Cast to Buffer keeps this compatible with Java 8 runtime when compiled on newer JDKs
+        ((Buffer) bulkBuffer).position(index);
+        bulkBuffer.get(target, 0, length);
+    }
+
+    private byte[] stringBuffer(int length)
+    {
+        if (stringBuffer == null || stringBuffer.length < length)
+        {
+            stringBuffer = new byte[Math.max(length, 64)];
+        }
+        return stringBuffer;
+    }
+}
@@ -0,0 +1,903 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mcpg.nbt;
+
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Read-only view of a serialized tag, which doesn't create any objects for the tags inside
+ * it. Parsing only scans the data once and records every tag in a flat table of nodes (the
+ * tape); values are read from the original bytes when they're requested.
+ * <p>
+ * Nodes are identified by <code>int</code> handles, the root is always 0. Every node takes
+ * 16 bytes of the tape, holding its type, offsets of its name and payload in the data, and
+ * handle of its next sibling. Elements of lists with fixed-width types (like the doubles of
+ * <code>Pos</code>) don't have nodes; they, as well as elements of arrays, are read by their
+ * index.
+ * <p>
+ * The data mustn't be modified while the tape is in use. Instances of this class can be
+ * used by multiple threads at once.
+ */
+public class NbtTape
+{
+    /**
+     * Amount of ints describing a node.
+     */
+    static final int NODE_SIZE = 4;
+
+    private static final int TYPE = 0;
+    private static final int NAME = 1;
+    private static final int PAYLOAD = 2;
+    private static final int NEXT = 3;
+
+    /**
+     * Flag set in the type of compounds and lists with child nodes.
+     */
+    private static final int HAS_CHILDREN = 0x100;
+
+    /**
+     * Serialized tag, indexes in the tape point into it. Only absolute get methods are used
+     * on it.
+     */
+    protected final ByteBuffer data;
+
+    /**
+     * Nodes of the tape, {@link #NODE_SIZE} ints each.
+     */
+    protected final IntBuffer nodes;
+
+    /**
+     * Creates new tape over given data and nodes.
+     *
+     * @param data  serialized tag
+     * @param nodes nodes describing the data
+     */
+    protected NbtTape(ByteBuffer data, IntBuffer nodes)
+    {
+        this.data = data;
+        this.nodes = nodes;
+    }
+
+    /**
+     * Parses whole given array. The array isn't copied.
+     *
+     * @param data serialized tag
+     *
+     * @return tape of the tag
+     *
+     * @throws IOException           if data ends before the tag does
+     * @throws IllegalStateException if data isn't a valid tag
+     */
+    public static NbtTape parse(byte[] data) throws IOException
+    {
+        return parse(new NbtReader(data));
+    }
+
+    /**
+     * Parses <code>length</code> bytes of given array, starting at <code>offset</code>. The
+     * array isn't copied.
+     *
+     * @param data   array with serialized tag
+     * @param offset offset of the tag
+     * @param length amount of bytes that can be read
+     *
+     * @return tape of the tag
+     *
+     * @throws IOException           if data ends before the tag does
+     * @throws IllegalStateException if data isn't a valid tag
+     */
+    public static NbtTape parse(byte[] data, int offset, int length) throws IOException
+    {
+        return parse(new NbtReader(data, offset, length));
+    }
+
+    /**
+     * Parses tag starting at buffer's position. The buffer isn't copied and its position
+     * isn't changed.
+     *
+     * @param buffer buffer with serialized tag
+     *
+     * @return tape of the tag
+     *
+     * @throws IOException           if data ends before the tag does
+     * @throws IllegalStateException if data isn't a valid tag
+     */
+    public static NbtTape parse(ByteBuffer buffer) throws IOException
+    {
+        return parse(new NbtReader(buffer));
+    }
+
+    /**
+     * Serializes given tag and parses it.
+     *
+     * @param tag tag to convert
+     *
+     * @return tape of the tag
+     */
+    public static NbtTape of(Tag<?> tag)
+    {
+        try
+        {
+            return parse(new NbtWriter().write(tag));
+        } catch (IOException e)
+        {
+            throw new IllegalStateException("Couldn't read a written tag!", e);
+        }
+    }
+
+    private static NbtTape parse(NbtReader reader) throws IOException
+    {
+        return new NbtTape(reader.buffer, IntBuffer.wrap(scan(reader, 0)));
+    }
+
+    /**
+     * Scans the tag at reader's position, returning its nodes. Offsets in the nodes are
+     * relative to <code>origin</code>, reader's cursor is left after the tag.
+     */
+    static int[] scan(NbtReader reader, int origin) throws IOException
+    {
+        Scanner scanner = new Scanner(reader, origin);
+        TagType type = reader.readType();
+        int nameOffset = reader.position - origin;
+        reader.advance(reader.readStringLength());
+        scanner.scan(type, nameOffset);
+        return Arrays.copyOf(scanner.nodes, scanner.count * NODE_SIZE);
+    }
+
+    /**
+     * Returns amount of nodes in the tape.
+     *
+     * @return amount of nodes
+     */
+    public int getNodeCount()
+    {
+        return nodes.limit() / NODE_SIZE;
+    }
+
+    /**
+     * Returns handle of the root tag.
+     *
+     * @return root node
+     */
+    public int getRoot()
+    {
+        return 0;
+    }
+
+    /**
+     * Returns type of given node.
+     *
+     * @param node handle of the node
+     *
+     * @return type of the tag
+     */
+    public TagType getType(int node)
+    {
+        return TagType.byId(nodes.get(node * NODE_SIZE + TYPE) & 0xff);
+    }
+
+    /**
+     * Returns name of given node. Elements of lists have empty names.
+     *
+     * @param node handle of the node
+     *
+     * @return name of the tag
+     *
+     * @throws IllegalStateException if the name isn't valid Modified UTF-8
+     */
+    public String getName(int node)
+    {
+        int offset = nodes.get(node * NODE_SIZE + NAME);
+        return offset < 0 ? "" : decode(offset, StringCache.getDefaultNameCache());
+    }
+
+    /**
+     * Returns the first tag of a compound or the first element of a list, if it has a node.
+     *
+     * @param node handle of a TAG_Compound or TAG_List node
+     *
+     * @return handle of the first child, or -1 if there are no child nodes
+     */
+    public int getFirstChild(int node)
+    {
+        // children directly follow their parent
+        return (nodes.get(node * NODE_SIZE + TYPE) & HAS_CHILDREN) != 0 ? node + 1 : -1;
+    }
+
+    /**
+     * Returns the next tag of the same compound or the next element of the same list.
+     *
+     * @param node handle of the node
+     *
+     * @return handle of the next sibling, or -1 if given node is the last one
+     */
+    public int getNextSibling(int node)
+    {
+        return nodes.get(node * NODE_SIZE + NEXT);
+    }
+
+    /**
+     * Returns amount of tags in a compound, elements of a list or an array, or bytes of a
+     * string.
+     *
+     * @param node handle of the node
+     *
+     * @return size of the tag
+     *
+     * @throws IllegalStateException if the tag doesn't have a size
+     */
+    public int getSize(int node)
+    {
+        int offset = getPayloadOffset(node);
+        switch (getType(node))
+        {
+            case TAG_COMPOUND:
+                int size = 0;
+                for (int child = getFirstChild(node); child >= 0; child = getNextSibling(child))
+                {
+                    size++;
+                }
+                return size;
+            case TAG_LIST:
+                return data.getInt(offset + 1);
+            case TAG_BYTE_ARRAY:
+            case TAG_INT_ARRAY:
+            case TAG_LONG_ARRAY:
+                return data.getInt(offset);
+            case TAG_STRING:
+                return data.getShort(offset) & 0xffff;
+            default:
+                throw new IllegalStateException("Tag " + getType(node) + " doesn't have a size!");
+        }
+    }
+
+    /**
+     * Returns type of list's elements.
+     *
+     * @param node handle of a TAG_List node
+     *
+     * @return type of the elements
+     */
+    public TagType getListType(int node)
+    {
+        checkType(node, TagType.TAG_LIST);
+        TagType type = TagType.byId(data.get(getPayloadOffset(node)));
+        return type == null ? TagType.TAG_END : type;
+    }
+
+    /**
+     * Finds a tag of a compound.
+     *
+     * @param node handle of a TAG_Compound node
+     * @param name name of the tag
+     *
+     * @return handle of the tag, or -1 if the compound doesn't contain it
+     */
+    public int getChild(int node, String name)
+    {
+        if (getType(node) != TagType.TAG_COMPOUND)
+        {
+            return -1;
+        }
+        byte[] encoded = ModifiedUtf8.encode(name);
+        for (int child = getFirstChild(node); child >= 0; child = getNextSibling(child))
+        {
+            if (nameEquals(child, encoded))
+            {
+                return child;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds an element of a list. Elements of lists with fixed-width types don't have nodes
+     * and have to be read with typed methods taking an index, like {@link #getInt(int, int)}.
+     *
+     * @param node  handle of a TAG_List node
+     * @param index index of the element
+     *
+     * @return handle of the element, or -1 if it's out of list's bounds or doesn't have a node
+     */
+    public int getChild(int node, int index)
+    {
+        if (getType(node) != TagType.TAG_LIST || index < 0)
+        {
+            return -1;
+        }
+        int child = getFirstChild(node);
+        for (int i = 0; i < index && child >= 0; i++)
+        {
+            child = getNextSibling(child);
+        }
+        return child;
+    }
+
+    /**
+     * Finds a tag by its path from the root, see {@link #get(int, String)}.
+     *
+     * @param path path of the tag
+     *
+     * @return handle of the tag, or -1 if there is no such tag
+     */
+    public int get(String path)
+    {
+        return get(getRoot(), path);
+    }
+
+    /**
+     * Finds a tag by its path from given node. The path consists of names of compound tags
+     * separated with dots, each of them can be followed by indexes of list elements in square
+     * brackets, for example <code>Level.Sections[3].BlockStates</code>. An empty path refers
+     * to the node itself.
+     *
+     * @param node handle of the node the path starts at
+     * @param path path of the tag
+     *
+     * @return handle of the tag, or -1 if there is no such tag
+     *
+     * @throws IllegalArgumentException if the path is malformed
+     */
+    public int get(int node, String path)
+    {
+        int index = 0;
+        int length = path.length();
+        while (index < length && node >= 0)
+        {
+            int end = index;
+            while (end < length && path.charAt(end) != '.' && path.charAt(end) != '[')
+            {
+                end++;
+            }
+            if (end > index)
+            {
+                node = getChild(node, path.substring(index, end));
+            }
+            while (end < length && path.charAt(end) == '[')
+            {
+                int close = path.indexOf(']', end);
+                if (close < 0)
+                {
+                    throw new IllegalArgumentException("Malformed path " + path + "!");
+                }
+                try
+                {
+                    node = node < 0 ? -1 : getChild(node, Integer.parseInt(path.substring(end + 1, close)));
+                } catch (NumberFormatException e)
+                {
+                    throw new IllegalArgumentException("Malformed path " + path + "!", e);
+                }
+                end = close + 1;
+            }
+            if (end < length && path.charAt(end) != '.')
+            {
+                throw new IllegalArgumentException("Malformed path " + path + "!");
+            }
+            index = end + 1;
+        }
+        return node;
+    }
+
+    /**
+     * Reads value of a numeric tag, converting it like {@link Number#byteValue()}.
+     *
+     * @param node handle of the node
+     *
+     * @return value of the tag
+     *
+     * @throws IllegalStateException if the tag isn't numeric
+     */
+    public byte getByte(int node)
+    {
+        return isFloating(node) ? (byte) getDouble(node) : (byte) getLong(node);
+    }
+
+    /**
+     * Reads value of a numeric tag, converting it like {@link Number#shortValue()}.
+     *
+     * @param node handle of the node
+     *
+     * @return value of the tag
+     *
+     * @throws IllegalStateException if the tag isn't numeric
+     */
+    public short getShort(int node)
+    {
+        return isFloating(node) ? (short) getDouble(node) : (short) getLong(node);
+    }
+
+    /**
+     * Reads value of a numeric tag, converting it like {@link Number#intValue()}.
+     *
+     * @param node handle of the node
+     *
+     * @return value of the tag
+     *
+     * @throws IllegalStateException if the tag isn't numeric
+     */
+    public int getInt(int node)
+    {
+        return isFloating(node) ? (int) getDouble(node) : (int) getLong(node);
+    }
+
+    /**
+     * Reads value of a numeric tag, converting it like {@link Number#longValue()}.
+     *
+     * @param node handle of the node
+     *
+     * @return value of the tag
+     *
+     * @throws IllegalStateException if the tag isn't numeric
+     */
+    public long getLong(int node)
+    {
+        int offset = getPayloadOffset(node);
+        switch (getType(node))
+        {
+            case TAG_BYTE:
+                return data.get(offset);
+            case TAG_SHORT:
+                return data.getShort(offset);
+            case TAG_INT:
+                return data.getInt(offset);
+            case TAG_LONG:
+                return data.getLong(offset);
+            case TAG_FLOAT:
+            case TAG_DOUBLE:
+                return (long) getDouble(node);
+            default:
+                throw new IllegalStateException("Tag " + getType(node) + " isn't numeric!");
+        }
+    }
+
+    /**
+     * Reads value of a numeric tag, converting it like {@link Number#floatValue()}.
+     *
+     * @param node handle of the node
+     *
+     * @return value of the tag
+     *
+     * @throws IllegalStateException if the tag isn't numeric
+     */
+    public float getFloat(int node)
+    {
+        if (getType(node) == TagType.TAG_FLOAT)
+        {
+            return data.getFloat(getPayloadOffset(node));
+        }
+        return isFloating(node) ? (float) getDouble(node) : (float) getLong(node);
+    }
+
+    /**
+     * Reads value of a numeric tag, converting it like {@link Number#doubleValue()}.
+     *
+     * @param node handle of the node
+     *
+     * @return value of the tag
+     *
+     * @throws IllegalStateException if the tag isn't numeric
+     */
+    public double getDouble(int node)
+    {
+        switch (getType(node))
+        {
+            case TAG_FLOAT:
+                return data.getFloat(getPayloadOffset(node));
+            case TAG_DOUBLE:
+                return data.getDouble(getPayloadOffset(node));
+            default:
+                return getLong(node);
+        }
+    }
+
+    /**
+     * Reads value of a TAG_String.
+     *
+     * @param node handle of the node
+     *
+     * @return value of the tag
+     *
+     * @throws IllegalStateException if the tag isn't a TAG_String or its value isn't valid
+     *                               Modified UTF-8
+     */
+    public String getString(int node)
+    {
+        checkType(node, TagType.TAG_STRING);
+        return decode(getPayloadOffset(node), null);
+    }
+
+    /**
+     * Copies payload of a TAG_Byte_Array or elements of a byte list.
+     *
+     * @param node handle of the node
+     *
+     * @return copied bytes
+     *
+     * @throws IllegalStateException if the tag isn't a TAG_Byte_Array or a list of bytes
+     */
+    public byte[] getByteArray(int node)
+    {
+        int offset = getElementsOffset(node, TagType.TAG_BYTE_ARRAY, TagType.TAG_BYTE);
+        byte[] bytes = new byte[getSize(node)];
+        slice(offset, bytes.length).get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Copies payload of a TAG_Int_Array or elements of an int list.
+     *
+     * @param node handle of the node
+     *
+     * @return copied ints
+     *
+     * @throws IllegalStateException if the tag isn't a TAG_Int_Array or a list of ints
+     */
+    public int[] getIntArray(int node)
+    {
+        int offset = getElementsOffset(node, TagType.TAG_INT_ARRAY, TagType.TAG_INT);
+        int[] ints = new int[getSize(node)];
+        slice(offset, ints.length * 4).asIntBuffer().get(ints);
+        return ints;
+    }
+
+    /**
+     * Copies payload of a TAG_Long_Array or elements of a long list.
+     *
+     * @param node handle of the node
+     *
+     * @return copied longs
+     *
+     * @throws IllegalStateException if the tag isn't a TAG_Long_Array or a list of longs
+     */
+    public long[] getLongArray(int node)
+    {
+        int offset = getElementsOffset(node, TagType.TAG_LONG_ARRAY, TagType.TAG_LONG);
+        long[] longs = new long[getSize(node)];
+        slice(offset, longs.length * 8).asLongBuffer().get(longs);
+        return longs;
+    }
+
+    /**
+     * Reads an element of a TAG_Byte_Array or a byte list.
+     *
+     * @param node  handle of the node
+     * @param index index of the element
+     *
+     * @return value of the element
+     *
+     * @throws IllegalStateException     if the tag isn't a TAG_Byte_Array or a list of bytes
+     * @throws IndexOutOfBoundsException if the index is out of bounds
+     */
+    public byte getByte(int node, int index)
+    {
+        return data.get(getElementOffset(node, TagType.TAG_BYTE_ARRAY, TagType.TAG_BYTE, 1, index));
+    }
+
+    /**
+     * Reads an element of a short list.
+     *
+     * @param node  handle of the node
+     * @param index index of the element
+     *
+     * @return value of the element
+     *
+     * @throws IllegalStateException     if the tag isn't a list of shorts
+     * @throws IndexOutOfBoundsException if the index is out of bounds
+     */
+    public short getShort(int node, int index)
+    {
+        return data.getShort(getElementOffset(node, null, TagType.TAG_SHORT, 2, index));
+    }
+
+    /**
+     * Reads an element of a TAG_Int_Array or an int list.
+     *
+     * @param node  handle of the node
+     * @param index index of the element
+     *
+     * @return value of the element
+     *
+     * @throws IllegalStateException     if the tag isn't a TAG_Int_Array or a list of ints
+     * @throws IndexOutOfBoundsException if the index is out of bounds
+     */
+    public int getInt(int node, int index)
+    {
+        return data.getInt(getElementOffset(node, TagType.TAG_INT_ARRAY, TagType.TAG_INT, 4, index));
+    }
+
+    /**
+     * Reads an element of a TAG_Long_Array or a long list.
+     *
+     * @param node  handle of the node
+     * @param index index of the element
+     *
+     * @return value of the element
+     *
+     * @throws IllegalStateException     if the tag isn't a TAG_Long_Array or a list of longs
+     * @throws IndexOutOfBoundsException if the index is out of bounds
+     */
+    public long getLong(int node, int index)
+    {
+        return data.getLong(getElementOffset(node, TagType.TAG_LONG_ARRAY, TagType.TAG_LONG, 8, index));
+    }
+
+    /**
+     * Reads an element of a float list.
+     *
+     * @param node  handle of the node
+     * @param index index of the element
+     *
+     * @return value of the element
+     *
+     * @throws IllegalStateException     if the tag isn't a list of floats
+     * @throws IndexOutOfBoundsException if the index is out of bounds
+     */
+    public float getFloat(int node, int index)
+    {
+        return data.getFloat(getElementOffset(node, null, TagType.TAG_FLOAT, 4, index));
+    }
+
+    /**
+     * Reads an element of a double list.
+     *
+     * @param node  handle of the node
+     * @param index index of the element
+     *
+     * @return value of the element
+     *
+     * @throws IllegalStateException     if the tag isn't a list of doubles
+     * @throws IndexOutOfBoundsException if the index is out of bounds
+     */
+    public double getDouble(int node, int index)
+    {
+        return data.getDouble(getElementOffset(node, null, TagType.TAG_DOUBLE, 8, index));
+    }
+
+    /**
+     * Converts the whole tape into {@link Tag} objects.
+     *
+     * @return root tag
+     */
+    public Tag<?> toTag()
+    {
+        return toTag(getRoot());
+    }
+
+    /**
+     * Converts given node and all of its children into {@link Tag} objects.
+     *
+     * @param node handle of the node
+     *
+     * @return read tag
+     */
+    public Tag<?> toTag(int node)
+    {
+        NbtReader reader = new NbtReader(data);
+        reader.setPosition(getPayloadOffset(node));
+        try
+        {
+            return reader.readPayload(getType(node), getName(node));
+        } catch (IOException e)
+        {
+            throw new IllegalStateException("Couldn't read a scanned tag!", e);
+        }
+    }
+
+    /**
+     * Returns index of node's payload in the data.
+     *
+     * @param node handle of the node
+     *
+     * @return offset of the payload
+     */
+    protected int getPayloadOffset(int node)
+    {
+        return nodes.get(node * NODE_SIZE + PAYLOAD);
+    }
+
+    /**
+     * Returns index of given element of an array or a list of fixed-width elements.
+     */
+    protected int getElementOffset(int node, TagType arrayType, TagType elementType, int width, int index)
+    {
+        int offset = getElementsOffset(node, arrayType, elementType);
+        if (index < 0 || index >= data.getInt(offset - 4))
+        {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of bounds!");
+        }
+        return offset + index * width;
+    }
+
+    private int getElementsOffset(int node, TagType arrayType, TagType elementType)
+    {
+        TagType type = getType(node);
+        int offset = getPayloadOffset(node);
+        if (type == arrayType)
+        {
+            return offset + 4;
+        }
+        if (type == TagType.TAG_LIST && data.get(offset) == elementType.getId())
+        {
+            return offset + 5;
+        }
+        throw new IllegalStateException("Tag " + type + " doesn't contain elements of " + elementType + "!");
+    }
+
+    private void checkType(int node, TagType type)
+    {
+        if (getType(node) != type)
+        {
+            throw new IllegalStateException("Expected " + type + ", got " + getType(node) + "!");
+        }
+    }
+
+    private boolean isFloating(int node)
+    {
+        TagType type = getType(node);
+        return type == TagType.TAG_FLOAT || type == TagType.TAG_DOUBLE;
+    }
+
+    private boolean nameEquals(int node, byte[] name)
+    {
+        int offset = nodes.get(node * NODE_SIZE + NAME);
+        if ((data.getShort(offset) & 0xffff) != name.length)
+        {
+            return false;
+        }
+        for (int i = 0; i < name.length; i++)
+        {
+            if (data.get(offset + 2 + i) != name[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String decode(int offset, StringCache cache)
+    {
+        int length = data.getShort(offset) & 0xffff;
+        byte[] bytes;
+        int start;
+        if (data.hasArray())
+        {
+            bytes = data.array();
+            start = data.arrayOffset() + offset + 2;
+        }
+        else
+        {
+            bytes = new byte[length];
+            start = 0;
+            slice(offset + 2, length).get(bytes);
+        }
+        try
+        {
+            return cache != null ? cache.get(bytes, start, length) : ModifiedUtf8.decode(bytes, start, length);
+        } catch (UTFDataFormatException e)
+        {
+            throw new IllegalStateException("Malformed string at byte " + offset + "!", e);
+        }
+    }
+
+    private ByteBuffer slice(int index, int length)
+    {
+        ByteBuffer slice = data.duplicate();
+        ((Buffer) slice).limit(index + length).position(index);
+        return slice.slice().order(data.order());
+    }
+
+    private static final class Scanner
+    {
+        private final NbtReader reader;
+        private final int origin;
+        private int[] nodes = new int[64 * NODE_SIZE];
+        private int count;
+
+        private Scanner(NbtReader reader, int origin)
+        {
+            this.reader = reader;
+            this.origin = origin;
+        }
+
+        private int scan(TagType type, int nameOffset) throws IOException
+        {
+            int node = count++;
+            if (count * NODE_SIZE > nodes.length)
+            {
+                nodes = Arrays.copyOf(nodes, nodes.length * 2);
+            }
+            int base = node * NODE_SIZE;
+            nodes[base + TYPE] = type.getId();
+            nodes[base + NAME] = nameOffset;
+            nodes[base + PAYLOAD] = reader.position - origin;
+            nodes[base + NEXT] = -1;
+            if (type == TagType.TAG_COMPOUND)
+            {
+                int previous = -1;
+                TagType entryType;
+                while ((entryType = reader.readType()) != TagType.TAG_END)
+                {
+                    int entryNameOffset = reader.position - origin;
+                    reader.advance(reader.readStringLength());
+                    previous = link(node, previous, scan(entryType, entryNameOffset));
+                }
+            }
+            else if (type == TagType.TAG_LIST)
+            {
+                TagType listType = TagType.byId(reader.readUnsignedByte());
+                int size = reader.readLength();
+                if (size > 0 && (listType == TagType.TAG_END || listType == null))
+                {
+                    throw new IllegalStateException("Incorrect list type!");
+                }
+                if (size > 0 && !isFixedWidth(listType))
+                {
+                    int previous = -1;
+                    for (int i = 0; i < size; i++)
+                    {
+                        previous = link(node, previous, scan(listType, -1));
+                    }
+                }
+                else if (size > 0)
+                {
+                    reader.skipElements(listType, size);
+                }
+            }
+            else
+            {
+                reader.skipPayload(type);
+            }
+            return node;
+        }
+
+        private int link(int parent, int previous, int child)
+        {
+            if (previous < 0)
+            {
+                nodes[parent * NODE_SIZE + TYPE] |= HAS_CHILDREN;
+            }
+            else
+            {
+                nodes[previous * NODE_SIZE + NEXT] = child;
+            }
+            return child;
+        }
+
+        private static boolean isFixedWidth(TagType type)
+        {
+            switch (type)
+            {
+                case TAG_BYTE:
+                case TAG_SHORT:
+                case TAG_INT:
+                case TAG_LONG:
+                case TAG_FLOAT:
+                case TAG_DOUBLE:
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+}
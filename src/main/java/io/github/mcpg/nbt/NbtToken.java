@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mcpg.nbt;
+
+/**
+ * Kinds of events produced by {@link NbtEventReader}.
+ */
+public enum NbtToken
+{
+    /**
+     * Start of TAG_Compound. Its entries follow, up to matching {@link #END_COMPOUND}.
+     */
+    START_COMPOUND,
+
+    /**
+     * End of TAG_Compound.
+     */
+    END_COMPOUND,
+
+    /**
+     * Start of TAG_List. Element type and size are known at this point, its elements
+     * follow up to matching {@link #END_LIST}.
+     */
+    START_LIST,
+
+    /**
+     * End of TAG_List.
+     */
+    END_LIST,
+
+    /**
+     * Number, string or array tag. Its payload can be read with one of value getters of
+     * the reader, or skipped.
+     */
+    VALUE,
+
+    /**
+     * Root tag has been read completely.
+     */
+    END_DOCUMENT
+}
@@ -0,0 +1,714 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mcpg.nbt;
+
+import java.nio.Buffer;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+import io.github.mcpg.nbt.TagCompound.CompoundContent;
+
+/**
+ * Writes tags straight into a <code>byte[]</code> or a (heap or direct) {@link ByteBuffer},
+ * without going through {@link java.io.DataOutputStream}. Writing is done in two passes:
+ * first exact size of the tag is computed, then the tag is written into an array or a
+ * buffer region of exactly that size, so no intermediate buffer is grown and copied.
+ * Produced data is the same as written by {@link Tag#writeTag(java.io.DataOutputStream)}.
+ * <p>
+ * Encoded names and strings are cached in the tags, so writing the same tags again doesn't
+ * encode them again. Tags of lazily read compounds (see
+ * {@link NbtReader#setLazyCompounds(boolean)}) that haven't been decoded are copied from
+ * the data they were read from, if it has the same encoding as the writer.
+ * <p>
+ * Data is written in the big-endian encoding of Java Edition, writers of other encodings
+ * are created by {@link NbtEncoding#newWriter()}.
+ * <p>
+ * Instances of this class aren't thread safe.
+ */
+public class NbtWriter
+{
+    private static final int MAX_STRING_LENGTH = 0xffff;
+
+    /**
+     * Arrays shorter than this are written element by element, as creating buffer views for
+     * bulk copying costs more for them.
+     */
+    private static final int BULK_THRESHOLD = 16;
+
+    /**
+     * Byte order of multi-byte values.
+     */
+    protected final ByteOrder order;
+
+    /**
+     * Buffer the data is written to during a write. Only absolute put methods are used on it.
+     */
+    protected ByteBuffer buffer;
+
+    /**
+     * Index of the next byte to write.
+     */
+    protected int position;
+
+    private boolean namelessRoot;
+    private ByteBuffer bulkBuffer;
+
+    /**
+     * Creates new writer.
+     */
+    public NbtWriter()
+    {
+        this(ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Creates new writer with given byte order of multi-byte values.
+     *
+     * @param order byte order of the data
+     */
+    protected NbtWriter(ByteOrder order)
+    {
+        this.order = order;
+    }
+
+    /**
+     * Returns encoding of the data this writer writes.
+     *
+     * @return writer's encoding
+     */
+    public NbtEncoding getEncoding()
+    {
+        return order == ByteOrder.BIG_ENDIAN ? NbtEncoding.JAVA : NbtEncoding.BEDROCK;
+    }
+
+    /**
+     * Returns whether root tags are written without a name.
+     *
+     * @return <code>true</code> if nameless root mode is enabled
+     */
+    public boolean isNamelessRoot()
+    {
+        return namelessRoot;
+    }
+
+    /**
+     * Enables or disables nameless root mode. In this mode the name of the written tag is
+     * left out, only its type id and payload are written, which is what packets of the
+     * 1.20.2+ network protocol expect. Tags inside compounds keep their names. Nameless root
+     * mode is disabled by default.
+     *
+     * @param namelessRoot <code>true</code> to enable nameless root mode
+     */
+    public void setNamelessRoot(boolean namelessRoot)
+    {
+        this.namelessRoot = namelessRoot;
+    }
+
+    /**
+     * Computes amount of bytes the whole tag (type id, name unless nameless root mode is
+     * enabled, and payload) takes when written.
+     *
+     * @param tag tag to measure
+     *
+     * @return size of the tag in bytes
+     *
+     * @throws IllegalArgumentException if a name or a string is longer than 65535 bytes
+     */
+    public int getSize(Tag<?> tag)
+    {
+        return namelessRoot ? 1 + getPayloadSize(tag) : getEntrySize(tag);
+    }
+
+    /**
+     * Computes size of a named tag, an entry of a compound.
+     */
+    int getEntrySize(Tag<?> tag)
+    {
+        if (tag.getType() == TagType.TAG_END)
+        {
+            return 1;
+        }
+        return 1 + getStringSize(tag.getEncodedName()) + getPayloadSize(tag);
+    }
+
+    /**
+     * Computes amount of bytes payload of the tag takes when written.
+     *
+     * @param tag tag to measure
+     *
+     * @return size of tag's payload in bytes
+     *
+     * @throws IllegalArgumentException if a name or a string is longer than 65535 bytes
+     */
+    public int getPayloadSize(Tag<?> tag)
+    {
+        switch (tag.getType())
+        {
+            case TAG_END:
+                return 0;
+            case TAG_BYTE:
+                return 1;
+            case TAG_SHORT:
+                return 2;
+            case TAG_INT:
+                return getIntSize(((TagInt) tag).getInt());
+            case TAG_LONG:
+                return getLongSize(((TagLong) tag).getLong());
+            case TAG_FLOAT:
+                return 4;
+            case TAG_DOUBLE:
+                return 8;
+            case TAG_BYTE_ARRAY:
+                byte[] bytes = ((TagByteArray) tag).getValue();
+                return getLengthSize(bytes.length) + bytes.length;
+            case TAG_STRING:
+                return getStringSize(((TagString) tag).getEncodedValue());
+            case TAG_LIST:
+                return getListSize((TagList) tag);
+            case TAG_COMPOUND:
+                return ((TagCompound) tag).getValue().getTagsSize(this) + 1;
+            case TAG_INT_ARRAY:
+                return getIntArraySize(((TagIntArray) tag).getValue());
+            case TAG_LONG_ARRAY:
+                return getLongArraySize(((TagLongArray) tag).getValue());
+            default:
+                throw new IllegalStateException("Unsupported tag type " + tag.getType() + "!");
+        }
+    }
+
+    /**
+     * Computes size of TAG_List payload.
+     */
+    protected int getListSize(TagList list)
+    {
+        Object packed = list.getPacked();
+        if (packed == null)
+        {
+            List<Tag<?>> tags = list.getValue();
+            int size = 1 + getLengthSize(tags.size());
+            for (Tag<?> element : tags)
+            {
+                size += getPayloadSize(element);
+            }
+            return size;
+        }
+        switch (list.getListType())
+        {
+            case TAG_BYTE:
+                return 1 + getLengthSize(((byte[]) packed).length) + ((byte[]) packed).length;
+            case TAG_SHORT:
+                return 1 + getLengthSize(((short[]) packed).length) + ((short[]) packed).length * 2;
+            case TAG_INT:
+                return 1 + getLengthSize(((int[]) packed).length) + getIntsSize((int[]) packed);
+            case TAG_LONG:
+                return 1 + getLengthSize(((long[]) packed).length) + getLongsSize((long[]) packed);
+            case TAG_FLOAT:
+                return 1 + getLengthSize(((float[]) packed).length) + ((float[]) packed).length * 4;
+            case TAG_DOUBLE:
+                return 1 + getLengthSize(((double[]) packed).length) + ((double[]) packed).length * 8;
+            default:
+                throw new IllegalStateException("List of " + list.getListType() + " can't be packed!");
+        }
+    }
+
+    /**
+     * Writes the whole tag into a new array of exactly its size.
+     *
+     * @param tag tag to write
+     *
+     * @return written data
+     *
+     * @throws IllegalArgumentException if a name or a string is longer than 65535 bytes
+     */
+    public byte[] write(Tag<?> tag)
+    {
+        byte[] data = new byte[getSize(tag)];
+        write(tag, data, 0);
+        return data;
+    }
+
+    /**
+     * Writes the whole tag into given array, starting at <code>offset</code>.
+     *
+     * @param tag    tag to write
+     * @param array  array to write to
+     * @param offset index of the first byte to write
+     *
+     * @return amount of written bytes
+     *
+     * @throws BufferOverflowException   if the tag doesn't fit in the array
+     * @throws IndexOutOfBoundsException if offset is out of array's bounds
+     * @throws IllegalArgumentException  if a name or a string is longer than 65535 bytes
+     */
+    public int write(Tag<?> tag, byte[] array, int offset)
+    {
+        ByteBuffer target = ByteBuffer.wrap(array);
+        ((Buffer) target).position(offset);
+        return write(tag, target);
+    }
+
+    /**
+     * Writes the whole tag into given buffer, starting at its position. Position of the
+     * buffer is moved after the written tag.
+     * <p>
+     * Bytes are put straight into the buffer, so the tag can be written into a region of a
+     * network buffer (like a slice returned by Netty's <code>ByteBuf.nioBuffer(int, int)</code>)
+     * without a stream or a temporary array in between.
+     *
+     * @param tag    tag to write
+     * @param target buffer to write to
+     *
+     * @return amount of written bytes
+     *
+     * @throws BufferOverflowException  if the tag doesn't fit between buffer's position and its limit
+     * @throws IllegalArgumentException if a name or a string is longer than 65535 bytes
+     */
+    public int write(Tag<?> tag, ByteBuffer target)
+    {
+        int size = getSize(tag);
+        if (target.remaining() < size)
+        {
+            throw new BufferOverflowException();
+        }
+        int start = target.position();
+        // Only absolute puts are used, so the target itself can be written if it has the right order
+        buffer = target.order() == order ? target : target.duplicate().order(order);
+        position = start;
+        try
+        {
+            if (namelessRoot)
+            {
+                writeType(tag.getType());
+                writePayload(tag);
+            }
+            else
+            {
+                writeTagUnchecked(tag);
+            }
+        } finally
+        {
+            buffer = null;
+            bulkBuffer = null;
+        }
+        ((Buffer) target).position(start + size);
+        return size;
+    }
+
+    /**
+     * Writes the whole tag at the current position, without checking if there's enough space.
+     */
+    void writeTagUnchecked(Tag<?> tag)
+    {
+        writeType(tag.getType());
+        if (tag.getType() != TagType.TAG_END)
+        {
+            writeString(tag.getEncodedName());
+            writePayload(tag);
+        }
+    }
+
+    /**
+     * Copies bytes of a tag that hasn't been decoded.
+     */
+    void writeRaw(NbtReader source, int start, int end)
+    {
+        source.copyTo(buffer, position, start, end);
+        position += end - start;
+    }
+
+    /**
+     * Writes payload of the tag.
+     */
+    protected void writePayload(Tag<?> tag)
+    {
+        switch (tag.getType())
+        {
+            case TAG_END:
+                break;
+            case TAG_BYTE:
+                writeByte(((TagByte) tag).getByte());
+                break;
+            case TAG_SHORT:
+                writeShort(((TagShort) tag).getShort());
+                break;
+            case TAG_INT:
+                writeInt(((TagInt) tag).getInt());
+                break;
+            case TAG_LONG:
+                writeLong(((TagLong) tag).getLong());
+                break;
+            case TAG_FLOAT:
+                writeFloat(((TagFloat) tag).getFloat());
+                break;
+            case TAG_DOUBLE:
+                writeDouble(((TagDouble) tag).getDouble());
+                break;
+            case TAG_BYTE_ARRAY:
+                writeByteArray(((TagByteArray) tag).getValue());
+                break;
+            case TAG_STRING:
+                writeString(((TagString) tag).getEncodedValue());
+                break;
+            case TAG_LIST:
+                writeList((TagList) tag);
+                break;
+            case TAG_COMPOUND:
+                writeCompoundContent(((TagCompound) tag).getValue());
+                break;
+            case TAG_INT_ARRAY:
+                writeIntArray(((TagIntArray) tag).getValue());
+                break;
+            case TAG_LONG_ARRAY:
+                writeLongArray(((TagLongArray) tag).getValue());
+                break;
+            default:
+                throw new IllegalStateException("Unsupported tag type " + tag.getType() + "!");
+        }
+    }
+
+    /**
+     * Writes TAG_List payload.
+     */
+    protected void writeList(TagList list)
+    {
+        writeType(list.getListType());
+        Object packed = list.getPacked();
+        if (packed == null)
+        {
+            List<Tag<?>> tags = list.getValue();
+            writeLength(tags.size());
+            for (Tag<?> tag : tags)
+            {
+                writePayload(tag);
+            }
+            return;
+        }
+        switch (list.getListType())
+        {
+            case TAG_BYTE:
+                writeLength(((byte[]) packed).length);
+                writeBytes((byte[]) packed);
+                break;
+            case TAG_SHORT:
+                writeLength(((short[]) packed).length);
+                writeShorts((short[]) packed);
+                break;
+            case TAG_INT:
+                writeLength(((int[]) packed).length);
+                writeInts((int[]) packed);
+                break;
+            case TAG_LONG:
+                writeLength(((long[]) packed).length);
+                writeLongs((long[]) packed);
+                break;
+            case TAG_FLOAT:
+                writeLength(((float[]) packed).length);
+                writeFloats((float[]) packed);
+                break;
+            case TAG_DOUBLE:
+                writeLength(((double[]) packed).length);
+                writeDoubles((double[]) packed);
+                break;
+            default:
+                throw new IllegalStateException("List of " + list.getListType() + " can't be packed!");
+        }
+    }
+
+    /**
+     * Writes TAG_Compound payload.
+     */
+    protected void writeCompoundContent(CompoundContent content)
+    {
+        content.writeTags(this);
+        writeType(TagType.TAG_END);
+    }
+
+    /**
+     * Returns size of a written TAG_Int value.
+     */
+    protected int getIntSize(int value)
+    {
+        return 4;
+    }
+
+    /**
+     * Returns size of a written TAG_Long value.
+     */
+    protected int getLongSize(long value)
+    {
+        return 8;
+    }
+
+    /**
+     * Returns size of a written TAG_Int_Array payload.
+     */
+    protected int getIntArraySize(int[] value)
+    {
+        return getLengthSize(value.length) + getIntsSize(value);
+    }
+
+    /**
+     * Returns size of a written TAG_Long_Array payload.
+     */
+    protected int getLongArraySize(long[] value)
+    {
+        return getLengthSize(value.length) + getLongsSize(value);
+    }
+
+    /**
+     * Returns size of written ints, elements of a TAG_Int_Array or a list.
+     */
+    protected int getIntsSize(int[] values)
+    {
+        return values.length * 4;
+    }
+
+    /**
+     * Returns size of written longs, elements of a TAG_Long_Array or a list.
+     */
+    protected int getLongsSize(long[] values)
+    {
+        return values.length * 8;
+    }
+
+    /**
+     * Returns size of a written length of a list or an array.
+     */
+    protected int getLengthSize(int length)
+    {
+        return 4;
+    }
+
+    /**
+     * Returns size of a written name or string value.
+     *
+     * @throws IllegalArgumentException if the string is longer than 65535 bytes
+     */
+    protected int getStringSize(byte[] encoded)
+    {
+        if (encoded.length > MAX_STRING_LENGTH)
+        {
+            throw new IllegalArgumentException("String of " + encoded.length + " bytes is too long!");
+        }
+        return 2 + encoded.length;
+    }
+
+    protected void writeType(TagType type)
+    {
+        writeByte(type.getId());
+    }
+
+    protected void writeByte(int value)
+    {
+        buffer.put(position, (byte) value);
+        position++;
+    }
+
+    protected void writeShort(short value)
+    {
+        buffer.putShort(position, value);
+        position += 2;
+    }
+
+    protected void writeInt(int value)
+    {
+        buffer.putInt(position, value);
+        position += 4;
+    }
+
+    protected void writeLong(long value)
+    {
+        buffer.putLong(position, value);
+        position += 8;
+    }
+
+    protected void writeFloat(float value)
+    {
+        buffer.putFloat(position, value);
+        position += 4;
+    }
+
+    protected void writeDouble(double value)
+    {
+        buffer.putDouble(position, value);
+        position += 8;
+    }
+
+    /**
+     * Writes length of a list or an array.
+     */
+    protected void writeLength(int length)
+    {
+        writeInt(length);
+    }
+
+    /**
+     * Writes a name or a string value.
+     */
+    protected void writeString(byte[] encoded)
+    {
+        writeShort((short) encoded.length);
+        writeBytes(encoded);
+    }
+
+    protected void writeByteArray(byte[] value)
+    {
+        writeLength(value.length);
+        writeBytes(value);
+    }
+
+    protected void writeIntArray(int[] value)
+    {
+        writeLength(value.length);
+        writeInts(value);
+    }
+
+    protected void writeLongArray(long[] value)
+    {
+        writeLength(value.length);
+        writeLongs(value);
+    }
+
+    /**
+     * Writes bytes, elements of a TAG_Byte_Array or a list.
+     */
+    protected void writeBytes(byte[] values)
+    {
+        if (buffer.hasArray())
+        {
+            System.arraycopy(values, 0, buffer.array(), buffer.arrayOffset() + position, values.length);
+        }
+        else
+        {
+            if (bulkBuffer == null)
+            {
+                bulkBuffer = buffer.duplicate();
+            }
+            // Java 8 has no absolute bulk put, so one duplicate is moved instead of slicing every time
+            ((Buffer) bulkBuffer).position(position);
+            bulkBuffer.put(values);
+        }
+        position += values.length;
+    }
+
+    /**
+     * Writes shorts, elements of a list.
+     */
+    protected void writeShorts(short[] values)
+    {
+        if (values.length < BULK_THRESHOLD)
+        {
+            for (short value : values)
+            {
+                buffer.putShort(position, value);
+                position += 2;
+            }
+            return;
+        }
+        slice(position, values.length * 2).asShortBuffer().put(values);
+        position += values.length * 2;
+    }
+
+    /**
+     * Writes ints, elements of a TAG_Int_Array or a list.
+     */
+    protected void writeInts(int[] values)
+    {
+        if (values.length < BULK_THRESHOLD)
+        {
+            for (int value : values)
+            {
+                buffer.putInt(position, value);
+                position += 4;
+            }
+            return;
+        }
+        slice(position, values.length * 4).asIntBuffer().put(values);
+        position += values.length * 4;
+    }
+
+    /**
+     * Writes longs, elements of a TAG_Long_Array or a list.
+     */
+    protected void writeLongs(long[] values)
+    {
+        if (values.length < BULK_THRESHOLD)
+        {
+            for (long value : values)
+            {
+                buffer.putLong(position, value);
+                position += 8;
+            }
+            return;
+        }
+        slice(position, values.length * 8).asLongBuffer().put(values);
+        position += values.length * 8;
+    }
+
+    /**
+     * Writes floats, elements of a list.
+     */
+    protected void writeFloats(float[] values)
+    {
+        if (values.length < BULK_THRESHOLD)
+        {
+            for (float value : values)
+            {
+                buffer.putFloat(position, value);
+                position += 4;
+            }
+            return;
+        }
+        slice(position, values.length * 4).asFloatBuffer().put(values);
+        position += values.length * 4;
+    }
+
+    /**
+     * Writes doubles, elements of a list.
+     */
+    protected void writeDoubles(double[] values)
+    {
+        if (values.length < BULK_THRESHOLD)
+        {
+            for (double value : values)
+            {
+                buffer.putDouble(position, value);
+                position += 8;
+            }
+            return;
+        }
+        slice(position, values.length * 8).asDoubleBuffer().put(values);
+        position += values.length * 8;
+    }
+
+    /**
+     * Returns a view of <code>length</code> bytes starting at given index, with the byte
+     * order of this writer.
+     */
+    protected ByteBuffer slice(int index, int length)
+    {
+        ByteBuffer slice = buffer.duplicate();
+        // Cast to Buffer keeps this compatible with Java 8 runtime when compiled on newer JDKs
+        ((Buffer) slice).limit(index + length);
+        ((Buffer) slice).position(index);
+        return slice.slice().order(order);
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mcpg.nbt;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Reads data in {@link NbtEncoding#BEDROCK_NETWORK} encoding. Varints are decoded straight
+ * from the backing array of heap buffers. Lengths of lists and arrays are read as TAG_Int
+ * values, so they go through {@link #readInt()} too.
+ */
+final class NetworkNbtReader extends NbtReader
+{
+    NetworkNbtReader(ByteBuffer buffer)
+    {
+        super(buffer, ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Override
+    public NbtEncoding getEncoding()
+    {
+        return NbtEncoding.BEDROCK_NETWORK;
+    }
+
+    @Override
+    public void skipPayload(TagType type) throws IOException
+    {
+        switch (type)
+        {
+            case TAG_INT_ARRAY:
+            case TAG_LONG_ARRAY:
+                skipVarInts(readLength());
+                break;
+            default:
+                super.skipPayload(type);
+                break;
+        }
+    }
+
+    @Override
+    protected void skipElements(TagType type, int count) throws IOException
+    {
+        if (type == TagType.TAG_INT || type == TagType.TAG_LONG)
+        {
+            skipVarInts(count);
+        }
+        else
+        {
+            super.skipElements(type, count);
+        }
+    }
+
+    @Override
+    protected int readInt() throws IOException
+    {
+        int value = readVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    @Override
+    protected long readLong() throws IOException
+    {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    @Override
+    protected int readStringLength() throws IOException
+    {
+        int length = readVarInt();
+        if (length < 0)
+        {
+            throw new IllegalStateException("String length " + (length & 0xffffffffL) + " is too big!");
+        }
+        return length;
+    }
+
+    @Override
+    protected int[] readInts(int count) throws IOException
+    {
+        checkVarInts(count);
+        int[] value = new int[count];
+        for (int i = 0; i < count; i++)
+        {
+            value[i] = readInt();
+        }
+        return value;
+    }
+
+    @Override
+    protected long[] readLongs(int count) throws IOException
+    {
+        checkVarInts(count);
+        long[] value = new long[count];
+        for (int i = 0; i < count; i++)
+        {
+            value[i] = readLong();
+        }
+        return value;
+    }
+
+    /**
+     * Reads an unsigned varint of at most 5 bytes.
+     */
+    private int readVarInt() throws IOException
+    {
+        int index = position;
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7)
+        {
+            if (index == limit)
+            {
+                throw new EOFException("Varint ends after " + (index - position) + " bytes!");
+            }
+            int b = byteAt(index++);
+            value |= (b & 0x7f) << shift;
+            if (b >= 0)
+            {
+                position = index;
+                return value;
+            }
+        }
+        throw new IllegalStateException("Varint is longer than 5 bytes!");
+    }
+
+    /**
+     * Reads an unsigned varint of at most 10 bytes.
+     */
+    private long readVarLong() throws IOException
+    {
+        int index = position;
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7)
+        {
+            if (index == limit)
+            {
+                throw new EOFException("Varint ends after " + (index - position) + " bytes!");
+            }
+            int b = byteAt(index++);
+            value |= (long) (b & 0x7f) << shift;
+            if (b >= 0)
+            {
+                position = index;
+                return value;
+            }
+        }
+        throw new IllegalStateException("Varint is longer than 10 bytes!");
+    }
+
+    /**
+     * Skips <code>count</code> varints without decoding them.
+     */
+    private void skipVarInts(int count) throws IOException
+    {
+        checkVarInts(count);
+        int index = position;
+        for (int i = 0; i < count; i++)
+        {
+            do
+            {
+                if (index == limit)
+                {
+                    throw new EOFException("Tried to skip " + count + " varints, data ended after " + i + "!");
+                }
+            } while (byteAt(index++) < 0);
+        }
+        position = index;
+    }
+
+    /**
+     * Checks if there are enough bytes left for <code>count</code> varints, before an array
+     * for them is allocated.
+     */
+    private void checkVarInts(int count) throws EOFException
+    {
+        if (count > limit - position)
+        {
+            throw new EOFException("Tried to read " + count + " varints, " + (limit - position) + " bytes left!");
+        }
+    }
+
+    private byte byteAt(int index)
+    {
+        return array != null ? array[arrayOffset + index] : buffer.get(index);
+    }
+}
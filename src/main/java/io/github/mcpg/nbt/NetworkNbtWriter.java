@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mcpg.nbt;
+
+import java.nio.ByteOrder;
+
+/**
+ * Writes data in {@link NbtEncoding#BEDROCK_NETWORK} encoding. Lengths of lists and arrays
+ * are written as TAG_Int values, so they go through {@link #writeInt(int)} too.
+ */
+final class NetworkNbtWriter extends NbtWriter
+{
+    NetworkNbtWriter()
+    {
+        super(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Override
+    public NbtEncoding getEncoding()
+    {
+        return NbtEncoding.BEDROCK_NETWORK;
+    }
+
+    @Override
+    protected int getIntSize(int value)
+    {
+        return getVarIntSize((value << 1) ^ (value >> 31));
+    }
+
+    @Override
+    protected int getLongSize(long value)
+    {
+        return getVarLongSize((value << 1) ^ (value >> 63));
+    }
+
+    @Override
+    protected int getIntsSize(int[] values)
+    {
+        int size = 0;
+        for (int value : values)
+        {
+            size += getIntSize(value);
+        }
+        return size;
+    }
+
+    @Override
+    protected int getLongsSize(long[] values)
+    {
+        int size = 0;
+        for (long value : values)
+        {
+            size += getLongSize(value);
+        }
+        return size;
+    }
+
+    @Override
+    protected int getLengthSize(int length)
+    {
+        return getIntSize(length);
+    }
+
+    @Override
+    protected int getStringSize(byte[] encoded)
+    {
+        return super.getStringSize(encoded) - 2 + getVarIntSize(encoded.length);
+    }
+
+    @Override
+    protected void writeInt(int value)
+    {
+        writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    @Override
+    protected void writeLong(long value)
+    {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    @Override
+    protected void writeString(byte[] encoded)
+    {
+        writeVarInt(encoded.length);
+        writeBytes(encoded);
+    }
+
+    @Override
+    protected void writeInts(int[] values)
+    {
+        for (int value : values)
+        {
+            writeInt(value);
+        }
+    }
+
+    @Override
+    protected void writeLongs(long[] values)
+    {
+        for (long value : values)
+        {
+            writeLong(value);
+        }
+    }
+
+    /**
+     * Writes an unsigned varint.
+     */
+    private void writeVarInt(int value)
+    {
+        while ((value & ~0x7f) != 0)
+        {
+            buffer.put(position++, (byte) (value | 0x80));
+            value >>>= 7;
+        }
+        buffer.put(position++, (byte) value);
+    }
+
+    /**
+     * Writes an unsigned varint of a <code>long</code>.
+     */
+    private void writeVarLong(long value)
+    {
+        while ((value & ~0x7fL) != 0)
+        {
+            buffer.put(position++, (byte) (value | 0x80));
+            value >>>= 7;
+        }
+        buffer.put(position++, (byte) value);
+    }
+
+    private static int getVarIntSize(int value)
+    {
+        return (31 - Integer.numberOfLeadingZeros(value | 1)) / 7 + 1;
+    }
+
+    private static int getVarLongSize(long value)
+    {
+        return (63 - Long.numberOfLeadingZeros(value | 1)) / 7 + 1;
+    }
+}
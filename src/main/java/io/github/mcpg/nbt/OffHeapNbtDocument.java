@@ -0,0 +1,361 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mcpg.nbt;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * {@link NbtTape} keeping both the serialized tag and its nodes outside of the Java heap, in
+ * a single direct {@link ByteBuffer}. Whatever the size of the tag, a document is only a few
+ * objects for the garbage collector, so large caches of documents (like decoded chunks)
+ * don't add to the collection pauses.
+ * <p>
+ * Values of fixed-width tags (numbers, and elements of arrays and of numeric lists) can be
+ * updated in place. Changing the structure of the tag or the length of a string requires
+ * converting it with {@link #toTag()} and creating a new document.
+ * <p>
+ * The memory is released when the document becomes unreachable and the direct buffer is
+ * collected. Updates aren't synchronized, so a document that is modified mustn't be used by
+ * other threads at the same time.
+ */
+public class OffHeapNbtDocument extends NbtTape
+{
+    private final ByteBuffer memory;
+    private final int length;
+
+    private OffHeapNbtDocument(ByteBuffer memory, ByteBuffer data, IntBuffer nodes, int length)
+    {
+        super(data, nodes);
+        this.memory = memory;
+        this.length = length;
+    }
+
+    /**
+     * Copies tag from whole given array into a new document.
+     *
+     * @param data serialized tag
+     *
+     * @return document with the tag
+     *
+     * @throws IOException           if data ends before the tag does
+     * @throws IllegalStateException if data isn't a valid tag
+     */
+    public static OffHeapNbtDocument of(byte[] data) throws IOException
+    {
+        return of(new NbtReader(data));
+    }
+
+    /**
+     * Copies tag from <code>length</code> bytes of given array, starting at
+     * <code>offset</code>, into a new document.
+     *
+     * @param data   array with serialized tag
+     * @param offset offset of the tag
+     * @param length amount of bytes that can be read
+     *
+     * @return document with the tag
+     *
+     * @throws IOException           if data ends before the tag does
+     * @throws IllegalStateException if data isn't a valid tag
+     */
+    public static OffHeapNbtDocument of(byte[] data, int offset, int length) throws IOException
+    {
+        return of(new NbtReader(data, offset, length));
+    }
+
+    /**
+     * Copies tag starting at buffer's position into a new document. Position of the buffer
+     * isn't changed.
+     *
+     * @param buffer buffer with serialized tag
+     *
+     * @return document with the tag
+     *
+     * @throws IOException           if data ends before the tag does
+     * @throws IllegalStateException if data isn't a valid tag
+     */
+    public static OffHeapNbtDocument of(ByteBuffer buffer) throws IOException
+    {
+        return of(new NbtReader(buffer));
+    }
+
+    /**
+     * Serializes given tag into a new document.
+     *
+     * @param tag tag to store
+     *
+     * @return document with the tag
+     */
+    public static OffHeapNbtDocument of(Tag<?> tag)
+    {
+        try
+        {
+            return of(new NbtWriter().write(tag));
+        } catch (IOException e)
+        {
+            throw new IllegalStateException("Couldn't read a written tag!", e);
+        }
+    }
+
+    private static OffHeapNbtDocument of(NbtReader reader) throws IOException
+    {
+        int start = reader.position;
+        int[] nodes = NbtTape.scan(reader, start);
+        int length = reader.position - start;
+
+        // nodes follow the data, aligned to 8 bytes
+        int nodesOffset = (length + 7) & ~7;
+        ByteBuffer memory = ByteBuffer.allocateDirect(nodesOffset + nodes.length * 4);
+        reader.copyTo(memory, 0, start, reader.position);
+
+        ByteBuffer data = memory.duplicate();
+        ((Buffer) data).limit(length);
+        ByteBuffer nodesBuffer = memory.duplicate();
+        ((Buffer) nodesBuffer).position(nodesOffset);
+        IntBuffer nodesView = nodesBuffer.slice().order(ByteOrder.nativeOrder()).asIntBuffer();
+        nodesView.put(nodes);
+        ((Buffer) nodesView).flip();
+        return new OffHeapNbtDocument(memory, data.slice().order(reader.buffer.order()), nodesView, length);
+    }
+
+    /**
+     * Returns length of the serialized tag in bytes.
+     *
+     * @return length of the tag
+     */
+    public int getLength()
+    {
+        return length;
+    }
+
+    /**
+     * Returns amount of off-heap memory used by the document, including its nodes.
+     *
+     * @return size of the memory in bytes
+     */
+    public int getMemorySize()
+    {
+        return memory.capacity();
+    }
+
+    /**
+     * Copies the serialized tag into a new array.
+     *
+     * @return serialized tag
+     */
+    public byte[] toByteArray()
+    {
+        byte[] bytes = new byte[length];
+        data.duplicate().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Copies the serialized tag into given buffer, advancing its position.
+     *
+     * @param target buffer to write to
+     *
+     * @throws java.nio.BufferOverflowException if the buffer doesn't have enough space left
+     */
+    public void copyTo(ByteBuffer target)
+    {
+        target.put(data.duplicate());
+    }
+
+    /**
+     * Updates value of a TAG_Byte.
+     *
+     * @param node  handle of the node
+     * @param value new value
+     *
+     * @throws IllegalStateException if the tag isn't a TAG_Byte
+     */
+    public void setByte(int node, byte value)
+    {
+        data.put(getValueOffset(node, TagType.TAG_BYTE), value);
+    }
+
+    /**
+     * Updates value of a TAG_Short.
+     *
+     * @param node  handle of the node
+     * @param value new value
+     *
+     * @throws IllegalStateException if the tag isn't a TAG_Short
+     */
+    public void setShort(int node, short value)
+    {
+        data.putShort(getValueOffset(node, TagType.TAG_SHORT), value);
+    }
+
+    /**
+     * Updates value of a TAG_Int.
+     *
+     * @param node  handle of the node
+     * @param value new value
+     *
+     * @throws IllegalStateException if the tag isn't a TAG_Int
+     */
+    public void setInt(int node, int value)
+    {
+        data.putInt(getValueOffset(node, TagType.TAG_INT), value);
+    }
+
+    /**
+     * Updates value of a TAG_Long.
+     *
+     * @param node  handle of the node
+     * @param value new value
+     *
+     * @throws IllegalStateException if the tag isn't a TAG_Long
+     */
+    public void setLong(int node, long value)
+    {
+        data.putLong(getValueOffset(node, TagType.TAG_LONG), value);
+    }
+
+    /**
+     * Updates value of a TAG_Float.
+     *
+     * @param node  handle of the node
+     * @param value new value
+     *
+     * @throws IllegalStateException if the tag isn't a TAG_Float
+     */
+    public void setFloat(int node, float value)
+    {
+        data.putFloat(getValueOffset(node, TagType.TAG_FLOAT), value);
+    }
+
+    /**
+     * Updates value of a TAG_Double.
+     *
+     * @param node  handle of the node
+     * @param value new value
+     *
+     * @throws IllegalStateException if the tag isn't a TAG_Double
+     */
+    public void setDouble(int node, double value)
+    {
+        data.putDouble(getValueOffset(node, TagType.TAG_DOUBLE), value);
+    }
+
+    /**
+     * Updates an element of a TAG_Byte_Array or a byte list.
+     *
+     * @param node  handle of the node
+     * @param index index of the element
+     * @param value new value
+     *
+     * @throws IllegalStateException     if the tag isn't a TAG_Byte_Array or a list of bytes
+     * @throws IndexOutOfBoundsException if the index is out of bounds
+     */
+    public void setByte(int node, int index, byte value)
+    {
+        data.put(getElementOffset(node, TagType.TAG_BYTE_ARRAY, TagType.TAG_BYTE, 1, index), value);
+    }
+
+    /**
+     * Updates an element of a short list.
+     *
+     * @param node  handle of the node
+     * @param index index of the element
+     * @param value new value
+     *
+     * @throws IllegalStateException     if the tag isn't a list of shorts
+     * @throws IndexOutOfBoundsException if the index is out of bounds
+     */
+    public void setShort(int node, int index, short value)
+    {
+        data.putShort(getElementOffset(node, null, TagType.TAG_SHORT, 2, index), value);
+    }
+
+    /**
+     * Updates an element of a TAG_Int_Array or an int list.
+     *
+     * @param node  handle of the node
+     * @param index index of the element
+     * @param value new value
+     *
+     * @throws IllegalStateException     if the tag isn't a TAG_Int_Array or a list of ints
+     * @throws IndexOutOfBoundsException if the index is out of bounds
+     */
+    public void setInt(int node, int index, int value)
+    {
+        data.putInt(getElementOffset(node, TagType.TAG_INT_ARRAY, TagType.TAG_INT, 4, index), value);
+    }
+
+    /**
+     * Updates an element of a TAG_Long_Array or a long list.
+     *
+     * @param node  handle of the node
+     * @param index index of the element
+     * @param value new value
+     *
+     * @throws IllegalStateException     if the tag isn't a TAG_Long_Array or a list of longs
+     * @throws IndexOutOfBoundsException if the index is out of bounds
+     */
+    public void setLong(int node, int index, long value)
+    {
+        data.putLong(getElementOffset(node, TagType.TAG_LONG_ARRAY, TagType.TAG_LONG, 8, index), value);
+    }
+
+    /**
+     * Updates an element of a float list.
+     *
+     * @param node  handle of the node
+     * @param index index of the element
+     * @param value new value
+     *
+     * @throws IllegalStateException     if the tag isn't a list of floats
+     * @throws IndexOutOfBoundsException if the index is out of bounds
+     */
+    public void setFloat(int node, int index, float value)
+    {
+        data.putFloat(getElementOffset(node, null, TagType.TAG_FLOAT, 4, index), value);
+    }
+
+    /**
+     * Updates an element of a double list.
+     *
+     * @param node  handle of the node
+     * @param index index of the element
+     * @param value new value
+     *
+     * @throws IllegalStateException     if the tag isn't a list of doubles
+     * @throws IndexOutOfBoundsException if the index is out of bounds
+     */
+    public void setDouble(int node, int index, double value)
+    {
+        data.putDouble(getElementOffset(node, null, TagType.TAG_DOUBLE, 8, index), value);
+    }
+
+    private int getValueOffset(int node, TagType type)
+    {
+        if (getType(node) != type)
+        {
+            throw new IllegalStateException("Expected " + type + ", got " + getType(node) + "!");
+        }
+        return getPayloadOffset(node);
+    }
+}
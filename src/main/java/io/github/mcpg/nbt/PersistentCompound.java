@@ -0,0 +1,794 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mcpg.nbt;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.github.mcpg.nbt.TagCompound.CompoundContent;
+
+/**
+ * Immutable payload of TAG_Compound. Changing methods, like {@link #with(String, Tag)} or
+ * {@link #without(String)}, return a new compound sharing everything but the changed path
+ * with this one, so a change costs O(log n) instead of a copy of the whole tree. Instances
+ * can be shared between threads without locking or defensive copying.
+ * <p>
+ * Tags are kept in a hash array mapped trie keyed on their names. Values are immutable:
+ * numbers are boxed, nested compounds and lists are {@link PersistentCompound} and
+ * {@link PersistentList}, and arrays are copied whenever they're passed in or out. Unlike
+ * {@link CompoundContent}, tags aren't kept in the order they were added in; iteration
+ * follows the trie.
+ */
+public final class PersistentCompound
+{
+    private static final PersistentCompound EMPTY = new PersistentCompound(null, 0);
+
+    private final Node root;
+    private final int size;
+    private int hash;
+
+    private PersistentCompound(Node root, int size)
+    {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Returns the empty compound.
+     *
+     * @return compound without tags
+     */
+    public static PersistentCompound empty()
+    {
+        return EMPTY;
+    }
+
+    /**
+     * Converts compound content into a persistent compound. Nested compounds and lists are
+     * converted as well, and arrays are copied, so later changes of the content don't affect
+     * the result.
+     *
+     * @param content content to convert
+     *
+     * @return persistent compound with the same tags
+     *
+     * @throws IllegalArgumentException if a tag has no value or a list contains tags of
+     *                                  another type than the list's type
+     */
+    public static PersistentCompound of(CompoundContent content)
+    {
+        PersistentCompound compound = EMPTY;
+        for (Tag<?> tag : content.getTagsList())
+        {
+            compound = compound.with(tag.getName(), tag);
+        }
+        return compound;
+    }
+
+    /**
+     * Returns amount of tags in this compound.
+     *
+     * @return amount of tags
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Checks if this compound has no tags.
+     *
+     * @return <code>true</code> if the compound is empty
+     */
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * Checks if there's a tag with given name.
+     *
+     * @param name tag's name
+     *
+     * @return <code>true</code> if there's such tag
+     *
+     * @throws NullPointerException if name is null
+     */
+    public boolean contains(String name)
+    {
+        return find(name) != null;
+    }
+
+    /**
+     * Returns type of the tag with given name.
+     *
+     * @param name tag's name
+     *
+     * @return type of the tag, or null if there's no such tag
+     *
+     * @throws NullPointerException if name is null
+     */
+    public TagType getType(String name)
+    {
+        Entry entry = find(name);
+        return entry == null ? null : entry.type;
+    }
+
+    /**
+     * Returns value of the tag with given name: a boxed number, a string, a copy of an
+     * array, a {@link PersistentCompound} or a {@link PersistentList}.
+     *
+     * @param name tag's name
+     *
+     * @return value of the tag, or null if there's no such tag
+     *
+     * @throws NullPointerException if name is null
+     */
+    public Object get(String name)
+    {
+        Entry entry = find(name);
+        return entry == null ? null : PersistentValues.expose(entry.value);
+    }
+
+    /**
+     * Creates a new tag with given name's value. Changes of the tag don't affect this
+     * compound.
+     *
+     * @param name tag's name
+     *
+     * @return new tag, or null if there's no such tag
+     *
+     * @throws NullPointerException if name is null
+     */
+    public Tag<?> getTag(String name)
+    {
+        Entry entry = find(name);
+        return entry == null ? null : PersistentValues.toTag(entry.type, name, entry.value);
+    }
+
+    /**
+     * Returns names of all tags, in iteration order of this compound.
+     *
+     * @return unmodifiable list of names
+     */
+    public List<String> getNames()
+    {
+        List<Entry> entries = entries();
+        List<String> names = new ArrayList<>(entries.size());
+        for (Entry entry : entries)
+        {
+            names.add(entry.name);
+        }
+        return Collections.unmodifiableList(names);
+    }
+
+    /**
+     * Gets value of a numeric tag as <code>byte</code>, converted like
+     * {@link Number#byteValue()} does.
+     *
+     * @param name         tag's name
+     * @param defaultValue value returned if there's no numeric tag with this name
+     *
+     * @return value of the tag, or <code>defaultValue</code>
+     *
+     * @throws NullPointerException if name is null
+     */
+    public byte getByte(String name, byte defaultValue)
+    {
+        Number number = getNumber(name);
+        return number != null ? number.byteValue() : defaultValue;
+    }
+
+    /**
+     * Gets value of a numeric tag as <code>short</code>, converted like
+     * {@link Number#shortValue()} does.
+     *
+     * @param name         tag's name
+     * @param defaultValue value returned if there's no numeric tag with this name
+     *
+     * @return value of the tag, or <code>defaultValue</code>
+     *
+     * @throws NullPointerException if name is null
+     */
+    public short getShort(String name, short defaultValue)
+    {
+        Number number = getNumber(name);
+        return number != null ? number.shortValue() : defaultValue;
+    }
+
+    /**
+     * Gets value of a numeric tag as <code>int</code>, converted like
+     * {@link Number#intValue()} does.
+     *
+     * @param name         tag's name
+     * @param defaultValue value returned if there's no numeric tag with this name
+     *
+     * @return value of the tag, or <code>defaultValue</code>
+     *
+     * @throws NullPointerException if name is null
+     */
+    public int getInt(String name, int defaultValue)
+    {
+        Number number = getNumber(name);
+        return number != null ? number.intValue() : defaultValue;
+    }
+
+    /**
+     * Gets value of a numeric tag as <code>long</code>, converted like
+     * {@link Number#longValue()} does.
+     *
+     * @param name         tag's name
+     * @param defaultValue value returned if there's no numeric tag with this name
+     *
+     * @return value of the tag, or <code>defaultValue</code>
+     *
+     * @throws NullPointerException if name is null
+     */
+    public long getLong(String name, long defaultValue)
+    {
+        Number number = getNumber(name);
+        return number != null ? number.longValue() : defaultValue;
+    }
+
+    /**
+     * Gets value of a numeric tag as <code>float</code>, converted like
+     * {@link Number#floatValue()} does.
+     *
+     * @param name         tag's name
+     * @param defaultValue value returned if there's no numeric tag with this name
+     *
+     * @return value of the tag, or <code>defaultValue</code>
+     *
+     * @throws NullPointerException if name is null
+     */
+    public float getFloat(String name, float defaultValue)
+    {
+        Number number = getNumber(name);
+        return number != null ? number.floatValue() : defaultValue;
+    }
+
+    /**
+     * Gets value of a numeric tag as <code>double</code>, converted like
+     * {@link Number#doubleValue()} does.
+     *
+     * @param name         tag's name
+     * @param defaultValue value returned if there's no numeric tag with this name
+     *
+     * @return value of the tag, or <code>defaultValue</code>
+     *
+     * @throws NullPointerException if name is null
+     */
+    public double getDouble(String name, double defaultValue)
+    {
+        Number number = getNumber(name);
+        return number != null ? number.doubleValue() : defaultValue;
+    }
+
+    /**
+     * Gets value of a TAG_String.
+     *
+     * @param name         tag's name
+     * @param defaultValue value returned if there's no TAG_String with this name
+     *
+     * @return value of the tag, or <code>defaultValue</code>
+     *
+     * @throws NullPointerException if name is null
+     */
+    public String getString(String name, String defaultValue)
+    {
+        Entry entry = find(name);
+        return entry != null && entry.type == TagType.TAG_STRING ? (String) entry.value : defaultValue;
+    }
+
+    /**
+     * Gets value of a TAG_Compound.
+     *
+     * @param name tag's name
+     *
+     * @return value of the tag, or null if there's no TAG_Compound with this name
+     *
+     * @throws NullPointerException if name is null
+     */
+    public PersistentCompound getCompound(String name)
+    {
+        Entry entry = find(name);
+        return entry != null && entry.type == TagType.TAG_COMPOUND ? (PersistentCompound) entry.value : null;
+    }
+
+    /**
+     * Gets value of a TAG_List.
+     *
+     * @param name tag's name
+     *
+     * @return value of the tag, or null if there's no TAG_List with this name
+     *
+     * @throws NullPointerException if name is null
+     */
+    public PersistentList getList(String name)
+    {
+        Entry entry = find(name);
+        return entry != null && entry.type == TagType.TAG_LIST ? (PersistentList) entry.value : null;
+    }
+
+    /**
+     * Returns a compound with given tag's value under given name, replacing the tag which
+     * had this name. The tag is converted (and its arrays copied), its own name is ignored.
+     *
+     * @param name name of the tag
+     * @param tag  tag with the value
+     *
+     * @return changed compound
+     *
+     * @throws NullPointerException     if name or tag is null
+     * @throws IllegalArgumentException if the tag is a TAG_End, has no value, or is a list
+     *                                  containing tags of another type than the list's type
+     */
+    public PersistentCompound with(String name, Tag<?> tag)
+    {
+        return with(name, tag.getType(), PersistentValues.fromTag(tag));
+    }
+
+    /**
+     * Returns a compound with given TAG_Compound value under given name, replacing the tag
+     * which had this name.
+     *
+     * @param name  name of the tag
+     * @param value value of the tag
+     *
+     * @return changed compound
+     *
+     * @throws NullPointerException if name or value is null
+     */
+    public PersistentCompound with(String name, PersistentCompound value)
+    {
+        if (value == null)
+        {
+            throw new NullPointerException("value is null");
+        }
+        return with(name, TagType.TAG_COMPOUND, value);
+    }
+
+    /**
+     * Returns a compound with given TAG_List value under given name, replacing the tag which
+     * had this name.
+     *
+     * @param name  name of the tag
+     * @param value value of the tag
+     *
+     * @return changed compound
+     *
+     * @throws NullPointerException if name or value is null
+     */
+    public PersistentCompound with(String name, PersistentList value)
+    {
+        if (value == null)
+        {
+            throw new NullPointerException("value is null");
+        }
+        return with(name, TagType.TAG_LIST, value);
+    }
+
+    /**
+     * Returns a compound without the tag with given name.
+     *
+     * @param name name of the tag
+     *
+     * @return changed compound, or this compound if there's no such tag
+     *
+     * @throws NullPointerException if name is null
+     */
+    public PersistentCompound without(String name)
+    {
+        int nameHash = hash(name);
+        if (root == null || root.find(name, nameHash, 0) == null)
+        {
+            return this;
+        }
+        Node newRoot = root.without(name, nameHash, 0);
+        return newRoot == null ? EMPTY : new PersistentCompound(newRoot, size - 1);
+    }
+
+    /**
+     * Converts this compound into a new TAG_Compound. Nested compounds and lists are
+     * converted as well, so changes of the tag don't affect this compound.
+     *
+     * @param name name of the new tag
+     *
+     * @return new tag
+     */
+    public TagCompound toTag(String name)
+    {
+        CompoundContent content = new CompoundContent();
+        for (Entry entry : entries())
+        {
+            content.addTag(PersistentValues.toTag(entry.type, entry.name, entry.value));
+        }
+        return new TagCompound(name, content);
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (obj == this)
+        {
+            return true;
+        }
+        if (!(obj instanceof PersistentCompound))
+        {
+            return false;
+        }
+        PersistentCompound other = (PersistentCompound) obj;
+        if (other.size != size || (hash != 0 && other.hash != 0 && hash != other.hash))
+        {
+            return false;
+        }
+        for (Entry entry : entries())
+        {
+            Entry otherEntry = other.find(entry.name);
+            if (otherEntry == null || otherEntry.type != entry.type
+                    || !PersistentValues.equals(entry.value, otherEntry.value))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int result = hash;
+        if (result == 0 && size > 0)
+        {
+            for (Entry entry : entries())
+            {
+                result += entry.hash ^ PersistentValues.hashCode(entry.value);
+            }
+            hash = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the compound in SNBT.
+     *
+     * @return SNBT of the compound
+     *
+     * @see Snbt
+     */
+    @Override
+    public String toString()
+    {
+        return Snbt.toString(toTag(""));
+    }
+
+    private PersistentCompound with(String name, TagType type, Object value)
+    {
+        Entry entry = new Entry(name, hash(name), type, value);
+        if (root == null)
+        {
+            return new PersistentCompound(new BitmapNode(entry.hash, 0, entry), 1);
+        }
+        Entry existing = root.find(name, entry.hash, 0);
+        if (existing != null && existing.type == type && existing.value == value)
+        {
+            return this;
+        }
+        return new PersistentCompound(root.with(entry, 0), existing == null ? size + 1 : size);
+    }
+
+    private Entry find(String name)
+    {
+        return root == null ? null : root.find(name, hash(name), 0);
+    }
+
+    private Number getNumber(String name)
+    {
+        Entry entry = find(name);
+        return entry != null && entry.value instanceof Number ? (Number) entry.value : null;
+    }
+
+    private List<Entry> entries()
+    {
+        List<Entry> entries = new ArrayList<>(size);
+        if (root != null)
+        {
+            root.collect(entries);
+        }
+        return entries;
+    }
+
+    private static int hash(String name)
+    {
+        int hash = name.hashCode();
+        // spread higher bits, as the trie starts with the lower ones
+        return hash ^ hash >>> 16;
+    }
+
+    private static int index(int hash, int shift)
+    {
+        return hash >>> shift & 31;
+    }
+
+    private static final class Entry
+    {
+        private final String name;
+        private final int hash;
+        private final TagType type;
+        private final Object value;
+
+        private Entry(String name, int hash, TagType type, Object value)
+        {
+            this.name = name;
+            this.hash = hash;
+            this.type = type;
+            this.value = value;
+        }
+    }
+
+    private abstract static class Node
+    {
+        /**
+         * Finds entry with given name, at the level of given shift.
+         */
+        abstract Entry find(String name, int hash, int shift);
+
+        /**
+         * Returns a copy of this node with given entry added or replacing the one with the
+         * same name.
+         */
+        abstract Node with(Entry entry, int shift);
+
+        /**
+         * Returns a copy of this node without the entry with given name, which has to be in
+         * the node, or null if the node would be empty.
+         */
+        abstract Node without(String name, int hash, int shift);
+
+        /**
+         * Returns the only entry of this node, or null if the node has more children.
+         */
+        abstract Entry single();
+
+        abstract void collect(List<Entry> entries);
+    }
+
+    /**
+     * Node with up to 32 children, entries or nodes of the next level. Bit <i>n</i> of the
+     * bitmap is set if there's a child for the hash part <i>n</i>; children are packed in
+     * the order of their bits.
+     */
+    private static final class BitmapNode extends Node
+    {
+        private final int bitmap;
+        private final Object[] children;
+
+        private BitmapNode(int bitmap, Object[] children)
+        {
+            this.bitmap = bitmap;
+            this.children = children;
+        }
+
+        private BitmapNode(int hash, int shift, Object child)
+        {
+            this(1 << index(hash, shift), new Object[]{child});
+        }
+
+        @Override
+        Entry find(String name, int hash, int shift)
+        {
+            int bit = 1 << index(hash, shift);
+            if ((bitmap & bit) == 0)
+            {
+                return null;
+            }
+            Object child = children[Integer.bitCount(bitmap & bit - 1)];
+            if (child instanceof Entry)
+            {
+                Entry entry = (Entry) child;
+                return entry.hash == hash && entry.name.equals(name) ? entry : null;
+            }
+            return ((Node) child).find(name, hash, shift + 5);
+        }
+
+        @Override
+        Node with(Entry entry, int shift)
+        {
+            int bit = 1 << index(entry.hash, shift);
+            int position = Integer.bitCount(bitmap & bit - 1);
+            if ((bitmap & bit) == 0)
+            {
+                Object[] newChildren = new Object[children.length + 1];
+                System.arraycopy(children, 0, newChildren, 0, position);
+                newChildren[position] = entry;
+                System.arraycopy(children, position, newChildren, position + 1, children.length - position);
+                return new BitmapNode(bitmap | bit, newChildren);
+            }
+            Object child = children[position];
+            Object newChild;
+            if (child instanceof Entry)
+            {
+                Entry existing = (Entry) child;
+                newChild = existing.hash == entry.hash && existing.name.equals(entry.name) ? entry
+                        : merge(existing, entry, shift + 5);
+            }
+            else
+            {
+                newChild = ((Node) child).with(entry, shift + 5);
+            }
+            Object[] newChildren = children.clone();
+            newChildren[position] = newChild;
+            return new BitmapNode(bitmap, newChildren);
+        }
+
+        @Override
+        Node without(String name, int hash, int shift)
+        {
+            int bit = 1 << index(hash, shift);
+            int position = Integer.bitCount(bitmap & bit - 1);
+            Object child = children[position];
+            if (child instanceof Node)
+            {
+                Node newChild = ((Node) child).without(name, hash, shift + 5);
+                if (newChild != null)
+                {
+                    // a node left with a single entry is replaced by the entry itself
+                    Entry single = newChild.single();
+                    Object[] newChildren = children.clone();
+                    newChildren[position] = single != null ? single : newChild;
+                    return new BitmapNode(bitmap, newChildren);
+                }
+            }
+            if (children.length == 1)
+            {
+                return null;
+            }
+            Object[] newChildren = new Object[children.length - 1];
+            System.arraycopy(children, 0, newChildren, 0, position);
+            System.arraycopy(children, position + 1, newChildren, position, newChildren.length - position);
+            return new BitmapNode(bitmap & ~bit, newChildren);
+        }
+
+        @Override
+        Entry single()
+        {
+            return children.length == 1 && children[0] instanceof Entry ? (Entry) children[0] : null;
+        }
+
+        @Override
+        void collect(List<Entry> entries)
+        {
+            for (Object child : children)
+            {
+                if (child instanceof Entry)
+                {
+                    entries.add((Entry) child);
+                }
+                else
+                {
+                    ((Node) child).collect(entries);
+                }
+            }
+        }
+
+        /**
+         * Creates a node holding two entries with different names.
+         */
+        private static Node merge(Entry first, Entry second, int shift)
+        {
+            if (first.hash == second.hash)
+            {
+                return new CollisionNode(first.hash, new Entry[]{first, second});
+            }
+            // Hashes differ, so they do in some part before the shift runs out of bits
+            int firstIndex = index(first.hash, shift);
+            int secondIndex = index(second.hash, shift);
+            if (firstIndex == secondIndex)
+            {
+                return new BitmapNode(first.hash, shift, merge(first, second, shift + 5));
+            }
+            Object[] children = firstIndex < secondIndex ? new Object[]{first, second} : new Object[]{second, first};
+            return new BitmapNode(1 << firstIndex | 1 << secondIndex, children);
+        }
+    }
+
+    /**
+     * Node with entries whose names have the same hash.
+     */
+    private static final class CollisionNode extends Node
+    {
+        private final int hash;
+        private final Entry[] entries;
+
+        private CollisionNode(int hash, Entry[] entries)
+        {
+            this.hash = hash;
+            this.entries = entries;
+        }
+
+        @Override
+        Entry find(String name, int hash, int shift)
+        {
+            if (hash == this.hash)
+            {
+                for (Entry entry : entries)
+                {
+                    if (entry.name.equals(name))
+                    {
+                        return entry;
+                    }
+                }
+            }
+            return null;
+        }
+
+        @Override
+        Node with(Entry entry, int shift)
+        {
+            if (entry.hash != hash)
+            {
+                return new BitmapNode(hash, shift, this).with(entry, shift);
+            }
+            for (int i = 0; i < entries.length; i++)
+            {
+                if (entries[i].name.equals(entry.name))
+                {
+                    Entry[] newEntries = entries.clone();
+                    newEntries[i] = entry;
+                    return new CollisionNode(hash, newEntries);
+                }
+            }
+            Entry[] newEntries = new Entry[entries.length + 1];
+            System.arraycopy(entries, 0, newEntries, 0, entries.length);
+            newEntries[entries.length] = entry;
+            return new CollisionNode(hash, newEntries);
+        }
+
+        @Override
+        Node without(String name, int hash, int shift)
+        {
+            if (entries.length == 1)
+            {
+                return null;
+            }
+            Entry[] newEntries = new Entry[entries.length - 1];
+            int count = 0;
+            for (Entry entry : entries)
+            {
+                if (!entry.name.equals(name))
+                {
+                    newEntries[count++] = entry;
+                }
+            }
+            return new CollisionNode(hash, newEntries);
+        }
+
+        @Override
+        Entry single()
+        {
+            return entries.length == 1 ? entries[0] : null;
+        }
+
+        @Override
+        void collect(List<Entry> entries)
+        {
+            Collections.addAll(entries, this.entries);
+        }
+    }
+}
@@ -0,0 +1,615 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mcpg.nbt;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable payload of TAG_List. Changing methods, like {@link #with(int, Tag)} or
+ * {@link #append(Tag)}, return a new list sharing everything but the changed path with
+ * this one, so instances can be shared between threads without locking or defensive
+ * copying.
+ * <p>
+ * Elements are kept in a persistent vector: a trie of 32-element arrays with the last
+ * (up to 32) elements in a separate tail, so appending mostly copies only the tail, and
+ * changing an element copies one array per level. Element values are immutable, like in
+ * {@link PersistentCompound}.
+ */
+public final class PersistentList
+{
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+    private static final Object[] EMPTY_NODE = new Object[WIDTH];
+    private static final PersistentList EMPTY = new PersistentList(TagType.TAG_END, 0, BITS, EMPTY_NODE,
+            new Object[0]);
+
+    private final TagType listType;
+    private final int size;
+    private final int shift;
+    private final Object[] root;
+    private final Object[] tail;
+    private int hash;
+
+    private PersistentList(TagType listType, int size, int shift, Object[] root, Object[] tail)
+    {
+        this.listType = listType;
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+        this.tail = tail;
+    }
+
+    /**
+     * Returns the empty list. Its type is TAG_End until an element is appended.
+     *
+     * @return list without elements
+     */
+    public static PersistentList empty()
+    {
+        return EMPTY;
+    }
+
+    /**
+     * Converts a list tag into a persistent list. Packed lists are read without being
+     * unpacked. Nested compounds and lists are converted as well, and arrays are copied, so
+     * later changes of the tag don't affect the result.
+     *
+     * @param list list to convert
+     *
+     * @return persistent list with the same elements
+     *
+     * @throws IllegalArgumentException if an element has no value or isn't of the list's type
+     */
+    public static PersistentList of(TagList list)
+    {
+        TagType listType = list.getListType() == null ? TagType.TAG_END : list.getListType();
+        int size = list.getSize();
+        if (size == 0)
+        {
+            return listType == TagType.TAG_END ? EMPTY : new PersistentList(listType, 0, BITS, EMPTY_NODE, EMPTY.tail);
+        }
+        Object[] values = new Object[size];
+        if (list.isPacked())
+        {
+            for (int i = 0; i < size; i++)
+            {
+                values[i] = getPacked(list, listType, i);
+            }
+        }
+        else
+        {
+            List<Tag<?>> tags = list.getValue();
+            for (int i = 0; i < size; i++)
+            {
+                Tag<?> tag = tags.get(i);
+                if (tag.getType() != listType)
+                {
+                    throw new IllegalArgumentException("List of " + listType + " contains " + tag.getType() + "!");
+                }
+                values[i] = PersistentValues.fromTag(tag);
+            }
+        }
+        return build(listType, values);
+    }
+
+    /**
+     * Returns type of list's elements.
+     *
+     * @return type of the elements, TAG_End for lists which have never had any
+     */
+    public TagType getListType()
+    {
+        return listType;
+    }
+
+    /**
+     * Returns amount of elements.
+     *
+     * @return size of the list
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Checks if this list has no elements.
+     *
+     * @return <code>true</code> if the list is empty
+     */
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * Returns value of an element: a boxed number, a string, a copy of an array, a
+     * {@link PersistentCompound} or a {@link PersistentList}.
+     *
+     * @param index index of the element
+     *
+     * @return value of the element
+     *
+     * @throws IndexOutOfBoundsException if index is out of list's bounds
+     */
+    public Object get(int index)
+    {
+        return PersistentValues.expose(leaf(index)[index & MASK]);
+    }
+
+    /**
+     * Creates a new tag, without name, with an element's value. Changes of the tag don't
+     * affect this list.
+     *
+     * @param index index of the element
+     *
+     * @return new tag
+     *
+     * @throws IndexOutOfBoundsException if index is out of list's bounds
+     */
+    public Tag<?> getTag(int index)
+    {
+        return PersistentValues.toTag(listType, "", leaf(index)[index & MASK]);
+    }
+
+    /**
+     * Returns an element of a list of TAG_Compound.
+     *
+     * @param index index of the element
+     *
+     * @return value of the element, or null if this isn't a list of TAG_Compound
+     *
+     * @throws IndexOutOfBoundsException if index is out of list's bounds
+     */
+    public PersistentCompound getCompound(int index)
+    {
+        Object value = leaf(index)[index & MASK];
+        return listType == TagType.TAG_COMPOUND ? (PersistentCompound) value : null;
+    }
+
+    /**
+     * Returns an element of a list of TAG_List.
+     *
+     * @param index index of the element
+     *
+     * @return value of the element, or null if this isn't a list of TAG_List
+     *
+     * @throws IndexOutOfBoundsException if index is out of list's bounds
+     */
+    public PersistentList getList(int index)
+    {
+        Object value = leaf(index)[index & MASK];
+        return listType == TagType.TAG_LIST ? (PersistentList) value : null;
+    }
+
+    /**
+     * Returns a list with given tag's value at given index. The tag is converted (and its
+     * arrays copied).
+     *
+     * @param index index of the element
+     * @param tag   tag with the value
+     *
+     * @return changed list
+     *
+     * @throws IndexOutOfBoundsException if index is out of list's bounds
+     * @throws IllegalArgumentException  if the tag isn't of the list's type or has no value
+     */
+    public PersistentList with(int index, Tag<?> tag)
+    {
+        return with(index, tag.getType(), PersistentValues.fromTag(tag));
+    }
+
+    /**
+     * Returns a list with given compound at given index.
+     *
+     * @param index index of the element
+     * @param value new value of the element
+     *
+     * @return changed list
+     *
+     * @throws IndexOutOfBoundsException if index is out of list's bounds
+     * @throws IllegalArgumentException  if this isn't a list of TAG_Compound
+     * @throws NullPointerException      if value is null
+     */
+    public PersistentList with(int index, PersistentCompound value)
+    {
+        return with(index, TagType.TAG_COMPOUND, checkNotNull(value));
+    }
+
+    /**
+     * Returns a list with given list at given index.
+     *
+     * @param index index of the element
+     * @param value new value of the element
+     *
+     * @return changed list
+     *
+     * @throws IndexOutOfBoundsException if index is out of list's bounds
+     * @throws IllegalArgumentException  if this isn't a list of TAG_List
+     * @throws NullPointerException      if value is null
+     */
+    public PersistentList with(int index, PersistentList value)
+    {
+        return with(index, TagType.TAG_LIST, checkNotNull(value));
+    }
+
+    /**
+     * Returns a list with given tag's value appended. The tag is converted (and its arrays
+     * copied). Appending to an empty list of TAG_End makes it a list of tag's type.
+     *
+     * @param tag tag with the value
+     *
+     * @return changed list
+     *
+     * @throws IllegalArgumentException if the tag isn't of the list's type or has no value
+     */
+    public PersistentList append(Tag<?> tag)
+    {
+        return append(tag.getType(), PersistentValues.fromTag(tag));
+    }
+
+    /**
+     * Returns a list with given compound appended.
+     *
+     * @param value value to append
+     *
+     * @return changed list
+     *
+     * @throws IllegalArgumentException if this isn't an empty list or a list of TAG_Compound
+     * @throws NullPointerException     if value is null
+     */
+    public PersistentList append(PersistentCompound value)
+    {
+        return append(TagType.TAG_COMPOUND, checkNotNull(value));
+    }
+
+    /**
+     * Returns a list with given list appended.
+     *
+     * @param value value to append
+     *
+     * @return changed list
+     *
+     * @throws IllegalArgumentException if this isn't an empty list or a list of TAG_List
+     * @throws NullPointerException     if value is null
+     */
+    public PersistentList append(PersistentList value)
+    {
+        return append(TagType.TAG_LIST, checkNotNull(value));
+    }
+
+    /**
+     * Converts this list into a new TAG_List. Lists of numbers are created packed. Nested
+     * compounds and lists are converted as well, so changes of the tag don't affect this
+     * list.
+     *
+     * @param name name of the new tag
+     *
+     * @return new tag
+     */
+    public TagList toTag(String name)
+    {
+        switch (listType)
+        {
+            case TAG_BYTE:
+                byte[] bytes = new byte[size];
+                for (int i = 0; i < size; i++)
+                {
+                    bytes[i] = (Byte) value(i);
+                }
+                return new TagList(name, bytes);
+            case TAG_SHORT:
+                short[] shorts = new short[size];
+                for (int i = 0; i < size; i++)
+                {
+                    shorts[i] = (Short) value(i);
+                }
+                return new TagList(name, shorts);
+            case TAG_INT:
+                int[] ints = new int[size];
+                for (int i = 0; i < size; i++)
+                {
+                    ints[i] = (Integer) value(i);
+                }
+                return new TagList(name, ints);
+            case TAG_LONG:
+                long[] longs = new long[size];
+                for (int i = 0; i < size; i++)
+                {
+                    longs[i] = (Long) value(i);
+                }
+                return new TagList(name, longs);
+            case TAG_FLOAT:
+                float[] floats = new float[size];
+                for (int i = 0; i < size; i++)
+                {
+                    floats[i] = (Float) value(i);
+                }
+                return new TagList(name, floats);
+            case TAG_DOUBLE:
+                double[] doubles = new double[size];
+                for (int i = 0; i < size; i++)
+                {
+                    doubles[i] = (Double) value(i);
+                }
+                return new TagList(name, doubles);
+            default:
+                List<Tag<?>> tags = new ArrayList<>(size);
+                for (int i = 0; i < size; i++)
+                {
+                    tags.add(PersistentValues.toTag(listType, "", value(i)));
+                }
+                return new TagList(name, tags, listType);
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (obj == this)
+        {
+            return true;
+        }
+        if (!(obj instanceof PersistentList))
+        {
+            return false;
+        }
+        PersistentList other = (PersistentList) obj;
+        if (other.size != size || (size > 0 && other.listType != listType)
+                || (hash != 0 && other.hash != 0 && hash != other.hash))
+        {
+            return false;
+        }
+        for (int i = 0; i < size; i++)
+        {
+            if (!PersistentValues.equals(value(i), other.value(i)))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int result = hash;
+        if (result == 0 && size > 0)
+        {
+            result = 1;
+            for (int i = 0; i < size; i++)
+            {
+                result = 31 * result + PersistentValues.hashCode(value(i));
+            }
+            hash = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the list in SNBT.
+     *
+     * @return SNBT of the list
+     *
+     * @see Snbt
+     */
+    @Override
+    public String toString()
+    {
+        return Snbt.toString(toTag(""));
+    }
+
+    private PersistentList with(int index, TagType type, Object value)
+    {
+        Object[] leaf = leaf(index);
+        if (type != listType)
+        {
+            throw new IllegalArgumentException("Can't put " + type + " into list of " + listType + "!");
+        }
+        if (index >= tailOffset())
+        {
+            Object[] newTail = tail.clone();
+            newTail[index & MASK] = value;
+            return new PersistentList(listType, size, shift, root, newTail);
+        }
+        if (leaf[index & MASK] == value)
+        {
+            return this;
+        }
+        return new PersistentList(listType, size, shift, with(shift, root, index, value), tail);
+    }
+
+    private static Object[] with(int level, Object[] node, int index, Object value)
+    {
+        Object[] newNode = node.clone();
+        if (level == 0)
+        {
+            newNode[index & MASK] = value;
+        }
+        else
+        {
+            int child = index >>> level & MASK;
+            newNode[child] = with(level - BITS, (Object[]) node[child], index, value);
+        }
+        return newNode;
+    }
+
+    private PersistentList append(TagType type, Object value)
+    {
+        TagType newType = listType;
+        if (size == 0)
+        {
+            newType = type;
+        }
+        else if (type != listType)
+        {
+            throw new IllegalArgumentException("Can't add " + type + " into list of " + listType + "!");
+        }
+        if (size - tailOffset() < WIDTH)
+        {
+            Object[] newTail = new Object[tail.length + 1];
+            System.arraycopy(tail, 0, newTail, 0, tail.length);
+            newTail[tail.length] = value;
+            return new PersistentList(newType, size + 1, shift, root, newTail);
+        }
+        // Tail is full, it's pushed into the trie, which grows a level if the root is full
+        Object[] newRoot;
+        int newShift = shift;
+        if (size >>> BITS > 1 << shift)
+        {
+            newRoot = new Object[WIDTH];
+            newRoot[0] = root;
+            newRoot[1] = newPath(shift, tail);
+            newShift += BITS;
+        }
+        else
+        {
+            newRoot = pushTail(shift, root, tail);
+        }
+        return new PersistentList(newType, size + 1, newShift, newRoot, new Object[]{value});
+    }
+
+    private Object[] pushTail(int level, Object[] parent, Object[] tailNode)
+    {
+        int child = (size - 1) >>> level & MASK;
+        Object[] newParent = parent.clone();
+        if (level == BITS)
+        {
+            newParent[child] = tailNode;
+        }
+        else
+        {
+            Object[] node = (Object[]) parent[child];
+            newParent[child] = node != null ? pushTail(level - BITS, node, tailNode) : newPath(level - BITS, tailNode);
+        }
+        return newParent;
+    }
+
+    private static Object[] newPath(int level, Object[] node)
+    {
+        if (level == 0)
+        {
+            return node;
+        }
+        Object[] path = new Object[WIDTH];
+        path[0] = newPath(level - BITS, node);
+        return path;
+    }
+
+    /**
+     * Builds a list from given values, filling the trie bottom-up.
+     */
+    private static PersistentList build(TagType listType, Object[] values)
+    {
+        int size = values.length;
+        int tailOffset = tailOffset(size);
+        Object[] tail = new Object[size - tailOffset];
+        System.arraycopy(values, tailOffset, tail, 0, tail.length);
+        Object[] nodes = new Object[tailOffset >>> BITS];
+        for (int i = 0; i < nodes.length; i++)
+        {
+            Object[] leaf = new Object[WIDTH];
+            System.arraycopy(values, i << BITS, leaf, 0, WIDTH);
+            nodes[i] = leaf;
+        }
+        int shift = BITS;
+        while (nodes.length > WIDTH)
+        {
+            Object[] parents = new Object[(nodes.length + MASK) >>> BITS];
+            for (int i = 0; i < parents.length; i++)
+            {
+                Object[] parent = new Object[WIDTH];
+                System.arraycopy(nodes, i << BITS, parent, 0, Math.min(WIDTH, nodes.length - (i << BITS)));
+                parents[i] = parent;
+            }
+            nodes = parents;
+            shift += BITS;
+        }
+        Object[] root = new Object[WIDTH];
+        System.arraycopy(nodes, 0, root, 0, nodes.length);
+        return new PersistentList(listType, size, shift, root, tail);
+    }
+
+    private int tailOffset()
+    {
+        return tailOffset(size);
+    }
+
+    private static int tailOffset(int size)
+    {
+        return size < WIDTH ? 0 : (size - 1) >>> BITS << BITS;
+    }
+
+    /**
+     * Returns the array holding element with given index.
+     */
+    private Object[] leaf(int index)
+    {
+        if (index < 0 || index >= size)
+        {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of list of size " + size + "!");
+        }
+        if (index >= tailOffset())
+        {
+            return tail;
+        }
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS)
+        {
+            node = (Object[]) node[index >>> level & MASK];
+        }
+        return node;
+    }
+
+    private Object value(int index)
+    {
+        return leaf(index)[index & MASK];
+    }
+
+    private static Object getPacked(TagList list, TagType listType, int index)
+    {
+        switch (listType)
+        {
+            case TAG_BYTE:
+                return list.getByte(index);
+            case TAG_SHORT:
+                return list.getShort(index);
+            case TAG_INT:
+                return list.getInt(index);
+            case TAG_LONG:
+                return list.getLong(index);
+            case TAG_FLOAT:
+                return list.getFloat(index);
+            case TAG_DOUBLE:
+                return list.getDouble(index);
+            default:
+                throw new IllegalStateException("List of " + listType + " can't be packed!");
+        }
+    }
+
+    private static <T> T checkNotNull(T value)
+    {
+        if (value == null)
+        {
+            throw new NullPointerException("value is null");
+        }
+        return value;
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mcpg.nbt;
+
+import java.util.Arrays;
+
+import io.github.mcpg.nbt.TagCompound.CompoundContent;
+
+/**
+ * Conversions between tags and values of {@link PersistentCompound} and
+ * {@link PersistentList}. Values are immutable: boxed numbers, strings, persistent
+ * compounds and lists, and arrays which are never handed out without copying.
+ */
+final class PersistentValues
+{
+    private PersistentValues()
+    {
+    }
+
+    /**
+     * Converts payload of the tag into a value, copying arrays and converting compounds and
+     * lists deeply.
+     */
+    static Object fromTag(Tag<?> tag)
+    {
+        switch (tag.getType())
+        {
+            case TAG_BYTE:
+            case TAG_SHORT:
+            case TAG_INT:
+            case TAG_LONG:
+            case TAG_FLOAT:
+            case TAG_DOUBLE:
+            case TAG_STRING:
+                return checkNotNull(tag.getValue());
+            case TAG_BYTE_ARRAY:
+                return ((byte[]) checkNotNull(tag.getValue())).clone();
+            case TAG_INT_ARRAY:
+                return ((int[]) checkNotNull(tag.getValue())).clone();
+            case TAG_LONG_ARRAY:
+                return ((long[]) checkNotNull(tag.getValue())).clone();
+            case TAG_LIST:
+                TagList list = (TagList) tag;
+                if (!list.isPacked())
+                {
+                    checkNotNull(list.getValue());
+                }
+                return PersistentList.of(list);
+            case TAG_COMPOUND:
+                return PersistentCompound.of((CompoundContent) checkNotNull(tag.getValue()));
+            default:
+                throw new IllegalArgumentException("Tag of type " + tag.getType() + " can't be a value!");
+        }
+    }
+
+    /**
+     * Creates a new tag with given name holding the value.
+     */
+    static Tag<?> toTag(TagType type, String name, Object value)
+    {
+        switch (type)
+        {
+            case TAG_BYTE:
+                return new TagByte(name, (Byte) value);
+            case TAG_SHORT:
+                return new TagShort(name, (Short) value);
+            case TAG_INT:
+                return new TagInt(name, (Integer) value);
+            case TAG_LONG:
+                return new TagLong(name, (Long) value);
+            case TAG_FLOAT:
+                return new TagFloat(name, (Float) value);
+            case TAG_DOUBLE:
+                return new TagDouble(name, (Double) value);
+            case TAG_STRING:
+                return new TagString(name, (String) value);
+            case TAG_BYTE_ARRAY:
+                return new TagByteArray(name, ((byte[]) value).clone());
+            case TAG_INT_ARRAY:
+                return new TagIntArray(name, ((int[]) value).clone());
+            case TAG_LONG_ARRAY:
+                return new TagLongArray(name, ((long[]) value).clone());
+            case TAG_LIST:
+                return ((PersistentList) value).toTag(name);
+            case TAG_COMPOUND:
+                return ((PersistentCompound) value).toTag(name);
+            default:
+                throw new IllegalStateException("Unsupported tag type " + type + "!");
+        }
+    }
+
+    /**
+     * Returns the value as it can be given out: arrays are copied.
+     */
+    static Object expose(Object value)
+    {
+        if (value instanceof byte[])
+        {
+            return ((byte[]) value).clone();
+        }
+        if (value instanceof int[])
+        {
+            return ((int[]) value).clone();
+        }
+        if (value instanceof long[])
+        {
+            return ((long[]) value).clone();
+        }
+        return value;
+    }
+
+    static boolean equals(Object value, Object other)
+    {
+        if (value instanceof byte[])
+        {
+            return other instanceof byte[] && Arrays.equals((byte[]) value, (byte[]) other);
+        }
+        if (value instanceof int[])
+        {
+            return other instanceof int[] && Arrays.equals((int[]) value, (int[]) other);
+        }
+        if (value instanceof long[])
+        {
+            return other instanceof long[] && Arrays.equals((long[]) value, (long[]) other);
+        }
+        return value.equals(other);
+    }
+
+    static int hashCode(Object value)
+    {
+        if (value instanceof byte[])
+        {
+            return Arrays.hashCode((byte[]) value);
+        }
+        if (value instanceof int[])
+        {
+            return Arrays.hashCode((int[]) value);
+        }
+        if (value instanceof long[])
+        {
+            return Arrays.hashCode((long[]) value);
+        }
+        return value.hashCode();
+    }
+
+    private static Object checkNotNull(Object value)
+    {
+        if (value == null)
+        {
+            throw new IllegalArgumentException("Tag has no value!");
+        }
+        return value;
+    }
+}
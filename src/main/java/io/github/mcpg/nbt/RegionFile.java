@@ -0,0 +1,488 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mcpg.nbt;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Anvil (<code>.mca</code>) or McRegion (<code>.mcr</code>) region file, holding 32x32
+ * chunks. The file is memory-mapped, so reading a chunk only touches the pages of its
+ * sectors. Chunks are written into free sectors (reusing space of removed or moved chunks),
+ * and the header is updated only after chunk's data has been written.
+ * <p>
+ * Chunk coordinates can be given either relative to the region (0 - 31) or absolute, only
+ * their lowest 5 bits select the chunk. Chunks larger than 255 sectors are stored in
+ * external <code>c.&lt;x&gt;.&lt;z&gt;.mcc</code> files next to the region file, like the
+ * game does; their names use absolute coordinates computed from region file's name.
+ * <p>
+ * Chunks can be read by many threads at once. Writing methods are synchronized, but they
+ * mustn't run concurrently with reading the same chunk.
+ */
+public class RegionFile implements Closeable
+{
+    /**
+     * Size of a sector in bytes.
+     */
+    public static final int SECTOR_SIZE = 4096;
+
+    /**
+     * Amount of chunks in a region file.
+     */
+    public static final int CHUNKS = 1024;
+
+    private static final int HEADER_SECTORS = 2;
+    private static final int MAX_SECTORS = 255;
+    private static final int MAX_OFFSET = (1 << 24) - 1;
+    private static final int EXTERNAL_FLAG = 0x80;
+    private static final Pattern NAME_PATTERN = Pattern.compile("r\\.(-?\\d+)\\.(-?\\d+)\\.mc[ar]");
+
+    private final Path path;
+    private final FileChannel channel;
+    private final boolean readOnly;
+    private final int[] locations = new int[CHUNKS];
+    private final int[] timestamps = new int[CHUNKS];
+    private final BitSet usedSectors = new BitSet();
+    private final boolean hasRegionCoordinates;
+    private final int regionX;
+    private final int regionZ;
+    private volatile MappedByteBuffer mapping;
+
+    /**
+     * Opens region file for reading and writing. If the file doesn't exist, an empty one is
+     * created.
+     *
+     * @param path path of the region file
+     *
+     * @throws IOException if any I/O error occurs
+     */
+    public RegionFile(Path path) throws IOException
+    {
+        this(path, false);
+    }
+
+    /**
+     * Opens region file.
+     *
+     * @param path     path of the region file
+     * @param readOnly <code>true</code> to open the file only for reading
+     *
+     * @throws IOException if any I/O error occurs, or if the file is too short to be a region file
+     */
+    public RegionFile(Path path, boolean readOnly) throws IOException
+    {
+        this.path = path;
+        this.readOnly = readOnly;
+        Matcher matcher = NAME_PATTERN.matcher(path.getFileName().toString());
+        this.hasRegionCoordinates = matcher.matches();
+        this.regionX = hasRegionCoordinates ? Integer.parseInt(matcher.group(1)) : 0;
+        this.regionZ = hasRegionCoordinates ? Integer.parseInt(matcher.group(2)) : 0;
+        if (readOnly)
+        {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        }
+        else
+        {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.CREATE);
+        }
+        try
+        {
+            if (channel.size() < HEADER_SECTORS * SECTOR_SIZE)
+            {
+                if (readOnly || channel.size() != 0)
+                {
+                    throw new IOException("File " + path + " is too short to be a region file!");
+                }
+                writeFully(ByteBuffer.allocate(HEADER_SECTORS * SECTOR_SIZE), 0);
+            }
+            mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            usedSectors.set(0, HEADER_SECTORS);
+            for (int i = 0; i < CHUNKS; i++)
+            {
+                locations[i] = mapping.getInt(i * 4);
+                timestamps[i] = mapping.getInt(SECTOR_SIZE + i * 4);
+                int sectors = locations[i] & 0xff;
+                if (sectors != 0)
+                {
+                    int offset = locations[i] >>> 8;
+                    usedSectors.set(offset, offset + sectors);
+                }
+            }
+        } catch (IOException | RuntimeException e)
+        {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns path of this region file.
+     *
+     * @return path of the file
+     */
+    public Path getPath()
+    {
+        return path;
+    }
+
+    /**
+     * Returns X coordinate of this region, taken from file's name.
+     *
+     * @return region's X coordinate, or 0 if file's name isn't <code>r.&lt;x&gt;.&lt;z&gt;.mca</code>
+     */
+    public int getRegionX()
+    {
+        return regionX;
+    }
+
+    /**
+     * Returns Z coordinate of this region, taken from file's name.
+     *
+     * @return region's Z coordinate, or 0 if file's name isn't <code>r.&lt;x&gt;.&lt;z&gt;.mca</code>
+     */
+    public int getRegionZ()
+    {
+        return regionZ;
+    }
+
+    /**
+     * Checks if given chunk is stored in this region file.
+     *
+     * @param x chunk's X coordinate
+     * @param z chunk's Z coordinate
+     *
+     * @return <code>true</code> if the chunk exists
+     */
+    public boolean hasChunk(int x, int z)
+    {
+        return locations[index(x, z)] != 0;
+    }
+
+    /**
+     * Returns time the chunk was last written at.
+     *
+     * @param x chunk's X coordinate
+     * @param z chunk's Z coordinate
+     *
+     * @return seconds since the epoch, or 0 if the chunk doesn't exist
+     */
+    public int getTimestamp(int x, int z)
+    {
+        return timestamps[index(x, z)];
+    }
+
+    /**
+     * Reads and decodes a chunk.
+     *
+     * @param x chunk's X coordinate
+     * @param z chunk's Z coordinate
+     *
+     * @return root tag of the chunk, or null if the chunk doesn't exist
+     *
+     * @throws IOException           if any I/O error occurs, or if the chunk is corrupted
+     * @throws IllegalStateException if chunk's NBT data is malformed
+     */
+    public Tag<?> readChunk(int x, int z) throws IOException
+    {
+        NbtReader reader = openChunk(x, z);
+        return reader == null ? null : reader.readTag();
+    }
+
+    /**
+     * Decompresses a chunk and returns a reader over its NBT data, without decoding it. The
+     * data is copied out of the mapped file, so the reader (and tags read lazily from it)
+     * stays valid after the chunk is written again or deleted.
+     *
+     * @param x chunk's X coordinate
+     * @param z chunk's Z coordinate
+     *
+     * @return reader positioned at chunk's root tag, or null if the chunk doesn't exist
+     *
+     * @throws IOException if any I/O error occurs, or if the chunk is corrupted
+     */
+    public NbtReader openChunk(int x, int z) throws IOException
+    {
+        int index = index(x, z);
+        int location = locations[index];
+        if (location == 0)
+        {
+            return null;
+        }
+        int offset = location >>> 8;
+        int sectors = location & 0xff;
+        MappedByteBuffer mapping = this.mapping;
+        long start = (long) offset * SECTOR_SIZE;
+        if (offset < HEADER_SECTORS || start + 5 > mapping.capacity())
+        {
+            throw new IOException("Chunk " + x + ", " + z + " points outside of the file!");
+        }
+        int length = mapping.getInt((int) start);
+        int type = mapping.get((int) start + 4) & 0xff;
+        if (length < 1 || length + 4 > sectors * SECTOR_SIZE || start + 4 + length > mapping.capacity())
+        {
+            throw new IOException("Chunk " + x + ", " + z + " has invalid length " + length + "!");
+        }
+        NbtCompression compression = NbtCompression.byRegionId(type & ~EXTERNAL_FLAG);
+        if (compression == null)
+        {
+            throw new IOException("Chunk " + x + ", " + z + " uses unsupported compression " + type + "!");
+        }
+        if ((type & EXTERNAL_FLAG) != 0)
+        {
+            byte[] compressed = Files.readAllBytes(externalPath(x, z));
+            return new NbtReader(NbtIO.decompress(compression, compressed, 0, compressed.length));
+        }
+        // Uncompressed data is copied too, the sectors may be reused by a later write
+        byte[] payload = new byte[length - 1];
+        slice(mapping, (int) start + 5, length - 1).get(payload);
+        if (compression == NbtCompression.NONE)
+        {
+            return new NbtReader(payload);
+        }
+        return new NbtReader(NbtIO.decompress(compression, payload, 0, payload.length));
+    }
+
+    /**
+     * Writes a chunk compressed with zlib, like the game does.
+     *
+     * @param x   chunk's X coordinate
+     * @param z   chunk's Z coordinate
+     * @param tag root tag of the chunk
+     *
+     * @throws IOException if any I/O error occurs
+     */
+    public void writeChunk(int x, int z, Tag<?> tag) throws IOException
+    {
+        writeChunk(x, z, tag, NbtCompression.ZLIB);
+    }
+
+    /**
+     * Writes a chunk.
+     *
+     * @param x           chunk's X coordinate
+     * @param z           chunk's Z coordinate
+     * @param tag         root tag of the chunk
+     * @param compression compression to use
+     *
+     * @throws IOException           if any I/O error occurs
+     * @throws IllegalStateException if this region file is opened read only
+     */
+    public void writeChunk(int x, int z, Tag<?> tag, NbtCompression compression) throws IOException
+    {
+        writeChunkData(x, z, NbtIO.writeCompressed(tag, compression), compression);
+    }
+
+    /**
+     * Removes a chunk from this region file.
+     *
+     * @param x chunk's X coordinate
+     * @param z chunk's Z coordinate
+     *
+     * @throws IOException           if any I/O error occurs
+     * @throws IllegalStateException if this region file is opened read only
+     */
+    public synchronized void deleteChunk(int x, int z) throws IOException
+    {
+        checkWritable();
+        int index = index(x, z);
+        int oldLocation = locations[index];
+        if (oldLocation == 0)
+        {
+            return;
+        }
+        boolean wasExternal = isExternal(oldLocation);
+        updateHeader(index, 0, 0);
+        free(oldLocation);
+        if (wasExternal)
+        {
+            Files.deleteIfExists(externalPath(x, z));
+        }
+    }
+
+    /**
+     * Forces all written chunks to the storage device.
+     *
+     * @throws IOException if any I/O error occurs
+     */
+    public void flush() throws IOException
+    {
+        channel.force(true);
+    }
+
+    /**
+     * Closes this region file. Note, that Java doesn't unmap the file until the mapping is
+     * garbage collected.
+     *
+     * @throws IOException if any I/O error occurs
+     */
+    @Override
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+
+    /**
+     * Writes already compressed chunk data into free sectors and updates the header.
+     */
+    private synchronized void writeChunkData(int x, int z, byte[] compressed, NbtCompression compression) throws IOException
+    {
+        checkWritable();
+        int index = index(x, z);
+        int oldLocation = locations[index];
+        boolean external = compressed.length + 5 > MAX_SECTORS * SECTOR_SIZE;
+        ByteBuffer header = ByteBuffer.allocate(5);
+        if (external)
+        {
+            // Only the header stays in the region file, the data goes to .mcc file
+            Files.write(externalPath(x, z), compressed);
+            header.putInt(1).put((byte) (compression.getRegionId() | EXTERNAL_FLAG));
+        }
+        else
+        {
+            header.putInt(compressed.length + 1).put((byte) compression.getRegionId());
+        }
+        int length = external ? 5 : compressed.length + 5;
+        int sectors = (length + SECTOR_SIZE - 1) / SECTOR_SIZE;
+        int offset = allocate(sectors);
+        if (offset + sectors > MAX_OFFSET)
+        {
+            throw new IOException("Region file " + path + " is full!");
+        }
+
+        long position = (long) offset * SECTOR_SIZE;
+        ((Buffer) header).flip();
+        writeFully(header, position);
+        if (!external)
+        {
+            writeFully(ByteBuffer.wrap(compressed), position + 5);
+        }
+        int padding = sectors * SECTOR_SIZE - length;
+        if (padding > 0)
+        {
+            writeFully(ByteBuffer.allocate(padding), position + length);
+        }
+        usedSectors.set(offset, offset + sectors);
+        if (position + sectors * SECTOR_SIZE > mapping.capacity())
+        {
+            mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        updateHeader(index, offset << 8 | sectors, (int) (System.currentTimeMillis() / 1000));
+        if (oldLocation != 0)
+        {
+            free(oldLocation);
+            if (isExternal(oldLocation) && !external)
+            {
+                Files.deleteIfExists(externalPath(x, z));
+            }
+        }
+    }
+
+    /**
+     * Finds the first run of free sectors long enough, or the end of the file.
+     */
+    private int allocate(int sectors)
+    {
+        int start = HEADER_SECTORS;
+        while (true)
+        {
+            int free = usedSectors.nextClearBit(start);
+            int used = usedSectors.nextSetBit(free);
+            if (used == -1 || used - free >= sectors)
+            {
+                return free;
+            }
+            start = used;
+        }
+    }
+
+    private void free(int location)
+    {
+        int offset = location >>> 8;
+        usedSectors.clear(offset, offset + (location & 0xff));
+        // Header sectors may have been cleared by a corrupted location
+        usedSectors.set(0, HEADER_SECTORS);
+    }
+
+    private boolean isExternal(int location)
+    {
+        long start = (long) (location >>> 8) * SECTOR_SIZE;
+        MappedByteBuffer mapping = this.mapping;
+        return start + 5 <= mapping.capacity() && (mapping.get((int) start + 4) & EXTERNAL_FLAG) != 0;
+    }
+
+    private void updateHeader(int index, int location, int timestamp) throws IOException
+    {
+        locations[index] = location;
+        timestamps[index] = timestamp;
+        ByteBuffer buffer = ByteBuffer.allocate(4);
+        buffer.putInt(0, location);
+        writeFully(buffer, index * 4L);
+        buffer.putInt(0, timestamp);
+        ((Buffer) buffer).clear();
+        writeFully(buffer, SECTOR_SIZE + index * 4L);
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private void checkWritable()
+    {
+        if (readOnly)
+        {
+            throw new IllegalStateException("Region file " + path + " is opened read only!");
+        }
+    }
+
+    private Path externalPath(int x, int z)
+    {
+        int chunkX = hasRegionCoordinates ? (regionX << 5) + (x & 31) : x;
+        int chunkZ = hasRegionCoordinates ? (regionZ << 5) + (z & 31) : z;
+        return path.resolveSibling("c." + chunkX + "." + chunkZ + ".mcc");
+    }
+
+    private static int index(int x, int z)
+    {
+        return (x & 31) | (z & 31) << 5;
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int index, int length)
+    {
+        ByteBuffer slice = buffer.duplicate();
+        ((Buffer) slice).limit(index + length);
+        ((Buffer) slice).position(index);
+        return slice.slice();
+    }
+}
@@ -0,0 +1,360 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mcpg.nbt;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import io.github.mcpg.nbt.TagCompound.CompoundContent;
+
+/**
+ * Converts tags to and from SNBT, the text form of NBT used by Minecraft commands, for
+ * example <code>{id:"minecraft:stone",Count:1b,Pos:[1.0d,2.0d],UUID:[I;1,2,3,4]}</code>.
+ * <p>
+ * SNBT only contains values, so names of the converted tags themselves are ignored when
+ * printing and empty after parsing. Numbers are written with suffixes of their types
+ * (<code>b</code>, <code>s</code>, <code>L</code>, <code>f</code> and <code>d</code>, ints
+ * don't have one), strings are always quoted and keys only when needed. Parsing accepts
+ * both quotes, <code>true</code> and <code>false</code> as bytes, and escapes like
+ * <code>\n</code> and <code>&#92;u00e9</code>.
+ * <p>
+ * SNBT has no syntax for NaN and infinite floats and doubles. Like the game, they're
+ * printed as <code>NaNf</code>, <code>Infinityd</code> and so on, which are parsed back
+ * as unquoted strings, so such values don't round-trip.
+ */
+public final class Snbt
+{
+    private static final int BUFFER_SIZE = 8192;
+
+    private Snbt()
+    {
+    }
+
+    /**
+     * Parses SNBT value.
+     *
+     * @param snbt text to parse
+     *
+     * @return parsed tag, with an empty name
+     *
+     * @throws IllegalArgumentException if the text isn't valid SNBT
+     */
+    public static Tag<?> parse(CharSequence snbt)
+    {
+        return new SnbtParser(snbt, 0).parseDocument();
+    }
+
+    /**
+     * Converts value of given tag into SNBT.
+     *
+     * @param tag tag to convert
+     *
+     * @return SNBT of the value
+     */
+    public static String toString(Tag<?> tag)
+    {
+        StringBuilder builder = new StringBuilder();
+        try
+        {
+            new Printer(builder).print(tag);
+        } catch (IOException e)
+        {
+            throw new IllegalStateException("StringBuilder has thrown an IOException!", e);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Writes value of given tag as SNBT. Text is appended directly to
+     * {@link StringBuilder}s, other targets receive it in chunks of up to 8192 characters.
+     *
+     * @param tag    tag to write
+     * @param target target to append the text to
+     *
+     * @throws IOException if the target throws it
+     */
+    public static void write(Tag<?> tag, Appendable target) throws IOException
+    {
+        if (target instanceof StringBuilder)
+        {
+            new Printer((StringBuilder) target).print(tag);
+            return;
+        }
+        Printer printer = new Printer(target);
+        printer.print(tag);
+        printer.flush();
+    }
+
+    /**
+     * Checks whether given key can be written without quotes.
+     */
+    private static boolean isUnquoted(String key)
+    {
+        if (key.isEmpty())
+        {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++)
+        {
+            if (!SnbtParser.isUnquotedChar(key.charAt(i)))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Printer
+    {
+        private final StringBuilder builder;
+        private final Appendable target;
+        private char[] chars;
+
+        private Printer(StringBuilder builder)
+        {
+            this.builder = builder;
+            this.target = null;
+        }
+
+        private Printer(Appendable target)
+        {
+            this.builder = new StringBuilder(BUFFER_SIZE + 256);
+            this.target = target;
+        }
+
+        private void print(Tag<?> tag) throws IOException
+        {
+            switch (tag.getType())
+            {
+                case TAG_BYTE:
+                    builder.append(((TagByte) tag).getByte()).append('b');
+                    break;
+                case TAG_SHORT:
+                    builder.append(((TagShort) tag).getShort()).append('s');
+                    break;
+                case TAG_INT:
+                    builder.append(((TagInt) tag).getInt());
+                    break;
+                case TAG_LONG:
+                    builder.append(((TagLong) tag).getLong()).append('L');
+                    break;
+                case TAG_FLOAT:
+                    builder.append(((TagFloat) tag).getFloat()).append('f');
+                    break;
+                case TAG_DOUBLE:
+                    builder.append(((TagDouble) tag).getDouble()).append('d');
+                    break;
+                case TAG_STRING:
+                    printString(((TagString) tag).getValue());
+                    break;
+                case TAG_BYTE_ARRAY:
+                    builder.append("[B;");
+                    byte[] bytes = ((TagByteArray) tag).getValue();
+                    for (int i = 0; i < bytes.length; i++)
+                    {
+                        separate(i);
+                        builder.append(bytes[i]).append('b');
+                        checkFlush();
+                    }
+                    builder.append(']');
+                    break;
+                case TAG_INT_ARRAY:
+                    builder.append("[I;");
+                    int[] ints = ((TagIntArray) tag).getValue();
+                    for (int i = 0; i < ints.length; i++)
+                    {
+                        separate(i);
+                        builder.append(ints[i]);
+                        checkFlush();
+                    }
+                    builder.append(']');
+                    break;
+                case TAG_LONG_ARRAY:
+                    builder.append("[L;");
+                    long[] longs = ((TagLongArray) tag).getValue();
+                    for (int i = 0; i < longs.length; i++)
+                    {
+                        separate(i);
+                        builder.append(longs[i]).append('L');
+                        checkFlush();
+                    }
+                    builder.append(']');
+                    break;
+                case TAG_LIST:
+                    printList((TagList) tag);
+                    break;
+                case TAG_COMPOUND:
+                    builder.append('{');
+                    CompoundContent content = ((TagCompound) tag).getValue();
+                    int index = 0;
+                    for (Tag<?> child : content.getTagsList())
+                    {
+                        separate(index++);
+                        String key = child.getName();
+                        if (isUnquoted(key))
+                        {
+                            builder.append(key);
+                        }
+                        else
+                        {
+                            printString(key);
+                        }
+                        builder.append(':');
+                        print(child);
+                    }
+                    builder.append('}');
+                    break;
+                default:
+                    throw new IllegalStateException("Unsupported tag type " + tag.getType() + "!");
+            }
+            checkFlush();
+        }
+
+        private void printList(TagList list) throws IOException
+        {
+            builder.append('[');
+            int size = list.getSize();
+            if (list.isPacked())
+            {
+                for (int i = 0; i < size; i++)
+                {
+                    separate(i);
+                    switch (list.getListType())
+                    {
+                        case TAG_BYTE:
+                            builder.append(list.getByte(i)).append('b');
+                            break;
+                        case TAG_SHORT:
+                            builder.append(list.getShort(i)).append('s');
+                            break;
+                        case TAG_INT:
+                            builder.append(list.getInt(i));
+                            break;
+                        case TAG_LONG:
+                            builder.append(list.getLong(i)).append('L');
+                            break;
+                        case TAG_FLOAT:
+                            builder.append(list.getFloat(i)).append('f');
+                            break;
+                        default:
+                            builder.append(list.getDouble(i)).append('d');
+                            break;
+                    }
+                    checkFlush();
+                }
+            }
+            else
+            {
+                int index = 0;
+                for (Tag<?> element : list.getValue())
+                {
+                    separate(index++);
+                    print(element);
+                }
+            }
+            builder.append(']');
+        }
+
+        private void printString(String string) throws IOException
+        {
+            char quote = string.indexOf('"') >= 0 && string.indexOf('\'') < 0 ? '\'' : '"';
+            builder.append(quote);
+            int start = 0;
+            for (int i = 0; i < string.length(); i++)
+            {
+                char c = string.charAt(i);
+                String escape;
+                if (c == quote || c == '\\')
+                {
+                    escape = null;
+                }
+                else if (c == '\n')
+                {
+                    escape = "\\n";
+                }
+                else if (c == '\r')
+                {
+                    escape = "\\r";
+                }
+                else if (c == '\t')
+                {
+                    escape = "\\t";
+                }
+                else if (c < 0x20)
+                {
+                    escape = "";
+                }
+                else
+                {
+                    continue;
+                }
+                builder.append(string, start, i);
+                if (escape == null)
+                {
+                    builder.append('\\').append(c);
+                }
+                else if (escape.isEmpty())
+                {
+                    builder.append("\\u00").append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 15, 16));
+                }
+                else
+                {
+                    builder.append(escape);
+                }
+                start = i + 1;
+            }
+            builder.append(string, start, string.length()).append(quote);
+            checkFlush();
+        }
+
+        private void separate(int index)
+        {
+            if (index > 0)
+            {
+                builder.append(',');
+            }
+        }
+
+        private void checkFlush() throws IOException
+        {
+            if (target != null && builder.length() >= BUFFER_SIZE)
+            {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException
+        {
+            if (target instanceof Writer)
+            {
+                if (chars == null || chars.length < builder.length())
+                {
+                    chars = new char[builder.capacity()];
+                }
+                builder.getChars(0, builder.length(), chars, 0);
+                ((Writer) target).write(chars, 0, builder.length());
+            }
+            else
+            {
+                target.append(builder);
+            }
+            builder.setLength(0);
+        }
+    }
+}
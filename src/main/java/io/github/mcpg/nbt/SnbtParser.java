@@ -0,0 +1,674 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mcpg.nbt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import io.github.mcpg.nbt.TagCompound.CompoundContent;
+
+/**
+ * Single-pass parser of SNBT, used by {@link Snbt} and by filters of {@link NbtPath}.
+ * Scalars are parsed into fields of the parser instead of tags, so numeric lists and arrays
+ * are collected straight into primitive arrays.
+ */
+final class SnbtParser
+{
+    private final CharSequence input;
+    private final int length;
+    private int index;
+
+    private long longValue;
+    private double doubleValue;
+    private String stringValue;
+
+    SnbtParser(CharSequence input, int index)
+    {
+        this.input = input;
+        this.length = input.length();
+        this.index = index;
+    }
+
+    /**
+     * Returns index of the next character to parse.
+     */
+    int getIndex()
+    {
+        return index;
+    }
+
+    /**
+     * Parses a value which must be followed only by whitespace.
+     */
+    Tag<?> parseDocument()
+    {
+        Tag<?> tag = parseValue("");
+        skipWhitespace();
+        if (index < length)
+        {
+            throw error("Unexpected trailing data");
+        }
+        return tag;
+    }
+
+    /**
+     * Parses any value, giving it the name.
+     */
+    Tag<?> parseValue(String name)
+    {
+        skipWhitespace();
+        char c = peek();
+        if (c == '{')
+        {
+            return new TagCompound(name, parseCompoundContent());
+        }
+        if (c == '[')
+        {
+            if (index + 2 < length && input.charAt(index + 2) == ';')
+            {
+                return parseArray(name);
+            }
+            return parseList(name);
+        }
+        TagType type = parseScalar();
+        return createScalar(name, type);
+    }
+
+    /**
+     * Parses a compound, starting at its opening brace.
+     */
+    CompoundContent parseCompoundContent()
+    {
+        expect('{');
+        CompoundContent content = new CompoundContent();
+        skipWhitespace();
+        if (peek() == '}')
+        {
+            index++;
+            return content;
+        }
+        while (true)
+        {
+            skipWhitespace();
+            String key = parseKey();
+            skipWhitespace();
+            expect(':');
+            content.addTag(parseValue(key));
+            skipWhitespace();
+            char c = peek();
+            index++;
+            if (c == '}')
+            {
+                return content;
+            }
+            if (c != ',')
+            {
+                index--;
+                throw error("Expected ',' or '}'");
+            }
+        }
+    }
+
+    private TagList parseList(String name)
+    {
+        expect('[');
+        skipWhitespace();
+        if (peek() == ']')
+        {
+            index++;
+            return new TagList(name, new ArrayList<>(), TagType.TAG_END);
+        }
+        char first = peek();
+        if (first == '{' || first == '[')
+        {
+            List<Tag<?>> elements = new ArrayList<>();
+            TagType listType = null;
+            do
+            {
+                int start = index;
+                Tag<?> element = parseValue("");
+                if (listType == null)
+                {
+                    listType = element.getType();
+                }
+                else if (element.getType() != listType)
+                {
+                    index = start;
+                    throw error("Can't insert " + element.getType() + " into a list of " + listType);
+                }
+                elements.add(element);
+            } while (nextElement());
+            return new TagList(name, elements, listType);
+        }
+
+        TagType listType = parseScalar();
+        if (listType == TagType.TAG_STRING)
+        {
+            List<Tag<?>> elements = new ArrayList<>();
+            elements.add(new TagString("", stringValue));
+            while (nextElement())
+            {
+                checkElement(listType);
+                elements.add(new TagString("", stringValue));
+            }
+            return new TagList(name, elements, listType);
+        }
+        boolean floating = listType == TagType.TAG_FLOAT || listType == TagType.TAG_DOUBLE;
+        long[] longs = floating ? null : new long[8];
+        double[] doubles = floating ? new double[8] : null;
+        int size = 0;
+        while (true)
+        {
+            if (floating)
+            {
+                if (size == doubles.length)
+                {
+                    doubles = Arrays.copyOf(doubles, size * 2);
+                }
+                doubles[size++] = doubleValue;
+            }
+            else
+            {
+                if (size == longs.length)
+                {
+                    longs = Arrays.copyOf(longs, size * 2);
+                }
+                longs[size++] = longValue;
+            }
+            if (!nextElement())
+            {
+                break;
+            }
+            checkElement(listType);
+        }
+        switch (listType)
+        {
+            case TAG_BYTE:
+                byte[] bytes = new byte[size];
+                for (int i = 0; i < size; i++)
+                {
+                    bytes[i] = (byte) longs[i];
+                }
+                return new TagList(name, bytes);
+            case TAG_SHORT:
+                short[] shorts = new short[size];
+                for (int i = 0; i < size; i++)
+                {
+                    shorts[i] = (short) longs[i];
+                }
+                return new TagList(name, shorts);
+            case TAG_INT:
+                int[] ints = new int[size];
+                for (int i = 0; i < size; i++)
+                {
+                    ints[i] = (int) longs[i];
+                }
+                return new TagList(name, ints);
+            case TAG_LONG:
+                return new TagList(name, Arrays.copyOf(longs, size));
+            case TAG_FLOAT:
+                float[] floats = new float[size];
+                for (int i = 0; i < size; i++)
+                {
+                    floats[i] = (float) doubles[i];
+                }
+                return new TagList(name, floats);
+            default:
+                return new TagList(name, Arrays.copyOf(doubles, size));
+        }
+    }
+
+    private Tag<?> parseArray(String name)
+    {
+        expect('[');
+        char kind = input.charAt(index);
+        TagType elementType;
+        switch (kind)
+        {
+            case 'B':
+                elementType = TagType.TAG_BYTE;
+                break;
+            case 'I':
+                elementType = TagType.TAG_INT;
+                break;
+            case 'L':
+                elementType = TagType.TAG_LONG;
+                break;
+            default:
+                throw error("Invalid array type '" + kind + "'");
+        }
+        index += 2;
+        long[] longs = new long[16];
+        int size = 0;
+        skipWhitespace();
+        if (peek() == ']')
+        {
+            index++;
+        }
+        else
+        {
+            do
+            {
+                checkElement(elementType);
+                if (size == longs.length)
+                {
+                    longs = Arrays.copyOf(longs, size * 2);
+                }
+                longs[size++] = longValue;
+            } while (nextElement());
+        }
+        switch (elementType)
+        {
+            case TAG_BYTE:
+                byte[] bytes = new byte[size];
+                for (int i = 0; i < size; i++)
+                {
+                    bytes[i] = (byte) longs[i];
+                }
+                return new TagByteArray(name, bytes);
+            case TAG_INT:
+                int[] ints = new int[size];
+                for (int i = 0; i < size; i++)
+                {
+                    ints[i] = (int) longs[i];
+                }
+                return new TagIntArray(name, ints);
+            default:
+                return new TagLongArray(name, Arrays.copyOf(longs, size));
+        }
+    }
+
+    /**
+     * Moves past the separator after an element. Returns false if the list has ended.
+     */
+    private boolean nextElement()
+    {
+        skipWhitespace();
+        char c = peek();
+        index++;
+        if (c == ']')
+        {
+            return false;
+        }
+        if (c != ',')
+        {
+            index--;
+            throw error("Expected ',' or ']'");
+        }
+        skipWhitespace();
+        return true;
+    }
+
+    /**
+     * Parses a scalar element of a list or an array, checking its type.
+     */
+    private void checkElement(TagType type)
+    {
+        skipWhitespace();
+        int start = index;
+        TagType elementType = peek() == '{' || peek() == '[' ? null : parseScalar();
+        if (elementType != type)
+        {
+            index = start;
+            throw error("Can't insert " + (elementType == null ? "a container" : elementType.toString())
+                    + " into " + type + " elements");
+        }
+    }
+
+    private Tag<?> createScalar(String name, TagType type)
+    {
+        switch (type)
+        {
+            case TAG_BYTE:
+                return new TagByte(name, (byte) longValue);
+            case TAG_SHORT:
+                return new TagShort(name, (short) longValue);
+            case TAG_INT:
+                return new TagInt(name, (int) longValue);
+            case TAG_LONG:
+                return new TagLong(name, longValue);
+            case TAG_FLOAT:
+                return new TagFloat(name, (float) doubleValue);
+            case TAG_DOUBLE:
+                return new TagDouble(name, doubleValue);
+            default:
+                return new TagString(name, stringValue);
+        }
+    }
+
+    /**
+     * Parses a number or a string into value fields, returning its type.
+     */
+    private TagType parseScalar()
+    {
+        char c = peek();
+        if (c == '"' || c == '\'')
+        {
+            stringValue = parseQuoted();
+            return TagType.TAG_STRING;
+        }
+        int start = index;
+        while (index < length && isUnquotedChar(input.charAt(index)))
+        {
+            index++;
+        }
+        if (start == index)
+        {
+            throw error("Expected a value");
+        }
+        TagType type = parseNumber(start, index);
+        if (type != null)
+        {
+            return type;
+        }
+        if (matches(start, "true"))
+        {
+            longValue = 1;
+            return TagType.TAG_BYTE;
+        }
+        if (matches(start, "false"))
+        {
+            longValue = 0;
+            return TagType.TAG_BYTE;
+        }
+        stringValue = input.subSequence(start, index).toString();
+        return TagType.TAG_STRING;
+    }
+
+    /**
+     * Parses a number between given indexes, returning null if it isn't a valid number.
+     */
+    private TagType parseNumber(int start, int end)
+    {
+        char suffix = Character.toLowerCase(input.charAt(end - 1));
+        int digitsEnd = suffix >= 'a' && suffix <= 'z' ? end - 1 : end;
+        int i = start;
+        boolean negative = false;
+        if (i < digitsEnd && (input.charAt(i) == '-' || input.charAt(i) == '+'))
+        {
+            negative = input.charAt(i) == '-';
+            i++;
+        }
+        int digitsStart = i;
+        // accumulated negatively, so Long.MIN_VALUE can be parsed as well
+        long value = 0;
+        boolean overflow = false;
+        while (i < digitsEnd && input.charAt(i) >= '0' && input.charAt(i) <= '9')
+        {
+            int digit = input.charAt(i) - '0';
+            overflow |= value < (Long.MIN_VALUE + digit) / 10;
+            value = value * 10 - digit;
+            i++;
+        }
+        if (i == digitsEnd && i > digitsStart)
+        {
+            if (overflow || !negative && value == Long.MIN_VALUE)
+            {
+                return null;
+            }
+            value = negative ? value : -value;
+            switch (suffix)
+            {
+                case 'b':
+                    return checkRange(value, Byte.MIN_VALUE, Byte.MAX_VALUE, TagType.TAG_BYTE);
+                case 's':
+                    return checkRange(value, Short.MIN_VALUE, Short.MAX_VALUE, TagType.TAG_SHORT);
+                case 'l':
+                    longValue = value;
+                    return TagType.TAG_LONG;
+                case 'f':
+                    doubleValue = (float) value;
+                    return TagType.TAG_FLOAT;
+                case 'd':
+                    doubleValue = value;
+                    return TagType.TAG_DOUBLE;
+                default:
+                    if (digitsEnd != end)
+                    {
+                        return null;
+                    }
+                    return checkRange(value, Integer.MIN_VALUE, Integer.MAX_VALUE, TagType.TAG_INT);
+            }
+        }
+        if (suffix != 'f' && suffix != 'd' && digitsEnd != end || !isFloating(digitsStart, digitsEnd, digitsEnd == end))
+        {
+            return null;
+        }
+        double parsed = Double.parseDouble(input.subSequence(start, digitsEnd).toString());
+        if (suffix == 'f')
+        {
+            doubleValue = (float) parsed;
+            return TagType.TAG_FLOAT;
+        }
+        doubleValue = parsed;
+        return TagType.TAG_DOUBLE;
+    }
+
+    private TagType checkRange(long value, long min, long max, TagType type)
+    {
+        if (value < min || value > max)
+        {
+            return null;
+        }
+        longValue = value;
+        return type;
+    }
+
+    /**
+     * Checks if characters between given indexes form a decimal number with a fraction or
+     * an exponent (or just digits, if a suffix was given).
+     */
+    private boolean isFloating(int start, int end, boolean pointRequired)
+    {
+        int i = start;
+        int digits = 0;
+        while (i < end && Character.isDigit(input.charAt(i)))
+        {
+            i++;
+            digits++;
+        }
+        boolean point = i < end && input.charAt(i) == '.';
+        if (point)
+        {
+            i++;
+            while (i < end && Character.isDigit(input.charAt(i)))
+            {
+                i++;
+                digits++;
+            }
+        }
+        if (digits == 0)
+        {
+            return false;
+        }
+        boolean exponent = i < end && (input.charAt(i) == 'e' || input.charAt(i) == 'E');
+        if (exponent)
+        {
+            i++;
+            if (i < end && (input.charAt(i) == '-' || input.charAt(i) == '+'))
+            {
+                i++;
+            }
+            int exponentStart = i;
+            while (i < end && Character.isDigit(input.charAt(i)))
+            {
+                i++;
+            }
+            if (i == exponentStart)
+            {
+                return false;
+            }
+        }
+        return i == end && (point || exponent || !pointRequired);
+    }
+
+    private boolean matches(int start, String word)
+    {
+        if (index - start != word.length())
+        {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++)
+        {
+            if (input.charAt(start + i) != word.charAt(i))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String parseKey()
+    {
+        char c = peek();
+        if (c == '"' || c == '\'')
+        {
+            return parseQuoted();
+        }
+        int start = index;
+        while (index < length && isUnquotedChar(input.charAt(index)))
+        {
+            index++;
+        }
+        if (start == index)
+        {
+            throw error("Expected a key");
+        }
+        return input.subSequence(start, index).toString();
+    }
+
+    private String parseQuoted()
+    {
+        char quote = input.charAt(index++);
+        int start = index;
+        StringBuilder builder = null;
+        while (index < length)
+        {
+            char c = input.charAt(index);
+            if (c == quote)
+            {
+                String string;
+                if (builder == null)
+                {
+                    string = input.subSequence(start, index).toString();
+                }
+                else
+                {
+                    string = builder.append(input, start, index).toString();
+                }
+                index++;
+                return string;
+            }
+            if (c != '\\')
+            {
+                index++;
+                continue;
+            }
+            if (builder == null)
+            {
+                builder = new StringBuilder();
+            }
+            builder.append(input, start, index);
+            if (++index == length)
+            {
+                break;
+            }
+            c = input.charAt(index++);
+            switch (c)
+            {
+                case 'n':
+                    builder.append('\n');
+                    break;
+                case 'r':
+                    builder.append('\r');
+                    break;
+                case 't':
+                    builder.append('\t');
+                    break;
+                case 'b':
+                    builder.append('\b');
+                    break;
+                case 'f':
+                    builder.append('\f');
+                    break;
+                case 'u':
+                    if (index + 4 > length)
+                    {
+                        throw error("Invalid escape sequence");
+                    }
+                    try
+                    {
+                        builder.append((char) Integer.parseInt(input.subSequence(index, index + 4).toString(), 16));
+                    } catch (NumberFormatException e)
+                    {
+                        throw error("Invalid escape sequence");
+                    }
+                    index += 4;
+                    break;
+                case '\\':
+                case '"':
+                case '\'':
+                    builder.append(c);
+                    break;
+                default:
+                    index--;
+                    throw error("Invalid escape sequence");
+            }
+            start = index;
+        }
+        throw error("Unterminated string");
+    }
+
+    /**
+     * Checks whether given character can be a part of unquoted strings and keys.
+     */
+    static boolean isUnquotedChar(char c)
+    {
+        return c >= '0' && c <= '9' || c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z'
+                || c == '_' || c == '-' || c == '+' || c == '.';
+    }
+
+    void skipWhitespace()
+    {
+        while (index < length && Character.isWhitespace(input.charAt(index)))
+        {
+            index++;
+        }
+    }
+
+    private char peek()
+    {
+        return index < length ? input.charAt(index) : '\0';
+    }
+
+    private void expect(char c)
+    {
+        if (peek() != c)
+        {
+            throw error("Expected '" + c + "'");
+        }
+        index++;
+    }
+
+    private IllegalArgumentException error(String message)
+    {
+        return new IllegalArgumentException(message + " at index " + index + " of SNBT!");
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mcpg.nbt;
+
+import java.io.UTFDataFormatException;
+
+import io.github.mcpg.nbt.Tag.EncodedString;
+
+/**
+ * Bounded cache of decoded strings, used to share instances of tag names (and optionally
+ * values, like item or block ids) between read tags, instead of creating a new string for
+ * every occurrence. Lookups are keyed on the encoded bytes, so a cached string is found
+ * without decoding it.
+ * <p>
+ * The cache is a direct-mapped table: every string has a single slot chosen by the hash of
+ * its bytes, and a string decoded into an occupied slot replaces the previous one. Memory
+ * use is therefore bounded by the capacity and the maximal length of cached strings, and
+ * lookups never lock. Instances are thread safe and can be shared by readers of many
+ * threads.
+ */
+public final class StringCache
+{
+    private static final StringCache DEFAULT_NAME_CACHE = new StringCache(4096, 64);
+
+    private final Entry[] table;
+    private final int mask;
+    private final int maxLength;
+
+    /**
+     * Creates new cache.
+     *
+     * @param capacity  amount of slots, rounded up to a power of two
+     * @param maxLength maximal length (in bytes) of cached strings, longer strings are always
+     *                  decoded
+     *
+     * @throws IllegalArgumentException if capacity isn't positive or is larger than 2^30, or
+     *                                  maxLength is negative
+     */
+    public StringCache(int capacity, int maxLength)
+    {
+        if (capacity < 1 || capacity > 1 << 30)
+        {
+            throw new IllegalArgumentException("Invalid capacity " + capacity + "!");
+        }
+        if (maxLength < 0)
+        {
+            throw new IllegalArgumentException("Invalid maximal length " + maxLength + "!");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity)
+        {
+            size <<= 1;
+        }
+        this.table = new Entry[size];
+        this.mask = size - 1;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * Returns cache shared by all readers for tag names, unless they're given another one.
+     * It has 4096 slots and caches names up to 64 bytes long.
+     *
+     * @return default cache of tag names
+     */
+    public static StringCache getDefaultNameCache()
+    {
+        return DEFAULT_NAME_CACHE;
+    }
+
+    /**
+     * Returns the string encoded in given bytes, taking it from the cache if it's there.
+     *
+     * @param data   array with encoded string
+     * @param offset index of the first byte of the string
+     * @param length length of the encoded string in bytes
+     *
+     * @return decoded string
+     *
+     * @throws UTFDataFormatException if data isn't valid Modified UTF-8
+     */
+    public String get(byte[] data, int offset, int length) throws UTFDataFormatException
+    {
+        EncodedString encoded = getEncoded(data, offset, length);
+        return encoded != null ? encoded.source : ModifiedUtf8.decode(data, offset, length);
+    }
+
+    /**
+     * Returns the string encoded in given bytes together with a copy of the bytes, or null
+     * if the string is too long to be cached. Returned instance is shared, so tags read from
+     * the same bytes don't have to encode their strings again when they're written.
+     */
+    EncodedString getEncoded(byte[] data, int offset, int length) throws UTFDataFormatException
+    {
+        if (length > maxLength)
+        {
+            return null;
+        }
+        int hash = hash(data, offset, length);
+        int slot = hash & mask;
+        Entry entry = table[slot];
+        if (entry != null && entry.hash == hash && entry.matches(data, offset, length))
+        {
+            return entry.encoded;
+        }
+        byte[] bytes = new byte[length];
+        System.arraycopy(data, offset, bytes, 0, length);
+        EncodedString encoded = new EncodedString(ModifiedUtf8.decode(data, offset, length), bytes);
+        table[slot] = new Entry(hash, encoded);
+        return encoded;
+    }
+
+    /**
+     * Removes all strings from the cache.
+     */
+    public void clear()
+    {
+        for (int i = 0; i < table.length; i++)
+        {
+            table[i] = null;
+        }
+    }
+
+    private static int hash(byte[] data, int offset, int length)
+    {
+        int hash = length;
+        for (int i = offset, end = offset + length; i < end; i++)
+        {
+            hash = 31 * hash + data[i];
+        }
+        // spread higher bits, as only the lower ones select the slot
+        return hash ^ hash >>> 16;
+    }
+
+    private static final class Entry
+    {
+        private final int hash;
+        private final EncodedString encoded;
+
+        private Entry(int hash, EncodedString encoded)
+        {
+            this.hash = hash;
+            this.encoded = encoded;
+        }
+
+        private boolean matches(byte[] data, int offset, int length)
+        {
+            byte[] bytes = encoded.bytes;
+            if (bytes.length != length)
+            {
+                return false;
+            }
+            for (int i = 0; i < length; i++)
+            {
+                if (bytes[i] != data[offset + i])
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
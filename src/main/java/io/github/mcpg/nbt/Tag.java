@@ -18,15 +18,19 @@
 
 package io.github.mcpg.nbt;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.io.UTFDataFormatException;
+import java.util.Objects;
 
 /**
  * Tag class represents an NBT tag. Each tag has got a name, a value and type. Note: if
  * you're extending this class <b>you need</b> to have a constructor for String (name) and
- * and Object (probably T - it's value), because reading tags is based on this constructor.
+ * and Object (probably T - it's value), because reading tags is based on this constructor
+ * (see {@link TagType#createTag(String)}).
  *
  * @param <T> what this tag does contain
  */
@@ -47,6 +51,28 @@ public abstract class Tag<T>
      */
     protected T value;
 
+    /**
+     * Compound content this tag was last added to, kept so it can be notified when the
+     * tag is renamed or changed.
+     */
+    TagCompound.CompoundContent owner;
+
+    /**
+     * List this tag has been put into as an element, kept so it can be notified when the
+     * tag is changed.
+     */
+    TagList parentList;
+
+    /**
+     * Cell through which copy-on-write copies see this tag, or null if no copy holds it.
+     */
+    private Shared shared;
+
+    /**
+     * Name encoded by the last write, reused as long as the name doesn't change.
+     */
+    private EncodedString encodedName;
+
     /**
      * Constructor, that created new Tag object, it's also
      * base for dedicated tag classes.
@@ -64,7 +90,7 @@ public abstract class Tag<T>
 
     /**
      * Constructor, that should be overridden by all of the Tag-based classes. It's used
-     * by {@link TagReadingUtils} to construct a tag with reflection and only name. This
+     * by {@link TagType#createTag(String)} to construct a tag with only name. This
      * constructor should set {@link #value} field to null and {@link #type} to tag's type.
      *
      * @param name name of the tag
@@ -87,13 +113,21 @@ public abstract class Tag<T>
     }
 
     /**
-     * Renames the tag. TAG_Compound in this library is based on list, not {@link java.util.Map},
-     * so everything should work correctly.
+     * Renames the tag. If the tag is in a TAG_Compound, the compound's name index is
+     * updated as well. A tag can be in only one compound at a time (see
+     * {@link TagCompound.CompoundContent}), so no other index can be left out of date.
      *
      * @param name new name of the tag
+     *
+     * @throws IllegalArgumentException if the compound holding this tag already has a tag with this name
      */
     public void setName(String name)
     {
+        changing();
+        if (owner != null)
+        {
+            owner.renameTag(this, this.name, name);
+        }
         this.name = name;
     }
 
@@ -114,6 +148,7 @@ public abstract class Tag<T>
      */
     public void setValue(T value)
     {
+        changing();
         this.value = value;
     }
 
@@ -138,9 +173,21 @@ public abstract class Tag<T>
     public void writeTag(DataOutputStream outputStream) throws IOException
     {
         outputStream.writeByte(getType().getId());
-        byte[] rawName = name.getBytes(StandardCharsets.UTF_8);
-        outputStream.writeShort(rawName.length);
-        outputStream.write(rawName);
+        writeEncoded(outputStream, getEncodedName());
+        writeTagPayload(outputStream);
+    }
+
+    /**
+     * Writes the tag without its name, only its type id and payload. This is how network
+     * packets of Java Edition since 1.20.2 write their root tags.
+     *
+     * @param outputStream output stream to use
+     *
+     * @throws IOException if any I/O exception occurs
+     */
+    public void writeNamelessTag(DataOutputStream outputStream) throws IOException
+    {
+        outputStream.writeByte(getType().getId());
         writeTagPayload(outputStream);
     }
 
@@ -164,9 +211,255 @@ public abstract class Tag<T>
      */
     public abstract void readTagPayload(DataInputStream inputStream) throws IOException;
 
+    /**
+     * Creates a deep copy of this tag, with the same name and an independent value. Tags of
+     * this library override this method with a direct copy, the default implementation
+     * (for tag classes defined elsewhere) writes the payload and reads it back.
+     *
+     * @return copy of this tag
+     */
+    public Tag<T> copy()
+    {
+        try
+        {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            writeTagPayload(new DataOutputStream(output));
+            @SuppressWarnings("unchecked")
+            Tag<T> copy = (Tag<T>) getType().createTag(name);
+            copy.readTagPayload(new DataInputStream(new ByteArrayInputStream(output.toByteArray())));
+            return copied(copy);
+        } catch (IOException e)
+        {
+            // In-memory streams don't fail
+            throw new IllegalStateException("Couldn't copy tag " + name + "!", e);
+        }
+    }
+
+    /**
+     * Creates a copy of this tag for copy-on-write copies (see {@link #changing()}). Such a
+     * copy is only copied again before it's used, so compounds override this method to copy
+     * only one level of tags, sharing the rest through cells of their own.
+     */
+    Tag<?> snapshot()
+    {
+        return copy();
+    }
+
+    /**
+     * Lets a copy of this tag reuse the encoding of its name, and returns it.
+     */
+    <C extends Tag<?>> C copied(C copy)
+    {
+        ((Tag<?>) copy).encodedName = encodedName;
+        return copy;
+    }
+
+    /**
+     * Sets cached encoding of the name, if it's the encoding of the very same string
+     * instance the tag is named with.
+     */
+    void setEncodedName(EncodedString encoded)
+    {
+        if (encoded != null && encoded.source == name)
+        {
+            encodedName = encoded;
+        }
+    }
+
+    /**
+     * Writes an encoded name or string value, preceded by its length.
+     *
+     * @throws UTFDataFormatException if the string is longer than 65535 bytes
+     */
+    static void writeEncoded(DataOutputStream outputStream, byte[] encoded) throws IOException
+    {
+        if (encoded.length > 0xffff)
+        {
+            throw new UTFDataFormatException("String of " + encoded.length + " bytes is too long!");
+        }
+        outputStream.writeShort(encoded.length);
+        outputStream.write(encoded);
+    }
+
+    /**
+     * Returns name of this tag encoded as it's written. The encoding is cached until the
+     * name is changed.
+     */
+    byte[] getEncodedName()
+    {
+        EncodedString encoded = encodedName;
+        if (encoded == null || encoded.source != name)
+        {
+            encoded = new EncodedString(name);
+            encodedName = encoded;
+        }
+        return encoded.bytes;
+    }
+
+    /**
+     * Notifies the compound or list holding this tag that the tag is about to be changed,
+     * so hash codes cached on the way up to the root are recomputed. Tags on the way that
+     * are held by copy-on-write copies are copied first, so the copies keep seeing them as
+     * they were (see {@link TagCompound.CompoundContent#copyOnWrite()}). They're copied from
+     * the root down, as copying a compound shares its tags, including the next one on the
+     * way, with the copy.
+     */
+    void changing()
+    {
+        if (owner != null)
+        {
+            owner.changing();
+        }
+        else if (parentList != null)
+        {
+            parentList.changing();
+        }
+        Shared cell = shared;
+        if (cell != null)
+        {
+            shared = null;
+            cell.tag = snapshot();
+        }
+    }
+
+    /**
+     * Checks that this tag isn't held by a compound or a list, so it can be put into one. A
+     * tag can be held by only one of them at a time, as only that one is notified when the
+     * tag is changed or renamed.
+     *
+     * @throws IllegalArgumentException if the tag is already held
+     */
+    void checkNotHeld()
+    {
+        if (owner != null || parentList != null)
+        {
+            throw new IllegalArgumentException("Tag " + name + " is already in a compound or a list!");
+        }
+    }
+
+    /**
+     * Returns cell through which a copy-on-write copy can see this tag.
+     */
+    Shared share()
+    {
+        Shared cell = shared;
+        if (cell == null)
+        {
+            cell = new Shared(this);
+            shared = cell;
+        }
+        return cell;
+    }
+
+    /**
+     * Compares this tag with given object. Tags are equal if they have the same type, the
+     * same name and equal values: arrays are compared by content, compounds regardless of
+     * order of their tags, and lists element by element (a packed list is equal to the same
+     * list of tags).
+     *
+     * @param obj object to compare with
+     *
+     * @return <code>true</code> if the object is an equal tag
+     */
     @Override
     public boolean equals(Object obj)
     {
-        return obj instanceof Tag<?> && ((Tag<?>) obj).getValue().equals(value);
+        if (obj == this)
+        {
+            return true;
+        }
+        if (!(obj instanceof Tag<?>))
+        {
+            return false;
+        }
+        Tag<?> tag = (Tag<?>) obj;
+        return getType() == tag.getType() && Objects.equals(name, tag.name) && valueEquals(tag);
+    }
+
+    /**
+     * Returns hash code of this tag, consistent with {@link #equals(Object)}. Hash codes of
+     * compounds and arrays are cached. The cache is dropped when the tag, or any tag inside
+     * it, is changed through its methods or through the list returned by
+     * {@link TagList#getValue()}; changes made directly to an array aren't seen, so such a
+     * tag has to be given its value again with {@link #setValue(Object)} before it's hashed.
+     *
+     * @return hash code of this tag
+     */
+    @Override
+    public int hashCode()
+    {
+        return 31 * (31 * getType().getId() + Objects.hashCode(name)) + valueHashCode();
+    }
+
+    /**
+     * Compares value of this tag with value of given tag of the same type. Used by
+     * {@link #equals(Object)}, tags with primitive or array values override it.
+     *
+     * @param tag tag of the same type
+     *
+     * @return <code>true</code> if the values are equal
+     */
+    protected boolean valueEquals(Tag<?> tag)
+    {
+        return Objects.equals(getValue(), tag.getValue());
+    }
+
+    /**
+     * Returns hash code of value of this tag. Used by {@link #hashCode()}, tags overriding
+     * {@link #valueEquals(Tag)} override it as well.
+     *
+     * @return hash code of the value
+     */
+    protected int valueHashCode()
+    {
+        return Objects.hashCode(getValue());
+    }
+
+    /**
+     * Returns value of this tag in SNBT, without its name.
+     *
+     * @return SNBT of the value
+     *
+     * @see Snbt
+     */
+    @Override
+    public String toString()
+    {
+        return Snbt.toString(this);
+    }
+
+    /**
+     * A string together with its encoded form. The cache is valid only for the very same
+     * string instance it was created from, so changing the string (in any way) replaces it.
+     */
+    static final class EncodedString
+    {
+        final String source;
+        final byte[] bytes;
+
+        EncodedString(String source)
+        {
+            this(source, ModifiedUtf8.encode(source));
+        }
+
+        EncodedString(String source, byte[] bytes)
+        {
+            this.source = source;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Cell holding a tag shared by copy-on-write copies. It holds the tag itself until the
+     * tag is changed, and a copy of the tag as it was before the change after that.
+     */
+    static final class Shared
+    {
+        Tag<?> tag;
+
+        private Shared(Tag<?> tag)
+        {
+            this.tag = tag;
+        }
     }
 }
@@ -24,6 +24,8 @@ import java.io.IOException;
 
 public class TagByte extends Tag<Byte>
 {
+    private byte byteValue;
+
     /**
      * Creates new instance of TagByte class.
      * @param name tag's name
@@ -31,7 +33,8 @@ public class TagByte extends Tag<Byte>
      */
     public TagByte(String name, byte value)
     {
-        super(name, value, TagType.TAG_BYTE);
+        super(name, null, TagType.TAG_BYTE);
+        this.byteValue = value;
     }
 
     /**
@@ -44,24 +47,88 @@ public class TagByte extends Tag<Byte>
         this.type = TagType.TAG_BYTE;
     }
 
+    /**
+     * Returns value of the tag, without boxing it.
+     * @return value of the tag
+     */
+    public byte getByte()
+    {
+        return byteValue;
+    }
+
+    /**
+     * Sets value of the tag, without boxing it.
+     * @param value new value of the tag
+     */
+    public void setByte(byte value)
+    {
+        changing();
+        this.byteValue = value;
+    }
+
+    /**
+     * Returns value of the tag. The value is stored unboxed, so it's boxed on every call,
+     * use {@link #getByte()} to avoid it.
+     * @return value of the tag
+     */
+    @Override
+    public Byte getValue()
+    {
+        return byteValue;
+    }
+
+    /**
+     * Sets value of the tag.
+     * @param value new value of the tag
+     * @throws NullPointerException if value is null
+     */
+    @Override
+    public void setValue(Byte value)
+    {
+        changing();
+        this.byteValue = value;
+    }
+
     /**
      * Returns boolean value of the payload
      * @return <code>true</code> if not 0, <code>false</code> otherwise
      */
     public boolean getBooleanValue()
     {
-        return value != 0;
+        return byteValue != 0;
+    }
+
+    /**
+     * Creates a copy of this tag.
+     * @return copy of this tag
+     */
+    @Override
+    public TagByte copy()
+    {
+        return copied(new TagByte(name, byteValue));
+    }
+
+    @Override
+    protected boolean valueEquals(Tag<?> tag)
+    {
+        return tag instanceof TagByte ? ((TagByte) tag).byteValue == byteValue : super.valueEquals(tag);
+    }
+
+    @Override
+    protected int valueHashCode()
+    {
+        return Byte.hashCode(byteValue);
     }
 
     @Override
     public void writeTagPayload(DataOutputStream outputStream) throws IOException
     {
-        outputStream.writeByte(value);
+        outputStream.writeByte(byteValue);
     }
 
     @Override
     public void readTagPayload(DataInputStream inputStream) throws IOException
     {
-        value = inputStream.readByte();
+        byteValue = inputStream.readByte();
     }
 }
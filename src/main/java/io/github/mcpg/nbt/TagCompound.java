@@ -21,11 +21,13 @@ package io.github.mcpg.nbt;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
-import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
+import java.util.AbstractSequentialList;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
 
 import io.github.mcpg.nbt.TagCompound.CompoundContent;
 
@@ -39,6 +41,10 @@ public class TagCompound extends Tag<CompoundContent>
     public TagCompound(String name, CompoundContent value)
     {
         super(name, value, TagType.TAG_COMPOUND);
+        if (value != null)
+        {
+            value.holder = this;
+        }
     }
 
     /**
@@ -52,13 +58,45 @@ public class TagCompound extends Tag<CompoundContent>
     }
 
     @Override
-    public void writeTagPayload(DataOutputStream outputStream) throws IOException
+    public void setValue(CompoundContent value)
     {
-        for (Tag<?> tag : value.getTagsList())
+        if (value != null)
         {
-            tag.writeTag(outputStream);
+            value.holder = this;
         }
-        new TagEnd().writeTag(outputStream);
+        super.setValue(value);
+    }
+
+    /**
+     * Creates a deep copy of this compound. See {@link CompoundContent#copy()}.
+     * @return copy of this compound
+     */
+    @Override
+    public TagCompound copy()
+    {
+        return copied(value == null ? new TagCompound(name) : new TagCompound(name, value.copy()));
+    }
+
+    /**
+     * Creates a copy-on-write copy of this compound. See {@link CompoundContent#copyOnWrite()}.
+     * @return copy of this compound
+     */
+    public TagCompound copyOnWrite()
+    {
+        return copied(value == null ? new TagCompound(name) : new TagCompound(name, value.copyOnWrite()));
+    }
+
+    @Override
+    Tag<?> snapshot()
+    {
+        return copyOnWrite();
+    }
+
+    @Override
+    public void writeTagPayload(DataOutputStream outputStream) throws IOException
+    {
+        value.writeTags(outputStream);
+        outputStream.writeByte(TagType.TAG_END.getId());
     }
 
     @Override
@@ -67,10 +105,11 @@ public class TagCompound extends Tag<CompoundContent>
         if (value == null)
         {
             value = new CompoundContent();
+            value.holder = this;
         }
         else
         {
-            value.getTagsList().clear();
+            value.clear();
         }
 
         TagType type;
@@ -88,49 +127,130 @@ public class TagCompound extends Tag<CompoundContent>
             }
             byte[] rawName = new byte[inputStream.readUnsignedShort()];
             inputStream.readFully(rawName);
-            if (type.getClazz() == null)
-            {
-                throw new IllegalStateException("Type " + type + " has got null clazz!");
-            }
-            Object obj;
-            try
-            {
-                Constructor<?> constructor = type.getClazz().getConstructor(String.class);
-                obj = constructor.newInstance(new String(rawName, StandardCharsets.UTF_8));
-            } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException | InstantiationException e)
-            {
-                throw new IllegalStateException("Couldn't create object from type " + type + "!", e);
-            }
-            if (!(obj instanceof Tag<?>))
-            {
-                throw new IllegalStateException("Created object isn't Tag<?>!");
-            }
-            Tag<?> tag = (Tag<?>) obj;
+            Tag<?> tag = type.createTag(StringCache.getDefaultNameCache().get(rawName, 0, rawName.length));
             tag.readTagPayload(inputStream);
             value.addTag(tag);
         }
     }
 
+    /**
+     * Content of TAG_Compound. Tags are kept in insertion order (so a compound is written
+     * back exactly as it was read), and are indexed by name, so looking up, adding and
+     * removing tags takes constant time. Renaming a tag with {@link Tag#setName(String)}
+     * keeps the index of its compound content up to date.
+     * <p>
+     * A tag can be in only one compound content or list at a time, as only that one is
+     * notified when the tag is changed. Adding a tag that's already in one throws
+     * {@link IllegalArgumentException}: remove it first, or add its {@link Tag#copy()}.
+     * <p>
+     * Compound contents read by {@link NbtReader} in lazy mode (see
+     * {@link NbtReader#setLazyCompounds(boolean)}) only know names and positions of their
+     * tags, and decode each tag when it's accessed for the first time. Tags that have never
+     * been accessed are written back by copying their original bytes.
+     */
     public static class CompoundContent
     {
-        private List<Tag<?>> tags;
+        private final Map<String, Entry> index;
+        private final TagsList tagsList;
+        private Entry head;
+        private Entry tail;
+        private int modCount;
+
+        /**
+         * Compound holding this content, notified when the content is changed.
+         */
+        TagCompound holder;
+
+        /**
+         * Cached hash code, or 0 if it hasn't been computed since the last change.
+         */
+        private int hash;
 
         /**
          * Creates new CompoundComponent instance.
          */
         public CompoundContent()
         {
-            this.tags = new ArrayList<>();
+            this.index = new HashMap<>();
+            this.tagsList = new TagsList();
+        }
+
+        /**
+         * Creates new CompoundComponent instance, which can hold given amount of tags
+         * without resizing its index.
+         * @param expectedSize expected amount of tags
+         * @throws IllegalArgumentException if expectedSize is negative
+         */
+        public CompoundContent(int expectedSize)
+        {
+            if (expectedSize < 0)
+            {
+                throw new IllegalArgumentException("Negative size " + expectedSize + "!");
+            }
+            this.index = new HashMap<>((int) (expectedSize / 0.75f) + 1);
+            this.tagsList = new TagsList();
+        }
+
+        /**
+         * Creates a deep copy of this compound content: every tag is copied with
+         * {@link Tag#copy()}, so the copy shares nothing that can be changed with this
+         * content. Tags that haven't been decoded yet (see
+         * {@link NbtReader#setLazyCompounds(boolean)}) stay undecoded in the copy as well.
+         * @return copy of this compound content
+         */
+        public CompoundContent copy()
+        {
+            CompoundContent copy = new CompoundContent(size());
+            for (Entry entry = head; entry != null; entry = entry.next)
+            {
+                copy.link(entry.copy(false), null);
+            }
+            return copy;
+        }
+
+        /**
+         * Creates a copy-on-write copy of this compound content. No tag is copied up front:
+         * a tag is copied when it's accessed through the copy for the first time (compounds,
+         * also ones in lists, are copied the same way, one level at a time), and tags that have never been
+         * accessed are written straight from this content. That makes copying a large
+         * compound only to change a few tags in it cheap.
+         * <p>
+         * The copy is a snapshot: a tag of this content that's still shared with a copy is
+         * copied for the copy right before it's changed, so later changes of this content
+         * aren't seen by the copy. Like cached hash codes, this doesn't cover arrays changed
+         * in place. Note, that since a returned tag may be changed by the caller, reading a
+         * tag through the copy copies it as well.
+         * @return copy of this compound content
+         */
+        public CompoundContent copyOnWrite()
+        {
+            CompoundContent copy = new CompoundContent(size());
+            for (Entry entry = head; entry != null; entry = entry.next)
+            {
+                copy.link(entry.copy(true), null);
+            }
+            return copy;
         }
 
         /**
          * Returns tags list for this compound. For getting values see {@link #getTag(String)},
-         * and other methods in this class
+         * and other methods in this class. The list is a live view of this compound content:
+         * changes made through it (adding, removing or setting tags) go through
+         * {@link #addTag(Tag)}, {@link #removeTag(String)} and {@link #replaceTag(Tag)} rules.
          * @return tags list
          */
         public List<Tag<?>> getTagsList()
         {
-            return tags;
+            return tagsList;
+        }
+
+        /**
+         * Returns amount of tags in this compound content.
+         * @return amount of tags
+         */
+        public int size()
+        {
+            return index.size();
         }
 
         /**
@@ -145,14 +265,8 @@ public class TagCompound extends Tag<CompoundContent>
             {
                 throw new NullPointerException("name is null");
             }
-            for (Tag<?> tag : tags)
-            {
-                if (tag.getName().equals(name))
-                {
-                    return tag;
-                }
-            }
-            return null;
+            Entry entry = index.get(name);
+            return entry == null ? null : entry.tag(this);
         }
 
         /**
@@ -167,14 +281,128 @@ public class TagCompound extends Tag<CompoundContent>
             {
                 throw new NullPointerException("name is null");
             }
-            for (Tag<?> tag : tags)
+            return index.containsKey(name);
+        }
+
+        /**
+         * Gets value of a numeric tag as <code>byte</code>, without boxing it if the tag is a
+         * TagByte. Other numeric tags are converted like {@link Number#byteValue()} does.
+         * @param name tag's name
+         * @param defaultValue value returned if there's no numeric tag with this name
+         * @return value of the tag, or <code>defaultValue</code>
+         * @throws NullPointerException if name is null
+         */
+        public byte getByte(String name, byte defaultValue)
+        {
+            Tag<?> tag = getTag(name);
+            if (tag instanceof TagByte)
             {
-                if (tag.getName().equals(name))
-                {
-                    return true;
-                }
+                return ((TagByte) tag).getByte();
+            }
+            return isNumeric(tag) ? ((Number) tag.getValue()).byteValue() : defaultValue;
+        }
+
+        /**
+         * Gets value of a numeric tag as <code>short</code>, without boxing it if the tag is a
+         * TagShort. Other numeric tags are converted like {@link Number#shortValue()} does.
+         * @param name tag's name
+         * @param defaultValue value returned if there's no numeric tag with this name
+         * @return value of the tag, or <code>defaultValue</code>
+         * @throws NullPointerException if name is null
+         */
+        public short getShort(String name, short defaultValue)
+        {
+            Tag<?> tag = getTag(name);
+            if (tag instanceof TagShort)
+            {
+                return ((TagShort) tag).getShort();
+            }
+            return isNumeric(tag) ? ((Number) tag.getValue()).shortValue() : defaultValue;
+        }
+
+        /**
+         * Gets value of a numeric tag as <code>int</code>, without boxing it if the tag is a
+         * TagInt. Other numeric tags are converted like {@link Number#intValue()} does.
+         * @param name tag's name
+         * @param defaultValue value returned if there's no numeric tag with this name
+         * @return value of the tag, or <code>defaultValue</code>
+         * @throws NullPointerException if name is null
+         */
+        public int getInt(String name, int defaultValue)
+        {
+            Tag<?> tag = getTag(name);
+            if (tag instanceof TagInt)
+            {
+                return ((TagInt) tag).getInt();
+            }
+            return isNumeric(tag) ? ((Number) tag.getValue()).intValue() : defaultValue;
+        }
+
+        /**
+         * Gets value of a numeric tag as <code>long</code>, without boxing it if the tag is a
+         * TagLong. Other numeric tags are converted like {@link Number#longValue()} does.
+         * @param name tag's name
+         * @param defaultValue value returned if there's no numeric tag with this name
+         * @return value of the tag, or <code>defaultValue</code>
+         * @throws NullPointerException if name is null
+         */
+        public long getLong(String name, long defaultValue)
+        {
+            Tag<?> tag = getTag(name);
+            if (tag instanceof TagLong)
+            {
+                return ((TagLong) tag).getLong();
+            }
+            return isNumeric(tag) ? ((Number) tag.getValue()).longValue() : defaultValue;
+        }
+
+        /**
+         * Gets value of a numeric tag as <code>float</code>, without boxing it if the tag is a
+         * TagFloat. Other numeric tags are converted like {@link Number#floatValue()} does.
+         * @param name tag's name
+         * @param defaultValue value returned if there's no numeric tag with this name
+         * @return value of the tag, or <code>defaultValue</code>
+         * @throws NullPointerException if name is null
+         */
+        public float getFloat(String name, float defaultValue)
+        {
+            Tag<?> tag = getTag(name);
+            if (tag instanceof TagFloat)
+            {
+                return ((TagFloat) tag).getFloat();
             }
-            return false;
+            return isNumeric(tag) ? ((Number) tag.getValue()).floatValue() : defaultValue;
+        }
+
+        /**
+         * Gets value of a numeric tag as <code>double</code>, without boxing it if the tag is a
+         * TagDouble. Other numeric tags are converted like {@link Number#doubleValue()} does.
+         * @param name tag's name
+         * @param defaultValue value returned if there's no numeric tag with this name
+         * @return value of the tag, or <code>defaultValue</code>
+         * @throws NullPointerException if name is null
+         */
+        public double getDouble(String name, double defaultValue)
+        {
+            Tag<?> tag = getTag(name);
+            if (tag instanceof TagDouble)
+            {
+                return ((TagDouble) tag).getDouble();
+            }
+            return isNumeric(tag) ? ((Number) tag.getValue()).doubleValue() : defaultValue;
+        }
+
+        /**
+         * Gets value of a TAG_String.
+         * @param name tag's name
+         * @param defaultValue value returned if there's no TAG_String with this name
+         * @return value of the tag, or <code>defaultValue</code>
+         * @throws NullPointerException if name is null
+         */
+        public String getString(String name, String defaultValue)
+        {
+            Tag<?> tag = getTag(name);
+            return tag instanceof TagString ? ((TagString) tag).getValue() : defaultValue;
         }
 
         /**
@@ -183,8 +411,287 @@ public class TagCompound extends Tag<CompoundContent>
          * @throws NullPointerException if tag is null
          * @throws IllegalArgumentException if tag's type is TAG_End
          * @throws IllegalArgumentException if tag with this name is already in the compound content
+         * @throws IllegalArgumentException if tag is already in a compound or a list
          */
         public void addTag(Tag<?> tag)
+        {
+            checkTag(tag);
+            tag.checkNotHeld();
+            if (index.containsKey(tag.getName()))
+            {
+                throw new IllegalArgumentException("Tag with this name already exists!");
+            }
+            link(new Entry(tag), null);
+        }
+
+        /**
+         * Puts tag into this compound content. If there's already a tag with the same name,
+         * it's replaced (and the new tag takes its position), otherwise the tag is added at
+         * the end.
+         * @param tag tag to put
+         * @return replaced tag, or null if there was no tag with this name
+         * @throws NullPointerException if tag is null
+         * @throws IllegalArgumentException if tag's type is TAG_End
+         * @throws IllegalArgumentException if tag is already in another compound or a list
+         */
+        public Tag<?> replaceTag(Tag<?> tag)
+        {
+            checkTag(tag);
+            Entry entry = index.get(tag.getName());
+            if (entry == null || entry.tag != tag)
+            {
+                tag.checkNotHeld();
+            }
+            if (entry == null)
+            {
+                link(new Entry(tag), null);
+                return null;
+            }
+            Tag<?> previous = entry.tag(this);
+            changing();
+            release(previous);
+            entry.setTag(tag);
+            tag.owner = this;
+            modCount++;
+            return previous;
+        }
+
+        /**
+         * Removes tag with given name from this compound content.
+         * @param name tag's name
+         * @return removed tag, or null if not found
+         * @throws NullPointerException if name is null
+         */
+        public Tag<?> removeTag(String name)
+        {
+            if (name == null)
+            {
+                throw new NullPointerException("name is null");
+            }
+            Entry entry = index.get(name);
+            if (entry == null)
+            {
+                return null;
+            }
+            Tag<?> tag = entry.tag(this);
+            unlink(entry);
+            return tag;
+        }
+
+        /**
+         * Removes all tags from this compound content.
+         */
+        public void clear()
+        {
+            changing();
+            for (Entry entry = head; entry != null; entry = entry.next)
+            {
+                if (entry.tag != null)
+                {
+                    release(entry.tag);
+                }
+            }
+            index.clear();
+            head = null;
+            tail = null;
+            modCount++;
+        }
+
+        /**
+         * Compares this compound content with given object. Compound contents are equal if
+         * they have equal tags with the same names, in any order.
+         * @param obj object to compare with
+         * @return <code>true</code> if the object is an equal compound content
+         */
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (obj == this)
+            {
+                return true;
+            }
+            if (!(obj instanceof CompoundContent))
+            {
+                return false;
+            }
+            CompoundContent content = (CompoundContent) obj;
+            if (size() != content.size() || (hash != 0 && content.hash != 0 && hash != content.hash))
+            {
+                return false;
+            }
+            for (Entry entry = head; entry != null; entry = entry.next)
+            {
+                Entry other = content.index.get(entry.name());
+                if (other == null || !entry.written(this).equals(other.written(content)))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Returns hash code of this compound content, which doesn't depend on order of its
+         * tags. The hash code is cached until the content, or any tag inside it, is changed
+         * (see {@link Tag#hashCode()}).
+         * @return hash code of this compound content
+         */
+        @Override
+        public int hashCode()
+        {
+            int result = hash;
+            if (result == 0)
+            {
+                for (Entry entry = head; entry != null; entry = entry.next)
+                {
+                    result += entry.written(this).hashCode();
+                }
+                hash = result;
+            }
+            return result;
+        }
+
+        /**
+         * Drops cached hash code before this content, or a tag inside it, is changed.
+         */
+        void changing()
+        {
+            hash = 0;
+            if (holder != null)
+            {
+                holder.changing();
+            }
+        }
+
+        /**
+         * Updates the index after tag owned by this content has been renamed. Called by
+         * {@link Tag#setName(String)} before the name is changed.
+         */
+        void renameTag(Tag<?> tag, String oldName, String newName)
+        {
+            if (newName == null)
+            {
+                throw new NullPointerException("name is null");
+            }
+            Entry entry = index.get(oldName);
+            if (entry == null || entry.tag != tag || oldName.equals(newName))
+            {
+                return;
+            }
+            if (index.containsKey(newName))
+            {
+                throw new IllegalArgumentException("Tag with this name already exists!");
+            }
+            index.remove(oldName);
+            index.put(newName, entry);
+        }
+
+        /**
+         * Adds a tag which isn't decoded yet. Its payload is decoded by <code>source</code>
+         * when the tag is accessed for the first time.
+         *
+         * @param type         type of the tag
+         * @param name         name of the tag
+         * @param source       reader the tag has been scanned by
+         * @param start        index of tag's type id
+         * @param payloadStart index of tag's payload
+         * @param end          index of the first byte after tag's payload
+         */
+        void addLazyTag(TagType type, String name, NbtReader source, int start, int payloadStart, int end)
+        {
+            if (type == TagType.TAG_END)
+            {
+                throw new IllegalArgumentException("Can't push TAG_End into TAG_Compound!");
+            }
+            if (index.containsKey(name))
+            {
+                throw new IllegalArgumentException("Tag with this name already exists!");
+            }
+            link(new LazyEntry(type, name, source, start, payloadStart, end), null);
+        }
+
+        /**
+         * Writes all tags of this content. Tags that haven't been decoded are copied
+         * straight from the data they were read from, unless it has another encoding.
+         */
+        void writeTags(DataOutputStream outputStream) throws IOException
+        {
+            for (Entry entry = head; entry != null; entry = entry.next)
+            {
+                if (entry.isRaw(NbtEncoding.JAVA))
+                {
+                    ((LazyEntry) entry).writeRaw(outputStream);
+                }
+                else
+                {
+                    entry.written(this).writeTag(outputStream);
+                }
+            }
+        }
+
+        /**
+         * Returns size of all tags of this content written by given writer.
+         */
+        int getTagsSize(NbtWriter writer)
+        {
+            int size = 0;
+            for (Entry entry = head; entry != null; entry = entry.next)
+            {
+                if (entry.isRaw(writer.getEncoding()))
+                {
+                    LazyEntry lazyEntry = (LazyEntry) entry;
+                    size += lazyEntry.end - lazyEntry.start;
+                }
+                else
+                {
+                    size += writer.getEntrySize(entry.written(this));
+                }
+            }
+            return size;
+        }
+
+        /**
+         * Writes all tags of this content with given writer. Tags that haven't been decoded
+         * are copied straight from the data they were read from, unless it has another
+         * encoding than the writer.
+         */
+        void writeTags(NbtWriter writer)
+        {
+            for (Entry entry = head; entry != null; entry = entry.next)
+            {
+                if (entry.isRaw(writer.getEncoding()))
+                {
+                    LazyEntry lazyEntry = (LazyEntry) entry;
+                    writer.writeRaw(lazyEntry.source, lazyEntry.start, lazyEntry.end);
+                }
+                else
+                {
+                    writer.writeTagUnchecked(entry.written(this));
+                }
+            }
+        }
+
+        private static boolean isNumeric(Tag<?> tag)
+        {
+            if (tag == null)
+            {
+                return false;
+            }
+            switch (tag.getType())
+            {
+                case TAG_BYTE:
+                case TAG_SHORT:
+                case TAG_INT:
+                case TAG_LONG:
+                case TAG_FLOAT:
+                case TAG_DOUBLE:
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        private void checkTag(Tag<?> tag)
         {
             if (tag == null)
             {
@@ -194,11 +701,435 @@ public class TagCompound extends Tag<CompoundContent>
             {
                 throw new IllegalArgumentException("Can't push TAG_End into TAG_Compound!");
             }
-            if (containsTag(tag.getName()))
+        }
+
+        private void release(Tag<?> tag)
+        {
+            if (tag.owner == this)
+            {
+                tag.owner = null;
+            }
+        }
+
+        /**
+         * Links new entry before given one, or at the end if <code>before</code> is null.
+         */
+        private void link(Entry entry, Entry before)
+        {
+            changing();
+            index.put(entry.name(), entry);
+            if (entry.tag != null)
+            {
+                entry.tag.owner = this;
+            }
+            Entry previous = before == null ? tail : before.previous;
+            entry.previous = previous;
+            entry.next = before;
+            if (previous == null)
             {
-                throw new IllegalArgumentException("Tag with this name already exists!");
+                head = entry;
+            }
+            else
+            {
+                previous.next = entry;
+            }
+            if (before == null)
+            {
+                tail = entry;
+            }
+            else
+            {
+                before.previous = entry;
+            }
+            modCount++;
+        }
+
+        private void unlink(Entry entry)
+        {
+            changing();
+            index.remove(entry.name());
+            if (entry.tag != null)
+            {
+                release(entry.tag);
+            }
+            if (entry.previous == null)
+            {
+                head = entry.next;
+            }
+            else
+            {
+                entry.previous.next = entry.next;
+            }
+            if (entry.next == null)
+            {
+                tail = entry.previous;
+            }
+            else
+            {
+                entry.next.previous = entry.previous;
+            }
+            modCount++;
+        }
+
+        private static class Entry
+        {
+            /**
+             * Tag of this entry. Null only for entries that haven't been decoded yet.
+             */
+            Tag<?> tag;
+            private Entry previous;
+            private Entry next;
+
+            private Entry(Tag<?> tag)
+            {
+                this.tag = tag;
+            }
+
+            Tag<?> tag(CompoundContent content)
+            {
+                return tag;
+            }
+
+            String name()
+            {
+                return tag.getName();
+            }
+
+            void setTag(Tag<?> tag)
+            {
+                this.tag = tag;
+            }
+
+            /**
+             * Returns tag to write or compare. Unlike {@link #tag(CompoundContent)}, it doesn't
+             * copy the tag of a copy-on-write entry.
+             */
+            Tag<?> written(CompoundContent content)
+            {
+                return tag(content);
+            }
+
+            /**
+             * Checks whether the tag can be copied without decoding into data of given
+             * encoding.
+             */
+            boolean isRaw(NbtEncoding encoding)
+            {
+                return false;
+            }
+
+            /**
+             * Returns entry of a copy of the compound content.
+             * @param onWrite whether the tag should be copied only when it's accessed
+             */
+            Entry copy(boolean onWrite)
+            {
+                return onWrite ? new CopyEntry(name(), tag.share()) : new Entry(tag.copy());
+            }
+        }
+
+        /**
+         * Entry of a copy-on-write compound content. It sees the tag of the original content
+         * through a cell shared with it, and copies the tag on first access.
+         */
+        private static final class CopyEntry extends Entry
+        {
+            private final String name;
+            private Tag.Shared source;
+
+            private CopyEntry(String name, Tag.Shared source)
+            {
+                super(null);
+                this.name = name;
+                this.source = source;
+            }
+
+            @Override
+            Tag<?> tag(CompoundContent content)
+            {
+                if (tag == null)
+                {
+                    tag = source.tag.snapshot();
+                    tag.owner = content;
+                    source = null;
+                }
+                return tag;
+            }
+
+            @Override
+            String name()
+            {
+                return tag == null ? name : tag.getName();
+            }
+
+            @Override
+            void setTag(Tag<?> tag)
+            {
+                this.tag = tag;
+                this.source = null;
+            }
+
+            @Override
+            Tag<?> written(CompoundContent content)
+            {
+                return tag == null ? source.tag : tag;
+            }
+
+            @Override
+            Entry copy(boolean onWrite)
+            {
+                if (tag != null)
+                {
+                    return super.copy(onWrite);
+                }
+                return onWrite ? new CopyEntry(name, source) : new Entry(source.tag.copy());
+            }
+        }
+
+        /**
+         * Entry of a lazily read compound. It remembers where its tag is in the data, and
+         * decodes it on first access.
+         */
+        private static final class LazyEntry extends Entry
+        {
+            private final TagType type;
+            private final String name;
+            private NbtReader source;
+            private final int start;
+            private final int payloadStart;
+            private final int end;
+
+            private LazyEntry(TagType type, String name, NbtReader source, int start, int payloadStart, int end)
+            {
+                super(null);
+                this.type = type;
+                this.name = name;
+                this.source = source;
+                this.start = start;
+                this.payloadStart = payloadStart;
+                this.end = end;
+            }
+
+            @Override
+            Tag<?> tag(CompoundContent content)
+            {
+                if (tag == null)
+                {
+                    try
+                    {
+                        tag = source.readLazyPayload(type, name, payloadStart);
+                    } catch (IOException e)
+                    {
+                        // The data has been scanned already, so it can't be truncated
+                        throw new IllegalStateException("Couldn't decode lazy tag " + name + "!", e);
+                    }
+                    tag.owner = content;
+                    source = null;
+                }
+                return tag;
+            }
+
+            @Override
+            String name()
+            {
+                return tag == null ? name : tag.getName();
+            }
+
+            @Override
+            void setTag(Tag<?> tag)
+            {
+                this.tag = tag;
+                this.source = null;
+            }
+
+            @Override
+            boolean isRaw(NbtEncoding encoding)
+            {
+                return tag == null && source.getEncoding() == encoding;
+            }
+
+            @Override
+            Entry copy(boolean onWrite)
+            {
+                if (tag != null)
+                {
+                    return super.copy(onWrite);
+                }
+                return new LazyEntry(type, name, source, start, payloadStart, end);
+            }
+
+            private void writeRaw(DataOutputStream outputStream) throws IOException
+            {
+                source.copyTo(outputStream, start, end);
+            }
+        }
+
+        /**
+         * List view of the compound content, returned by {@link #getTagsList()}.
+         */
+        private class TagsList extends AbstractSequentialList<Tag<?>>
+        {
+            @Override
+            public int size()
+            {
+                return index.size();
+            }
+
+            @Override
+            public void clear()
+            {
+                CompoundContent.this.clear();
+            }
+
+            @Override
+            public ListIterator<Tag<?>> listIterator(int startIndex)
+            {
+                if (startIndex < 0 || startIndex > size())
+                {
+                    throw new IndexOutOfBoundsException("Index: " + startIndex + ", Size: " + size());
+                }
+                TagsIterator iterator = new TagsIterator();
+                for (int i = 0; i < startIndex; i++)
+                {
+                    iterator.next();
+                }
+                return iterator;
+            }
+        }
+
+        private class TagsIterator implements ListIterator<Tag<?>>
+        {
+            private Entry next = head;
+            private Entry lastReturned;
+            private int nextIndex;
+            private int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext()
+            {
+                return next != null;
+            }
+
+            @Override
+            public Tag<?> next()
+            {
+                checkForComodification();
+                if (next == null)
+                {
+                    throw new NoSuchElementException();
+                }
+                lastReturned = next;
+                next = next.next;
+                nextIndex++;
+                return lastReturned.tag(CompoundContent.this);
+            }
+
+            @Override
+            public boolean hasPrevious()
+            {
+                return nextIndex > 0;
+            }
+
+            @Override
+            public Tag<?> previous()
+            {
+                checkForComodification();
+                if (nextIndex == 0)
+                {
+                    throw new NoSuchElementException();
+                }
+                next = next == null ? tail : next.previous;
+                lastReturned = next;
+                nextIndex--;
+                return lastReturned.tag(CompoundContent.this);
+            }
+
+            @Override
+            public int nextIndex()
+            {
+                return nextIndex;
+            }
+
+            @Override
+            public int previousIndex()
+            {
+                return nextIndex - 1;
+            }
+
+            @Override
+            public void remove()
+            {
+                checkForComodification();
+                if (lastReturned == null)
+                {
+                    throw new IllegalStateException();
+                }
+                if (next == lastReturned)
+                {
+                    next = lastReturned.next;
+                }
+                else
+                {
+                    nextIndex--;
+                }
+                unlink(lastReturned);
+                lastReturned = null;
+                expectedModCount = modCount;
+            }
+
+            @Override
+            public void set(Tag<?> tag)
+            {
+                checkForComodification();
+                if (lastReturned == null)
+                {
+                    throw new IllegalStateException();
+                }
+                checkTag(tag);
+                Entry existing = index.get(tag.getName());
+                if (existing != null && existing != lastReturned)
+                {
+                    throw new IllegalArgumentException("Tag with this name already exists!");
+                }
+                if (lastReturned.tag != tag)
+                {
+                    tag.checkNotHeld();
+                }
+                changing();
+                index.remove(lastReturned.name());
+                if (lastReturned.tag != null)
+                {
+                    release(lastReturned.tag);
+                }
+                lastReturned.setTag(tag);
+                index.put(tag.getName(), lastReturned);
+                tag.owner = CompoundContent.this;
+                expectedModCount = ++modCount;
+            }
+
+            @Override
+            public void add(Tag<?> tag)
+            {
+                checkForComodification();
+                checkTag(tag);
+                tag.checkNotHeld();
+                if (index.containsKey(tag.getName()))
+                {
+                    throw new IllegalArgumentException("Tag with this name already exists!");
+                }
+                link(new Entry(tag), next);
+                lastReturned = null;
+                nextIndex++;
+                expectedModCount = modCount;
+            }
+
+            private void checkForComodification()
+            {
+                if (modCount != expectedModCount)
+                {
+                    throw new ConcurrentModificationException();
+                }
             }
-            tags.add(tag);
         }
     }
 }
@@ -24,6 +24,8 @@ import java.io.IOException;
 
 public class TagDouble extends Tag<Double>
 {
+    private double doubleValue;
+
     /**
      * Creates new instance of TagDouble class.
      * @param name tag's name
@@ -31,7 +33,8 @@ public class TagDouble extends Tag<Double>
      */
     public TagDouble(String name, double value)
     {
-        super(name, value, TagType.TAG_DOUBLE);
+        super(name, null, TagType.TAG_DOUBLE);
+        this.doubleValue = value;
     }
 
     /**
@@ -44,15 +47,84 @@ public class TagDouble extends Tag<Double>
         this.type = TagType.TAG_DOUBLE;
     }
 
+    /**
+     * Returns value of the tag, without boxing it.
+     * @return value of the tag
+     */
+    public double getDouble()
+    {
+        return doubleValue;
+    }
+
+    /**
+     * Sets value of the tag, without boxing it.
+     * @param value new value of the tag
+     */
+    public void setDouble(double value)
+    {
+        changing();
+        this.doubleValue = value;
+    }
+
+    /**
+     * Returns value of the tag. The value is stored unboxed, so it's boxed on every call,
+     * use {@link #getDouble()} to avoid it.
+     * @return value of the tag
+     */
+    @Override
+    public Double getValue()
+    {
+        return doubleValue;
+    }
+
+    /**
+     * Sets value of the tag.
+     * @param value new value of the tag
+     * @throws NullPointerException if value is null
+     */
+    @Override
+    public void setValue(Double value)
+    {
+        changing();
+        this.doubleValue = value;
+    }
+
+    /**
+     * Creates a copy of this tag.
+     * @return copy of this tag
+     */
+    @Override
+    public TagDouble copy()
+    {
+        return copied(new TagDouble(name, doubleValue));
+    }
+
+    @Override
+    protected boolean valueEquals(Tag<?> tag)
+    {
+        if (tag instanceof TagDouble)
+        {
+            // Compared like Double.equals, so NaN is equal to itself
+            return Double.doubleToLongBits(((TagDouble) tag).doubleValue) == Double.doubleToLongBits(doubleValue);
+        }
+        return super.valueEquals(tag);
+    }
+
+    @Override
+    protected int valueHashCode()
+    {
+        return Double.hashCode(doubleValue);
+    }
+
     @Override
     public void writeTagPayload(DataOutputStream outputStream) throws IOException
     {
-        outputStream.writeDouble(value);
+        outputStream.writeDouble(doubleValue);
     }
 
     @Override
     public void readTagPayload(DataInputStream inputStream) throws IOException
     {
-        value = inputStream.readDouble();
+        doubleValue = inputStream.readDouble();
     }
 }
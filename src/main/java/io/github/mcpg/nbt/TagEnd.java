@@ -41,7 +41,17 @@ public class TagEnd extends Tag<Object>
     public TagEnd(String name)
     {
         super(name);
-        this.type = TagType.TAG_BYTE;
+        this.type = TagType.TAG_END;
+    }
+
+    /**
+     * Creates a copy of this tag.
+     * @return copy of this tag
+     */
+    @Override
+    public TagEnd copy()
+    {
+        return copied(new TagEnd(name));
     }
 
     @Override
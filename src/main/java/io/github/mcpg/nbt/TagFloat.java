@@ -24,6 +24,8 @@ import java.io.IOException;
 
 public class TagFloat extends Tag<Float>
 {
+    private float floatValue;
+
     /**
      * Creates new instance of TagFloat class.
      * @param name tag's name
@@ -31,7 +33,8 @@ public class TagFloat extends Tag<Float>
      */
     public TagFloat(String name, float value)
     {
-        super(name, value, TagType.TAG_FLOAT);
+        super(name, null, TagType.TAG_FLOAT);
+        this.floatValue = value;
     }
 
     /**
@@ -44,15 +47,84 @@ public class TagFloat extends Tag<Float>
         this.type = TagType.TAG_FLOAT;
     }
 
+    /**
+     * Returns value of the tag, without boxing it.
+     * @return value of the tag
+     */
+    public float getFloat()
+    {
+        return floatValue;
+    }
+
+    /**
+     * Sets value of the tag, without boxing it.
+     * @param value new value of the tag
+     */
+    public void setFloat(float value)
+    {
+        changing();
+        this.floatValue = value;
+    }
+
+    /**
+     * Returns value of the tag. The value is stored unboxed, so it's boxed on every call,
+     * use {@link #getFloat()} to avoid it.
+     * @return value of the tag
+     */
+    @Override
+    public Float getValue()
+    {
+        return floatValue;
+    }
+
+    /**
+     * Sets value of the tag.
+     * @param value new value of the tag
+     * @throws NullPointerException if value is null
+     */
+    @Override
+    public void setValue(Float value)
+    {
+        changing();
+        this.floatValue = value;
+    }
+
+    /**
+     * Creates a copy of this tag.
+     * @return copy of this tag
+     */
+    @Override
+    public TagFloat copy()
+    {
+        return copied(new TagFloat(name, floatValue));
+    }
+
+    @Override
+    protected boolean valueEquals(Tag<?> tag)
+    {
+        if (tag instanceof TagFloat)
+        {
+            // Compared like Float.equals, so NaN is equal to itself
+            return Float.floatToIntBits(((TagFloat) tag).floatValue) == Float.floatToIntBits(floatValue);
+        }
+        return super.valueEquals(tag);
+    }
+
+    @Override
+    protected int valueHashCode()
+    {
+        return Float.hashCode(floatValue);
+    }
+
     @Override
     public void writeTagPayload(DataOutputStream outputStream) throws IOException
     {
-        outputStream.writeFloat(value);
+        outputStream.writeFloat(floatValue);
     }
 
     @Override
     public void readTagPayload(DataInputStream inputStream) throws IOException
     {
-        value = inputStream.readFloat();
+        floatValue = inputStream.readFloat();
     }
 }
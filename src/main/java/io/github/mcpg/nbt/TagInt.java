@@ -24,6 +24,8 @@ import java.io.IOException;
 
 public class TagInt extends Tag<Integer>
 {
+    private int intValue;
+
     /**
      * Creates new instance of TagInt class.
      * @param name tag's name
@@ -31,7 +33,8 @@ public class TagInt extends Tag<Integer>
      */
     public TagInt(String name, int value)
     {
-        super(name, value, TagType.TAG_INT);
+        super(name, null, TagType.TAG_INT);
+        this.intValue = value;
     }
 
     /**
@@ -44,15 +47,79 @@ public class TagInt extends Tag<Integer>
         this.type = TagType.TAG_INT;
     }
 
+    /**
+     * Returns value of the tag, without boxing it.
+     * @return value of the tag
+     */
+    public int getInt()
+    {
+        return intValue;
+    }
+
+    /**
+     * Sets value of the tag, without boxing it.
+     * @param value new value of the tag
+     */
+    public void setInt(int value)
+    {
+        changing();
+        this.intValue = value;
+    }
+
+    /**
+     * Returns value of the tag. The value is stored unboxed, so it's boxed on every call,
+     * use {@link #getInt()} to avoid it.
+     * @return value of the tag
+     */
+    @Override
+    public Integer getValue()
+    {
+        return intValue;
+    }
+
+    /**
+     * Sets value of the tag.
+     * @param value new value of the tag
+     * @throws NullPointerException if value is null
+     */
+    @Override
+    public void setValue(Integer value)
+    {
+        changing();
+        this.intValue = value;
+    }
+
+    /**
+     * Creates a copy of this tag.
+     * @return copy of this tag
+     */
+    @Override
+    public TagInt copy()
+    {
+        return copied(new TagInt(name, intValue));
+    }
+
+    @Override
+    protected boolean valueEquals(Tag<?> tag)
+    {
+        return tag instanceof TagInt ? ((TagInt) tag).intValue == intValue : super.valueEquals(tag);
+    }
+
+    @Override
+    protected int valueHashCode()
+    {
+        return Integer.hashCode(intValue);
+    }
+
     @Override
     public void writeTagPayload(DataOutputStream outputStream) throws IOException
     {
-        outputStream.writeInt(value);
+        outputStream.writeInt(intValue);
     }
 
     @Override
     public void readTagPayload(DataInputStream inputStream) throws IOException
     {
-        value = inputStream.readInt();
+        intValue = inputStream.readInt();
     }
 }
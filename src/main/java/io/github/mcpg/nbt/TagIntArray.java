@@ -21,9 +21,15 @@ package io.github.mcpg.nbt;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.Arrays;
 
 public class TagIntArray extends Tag<int[]>
 {
+    /**
+     * Cached hash code of the array, or 0 if it hasn't been computed.
+     */
+    private int hash;
+
     /**
      * Creates new instance of TagIntArray class.
      * @param name tag's name
@@ -45,6 +51,55 @@ public class TagIntArray extends Tag<int[]>
         this.type = TagType.TAG_INT_ARRAY;
     }
 
+    /**
+     * Creates a copy of this tag, with a copy of its array.
+     * @return copy of this tag
+     */
+    @Override
+    public TagIntArray copy()
+    {
+        return copied(new TagIntArray(name, value == null ? null : value.clone()));
+    }
+
+    /**
+     * Sets value of the tag. Call it again with the same array after changing the array in
+     * place, so the cached hash code is recomputed.
+     * @param value new value of the tag
+     */
+    @Override
+    public void setValue(int[] value)
+    {
+        hash = 0;
+        super.setValue(value);
+    }
+
+    @Override
+    protected boolean valueEquals(Tag<?> tag)
+    {
+        if (!(tag instanceof TagIntArray))
+        {
+            return super.valueEquals(tag);
+        }
+        TagIntArray other = (TagIntArray) tag;
+        if (hash != 0 && other.hash != 0 && hash != other.hash)
+        {
+            return false;
+        }
+        return Arrays.equals(value, other.value);
+    }
+
+    @Override
+    protected int valueHashCode()
+    {
+        int result = hash;
+        if (result == 0)
+        {
+            result = Arrays.hashCode(value);
+            hash = result;
+        }
+        return result;
+    }
+
     @Override
     public void writeTagPayload(DataOutputStream outputStream) throws IOException
     {
@@ -58,6 +113,7 @@ public class TagIntArray extends Tag<int[]>
     @Override
     public void readTagPayload(DataInputStream inputStream) throws IOException
     {
+        hash = 0;
         value = new int[inputStream.readInt()];
         for (int i = 0; i < value.length; i++)
         {
@@ -15,30 +15,58 @@
  * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
  */
-
 package io.github.mcpg.nbt;
 
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Array;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.RandomAccess;
 
+/**
+ * TAG_List. Lists of TAG_Byte, TAG_Short, TAG_Int, TAG_Long, TAG_Float and TAG_Double
+ * (like entity's <code>Pos</code> or <code>Motion</code>) are kept packed in a primitive
+ * array when they're read or created from an array, so no tag object is created for their
+ * elements. Such lists can be accessed with typed methods, like {@link #getDouble(int)} or
+ * {@link #getDoubles()}. {@link #getValue()} returns a view of a packed list that creates
+ * a new tag for each element read, so reading a packed list never changes it. Adding,
+ * removing or setting elements through the view converts the list into a list of tags
+ * first, which is kept from then on.
+ * <p>
+ * Like a tag of a compound, an element can be in only one list or compound at a time (see
+ * {@link TagCompound.CompoundContent}).
+ */
 public class TagList extends Tag<List<Tag<?>>>
 {
     private TagType listType;
 
+    /**
+     * View of the elements returned by {@link #getValue()}, created on first call.
+     */
+    private Elements elements;
+
+    /**
+     * Packed elements: byte[], short[], int[], long[], float[] or double[] depending on the
+     * list type, or null if the list is kept as a list of tags.
+     */
+    private Object packed;
+
     /**
      * Creates new instance of TagList class.
      * @param name tag's name
      * @param value tag's value
+     * @throws IllegalArgumentException if any of the tags is already in a compound or a list
      */
     public TagList(String name, List<Tag<?>> value, TagType listType)
     {
         super(name, value, TagType.TAG_LIST);
+        checkElements(value);
         this.listType = listType;
+        adopt(value);
     }
 
     /**
@@ -51,61 +79,1054 @@ public class TagList extends Tag<List<Tag<?>>>
         this.type = TagType.TAG_LIST;
     }
 
+    /**
+     * Creates new packed list of TAG_Byte. The array is used directly, not copied.
+     * @param name tag's name
+     * @param values list's elements
+     */
+    public TagList(String name, byte[] values)
+    {
+        this(name, TagType.TAG_BYTE, values);
+    }
+
+    /**
+     * Creates new packed list of TAG_Short. The array is used directly, not copied.
+     * @param name tag's name
+     * @param values list's elements
+     */
+    public TagList(String name, short[] values)
+    {
+        this(name, TagType.TAG_SHORT, values);
+    }
+
+    /**
+     * Creates new packed list of TAG_Int. The array is used directly, not copied.
+     * @param name tag's name
+     * @param values list's elements
+     */
+    public TagList(String name, int[] values)
+    {
+        this(name, TagType.TAG_INT, values);
+    }
+
+    /**
+     * Creates new packed list of TAG_Long. The array is used directly, not copied.
+     * @param name tag's name
+     * @param values list's elements
+     */
+    public TagList(String name, long[] values)
+    {
+        this(name, TagType.TAG_LONG, values);
+    }
+
+    /**
+     * Creates new packed list of TAG_Float. The array is used directly, not copied.
+     * @param name tag's name
+     * @param values list's elements
+     */
+    public TagList(String name, float[] values)
+    {
+        this(name, TagType.TAG_FLOAT, values);
+    }
+
+    /**
+     * Creates new packed list of TAG_Double. The array is used directly, not copied.
+     * @param name tag's name
+     * @param values list's elements
+     */
+    public TagList(String name, double[] values)
+    {
+        this(name, TagType.TAG_DOUBLE, values);
+    }
+
+    private TagList(String name, TagType listType, Object packed)
+    {
+        super(name, null, TagType.TAG_LIST);
+        if (packed == null)
+        {
+            throw new NullPointerException("values is null");
+        }
+        this.listType = listType;
+        this.packed = packed;
+    }
+
+    /**
+     * Returns list of the tags. The returned list is a live view of this list's elements:
+     * changes made through it are written to the list given to the constructor or to
+     * {@link #setValue(List)}, and are tracked like changes made through methods of this
+     * class. Elements of a packed list are read as new tags, which aren't elements of this
+     * list, so changing them doesn't change the list; use typed setters, like
+     * {@link #setDouble(int, double)}, or {@link List#set(int, Object)} instead. The first
+     * change made through the view converts a packed list into a list of tags.
+     * @return list of the tags, or null if the list has no value
+     */
+    @Override
+    public List<Tag<?>> getValue()
+    {
+        if (packed == null && value == null)
+        {
+            return null;
+        }
+        if (elements == null)
+        {
+            elements = new Elements();
+        }
+        return elements;
+    }
+
+    @Override
+    public void setValue(List<Tag<?>> value)
+    {
+        if (value instanceof Elements)
+        {
+            // A view can't back a list, so its elements are taken instead
+            if (((Elements) value).list() == this)
+            {
+                unpackElements();
+                value = this.value;
+            }
+            else
+            {
+                value = new ArrayList<>(value);
+            }
+        }
+        checkElements(value);
+        changing();
+        release(this.value);
+        this.value = value;
+        this.packed = null;
+        adopt(value);
+    }
+
+    /**
+     * Returns type of list's elements.
+     * @return type of the elements
+     */
+    public TagType getListType()
+    {
+        return listType;
+    }
+
+    /**
+     * Checks if this list is kept packed in a primitive array.
+     * @return <code>true</code> if the list is packed
+     */
+    public boolean isPacked()
+    {
+        return packed != null;
+    }
+
+    /**
+     * Returns amount of list's elements, without converting a packed list.
+     * @return amount of elements
+     */
+    public int getSize()
+    {
+        if (packed != null)
+        {
+            return Array.getLength(packed);
+        }
+        return value == null ? 0 : value.size();
+    }
+
+    /**
+     * Returns element of a list of TAG_Byte.
+     * @param index index of the element
+     * @return value of the element
+     * @throws IllegalStateException if this isn't a list of TAG_Byte
+     * @throws IndexOutOfBoundsException if index is out of list's bounds
+     */
+    public byte getByte(int index)
+    {
+        checkListType(TagType.TAG_BYTE);
+        return packed != null ? ((byte[]) packed)[index] : ((TagByte) value.get(index)).getByte();
+    }
+
+    /**
+     * Returns element of a list of TAG_Short.
+     * @param index index of the element
+     * @return value of the element
+     * @throws IllegalStateException if this isn't a list of TAG_Short
+     * @throws IndexOutOfBoundsException if index is out of list's bounds
+     */
+    public short getShort(int index)
+    {
+        checkListType(TagType.TAG_SHORT);
+        return packed != null ? ((short[]) packed)[index] : ((TagShort) value.get(index)).getShort();
+    }
+
+    /**
+     * Returns element of a list of TAG_Int.
+     * @param index index of the element
+     * @return value of the element
+     * @throws IllegalStateException if this isn't a list of TAG_Int
+     * @throws IndexOutOfBoundsException if index is out of list's bounds
+     */
+    public int getInt(int index)
+    {
+        checkListType(TagType.TAG_INT);
+        return packed != null ? ((int[]) packed)[index] : ((TagInt) value.get(index)).getInt();
+    }
+
+    /**
+     * Returns element of a list of TAG_Long.
+     * @param index index of the element
+     * @return value of the element
+     * @throws IllegalStateException if this isn't a list of TAG_Long
+     * @throws IndexOutOfBoundsException if index is out of list's bounds
+     */
+    public long getLong(int index)
+    {
+        checkListType(TagType.TAG_LONG);
+        return packed != null ? ((long[]) packed)[index] : ((TagLong) value.get(index)).getLong();
+    }
+
+    /**
+     * Returns element of a list of TAG_Float.
+     * @param index index of the element
+     * @return value of the element
+     * @throws IllegalStateException if this isn't a list of TAG_Float
+     * @throws IndexOutOfBoundsException if index is out of list's bounds
+     */
+    public float getFloat(int index)
+    {
+        checkListType(TagType.TAG_FLOAT);
+        return packed != null ? ((float[]) packed)[index] : ((TagFloat) value.get(index)).getFloat();
+    }
+
+    /**
+     * Returns element of a list of TAG_Double.
+     * @param index index of the element
+     * @return value of the element
+     * @throws IllegalStateException if this isn't a list of TAG_Double
+     * @throws IndexOutOfBoundsException if index is out of list's bounds
+     */
+    public double getDouble(int index)
+    {
+        checkListType(TagType.TAG_DOUBLE);
+        return packed != null ? ((double[]) packed)[index] : ((TagDouble) value.get(index)).getDouble();
+    }
+
+    /**
+     * Sets element of a list of TAG_Byte.
+     * @param index index of the element
+     * @param element new value of the element
+     * @throws IllegalStateException if this isn't a list of TAG_Byte
+     * @throws IndexOutOfBoundsException if index is out of list's bounds
+     */
+    public void setByte(int index, byte element)
+    {
+        checkListType(TagType.TAG_BYTE);
+        if (packed != null)
+        {
+            changing();
+            ((byte[]) packed)[index] = element;
+        }
+        else
+        {
+            ((TagByte) value.get(index)).setByte(element);
+        }
+    }
+
+    /**
+     * Sets element of a list of TAG_Short.
+     * @param index index of the element
+     * @param element new value of the element
+     * @throws IllegalStateException if this isn't a list of TAG_Short
+     * @throws IndexOutOfBoundsException if index is out of list's bounds
+     */
+    public void setShort(int index, short element)
+    {
+        checkListType(TagType.TAG_SHORT);
+        if (packed != null)
+        {
+            changing();
+            ((short[]) packed)[index] = element;
+        }
+        else
+        {
+            ((TagShort) value.get(index)).setShort(element);
+        }
+    }
+
+    /**
+     * Sets element of a list of TAG_Int.
+     * @param index index of the element
+     * @param element new value of the element
+     * @throws IllegalStateException if this isn't a list of TAG_Int
+     * @throws IndexOutOfBoundsException if index is out of list's bounds
+     */
+    public void setInt(int index, int element)
+    {
+        checkListType(TagType.TAG_INT);
+        if (packed != null)
+        {
+            changing();
+            ((int[]) packed)[index] = element;
+        }
+        else
+        {
+            ((TagInt) value.get(index)).setInt(element);
+        }
+    }
+
+    /**
+     * Sets element of a list of TAG_Long.
+     * @param index index of the element
+     * @param element new value of the element
+     * @throws IllegalStateException if this isn't a list of TAG_Long
+     * @throws IndexOutOfBoundsException if index is out of list's bounds
+     */
+    public void setLong(int index, long element)
+    {
+        checkListType(TagType.TAG_LONG);
+        if (packed != null)
+        {
+            changing();
+            ((long[]) packed)[index] = element;
+        }
+        else
+        {
+            ((TagLong) value.get(index)).setLong(element);
+        }
+    }
+
+    /**
+     * Sets element of a list of TAG_Float.
+     * @param index index of the element
+     * @param element new value of the element
+     * @throws IllegalStateException if this isn't a list of TAG_Float
+     * @throws IndexOutOfBoundsException if index is out of list's bounds
+     */
+    public void setFloat(int index, float element)
+    {
+        checkListType(TagType.TAG_FLOAT);
+        if (packed != null)
+        {
+            changing();
+            ((float[]) packed)[index] = element;
+        }
+        else
+        {
+            ((TagFloat) value.get(index)).setFloat(element);
+        }
+    }
+
+    /**
+     * Sets element of a list of TAG_Double.
+     * @param index index of the element
+     * @param element new value of the element
+     * @throws IllegalStateException if this isn't a list of TAG_Double
+     * @throws IndexOutOfBoundsException if index is out of list's bounds
+     */
+    public void setDouble(int index, double element)
+    {
+        checkListType(TagType.TAG_DOUBLE);
+        if (packed != null)
+        {
+            changing();
+            ((double[]) packed)[index] = element;
+        }
+        else
+        {
+            ((TagDouble) value.get(index)).setDouble(element);
+        }
+    }
+
+    /**
+     * Returns copy of all elements of a list of TAG_Byte.
+     * @return elements of the list
+     * @throws IllegalStateException if this isn't a list of TAG_Byte
+     */
+    public byte[] getBytes()
+    {
+        checkListType(TagType.TAG_BYTE);
+        if (packed != null)
+        {
+            return ((byte[]) packed).clone();
+        }
+        byte[] values = new byte[value.size()];
+        for (int i = 0; i < values.length; i++)
+        {
+            values[i] = ((TagByte) value.get(i)).getByte();
+        }
+        return values;
+    }
+
+    /**
+     * Returns copy of all elements of a list of TAG_Short.
+     * @return elements of the list
+     * @throws IllegalStateException if this isn't a list of TAG_Short
+     */
+    public short[] getShorts()
+    {
+        checkListType(TagType.TAG_SHORT);
+        if (packed != null)
+        {
+            return ((short[]) packed).clone();
+        }
+        short[] values = new short[value.size()];
+        for (int i = 0; i < values.length; i++)
+        {
+            values[i] = ((TagShort) value.get(i)).getShort();
+        }
+        return values;
+    }
+
+    /**
+     * Returns copy of all elements of a list of TAG_Int.
+     * @return elements of the list
+     * @throws IllegalStateException if this isn't a list of TAG_Int
+     */
+    public int[] getInts()
+    {
+        checkListType(TagType.TAG_INT);
+        if (packed != null)
+        {
+            return ((int[]) packed).clone();
+        }
+        int[] values = new int[value.size()];
+        for (int i = 0; i < values.length; i++)
+        {
+            values[i] = ((TagInt) value.get(i)).getInt();
+        }
+        return values;
+    }
+
+    /**
+     * Returns copy of all elements of a list of TAG_Long.
+     * @return elements of the list
+     * @throws IllegalStateException if this isn't a list of TAG_Long
+     */
+    public long[] getLongs()
+    {
+        checkListType(TagType.TAG_LONG);
+        if (packed != null)
+        {
+            return ((long[]) packed).clone();
+        }
+        long[] values = new long[value.size()];
+        for (int i = 0; i < values.length; i++)
+        {
+            values[i] = ((TagLong) value.get(i)).getLong();
+        }
+        return values;
+    }
+
+    /**
+     * Returns copy of all elements of a list of TAG_Float.
+     * @return elements of the list
+     * @throws IllegalStateException if this isn't a list of TAG_Float
+     */
+    public float[] getFloats()
+    {
+        checkListType(TagType.TAG_FLOAT);
+        if (packed != null)
+        {
+            return ((float[]) packed).clone();
+        }
+        float[] values = new float[value.size()];
+        for (int i = 0; i < values.length; i++)
+        {
+            values[i] = ((TagFloat) value.get(i)).getFloat();
+        }
+        return values;
+    }
+
+    /**
+     * Returns copy of all elements of a list of TAG_Double.
+     * @return elements of the list
+     * @throws IllegalStateException if this isn't a list of TAG_Double
+     */
+    public double[] getDoubles()
+    {
+        checkListType(TagType.TAG_DOUBLE);
+        if (packed != null)
+        {
+            return ((double[]) packed).clone();
+        }
+        double[] values = new double[value.size()];
+        for (int i = 0; i < values.length; i++)
+        {
+            values[i] = ((TagDouble) value.get(i)).getDouble();
+        }
+        return values;
+    }
+
+    /**
+     * Replaces all elements with given ones, making this a packed list of TAG_Byte. The
+     * array is used directly, not copied.
+     * @param values new elements
+     */
+    public void setBytes(byte[] values)
+    {
+        setPacked(TagType.TAG_BYTE, values);
+    }
+
+    /**
+     * Replaces all elements with given ones, making this a packed list of TAG_Short. The
+     * array is used directly, not copied.
+     * @param values new elements
+     */
+    public void setShorts(short[] values)
+    {
+        setPacked(TagType.TAG_SHORT, values);
+    }
+
+    /**
+     * Replaces all elements with given ones, making this a packed list of TAG_Int. The
+     * array is used directly, not copied.
+     * @param values new elements
+     */
+    public void setInts(int[] values)
+    {
+        setPacked(TagType.TAG_INT, values);
+    }
+
+    /**
+     * Replaces all elements with given ones, making this a packed list of TAG_Long. The
+     * array is used directly, not copied.
+     * @param values new elements
+     */
+    public void setLongs(long[] values)
+    {
+        setPacked(TagType.TAG_LONG, values);
+    }
+
+    /**
+     * Replaces all elements with given ones, making this a packed list of TAG_Float. The
+     * array is used directly, not copied.
+     * @param values new elements
+     */
+    public void setFloats(float[] values)
+    {
+        setPacked(TagType.TAG_FLOAT, values);
+    }
+
+    /**
+     * Replaces all elements with given ones, making this a packed list of TAG_Double. The
+     * array is used directly, not copied.
+     * @param values new elements
+     */
+    public void setDoubles(double[] values)
+    {
+        setPacked(TagType.TAG_DOUBLE, values);
+    }
+
+    /**
+     * Creates a deep copy of this list. A packed list is copied into a new packed array,
+     * otherwise each element is copied.
+     * @return copy of this list
+     */
+    @Override
+    public TagList copy()
+    {
+        if (packed != null)
+        {
+            int size = Array.getLength(packed);
+            Object copy = Array.newInstance(packed.getClass().getComponentType(), size);
+            System.arraycopy(packed, 0, copy, 0, size);
+            return copied(new TagList(name, listType, copy));
+        }
+        if (value == null)
+        {
+            return copied(new TagList(name, (List<Tag<?>>) null, listType));
+        }
+        List<Tag<?>> copy = new ArrayList<>(value.size());
+        for (Tag<?> tag : value)
+        {
+            copy.add(tag.copy());
+        }
+        return copied(new TagList(name, copy, listType));
+    }
+
+    /**
+     * Creates a copy of this list for copy-on-write copies. Elements are copied with
+     * {@link Tag#snapshot()}, so compounds in the list are copied one level at a time.
+     */
+    @Override
+    Tag<?> snapshot()
+    {
+        if (packed != null || value == null)
+        {
+            return copy();
+        }
+        List<Tag<?>> copy = new ArrayList<>(value.size());
+        for (Tag<?> tag : value)
+        {
+            copy.add(tag.snapshot());
+        }
+        return copied(new TagList(name, copy, listType));
+    }
+
+    /**
+     * Compares elements of this list with elements of given list. Packed lists are compared
+     * without converting them, and are equal to the same lists of tags. Empty lists are equal
+     * whatever their list type is.
+     * @param tag list to compare with
+     * @return <code>true</code> if the lists have equal elements
+     */
+    @Override
+    protected boolean valueEquals(Tag<?> tag)
+    {
+        if (!(tag instanceof TagList))
+        {
+            return super.valueEquals(tag);
+        }
+        TagList list = (TagList) tag;
+        int size = getSize();
+        if (size != list.getSize())
+        {
+            return false;
+        }
+        if (size == 0)
+        {
+            return true;
+        }
+        if (listType != list.listType)
+        {
+            return false;
+        }
+        if (packed != null && list.packed != null)
+        {
+            switch (listType)
+            {
+                case TAG_BYTE:
+                    return Arrays.equals((byte[]) packed, (byte[]) list.packed);
+                case TAG_SHORT:
+                    return Arrays.equals((short[]) packed, (short[]) list.packed);
+                case TAG_INT:
+                    return Arrays.equals((int[]) packed, (int[]) list.packed);
+                case TAG_LONG:
+                    return Arrays.equals((long[]) packed, (long[]) list.packed);
+                case TAG_FLOAT:
+                    return Arrays.equals((float[]) packed, (float[]) list.packed);
+                case TAG_DOUBLE:
+                    return Arrays.equals((double[]) packed, (double[]) list.packed);
+                default:
+                    throw new IllegalStateException("List of " + listType + " can't be packed!");
+            }
+        }
+        for (int i = 0; i < size; i++)
+        {
+            if (!elementEquals(i, list))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected int valueHashCode()
+    {
+        int size = getSize();
+        if (size == 0)
+        {
+            return 0;
+        }
+        int result = listType.getId();
+        for (int i = 0; i < size; i++)
+        {
+            result = 31 * result + elementHashCode(i);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the packed array (without copying it), or null if the list isn't packed.
+     */
+    Object getPacked()
+    {
+        return packed;
+    }
+
     @Override
     public void writeTagPayload(DataOutputStream outputStream) throws IOException
     {
         outputStream.writeByte(listType.getId());
-        outputStream.writeInt(value.size());
-        for (Tag<?> tag : value)
+        if (packed == null)
+        {
+            outputStream.writeInt(value.size());
+            for (Tag<?> tag : value)
+            {
+                tag.writeTagPayload(outputStream);
+            }
+            return;
+        }
+        switch (listType)
         {
-            tag.writeTagPayload(outputStream);
+            case TAG_BYTE:
+                byte[] bytes = (byte[]) packed;
+                outputStream.writeInt(bytes.length);
+                outputStream.write(bytes);
+                break;
+            case TAG_SHORT:
+                short[] shorts = (short[]) packed;
+                outputStream.writeInt(shorts.length);
+                for (short element : shorts)
+                {
+                    outputStream.writeShort(element);
+                }
+                break;
+            case TAG_INT:
+                int[] ints = (int[]) packed;
+                outputStream.writeInt(ints.length);
+                for (int element : ints)
+                {
+                    outputStream.writeInt(element);
+                }
+                break;
+            case TAG_LONG:
+                long[] longs = (long[]) packed;
+                outputStream.writeInt(longs.length);
+                for (long element : longs)
+                {
+                    outputStream.writeLong(element);
+                }
+                break;
+            case TAG_FLOAT:
+                float[] floats = (float[]) packed;
+                outputStream.writeInt(floats.length);
+                for (float element : floats)
+                {
+                    outputStream.writeFloat(element);
+                }
+                break;
+            case TAG_DOUBLE:
+                double[] doubles = (double[]) packed;
+                outputStream.writeInt(doubles.length);
+                for (double element : doubles)
+                {
+                    outputStream.writeDouble(element);
+                }
+                break;
+            default:
+                throw new IllegalStateException("List of " + listType + " can't be packed!");
         }
     }
 
     @Override
     public void readTagPayload(DataInputStream inputStream) throws IOException
     {
-        listType = TagType.byId(inputStream.readUnsignedByte());
+        TagType listType = TagType.byId(inputStream.readUnsignedByte());
         int size = inputStream.readInt();
         if (size > 0 && (listType == TagType.TAG_END || listType == null))
         {
             throw new IllegalStateException("Incorrect list type!");
         }
-        if (listType == null)
+        if (size < 0)
         {
-            listType = TagType.TAG_END;
+            throw new IllegalStateException("Negative length " + size + "!");
         }
+        readElements(inputStream, listType == null ? TagType.TAG_END : listType, size);
+    }
+
+    /**
+     * Reads <code>size</code> elements of given type, replacing current ones. Primitive
+     * elements are read into a packed array.
+     */
+    void readElements(DataInputStream inputStream, TagType listType, int size) throws IOException
+    {
+        switch (listType)
+        {
+            case TAG_BYTE:
+                byte[] bytes = new byte[size];
+                inputStream.readFully(bytes);
+                setPacked(listType, bytes);
+                return;
+            case TAG_SHORT:
+                short[] shorts = new short[size];
+                for (int i = 0; i < size; i++)
+                {
+                    shorts[i] = inputStream.readShort();
+                }
+                setPacked(listType, shorts);
+                return;
+            case TAG_INT:
+                int[] ints = new int[size];
+                for (int i = 0; i < size; i++)
+                {
+                    ints[i] = inputStream.readInt();
+                }
+                setPacked(listType, ints);
+                return;
+            case TAG_LONG:
+                long[] longs = new long[size];
+                for (int i = 0; i < size; i++)
+                {
+                    longs[i] = inputStream.readLong();
+                }
+                setPacked(listType, longs);
+                return;
+            case TAG_FLOAT:
+                float[] floats = new float[size];
+                for (int i = 0; i < size; i++)
+                {
+                    floats[i] = inputStream.readFloat();
+                }
+                setPacked(listType, floats);
+                return;
+            case TAG_DOUBLE:
+                double[] doubles = new double[size];
+                for (int i = 0; i < size; i++)
+                {
+                    doubles[i] = inputStream.readDouble();
+                }
+                setPacked(listType, doubles);
+                return;
+            default:
+                break;
+        }
+        changing();
+        this.listType = listType;
+        packed = null;
         if (value == null)
         {
-            value = new ArrayList<>(size);
+            value = new ArrayList<>(Math.min(size, 1024));
         }
         else
         {
+            release(value);
             value.clear();
         }
         for (int i = 0; i < size; i++)
         {
-            Object obj;
-            try
+            Tag<?> tag = listType.createTag("");
+            tag.readTagPayload(inputStream);
+            tag.parentList = this;
+            value.add(tag);
+        }
+    }
+
+    private void setPacked(TagType listType, Object values)
+    {
+        if (values == null)
+        {
+            throw new NullPointerException("values is null");
+        }
+        changing();
+        release(value);
+        this.listType = listType;
+        this.packed = values;
+        this.value = null;
+    }
+
+    private void checkListType(TagType expected)
+    {
+        if (listType != expected)
+        {
+            throw new IllegalStateException("List of " + listType + " isn't a list of " + expected + "!");
+        }
+    }
+
+    /**
+     * Converts a packed list into a list of tags, before it's changed through its view.
+     */
+    private void unpackElements()
+    {
+        if (packed == null)
+        {
+            return;
+        }
+        int size = getSize();
+        List<Tag<?>> tags = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+        {
+            tags.add(packedElement(i));
+        }
+        adopt(tags);
+        value = tags;
+        packed = null;
+    }
+
+    /**
+     * Creates new tag holding element of the packed list.
+     */
+    private Tag<?> packedElement(int index)
+    {
+        switch (listType)
+        {
+            case TAG_BYTE:
+                return new TagByte("", ((byte[]) packed)[index]);
+            case TAG_SHORT:
+                return new TagShort("", ((short[]) packed)[index]);
+            case TAG_INT:
+                return new TagInt("", ((int[]) packed)[index]);
+            case TAG_LONG:
+                return new TagLong("", ((long[]) packed)[index]);
+            case TAG_FLOAT:
+                return new TagFloat("", ((float[]) packed)[index]);
+            case TAG_DOUBLE:
+                return new TagDouble("", ((double[]) packed)[index]);
+            default:
+                throw new IllegalStateException("List of " + listType + " can't be packed!");
+        }
+    }
+
+    /**
+     * Checks that given tags can become elements of this list, see {@link Tag#checkNotHeld()}.
+     */
+    private void checkElements(List<Tag<?>> tags)
+    {
+        if (tags != null)
+        {
+            for (Tag<?> tag : tags)
             {
-                Constructor<?> constructor = listType.getClazz().getConstructor(String.class);
-                obj = constructor.newInstance("");
-            } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException | InstantiationException e)
+                if (tag.parentList != this)
+                {
+                    tag.checkNotHeld();
+                }
+            }
+        }
+    }
+
+    /**
+     * Makes given tags, which are being removed from this list, free to be put elsewhere.
+     */
+    private void release(List<Tag<?>> tags)
+    {
+        if (tags != null)
+        {
+            for (Tag<?> tag : tags)
             {
-                throw new IllegalStateException("Couldn't create object from type " + type + "!", e);
+                if (tag.parentList == this)
+                {
+                    tag.parentList = null;
+                }
             }
-            if (!(obj instanceof Tag<?>))
+        }
+    }
+
+    /**
+     * Makes given tags notify this list when they're changed.
+     */
+    private void adopt(List<Tag<?>> tags)
+    {
+        if (tags != null)
+        {
+            for (Tag<?> tag : tags)
             {
-                throw new IllegalStateException("Readed object isn't Tag<?>!");
+                tag.parentList = this;
             }
-            Tag<?> tag = (Tag<?>) obj;
-            tag.readTagPayload(inputStream);
-            value.add(tag);
         }
     }
 
-    public TagType getListType()
+    private boolean elementEquals(int index, TagList list)
     {
-        return listType;
+        switch (listType)
+        {
+            case TAG_BYTE:
+                return getByte(index) == list.getByte(index);
+            case TAG_SHORT:
+                return getShort(index) == list.getShort(index);
+            case TAG_INT:
+                return getInt(index) == list.getInt(index);
+            case TAG_LONG:
+                return getLong(index) == list.getLong(index);
+            case TAG_FLOAT:
+                return Float.floatToIntBits(getFloat(index)) == Float.floatToIntBits(list.getFloat(index));
+            case TAG_DOUBLE:
+                return Double.doubleToLongBits(getDouble(index)) == Double.doubleToLongBits(list.getDouble(index));
+            default:
+                Tag<?> element = value.get(index);
+                Tag<?> other = list.value.get(index);
+                return element.getType() == other.getType() && element.valueEquals(other);
+        }
+    }
+
+    private int elementHashCode(int index)
+    {
+        switch (listType)
+        {
+            case TAG_BYTE:
+                return Byte.hashCode(getByte(index));
+            case TAG_SHORT:
+                return Short.hashCode(getShort(index));
+            case TAG_INT:
+                return Integer.hashCode(getInt(index));
+            case TAG_LONG:
+                return Long.hashCode(getLong(index));
+            case TAG_FLOAT:
+                return Float.hashCode(getFloat(index));
+            case TAG_DOUBLE:
+                return Double.hashCode(getDouble(index));
+            default:
+                return value.get(index).valueHashCode();
+        }
+    }
+
+    /**
+     * List view returned by {@link #getValue()}. It makes added tags notify this list when
+     * they're changed, and notifies this list about every change made through it. A packed
+     * list is read without converting it, and converted on the first change.
+     */
+    private final class Elements extends AbstractList<Tag<?>> implements RandomAccess
+    {
+        private TagList list()
+        {
+            return TagList.this;
+        }
+
+        @Override
+        public Tag<?> get(int index)
+        {
+            return packed != null ? packedElement(index) : value.get(index);
+        }
+
+        @Override
+        public int size()
+        {
+            return getSize();
+        }
+
+        @Override
+        public Tag<?> set(int index, Tag<?> element)
+        {
+            unpackElements();
+            Tag<?> previous = value.get(index);
+            if (element == previous)
+            {
+                return previous;
+            }
+            element.checkNotHeld();
+            changing();
+            value.set(index, element);
+            previous.parentList = null;
+            element.parentList = TagList.this;
+            return previous;
+        }
+
+        @Override
+        public void add(int index, Tag<?> element)
+        {
+            element.checkNotHeld();
+            unpackElements();
+            changing();
+            value.add(index, element);
+            element.parentList = TagList.this;
+            modCount++;
+        }
+
+        @Override
+        public Tag<?> remove(int index)
+        {
+            unpackElements();
+            changing();
+            Tag<?> previous = value.remove(index);
+            previous.parentList = null;
+            modCount++;
+            return previous;
+        }
+
+        @Override
+        public void clear()
+        {
+            unpackElements();
+            changing();
+            release(value);
+            value.clear();
+            modCount++;
+        }
     }
 }
@@ -24,6 +24,8 @@ import java.io.IOException;
 
 public class TagLong extends Tag<Long>
 {
+    private long longValue;
+
     /**
      * Creates new instance of TagLong class.
      * @param name tag's name
@@ -31,7 +33,8 @@ public class TagLong extends Tag<Long>
      */
     public TagLong(String name, long value)
     {
-        super(name, value, TagType.TAG_LONG);
+        super(name, null, TagType.TAG_LONG);
+        this.longValue = value;
     }
 
     /**
@@ -44,15 +47,79 @@ public class TagLong extends Tag<Long>
         this.type = TagType.TAG_LONG;
     }
 
+    /**
+     * Returns value of the tag, without boxing it.
+     * @return value of the tag
+     */
+    public long getLong()
+    {
+        return longValue;
+    }
+
+    /**
+     * Sets value of the tag, without boxing it.
+     * @param value new value of the tag
+     */
+    public void setLong(long value)
+    {
+        changing();
+        this.longValue = value;
+    }
+
+    /**
+     * Returns value of the tag. The value is stored unboxed, so it's boxed on every call,
+     * use {@link #getLong()} to avoid it.
+     * @return value of the tag
+     */
+    @Override
+    public Long getValue()
+    {
+        return longValue;
+    }
+
+    /**
+     * Sets value of the tag.
+     * @param value new value of the tag
+     * @throws NullPointerException if value is null
+     */
+    @Override
+    public void setValue(Long value)
+    {
+        changing();
+        this.longValue = value;
+    }
+
+    /**
+     * Creates a copy of this tag.
+     * @return copy of this tag
+     */
+    @Override
+    public TagLong copy()
+    {
+        return copied(new TagLong(name, longValue));
+    }
+
+    @Override
+    protected boolean valueEquals(Tag<?> tag)
+    {
+        return tag instanceof TagLong ? ((TagLong) tag).longValue == longValue : super.valueEquals(tag);
+    }
+
+    @Override
+    protected int valueHashCode()
+    {
+        return Long.hashCode(longValue);
+    }
+
     @Override
     public void writeTagPayload(DataOutputStream outputStream) throws IOException
     {
-        outputStream.writeLong(value);
+        outputStream.writeLong(longValue);
     }
 
     @Override
     public void readTagPayload(DataInputStream inputStream) throws IOException
     {
-        value = inputStream.readLong();
+        longValue = inputStream.readLong();
     }
 }
@@ -20,9 +20,6 @@ package io.github.mcpg.nbt;
 
 import java.io.DataInputStream;
 import java.io.IOException;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
-import java.nio.charset.StandardCharsets;
 
 public final class TagReadingUtils
 {
@@ -36,9 +33,6 @@ public final class TagReadingUtils
      * @return readied tag
      * @throws IOException if any I/O error occurs
      * @throws IllegalStateException if detected tag isn't registered
-     * @throws NullPointerException if type's enum has got null as <code>clazz</code> field
-     * @throws IllegalStateException if tag couldn't be instantiated
-     * @throws IllegalStateException if created object isn't instanceof <code>Tag</code>
      */
     public static Tag<?> readTag(DataInputStream inputStream) throws IOException
     {
@@ -50,25 +44,43 @@ public final class TagReadingUtils
         }
         byte[] rawName = new byte[inputStream.readUnsignedShort()];
         inputStream.readFully(rawName);
-        if (type.getClazz() == null)
-        {
-            throw new NullPointerException("Type " + type + " has got null clazz!");
-        }
-        Object obj;
-        try
-        {
-            Constructor<?> constructor = type.getClazz().getConstructor(String.class);
-            obj = constructor.newInstance(new String(rawName, StandardCharsets.UTF_8));
-        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException | InstantiationException e)
-        {
-            throw new IllegalStateException("Couldn't create object from type " + type + "!", e);
-        }
-        if (!(obj instanceof Tag<?>))
+        Tag<?> tag = type.createTag(StringCache.getDefaultNameCache().get(rawName, 0, rawName.length));
+        tag.readTagPayload(inputStream);
+        return tag;
+    }
+
+    /**
+     * Reads new tag without a name from given {@link java.io.DataInputStream}: only type id
+     * and payload. This is how network packets of Java Edition since 1.20.2 write their root
+     * tags. Readied tag has an empty name.
+     * @param inputStream input stream to use
+     * @return readied tag
+     * @throws IOException if any I/O error occurs
+     * @throws IllegalStateException if detected tag isn't registered
+     */
+    public static Tag<?> readNamelessTag(DataInputStream inputStream) throws IOException
+    {
+        int id = inputStream.readUnsignedByte();
+        TagType type = TagType.byId(id);
+        if (type == null)
         {
-            throw new IllegalStateException("Created object isn't Tag<?>!");
+            throw new IllegalStateException("Detected unknown tag with ID " + id + "!");
         }
-        Tag<?> tag = (Tag<?>) obj;
+        Tag<?> tag = type.createTag("");
         tag.readTagPayload(inputStream);
         return tag;
     }
+
+    /**
+     * Reads new tag from given array. This is a shortcut for
+     * <code>new NbtReader(data).readTag()</code>, see {@link NbtReader}.
+     * @param data data to read
+     * @return readied tag
+     * @throws IOException if data ends before the tag does
+     * @throws IllegalStateException if detected tag isn't registered
+     */
+    public static Tag<?> readTag(byte[] data) throws IOException
+    {
+        return new NbtReader(data).readTag();
+    }
 }
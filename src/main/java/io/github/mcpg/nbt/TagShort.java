@@ -24,6 +24,8 @@ import java.io.IOException;
 
 public class TagShort extends Tag<Short>
 {
+    private short shortValue;
+
     /**
      * Creates new instance of TagShort class.
      * @param name tag's name
@@ -31,7 +33,8 @@ public class TagShort extends Tag<Short>
      */
     public TagShort(String name, short value)
     {
-        super(name, value, TagType.TAG_SHORT);
+        super(name, null, TagType.TAG_SHORT);
+        this.shortValue = value;
     }
 
     /**
@@ -44,15 +47,79 @@ public class TagShort extends Tag<Short>
         this.type = TagType.TAG_SHORT;
     }
 
+    /**
+     * Returns value of the tag, without boxing it.
+     * @return value of the tag
+     */
+    public short getShort()
+    {
+        return shortValue;
+    }
+
+    /**
+     * Sets value of the tag, without boxing it.
+     * @param value new value of the tag
+     */
+    public void setShort(short value)
+    {
+        changing();
+        this.shortValue = value;
+    }
+
+    /**
+     * Returns value of the tag. The value is stored unboxed, so it's boxed on every call,
+     * use {@link #getShort()} to avoid it.
+     * @return value of the tag
+     */
+    @Override
+    public Short getValue()
+    {
+        return shortValue;
+    }
+
+    /**
+     * Sets value of the tag.
+     * @param value new value of the tag
+     * @throws NullPointerException if value is null
+     */
+    @Override
+    public void setValue(Short value)
+    {
+        changing();
+        this.shortValue = value;
+    }
+
+    /**
+     * Creates a copy of this tag.
+     * @return copy of this tag
+     */
+    @Override
+    public TagShort copy()
+    {
+        return copied(new TagShort(name, shortValue));
+    }
+
+    @Override
+    protected boolean valueEquals(Tag<?> tag)
+    {
+        return tag instanceof TagShort ? ((TagShort) tag).shortValue == shortValue : super.valueEquals(tag);
+    }
+
+    @Override
+    protected int valueHashCode()
+    {
+        return Short.hashCode(shortValue);
+    }
+
     @Override
     public void writeTagPayload(DataOutputStream outputStream) throws IOException
     {
-        outputStream.writeShort(value);
+        outputStream.writeShort(shortValue);
     }
 
     @Override
     public void readTagPayload(DataInputStream inputStream) throws IOException
     {
-        value = inputStream.readShort();
+        shortValue = inputStream.readShort();
     }
 }
@@ -21,10 +21,11 @@ package io.github.mcpg.nbt;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 
 public class TagString extends Tag<String>
 {
+    private EncodedString encodedValue;
+
     /**
      * Creates new instance of TagString class.
      * @param name tag's name
@@ -45,19 +46,56 @@ public class TagString extends Tag<String>
         this.type = TagType.TAG_STRING;
     }
 
+    /**
+     * Creates a copy of this tag.
+     * @return copy of this tag
+     */
+    @Override
+    public TagString copy()
+    {
+        TagString copy = copied(new TagString(name, value));
+        copy.encodedValue = encodedValue;
+        return copy;
+    }
+
     @Override
     public void writeTagPayload(DataOutputStream outputStream) throws IOException
     {
-        byte[] rawString = value.getBytes(StandardCharsets.UTF_8);
-        outputStream.writeShort(rawString.length);
-        outputStream.write(rawString);
+        writeEncoded(outputStream, getEncodedValue());
     }
 
     @Override
     public void readTagPayload(DataInputStream inputStream) throws IOException
     {
-        byte[] rawString = new byte[inputStream.readShort()];
+        byte[] rawString = new byte[inputStream.readUnsignedShort()];
         inputStream.readFully(rawString);
-        value = new String(rawString, StandardCharsets.UTF_8);
+        value = ModifiedUtf8.decode(rawString, 0, rawString.length);
+    }
+
+    /**
+     * Sets cached encoding of the value, if it's the encoding of the very same string
+     * instance the tag holds.
+     */
+    void setEncodedValue(EncodedString encoded)
+    {
+        if (encoded != null && encoded.source == value)
+        {
+            encodedValue = encoded;
+        }
+    }
+
+    /**
+     * Returns value of this tag encoded as it's written. The encoding is cached until the
+     * value is changed.
+     */
+    byte[] getEncodedValue()
+    {
+        EncodedString encoded = encodedValue;
+        if (encoded == null || encoded.source != value)
+        {
+            encoded = new EncodedString(value);
+            encodedValue = encoded;
+        }
+        return encoded.bytes;
     }
 }
@@ -18,31 +18,50 @@
 
 package io.github.mcpg.nbt;
 
+import java.util.function.Function;
+
 public enum TagType
 {
-    TAG_END("TAG_End", 0, TagEnd.class),
-    TAG_BYTE("TAG_Byte", 1, TagByte.class),
-    TAG_SHORT("TAG_Short", 2, TagShort.class),
-    TAG_INT("TAG_Int", 3, TagInt.class),
-    TAG_LONG("TAG_Long", 4, TagLong.class),
-    TAG_FLOAT("TAG_Float", 5, TagFloat.class),
-    TAG_DOUBLE("TAG_Double", 6, TagDouble.class),
-    TAG_BYTE_ARRAY("TAG_Byte_Array", 7, TagByteArray.class),
-    TAG_STRING("TAG_String", 8, TagString.class),
-    TAG_LIST("TAG_List", 9, TagList.class),
-    TAG_COMPOUND("TAG_Compound", 10, TagCompound.class),
-    TAG_INT_ARRAY("TAG_Int_Array", 11, TagIntArray.class),
-    TAG_LONG_ARRAY("TAG_Long_Array", 12, TagLongArray.class);
+    TAG_END("TAG_End", 0, TagEnd.class, TagEnd::new),
+    TAG_BYTE("TAG_Byte", 1, TagByte.class, TagByte::new),
+    TAG_SHORT("TAG_Short", 2, TagShort.class, TagShort::new),
+    TAG_INT("TAG_Int", 3, TagInt.class, TagInt::new),
+    TAG_LONG("TAG_Long", 4, TagLong.class, TagLong::new),
+    TAG_FLOAT("TAG_Float", 5, TagFloat.class, TagFloat::new),
+    TAG_DOUBLE("TAG_Double", 6, TagDouble.class, TagDouble::new),
+    TAG_BYTE_ARRAY("TAG_Byte_Array", 7, TagByteArray.class, TagByteArray::new),
+    TAG_STRING("TAG_String", 8, TagString.class, TagString::new),
+    TAG_LIST("TAG_List", 9, TagList.class, TagList::new),
+    TAG_COMPOUND("TAG_Compound", 10, TagCompound.class, TagCompound::new),
+    TAG_INT_ARRAY("TAG_Int_Array", 11, TagIntArray.class, TagIntArray::new),
+    TAG_LONG_ARRAY("TAG_Long_Array", 12, TagLongArray.class, TagLongArray::new);
+
+    /**
+     * Types indexed by their ids, so {@link #byId(int)} doesn't have to scan {@link #values()}.
+     */
+    private static final TagType[] BY_ID;
+
+    static
+    {
+        TagType[] types = values();
+        BY_ID = new TagType[types.length];
+        for (TagType type : types)
+        {
+            BY_ID[type.id] = type;
+        }
+    }
 
     private final String name;
     private final int id;
     private final Class<? extends Tag<?>> clazz;
+    private final Function<String, ? extends Tag<?>> factory;
 
-    TagType(String name, int id, Class<? extends Tag<?>> clazz)
+    TagType(String name, int id, Class<? extends Tag<?>> clazz, Function<String, ? extends Tag<?>> factory)
     {
         this.name = name;
         this.id = id;
         this.clazz = clazz;
+        this.factory = factory;
     }
 
     public String getName()
@@ -60,15 +79,24 @@ public enum TagType
         return clazz;
     }
 
+    /**
+     * Creates new, empty tag of this type. Tag's payload isn't set, so it should
+     * be read with {@link Tag#readTagPayload(java.io.DataInputStream)} afterwards.
+     *
+     * @param name name of the new tag
+     * @return new tag of this type
+     */
+    public Tag<?> createTag(String name)
+    {
+        return factory.apply(name);
+    }
+
     public static TagType byId(int id)
     {
-        for (TagType type : values())
+        if (id < 0 || id >= BY_ID.length)
         {
-            if (type.id == id)
-            {
-                return type;
-            }
+            return null;
         }
-        return null;
+        return BY_ID[id];
     }
 }
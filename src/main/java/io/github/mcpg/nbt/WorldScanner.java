@@ -0,0 +1,618 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mcpg.nbt;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Scans all region files of a directory (like <code>world/region</code>) in parallel,
+ * decoding chunks on all cores and passing each of them to a visitor. Region files are
+ * split into ranges of chunks processed as fork/join tasks, so work is balanced even if
+ * regions differ in size.
+ * <p>
+ * Visitors are called concurrently from many threads, so they have to be thread safe.
+ * Amount of decompressed chunk data held by chunks waiting for, or being processed by the
+ * visitor is limited by {@link #setMaxInFlightBytes(long)}. A scan can be stopped early by
+ * returning <code>false</code> from the visitor or by calling {@link #cancel()}.
+ */
+public class WorldScanner
+{
+    private static final int CHUNKS_PER_TASK = 32;
+
+    private final Path directory;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private long maxInFlightBytes = 256L << 20;
+    private boolean lazyCompounds;
+    private boolean skipCorruptedChunks;
+    private volatile ScanState currentScan;
+
+    /**
+     * Creates new scanner of region files in given directory.
+     *
+     * @param directory directory with <code>.mca</code> files
+     */
+    public WorldScanner(Path directory)
+    {
+        this.directory = directory;
+    }
+
+    /**
+     * Sets amount of threads used for scanning. By default it's the number of available
+     * processors.
+     *
+     * @param parallelism amount of threads
+     *
+     * @return this scanner
+     *
+     * @throws IllegalArgumentException if parallelism isn't positive
+     */
+    public WorldScanner setParallelism(int parallelism)
+    {
+        if (parallelism < 1)
+        {
+            throw new IllegalArgumentException("Parallelism must be positive!");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Sets how many bytes of decompressed chunk data can be in flight at once. Threads
+     * wait before decoding a chunk until enough of previous chunks have been visited. Each
+     * thread can additionally hold one decompressed chunk it waits with. By default it's
+     * 256 MiB.
+     *
+     * @param maxInFlightBytes maximum amount of bytes
+     *
+     * @return this scanner
+     *
+     * @throws IllegalArgumentException if the amount is smaller than 1 KiB
+     */
+    public WorldScanner setMaxInFlightBytes(long maxInFlightBytes)
+    {
+        if (maxInFlightBytes < 1024)
+        {
+            throw new IllegalArgumentException("At least 1 KiB has to be allowed!");
+        }
+        this.maxInFlightBytes = maxInFlightBytes;
+        return this;
+    }
+
+    /**
+     * Sets whether chunks passed to {@link ChunkVisitor} are read with lazy compounds (see
+     * {@link NbtReader#setLazyCompounds(boolean)}). Disabled by default.
+     *
+     * @param lazyCompounds <code>true</code> to read chunks lazily
+     *
+     * @return this scanner
+     */
+    public WorldScanner setLazyCompounds(boolean lazyCompounds)
+    {
+        this.lazyCompounds = lazyCompounds;
+        return this;
+    }
+
+    /**
+     * Sets whether chunks that can't be read are skipped (and counted in
+     * {@link Statistics#getCorruptedChunks()}) instead of failing the scan. Disabled by
+     * default.
+     *
+     * @param skipCorruptedChunks <code>true</code> to skip corrupted chunks
+     *
+     * @return this scanner
+     */
+    public WorldScanner setSkipCorruptedChunks(boolean skipCorruptedChunks)
+    {
+        this.skipCorruptedChunks = skipCorruptedChunks;
+        return this;
+    }
+
+    /**
+     * Decodes every chunk and passes its root tag to the visitor.
+     *
+     * @param visitor visitor to call for each chunk, from many threads at once
+     *
+     * @return statistics of the scan
+     *
+     * @throws IOException if any I/O error occurs, or if any chunk can't be read and
+     *                     corrupted chunks aren't skipped
+     */
+    public Statistics scan(ChunkVisitor visitor) throws IOException
+    {
+        return scan(new ScanState(visitor, null));
+    }
+
+    /**
+     * Decompresses every chunk and passes a reader over its data to the visitor, which can
+     * decode it in any way (for example skip through it with {@link NbtReader#skipPayload(TagType)}).
+     *
+     * @param visitor visitor to call for each chunk, from many threads at once
+     *
+     * @return statistics of the scan
+     *
+     * @throws IOException if any I/O error occurs, or if any chunk can't be decompressed
+     *                     and corrupted chunks aren't skipped
+     */
+    public Statistics scanRaw(RawChunkVisitor visitor) throws IOException
+    {
+        return scan(new ScanState(null, visitor));
+    }
+
+    /**
+     * Stops the scan currently running. Chunks already being visited are finished, the
+     * rest are skipped.
+     */
+    public void cancel()
+    {
+        ScanState scan = currentScan;
+        if (scan != null)
+        {
+            scan.cancelled = true;
+        }
+    }
+
+    private Statistics scan(ScanState state) throws IOException
+    {
+        List<Path> regions = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.mca"))
+        {
+            for (Path path : stream)
+            {
+                regions.add(path);
+            }
+        }
+        Collections.sort(regions);
+
+        currentScan = state;
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        long start = System.nanoTime();
+        try
+        {
+            pool.invoke(new WorldTask(regions, state));
+        } finally
+        {
+            pool.shutdown();
+            currentScan = null;
+        }
+        Throwable error = state.error.get();
+        if (error instanceof IOException)
+        {
+            throw (IOException) error;
+        }
+        if (error instanceof RuntimeException)
+        {
+            throw (RuntimeException) error;
+        }
+        if (error instanceof Error)
+        {
+            throw (Error) error;
+        }
+        return new Statistics(state, System.nanoTime() - start);
+    }
+
+    /**
+     * Visitor of decoded chunks.
+     */
+    public interface ChunkVisitor
+    {
+        /**
+         * Visits a chunk. Called concurrently from many threads.
+         *
+         * @param chunkX chunk's absolute X coordinate
+         * @param chunkZ chunk's absolute Z coordinate
+         * @param chunk  root tag of the chunk
+         *
+         * @return <code>true</code> to continue the scan, <code>false</code> to stop it
+         *
+         * @throws IOException if any I/O error occurs, it stops the scan
+         */
+        boolean visit(int chunkX, int chunkZ, Tag<?> chunk) throws IOException;
+    }
+
+    /**
+     * Visitor of decompressed, but not decoded chunks.
+     */
+    public interface RawChunkVisitor
+    {
+        /**
+         * Visits a chunk. Called concurrently from many threads. The reader can't be used
+         * after this method returns.
+         *
+         * @param chunkX chunk's absolute X coordinate
+         * @param chunkZ chunk's absolute Z coordinate
+         * @param reader reader positioned at chunk's root tag
+         *
+         * @return <code>true</code> to continue the scan, <code>false</code> to stop it
+         *
+         * @throws IOException if any I/O error occurs, it stops the scan
+         */
+        boolean visit(int chunkX, int chunkZ, NbtReader reader) throws IOException;
+    }
+
+    /**
+     * Counters of one thread taking part in a scan.
+     */
+    public static final class ThreadStatistics
+    {
+        private final String threadName;
+        private long chunks;
+        private long bytes;
+        private long busyNanos;
+
+        private ThreadStatistics(String threadName)
+        {
+            this.threadName = threadName;
+        }
+
+        public String getThreadName()
+        {
+            return threadName;
+        }
+
+        /**
+         * Returns amount of chunks visited by the thread.
+         *
+         * @return amount of chunks
+         */
+        public long getChunks()
+        {
+            return chunks;
+        }
+
+        /**
+         * Returns amount of decompressed bytes processed by the thread.
+         *
+         * @return amount of bytes
+         */
+        public long getBytes()
+        {
+            return bytes;
+        }
+
+        /**
+         * Returns time the thread spent reading, decoding and visiting chunks.
+         *
+         * @return busy time in nanoseconds
+         */
+        public long getBusyNanos()
+        {
+            return busyNanos;
+        }
+
+        /**
+         * Returns throughput of the thread while it was busy.
+         *
+         * @return decompressed bytes per second
+         */
+        public double getBytesPerSecond()
+        {
+            return busyNanos == 0 ? 0 : bytes * 1e9 / busyNanos;
+        }
+    }
+
+    /**
+     * Result of a finished (or cancelled) scan.
+     */
+    public static final class Statistics
+    {
+        private final long regions;
+        private final long chunks;
+        private final long corruptedChunks;
+        private final long bytes;
+        private final long elapsedNanos;
+        private final boolean cancelled;
+        private final List<ThreadStatistics> threads;
+
+        private Statistics(ScanState state, long elapsedNanos)
+        {
+            this.regions = state.regions.get();
+            this.corruptedChunks = state.corruptedChunks.get();
+            this.elapsedNanos = elapsedNanos;
+            this.cancelled = state.cancelled;
+            this.threads = Collections.unmodifiableList(new ArrayList<>(state.threads));
+            long chunks = 0;
+            long bytes = 0;
+            for (ThreadStatistics thread : threads)
+            {
+                chunks += thread.chunks;
+                bytes += thread.bytes;
+            }
+            this.chunks = chunks;
+            this.bytes = bytes;
+        }
+
+        public long getRegions()
+        {
+            return regions;
+        }
+
+        public long getChunks()
+        {
+            return chunks;
+        }
+
+        public long getCorruptedChunks()
+        {
+            return corruptedChunks;
+        }
+
+        /**
+         * Returns amount of decompressed chunk data processed.
+         *
+         * @return amount of bytes
+         */
+        public long getBytes()
+        {
+            return bytes;
+        }
+
+        public long getElapsedNanos()
+        {
+            return elapsedNanos;
+        }
+
+        /**
+         * Checks if the scan has been stopped before all chunks were visited.
+         *
+         * @return <code>true</code> if the scan was cancelled
+         */
+        public boolean isCancelled()
+        {
+            return cancelled;
+        }
+
+        /**
+         * Returns counters of each thread that visited at least one chunk.
+         *
+         * @return per-thread statistics
+         */
+        public List<ThreadStatistics> getThreads()
+        {
+            return threads;
+        }
+
+        public double getChunksPerSecond()
+        {
+            return elapsedNanos == 0 ? 0 : chunks * 1e9 / elapsedNanos;
+        }
+
+        public double getBytesPerSecond()
+        {
+            return elapsedNanos == 0 ? 0 : bytes * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * Returns throughput of the whole scan divided by the amount of threads that took
+         * part in it.
+         *
+         * @return decompressed bytes per second per thread
+         */
+        public double getBytesPerSecondPerThread()
+        {
+            return threads.isEmpty() ? 0 : getBytesPerSecond() / threads.size();
+        }
+    }
+
+    private final class ScanState
+    {
+        private final ChunkVisitor visitor;
+        private final RawChunkVisitor rawVisitor;
+        private final int maxPermits = (int) Math.min(maxInFlightBytes >> 10, Integer.MAX_VALUE);
+        private final Semaphore inFlight = new Semaphore(maxPermits);
+        private final AtomicReference<Throwable> error = new AtomicReference<>();
+        private final AtomicLong regions = new AtomicLong();
+        private final AtomicLong corruptedChunks = new AtomicLong();
+        private final ConcurrentLinkedQueue<ThreadStatistics> threads = new ConcurrentLinkedQueue<>();
+        private final ThreadLocal<ThreadStatistics> threadStatistics = new ThreadLocal<ThreadStatistics>()
+        {
+            @Override
+            protected ThreadStatistics initialValue()
+            {
+                ThreadStatistics statistics = new ThreadStatistics(Thread.currentThread().getName());
+                threads.add(statistics);
+                return statistics;
+            }
+        };
+        private final boolean lazy = lazyCompounds;
+        private final boolean skipCorrupted = skipCorruptedChunks;
+        private volatile boolean cancelled;
+
+        private ScanState(ChunkVisitor visitor, RawChunkVisitor rawVisitor)
+        {
+            this.visitor = visitor;
+            this.rawVisitor = rawVisitor;
+        }
+
+        private void fail(Throwable throwable)
+        {
+            error.compareAndSet(null, throwable);
+            cancelled = true;
+        }
+
+        private void processChunk(RegionFile region, int x, int z)
+        {
+            long start = System.nanoTime();
+            int chunkX = (region.getRegionX() << 5) + x;
+            int chunkZ = (region.getRegionZ() << 5) + z;
+            NbtReader reader;
+            Tag<?> chunk = null;
+            int size;
+            try
+            {
+                reader = region.openChunk(x, z);
+                size = reader.remaining();
+            } catch (IOException | RuntimeException e)
+            {
+                corrupted(region, x, z, e);
+                return;
+            }
+
+            int permits = Math.min(Math.max(1, (size + 1023) >> 10), maxPermits);
+            inFlight.acquireUninterruptibly(permits);
+            try
+            {
+                if (visitor != null)
+                {
+                    try
+                    {
+                        reader.setLazyCompounds(lazy);
+                        chunk = reader.readTag();
+                    } catch (IOException | RuntimeException e)
+                    {
+                        corrupted(region, x, z, e);
+                        return;
+                    }
+                }
+                boolean proceed = visitor != null ? visitor.visit(chunkX, chunkZ, chunk) : rawVisitor.visit(chunkX, chunkZ, reader);
+                if (!proceed)
+                {
+                    cancelled = true;
+                }
+            } catch (IOException | RuntimeException | Error e)
+            {
+                fail(e);
+            } finally
+            {
+                inFlight.release(permits);
+            }
+            ThreadStatistics statistics = threadStatistics.get();
+            statistics.chunks++;
+            statistics.bytes += size;
+            statistics.busyNanos += System.nanoTime() - start;
+        }
+
+        private void corrupted(RegionFile region, int x, int z, Exception e)
+        {
+            if (skipCorrupted)
+            {
+                corruptedChunks.incrementAndGet();
+            }
+            else
+            {
+                fail(new IOException("Couldn't read chunk " + x + ", " + z + " of " + region.getPath() + "!", e));
+            }
+        }
+    }
+
+    private static final class WorldTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Path> regions;
+        private final ScanState state;
+
+        private WorldTask(List<Path> regions, ScanState state)
+        {
+            this.regions = regions;
+            this.state = state;
+        }
+
+        @Override
+        protected void compute()
+        {
+            List<RegionTask> tasks = new ArrayList<>(regions.size());
+            for (Path region : regions)
+            {
+                tasks.add(new RegionTask(region, state));
+            }
+            invokeAll(tasks);
+        }
+    }
+
+    private static final class RegionTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final Path path;
+        private final ScanState state;
+
+        private RegionTask(Path path, ScanState state)
+        {
+            this.path = path;
+            this.state = state;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (state.cancelled)
+            {
+                return;
+            }
+            try (RegionFile region = new RegionFile(path, true))
+            {
+                new ChunkRangeTask(region, 0, RegionFile.CHUNKS, state).invoke();
+                state.regions.incrementAndGet();
+            } catch (IOException | RuntimeException e)
+            {
+                state.fail(e);
+            }
+        }
+    }
+
+    private static final class ChunkRangeTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final RegionFile region;
+        private final int from;
+        private final int to;
+        private final ScanState state;
+
+        private ChunkRangeTask(RegionFile region, int from, int to, ScanState state)
+        {
+            this.region = region;
+            this.from = from;
+            this.to = to;
+            this.state = state;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from > CHUNKS_PER_TASK)
+            {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ChunkRangeTask(region, from, middle, state), new ChunkRangeTask(region, middle, to, state));
+                return;
+            }
+            for (int i = from; i < to && !state.cancelled; i++)
+            {
+                int x = i & 31;
+                int z = i >> 5;
+                if (region.hasChunk(x, z))
+                {
+                    state.processChunk(region, x, z);
+                }
+            }
+        }
+    }
+}
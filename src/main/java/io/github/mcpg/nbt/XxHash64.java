@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mcpg.nbt;
+
+/**
+ * XXH64, the 64-bit variant of the xxHash non-cryptographic hash function by Yann Collet.
+ * It's fast (it processes 32 bytes per round in four independent lanes) and its results
+ * are the same as of the reference implementation, so hashes can be stored and compared
+ * with ones computed by other tools. It isn't meant to resist deliberate collisions.
+ */
+public final class XxHash64
+{
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+    private XxHash64()
+    {
+    }
+
+    /**
+     * Hashes given bytes with seed 0.
+     *
+     * @param data bytes to hash
+     *
+     * @return hash of the bytes
+     */
+    public static long hash(byte[] data)
+    {
+        return hash(data, 0, data.length, 0);
+    }
+
+    /**
+     * Hashes given range of bytes.
+     *
+     * @param data   bytes to hash
+     * @param offset index of the first byte
+     * @param length amount of bytes
+     * @param seed   seed of the hash
+     *
+     * @return hash of the bytes
+     *
+     * @throws IndexOutOfBoundsException if the range is out of array's bounds
+     */
+    public static long hash(byte[] data, int offset, int length, long seed)
+    {
+        if (offset < 0 || length < 0 || offset > data.length - length)
+        {
+            throw new IndexOutOfBoundsException("Range " + offset + "+" + length + " out of " + data.length + "!");
+        }
+        int position = offset;
+        int end = offset + length;
+        long hash;
+        if (length >= 32)
+        {
+            long v1 = seed + PRIME1 + PRIME2;
+            long v2 = seed + PRIME2;
+            long v3 = seed;
+            long v4 = seed - PRIME1;
+            int limit = end - 32;
+            do
+            {
+                v1 = round(v1, getLong(data, position));
+                v2 = round(v2, getLong(data, position + 8));
+                v3 = round(v3, getLong(data, position + 16));
+                v4 = round(v4, getLong(data, position + 24));
+                position += 32;
+            } while (position <= limit);
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = mergeRound(hash, v1);
+            hash = mergeRound(hash, v2);
+            hash = mergeRound(hash, v3);
+            hash = mergeRound(hash, v4);
+        }
+        else
+        {
+            hash = seed + PRIME5;
+        }
+        hash += length;
+
+        while (position <= end - 8)
+        {
+            hash ^= round(0, getLong(data, position));
+            hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+            position += 8;
+        }
+        if (position <= end - 4)
+        {
+            hash ^= (getInt(data, position) & 0xFFFFFFFFL) * PRIME1;
+            hash = Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+            position += 4;
+        }
+        while (position < end)
+        {
+            hash ^= (data[position] & 0xFF) * PRIME5;
+            hash = Long.rotateLeft(hash, 11) * PRIME1;
+            position++;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= PRIME2;
+        hash ^= hash >>> 29;
+        hash *= PRIME3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+
+    private static long round(long accumulator, long input)
+    {
+        accumulator += input * PRIME2;
+        accumulator = Long.rotateLeft(accumulator, 31);
+        return accumulator * PRIME1;
+    }
+
+    private static long mergeRound(long accumulator, long value)
+    {
+        accumulator ^= round(0, value);
+        return accumulator * PRIME1 + PRIME4;
+    }
+
+    private static long getLong(byte[] data, int index)
+    {
+        return (data[index] & 0xFFL)
+                | (data[index + 1] & 0xFFL) << 8
+                | (data[index + 2] & 0xFFL) << 16
+                | (data[index + 3] & 0xFFL) << 24
+                | (data[index + 4] & 0xFFL) << 32
+                | (data[index + 5] & 0xFFL) << 40
+                | (data[index + 6] & 0xFFL) << 48
+                | (data[index + 7] & 0xFFL) << 56;
+    }
+
+    private static int getInt(byte[] data, int index)
+    {
+        return (data[index] & 0xFF)
+                | (data[index + 1] & 0xFF) << 8
+                | (data[index + 2] & 0xFF) << 16
+                | (data[index + 3] & 0xFF) << 24;
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mcpg.nbt.test;
+
+import io.github.mcpg.nbt.*;
+import org.junit.Assert;
+import org.junit.Test;
+import io.github.mcpg.nbt.TagCompound.CompoundContent;
+
+import java.util.Iterator;
+import java.util.List;
+
+public class CompoundContentTest
+{
+    @Test
+    public void orderAndLookupTest()
+    {
+        CompoundContent content = new CompoundContent();
+        for (int i = 0; i < 1000; i++)
+        {
+            content.addTag(new TagInt("tag" + i, i));
+        }
+        Assert.assertEquals(1000, content.size());
+        Assert.assertEquals(500, content.getTag("tag500").getValue());
+        Assert.assertTrue(content.containsTag("tag999"));
+        Assert.assertFalse(content.containsTag("tag1000"));
+        int i = 0;
+        for (Tag<?> tag : content.getTagsList())
+        {
+            Assert.assertEquals("tag" + i++, tag.getName());
+        }
+        try
+        {
+            content.addTag(new TagInt("tag3", 3));
+            Assert.fail("Duplicate tag was added");
+        } catch (IllegalArgumentException ignored)
+        {
+        }
+    }
+
+    @Test
+    public void removeAndReplaceTest()
+    {
+        CompoundContent content = new CompoundContent();
+        content.addTag(new TagInt("a", 1));
+        content.addTag(new TagInt("b", 2));
+        content.addTag(new TagInt("c", 3));
+
+        Tag<?> replaced = content.replaceTag(new TagString("b", "two"));
+        Assert.assertEquals(2, replaced.getValue());
+        Assert.assertNull(content.replaceTag(new TagInt("d", 4)));
+        Assert.assertEquals(3, content.removeTag("c").getValue());
+        Assert.assertNull(content.removeTag("c"));
+
+        List<Tag<?>> tags = content.getTagsList();
+        Assert.assertEquals(3, tags.size());
+        Assert.assertEquals("a", tags.get(0).getName());
+        Assert.assertEquals("two", tags.get(1).getValue());
+        Assert.assertEquals("d", tags.get(2).getName());
+        Assert.assertFalse(content.containsTag("c"));
+    }
+
+    @Test
+    public void renameTest()
+    {
+        CompoundContent content = new CompoundContent();
+        TagInt tag = new TagInt("old", 1);
+        content.addTag(tag);
+        content.addTag(new TagInt("other", 2));
+
+        tag.setName("new");
+        Assert.assertNull(content.getTag("old"));
+        Assert.assertSame(tag, content.getTag("new"));
+        Assert.assertEquals("new", content.getTagsList().get(0).getName());
+        try
+        {
+            tag.setName("other");
+            Assert.fail("Tag was renamed to a taken name");
+        } catch (IllegalArgumentException ignored)
+        {
+        }
+        Assert.assertEquals("new", tag.getName());
+
+        content.removeTag("new");
+        tag.setName("other");
+        Assert.assertEquals(2, content.getTag("other").getValue());
+
+        // a tag is in one compound at most, so renaming it can't leave another index stale
+        CompoundContent first = new CompoundContent();
+        CompoundContent second = new CompoundContent();
+        TagInt k = new TagInt("k", 1);
+        first.addTag(k);
+        try
+        {
+            second.addTag(k);
+            Assert.fail("Tag of another compound added");
+        } catch (IllegalArgumentException ignored)
+        {
+        }
+        k.setName("k2");
+        second.addTag(new TagInt("k2", 5));
+        Assert.assertSame(k, first.getTag("k2"));
+        Assert.assertNull(first.getTag("k"));
+        Assert.assertEquals(1, second.size());
+        try
+        {
+            second.getTag("k2").setName("k3");
+            second.addTag(new TagInt("k3", 6));
+            Assert.fail("Second tag named k3 added");
+        } catch (IllegalArgumentException ignored)
+        {
+        }
+        Assert.assertEquals(1, second.size());
+        Assert.assertEquals(5, second.getInt("k3", 0));
+    }
+
+    @Test
+    public void listViewTest()
+    {
+        CompoundContent content = new CompoundContent();
+        List<Tag<?>> tags = content.getTagsList();
+        tags.add(new TagInt("a", 1));
+        tags.add(new TagInt("c", 3));
+        tags.add(1, new TagInt("b", 2));
+        Assert.assertEquals(2, content.getTag("b").getValue());
+        Assert.assertEquals("b", tags.get(1).getName());
+
+        Iterator<Tag<?>> iterator = tags.iterator();
+        iterator.next();
+        iterator.remove();
+        Assert.assertFalse(content.containsTag("a"));
+        Assert.assertEquals(2, content.size());
+
+        tags.set(0, new TagInt("x", 10));
+        Assert.assertFalse(content.containsTag("b"));
+        Assert.assertEquals(10, content.getTag("x").getValue());
+
+        tags.clear();
+        Assert.assertEquals(0, content.size());
+        Assert.assertNull(content.getTag("x"));
+    }
+
+    @Test
+    public void typedAccessorsTest()
+    {
+        CompoundContent content = new CompoundContent();
+        content.addTag(new TagByte("byte", (byte) -3));
+        content.addTag(new TagInt("int", 70000));
+        content.addTag(new TagLong("long", 1L << 40));
+        content.addTag(new TagDouble("double", 2.75));
+        content.addTag(new TagString("string", "text"));
+
+        Assert.assertEquals(-3, content.getByte("byte", (byte) 0));
+        Assert.assertEquals(70000, content.getInt("int", 0));
+        Assert.assertEquals(1L << 40, content.getLong("long", 0));
+        Assert.assertEquals(2.75, content.getDouble("double", 0), 0);
+        Assert.assertEquals("text", content.getString("string", null));
+
+        // numeric tags are converted, other tags and missing ones give the default value
+        Assert.assertEquals(-3L, content.getLong("byte", 0));
+        Assert.assertEquals(2, content.getInt("double", 0));
+        Assert.assertEquals(70000f, content.getFloat("int", 0), 0);
+        Assert.assertEquals(5, content.getInt("string", 5));
+        Assert.assertEquals(5, content.getShort("missing", (short) 5));
+        Assert.assertEquals("default", content.getString("int", "default"));
+
+        TagInt tag = (TagInt) content.getTag("int");
+        tag.setInt(12);
+        Assert.assertEquals(Integer.valueOf(12), tag.getValue());
+        tag.setValue(13);
+        Assert.assertEquals(13, tag.getInt());
+        Assert.assertEquals(new TagInt("int", 13), tag);
+        Assert.assertNotEquals(new TagInt("other", 13), tag);
+    }
+}
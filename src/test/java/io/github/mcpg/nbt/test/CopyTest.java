@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mcpg.nbt.test;
+
+import io.github.mcpg.nbt.*;
+import io.github.mcpg.nbt.TagCompound.CompoundContent;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+public class CopyTest
+{
+    @Test
+    public void copyTest() throws IOException
+    {
+        TagCompound tree = TestTrees.create(1);
+        byte[] expected = TestTrees.write(tree);
+        TagCompound copy = tree.copy();
+        Assert.assertArrayEquals(expected, TestTrees.write(copy));
+        Assert.assertEquals("root", copy.getName());
+
+        CompoundContent root = copy.getValue();
+        Assert.assertNotSame(tree.getValue().getTag("intArray").getValue(), root.getTag("intArray").getValue());
+        ((TagIntArray) root.getTag("intArray")).getValue()[0]++;
+        ((TagByteArray) root.getTag("byteArray")).getValue()[0]++;
+        ((TagLongArray) root.getTag("longArray")).getValue()[0]++;
+        ((TagInt) root.getTag("int")).setInt(7);
+        ((TagString) root.getTag("string")).setValue("changed");
+        TagList inventory = (TagList) root.getTag("Inventory");
+        ((TagCompound) inventory.getValue().get(0)).getValue().removeTag("tag");
+        inventory.getValue().remove(1);
+        ((TagList) root.getTag("Pos")).setDouble(0, 1.5);
+        root.getTag("long").setName("renamed");
+        Assert.assertTrue(root.containsTag("renamed"));
+        Assert.assertArrayEquals(expected, TestTrees.write(tree));
+
+        // packed lists are copied packed
+        TagList packed = new TagList("packed", new int[] {1, 2, 3});
+        TagList packedCopy = packed.copy();
+        Assert.assertTrue(packedCopy.isPacked());
+        packedCopy.setInt(0, 10);
+        Assert.assertEquals(1, packed.getInt(0));
+        Assert.assertArrayEquals(new int[] {10, 2, 3}, packedCopy.getInts());
+
+        // tag classes without their own copy() are copied through their payload
+        Tag<String> custom = new Tag<String>("custom", "value", TagType.TAG_STRING)
+        {
+            @Override
+            public void writeTagPayload(DataOutputStream outputStream) throws IOException
+            {
+                outputStream.writeUTF(value);
+            }
+
+            @Override
+            public void readTagPayload(DataInputStream inputStream) throws IOException
+            {
+                value = inputStream.readUTF();
+            }
+        };
+        Tag<String> customCopy = custom.copy();
+        Assert.assertNotSame(custom, customCopy);
+        Assert.assertEquals("custom", customCopy.getName());
+        Assert.assertEquals("value", customCopy.getValue());
+    }
+
+    @Test
+    public void copyOnWriteTest() throws IOException
+    {
+        TagCompound tree = TestTrees.create(2);
+        byte[] expected = TestTrees.write(tree);
+        TagCompound copy = tree.copyOnWrite();
+        Assert.assertArrayEquals(expected, TestTrees.write(copy));
+        Assert.assertArrayEquals(expected, new NbtWriter().write(copy));
+        Assert.assertEquals(tree.getValue().size(), copy.getValue().size());
+        Assert.assertTrue(copy.getValue().containsTag("Inventory"));
+
+        TagList inventory = (TagList) copy.getValue().getTag("Inventory");
+        Assert.assertNotSame(tree.getValue().getTag("Inventory"), inventory);
+        ((TagCompound) inventory.getValue().get(4)).getValue().replaceTag(new TagByte("Count", (byte) 100));
+        ((TagInt) copy.getValue().getTag("int")).setInt(7);
+        copy.getValue().removeTag("byte");
+        copy.getValue().addTag(new TagString("added", "tag"));
+        Assert.assertArrayEquals(expected, TestTrees.write(tree));
+        Assert.assertEquals(100, ((TagCompound) inventory.getValue().get(4)).getValue().getByte("Count", (byte) 0));
+
+        // nested compounds are copied one level at a time
+        CompoundContent content = new CompoundContent();
+        content.addTag(tree);
+        CompoundContent copied = content.copyOnWrite();
+        CompoundContent nested = ((TagCompound) copied.getTag("root")).getValue();
+        nested.replaceTag(new TagInt("int", 1));
+        Assert.assertEquals(1, nested.getInt("int", 0));
+        Assert.assertNotEquals(1, tree.getValue().getInt("int", 1));
+        Assert.assertArrayEquals(expected, TestTrees.write(tree));
+
+        // copies of a copy don't share anything either
+        CompoundContent second = copied.copyOnWrite();
+        ((TagCompound) second.getTag("root")).getValue().replaceTag(new TagInt("int", 2));
+        Assert.assertEquals(1, nested.getInt("int", 0));
+        CompoundContent deep = copied.copy();
+        ((TagCompound) deep.getTag("root")).getValue().replaceTag(new TagInt("int", 3));
+        Assert.assertEquals(1, nested.getInt("int", 0));
+    }
+
+    @Test
+    public void snapshotTest() throws IOException
+    {
+        TagCompound tree = TestTrees.create(2);
+        byte[] expected = TestTrees.write(tree);
+        TagCompound copy = tree.copyOnWrite();
+        TagCompound second = copy.copyOnWrite();
+
+        // changes of the original made after copying aren't seen by copies
+        CompoundContent original = tree.getValue();
+        ((TagInt) original.getTag("int")).setInt(5);
+        original.getTag("byte").setName("renamed");
+        TagList pos = (TagList) original.getTag("Pos");
+        pos.setDouble(0, pos.getDouble(0) + 1);
+        List<Tag<?>> items = ((TagList) original.getTag("Inventory")).getValue();
+        ((TagCompound) items.get(0)).getValue().replaceTag(new TagByte("Count", (byte) 100));
+        items.remove(1);
+        Assert.assertArrayEquals(expected, TestTrees.write(copy));
+        Assert.assertArrayEquals(expected, TestTrees.write(second));
+        Assert.assertEquals(TestTrees.create(2).getValue().getInt("int", 0), copy.getValue().getInt("int", 5));
+        Assert.assertEquals(TestTrees.create(2), copy);
+
+        // also after the copy has copied a nested compound one level
+        CompoundContent content = new CompoundContent();
+        TagCompound root = TestTrees.create(2);
+        content.addTag(root);
+        CompoundContent copied = content.copyOnWrite();
+        CompoundContent nested = ((TagCompound) copied.getTag("root")).getValue();
+        TagInt removed = (TagInt) root.getValue().removeTag("int");
+        removed.setInt(5);
+        Assert.assertEquals(TestTrees.create(2).getValue().getInt("int", 0), nested.getInt("int", 5));
+        Assert.assertArrayEquals(expected, TestTrees.write((TagCompound) copied.getTag("root")));
+
+        // snapshots copy one level, so later changes deeper in the original are kept apart too
+        TagCompound deep = TestTrees.create(3);
+        TagCompound deepCopy = deep.copyOnWrite();
+        CompoundContent item = ((TagCompound) ((TagList) deep.getValue().getTag("Inventory")).getValue().get(2)).getValue();
+        TagInt damage = (TagInt) ((TagCompound) item.getTag("tag")).getValue().getTag("Damage");
+        damage.setInt(damage.getInt() + 1);
+        item.removeTag("Slot");
+        damage.setInt(damage.getInt() + 1);
+        Assert.assertEquals(TestTrees.create(3), deepCopy);
+        TagList copiedItems = (TagList) deepCopy.getValue().getTag("Inventory");
+        ((TagCompound) copiedItems.getValue().get(2)).getValue().removeTag("tag");
+        Assert.assertNotNull(item.getTag("tag"));
+        Assert.assertEquals(damage.getInt(), ((TagCompound) item.getTag("tag")).getValue().getInt("Damage", 0));
+    }
+
+    @Test
+    public void lazyCopyTest() throws IOException
+    {
+        TagCompound tree = TestTrees.create(3);
+        byte[] expected = TestTrees.write(tree);
+        NbtReader reader = new NbtReader(expected);
+        reader.setLazyCompounds(true);
+        TagCompound lazy = (TagCompound) reader.readTag();
+
+        TagCompound copy = lazy.copy();
+        TagCompound copyOnWrite = lazy.copyOnWrite();
+        ((TagInt) lazy.getValue().getTag("int")).setInt(7);
+        Assert.assertArrayEquals(expected, TestTrees.write(copy));
+        Assert.assertArrayEquals(expected, new NbtWriter().write(copyOnWrite));
+        Assert.assertEquals(tree.getValue().getInt("int", 0), copy.getValue().getInt("int", 1));
+        Assert.assertEquals(tree.getValue().getInt("int", 0), copyOnWrite.getValue().getInt("int", 1));
+    }
+
+    @Test
+    public void presizedTest()
+    {
+        CompoundContent content = new CompoundContent(100);
+        for (int i = 0; i < 200; i++)
+        {
+            content.addTag(new TagInt("tag" + i, i));
+        }
+        Assert.assertEquals(200, content.size());
+        Assert.assertEquals(150, content.getInt("tag150", 0));
+
+        try
+        {
+            new CompoundContent(-1);
+            Assert.fail("Negative size accepted");
+        } catch (IllegalArgumentException ignored)
+        {
+        }
+    }
+}
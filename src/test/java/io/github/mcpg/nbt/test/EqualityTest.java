@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mcpg.nbt.test;
+
+import io.github.mcpg.nbt.*;
+import io.github.mcpg.nbt.TagCompound.CompoundContent;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class EqualityTest
+{
+    @Test
+    public void equalsTest() throws IOException
+    {
+        TagCompound tree = TestTrees.create(1);
+        TagCompound same = TestTrees.create(1);
+        Assert.assertEquals(tree, same);
+        Assert.assertEquals(tree.hashCode(), same.hashCode());
+        Assert.assertNotEquals(tree, TestTrees.create(2));
+
+        // read lists of numbers are packed, the created ones aren't
+        TagCompound read = (TagCompound) new NbtReader(TestTrees.write(tree)).readTag();
+        Assert.assertTrue(((TagList) read.getValue().getTag("Pos")).isPacked());
+        Assert.assertFalse(((TagList) tree.getValue().getTag("Pos")).isPacked());
+        Assert.assertEquals(tree, read);
+        Assert.assertEquals(tree.hashCode(), read.hashCode());
+
+        NbtReader reader = new NbtReader(TestTrees.write(tree));
+        reader.setLazyCompounds(true);
+        TagCompound lazy = (TagCompound) reader.readTag();
+        Assert.assertEquals(tree.hashCode(), lazy.hashCode());
+        Assert.assertEquals(lazy, tree);
+        Assert.assertEquals(tree, tree.copyOnWrite());
+        Assert.assertEquals(tree.hashCode(), tree.copyOnWrite().hashCode());
+
+        // names and types matter, order of compound's tags doesn't
+        Assert.assertNotEquals(new TagInt("a", 1), new TagInt("b", 1));
+        Assert.assertNotEquals(new TagInt("a", 1), new TagLong("a", 1));
+        Assert.assertNotEquals(new TagInt("a", 1), new TagInt("a", 2));
+        CompoundContent first = new CompoundContent();
+        first.addTag(new TagInt("a", 1));
+        first.addTag(new TagString("b", "text"));
+        CompoundContent second = new CompoundContent();
+        second.addTag(new TagString("b", "text"));
+        second.addTag(new TagInt("a", 1));
+        Assert.assertEquals(new TagCompound("c", first), new TagCompound("c", second));
+        Assert.assertEquals(first.hashCode(), second.hashCode());
+        second.replaceTag(new TagString("a", "1"));
+        Assert.assertNotEquals(first, second);
+
+        // arrays are compared by content
+        Assert.assertEquals(new TagIntArray("a", new int[] {1, 2}), new TagIntArray("a", new int[] {1, 2}));
+        Assert.assertEquals(new TagByteArray("a", new byte[] {1}).hashCode(), new TagByteArray("a", new byte[] {1}).hashCode());
+        Assert.assertNotEquals(new TagLongArray("a", new long[] {1}), new TagLongArray("a", new long[] {2}));
+
+        // floating point values are compared like Float.equals and Double.equals
+        Assert.assertEquals(new TagDouble("a", Double.NaN), new TagDouble("a", Double.NaN));
+        Assert.assertNotEquals(new TagFloat("a", 0f), new TagFloat("a", -0f));
+
+        // packed and unpacked lists, empty lists of any type
+        List<Tag<?>> ints = new ArrayList<>();
+        ints.add(new TagInt("", 1));
+        ints.add(new TagInt("", 2));
+        TagList unpacked = new TagList("l", ints, TagType.TAG_INT);
+        Assert.assertEquals(new TagList("l", new int[] {1, 2}), unpacked);
+        Assert.assertEquals(new TagList("l", new int[] {1, 2}).hashCode(), unpacked.hashCode());
+        Assert.assertNotEquals(new TagList("l", new int[] {1, 2}), new TagList("l", new long[] {1, 2}));
+        Assert.assertEquals(new TagList("l", new int[0]), new TagList("l", new ArrayList<>(), TagType.TAG_END));
+    }
+
+    @Test
+    public void cachedHashTest()
+    {
+        TagCompound tree = TestTrees.create(3);
+        int hash = tree.hashCode();
+
+        // changes deep in the tree, also inside lists, drop cached hash codes
+        TagList inventory = (TagList) tree.getValue().getTag("Inventory");
+        CompoundContent slot = ((TagCompound) inventory.getValue().get(2)).getValue();
+        TagInt damage = (TagInt) ((TagCompound) slot.getTag("tag")).getValue().getTag("Damage");
+        int oldDamage = damage.getInt();
+        damage.setInt(oldDamage + 1);
+        Assert.assertNotEquals(hash, tree.hashCode());
+        Assert.assertNotEquals(TestTrees.create(3), tree);
+        damage.setInt(oldDamage);
+        Assert.assertEquals(hash, tree.hashCode());
+
+        TagList pos = (TagList) tree.getValue().getTag("Pos");
+        double x = pos.getDouble(0);
+        pos.setDouble(0, x + 1);
+        Assert.assertNotEquals(hash, tree.hashCode());
+        pos.setDouble(0, x);
+        Assert.assertEquals(hash, tree.hashCode());
+
+        slot.getTag("id").setName("name");
+        Assert.assertNotEquals(hash, tree.hashCode());
+        slot.getTag("name").setName("id");
+        Assert.assertEquals(hash, tree.hashCode());
+
+        slot.removeTag("Slot");
+        Assert.assertNotEquals(hash, tree.hashCode());
+        slot.addTag(new TagByte("Slot", (byte) 2));
+        Assert.assertEquals(hash, tree.hashCode());
+
+        // arrays changed in place have to be set again
+        TagIntArray array = (TagIntArray) tree.getValue().getTag("intArray");
+        array.getValue()[0]++;
+        array.setValue(array.getValue());
+        Assert.assertNotEquals(hash, tree.hashCode());
+        array.getValue()[0]--;
+        array.setValue(array.getValue());
+        Assert.assertEquals(hash, tree.hashCode());
+        Assert.assertEquals(TestTrees.create(3), tree);
+    }
+
+    @Test
+    public void listViewHashTest() throws IOException
+    {
+        TagCompound tree = TestTrees.create(3);
+        int hash = tree.hashCode();
+
+        // changes made through the list returned by getValue() drop cached hash codes too
+        List<Tag<?>> items = ((TagList) tree.getValue().getTag("Inventory")).getValue();
+        TagCompound item = (TagCompound) items.get(0).copy();
+        items.add(item);
+        Assert.assertNotEquals(hash, tree.hashCode());
+        TagCompound read = (TagCompound) new NbtReader(TestTrees.write(tree)).readTag();
+        Assert.assertEquals(read.hashCode(), tree.hashCode());
+        Assert.assertEquals(read, tree);
+
+        // tags added through the view are tracked as elements of the list
+        item.getValue().addTag(new TagByte("Extra", (byte) 1));
+        Assert.assertNotEquals(read.hashCode(), tree.hashCode());
+        item.getValue().removeTag("Extra");
+        Assert.assertEquals(read.hashCode(), tree.hashCode());
+
+        Tag<?> first = items.set(0, items.get(1).copy());
+        Assert.assertNotEquals(read.hashCode(), tree.hashCode());
+        items.set(0, first);
+        Assert.assertEquals(read.hashCode(), tree.hashCode());
+
+        items.remove(items.size() - 1);
+        Assert.assertEquals(hash, tree.hashCode());
+        Assert.assertEquals(TestTrees.create(3), tree);
+
+        items.clear();
+        Assert.assertNotEquals(hash, tree.hashCode());
+        Assert.assertEquals(0, ((TagList) tree.getValue().getTag("Inventory")).getSize());
+    }
+
+    @Test
+    public void singleHolderTest()
+    {
+        CompoundContent a = new CompoundContent();
+        CompoundContent b = new CompoundContent();
+        List<Tag<?>> elements = new ArrayList<>();
+        TagInt k = new TagInt("k", 1);
+        a.addTag(k);
+
+        // a tag held by a compound can't be put anywhere else, as only one holder is notified
+        try
+        {
+            b.addTag(k);
+            Assert.fail("Tag held by another compound accepted");
+        } catch (IllegalArgumentException ignored)
+        {
+        }
+        try
+        {
+            b.replaceTag(k);
+            Assert.fail("Tag held by another compound accepted");
+        } catch (IllegalArgumentException ignored)
+        {
+        }
+        try
+        {
+            b.getTagsList().add(k);
+            Assert.fail("Tag held by another compound accepted");
+        } catch (IllegalArgumentException ignored)
+        {
+        }
+        elements.add(k);
+        try
+        {
+            new TagList("l", elements, TagType.TAG_INT);
+            Assert.fail("Tag held by a compound accepted");
+        } catch (IllegalArgumentException ignored)
+        {
+        }
+        Assert.assertSame(k, a.replaceTag(k));
+
+        // once removed, it can be added again
+        a.removeTag("k");
+        TagList list = new TagList("l", elements, TagType.TAG_INT);
+        try
+        {
+            b.addTag(k);
+            Assert.fail("Tag held by a list accepted");
+        } catch (IllegalArgumentException ignored)
+        {
+        }
+        try
+        {
+            list.getValue().add(k);
+            Assert.fail("Tag held by the list accepted");
+        } catch (IllegalArgumentException ignored)
+        {
+        }
+        list.getValue().remove(0);
+        b.addTag(k);
+        int hash = b.hashCode();
+        k.setInt(2);
+        Assert.assertNotEquals(hash, b.hashCode());
+        b.removeTag("k");
+
+        list.getValue().add(k);
+        TagCompound holder = new TagCompound("", new CompoundContent());
+        holder.getValue().addTag(list);
+        hash = holder.hashCode();
+        k.setInt(3);
+        Assert.assertNotEquals(hash, holder.hashCode());
+        list.getValue().clear();
+        a.addTag(k);
+    }
+
+    @Test
+    public void mapKeyTest() throws IOException
+    {
+        Map<Tag<?>, Integer> stacks = new HashMap<>();
+        for (int i = 0; i < 10; i++)
+        {
+            stacks.merge(TestTrees.create(i % 3), 1, Integer::sum);
+        }
+        Assert.assertEquals(3, stacks.size());
+        TagCompound read = (TagCompound) new NbtReader(TestTrees.write(TestTrees.create(0))).readTag();
+        Assert.assertEquals(Integer.valueOf(4), stacks.get(read));
+    }
+}
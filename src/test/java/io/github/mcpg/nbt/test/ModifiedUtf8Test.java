@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mcpg.nbt.test;
+
+import io.github.mcpg.nbt.*;
+import io.github.mcpg.nbt.TagCompound.CompoundContent;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.util.Arrays;
+
+public class ModifiedUtf8Test
+{
+    private static final String[] STRINGS = {
+            "",
+            "minecraft:stone",
+            "null \u0000 inside",
+            "\u015bwiat \u00e9t\u00e9 \u4e16\u754c",
+            "emoji \ud83d\ude00 and \ud800\udc00",
+            "\u07ff\u0800\uffff"
+    };
+
+    @Test
+    public void dataOutputCompatibilityTest() throws IOException
+    {
+        for (String string : STRINGS)
+        {
+            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+            new DataOutputStream(byteArrayOutputStream).writeUTF(string);
+            byte[] expected = byteArrayOutputStream.toByteArray();
+            expected = Arrays.copyOfRange(expected, 2, expected.length);
+
+            Assert.assertEquals(expected.length, ModifiedUtf8.getEncodedLength(string));
+            Assert.assertArrayEquals(expected, ModifiedUtf8.encode(string));
+            Assert.assertEquals(string, ModifiedUtf8.decode(expected, 0, expected.length));
+
+            byte[] padded = new byte[expected.length + 4];
+            Assert.assertEquals(expected.length, ModifiedUtf8.encode(string, padded, 2));
+            Assert.assertEquals(string, ModifiedUtf8.decode(padded, 2, expected.length));
+        }
+    }
+
+    @Test
+    public void tagsTest() throws IOException
+    {
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < 40000)
+        {
+            builder.append("lore \u00a7c\u0000 ");
+        }
+        String longString = builder.substring(0, 40000);
+        CompoundContent content = new CompoundContent();
+        content.addTag(new TagString("long", longString));
+        for (String string : STRINGS)
+        {
+            content.addTag(new TagString(string, string));
+        }
+        TagCompound root = new TagCompound("root \ud83d\ude00", content);
+        byte[] data = TestTrees.write(root);
+
+        Tag<?>[] reads = {
+                TagReadingUtils.readTag(new DataInputStream(new ByteArrayInputStream(data))),
+                new NbtReader(data).readTag()
+        };
+        for (Tag<?> read : reads)
+        {
+            Assert.assertEquals("root \ud83d\ude00", read.getName());
+            CompoundContent readContent = ((TagCompound) read).getValue();
+            Assert.assertEquals(longString, readContent.getString("long", null));
+            for (String string : STRINGS)
+            {
+                Assert.assertEquals(string, readContent.getString(string, null));
+            }
+            Assert.assertArrayEquals(data, new NbtWriter().write(read));
+        }
+    }
+
+    @Test
+    public void standardSupplementaryTest() throws IOException
+    {
+        // 4-byte emoji next to an encoded null, and next to a real U+FFFD
+        byte[] withNull = {(byte) 0xf0, (byte) 0x9f, (byte) 0x98, (byte) 0x80, (byte) 0xc0, (byte) 0x80};
+        Assert.assertEquals("\ud83d\ude00\u0000", ModifiedUtf8.decode(withNull, 0, withNull.length));
+        byte[] withReplacement = {'a', (byte) 0xef, (byte) 0xbf, (byte) 0xbd, (byte) 0xf0, (byte) 0x9f, (byte) 0x98,
+                (byte) 0x80};
+        Assert.assertEquals("a\ufffd\ud83d\ude00", ModifiedUtf8.decode(withReplacement, 0, withReplacement.length));
+
+        try
+        {
+            ModifiedUtf8.decode(withNull, 0, 3);
+            Assert.fail("Truncated 4-byte sequence accepted");
+        } catch (UTFDataFormatException ignored)
+        {
+        }
+    }
+
+    @Test
+    public void tooLongTest() throws IOException
+    {
+        char[] chars = new char[30000];
+        Arrays.fill(chars, '\u4e16');
+        String tooLong = new String(chars);
+        Tag<?>[] tags = {new TagString("value", tooLong), new TagInt(tooLong, 1)};
+        for (Tag<?> tag : tags)
+        {
+            try
+            {
+                TestTrees.write(tag);
+                Assert.fail("Too long string written");
+            } catch (UTFDataFormatException ignored)
+            {
+            }
+            try
+            {
+                new NbtWriter().write(tag);
+                Assert.fail("Too long string written");
+            } catch (IllegalArgumentException ignored)
+            {
+            }
+        }
+    }
+
+    @Test(expected = UTFDataFormatException.class)
+    public void malformedTest() throws IOException
+    {
+        byte[] data = {'a', (byte) 0xe4, (byte) 0xb8};
+        ModifiedUtf8.decode(data, 0, data.length);
+    }
+}
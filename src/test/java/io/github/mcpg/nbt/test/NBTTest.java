@@ -163,4 +163,19 @@ public class NBTTest
             Assert.assertEquals(loadedLongs[i], Long.MAX_VALUE - (i * 30));
         }
     }
+
+    @Test
+    public void tagTypeFactoryTest()
+    {
+        for (TagType type : TagType.values())
+        {
+            Assert.assertSame(type, TagType.byId(type.getId()));
+            Tag<?> tag = type.createTag("name");
+            Assert.assertSame(type.getClazz(), tag.getClass());
+            Assert.assertEquals(type, tag.getType());
+            Assert.assertEquals("name", tag.getName());
+        }
+        Assert.assertNull(TagType.byId(-1));
+        Assert.assertNull(TagType.byId(13));
+    }
 }
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mcpg.nbt.test;
+
+import io.github.mcpg.nbt.*;
+import io.github.mcpg.nbt.TagCompound.CompoundContent;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+public class NbtDedupStoreTest
+{
+    @Test
+    public void xxHashTest()
+    {
+        // Values of the reference implementation
+        Assert.assertEquals(0xEF46DB3751D8E999L, XxHash64.hash(new byte[0]));
+        Assert.assertEquals(0xD24EC4F1A98C6E5BL, XxHash64.hash(ascii("a")));
+        Assert.assertEquals(0x44BC2CF5AD770999L, XxHash64.hash(ascii("abc")));
+        Assert.assertEquals(0x32DD38952C4BC720L, XxHash64.hash(ascii("xxhash")));
+        byte[] xxhash = ascii("xxhash");
+        Assert.assertEquals(0xB559B98D844E0635L, XxHash64.hash(xxhash, 0, xxhash.length, 20141025));
+        Assert.assertEquals(0xFBCEA83C8A378BF1L, XxHash64.hash(ascii("Nobody inspects the spammish repetition")));
+
+        byte[] padded = ascii("__Nobody inspects the spammish repetition__");
+        Assert.assertEquals(0xFBCEA83C8A378BF1L, XxHash64.hash(padded, 2, padded.length - 4, 0));
+        try
+        {
+            XxHash64.hash(padded, 2, padded.length, 0);
+            Assert.fail("Range out of bounds accepted");
+        } catch (IndexOutOfBoundsException ignored)
+        {
+        }
+    }
+
+    @Test
+    public void roundTripTest() throws IOException
+    {
+        NbtDedupStore store = new NbtDedupStore();
+        TagCompound tree = TestTrees.create(1);
+        long id = store.put(tree);
+        Assert.assertTrue(store.contains(id));
+        Tag<?> read = store.get(id);
+        Assert.assertEquals("", read.getName());
+        Assert.assertEquals(tree.getValue(), read.getValue());
+        Assert.assertNotSame(read, store.get(id));
+
+        tree.setName("");
+        Assert.assertArrayEquals(TestTrees.write(tree), TestTrees.write(read));
+        Assert.assertEquals(id, store.put(new NbtReader(TestTrees.write(tree)).readTag()));
+
+        TagList list = new TagList("", new double[] {1, 2, 3});
+        Assert.assertEquals(list, store.get(store.put(list)));
+        Assert.assertEquals(new TagString("", "text"), store.get(store.put(new TagString("name", "text"))));
+
+        try
+        {
+            store.get(id + 1);
+            Assert.fail("Unknown node read");
+        } catch (IllegalArgumentException ignored)
+        {
+        }
+    }
+
+    @Test
+    public void sharingTest()
+    {
+        NbtDedupStore store = new NbtDedupStore();
+        TagCompound tree = TestTrees.create(2);
+        long id = store.put(tree);
+        int nodes = store.getNodeCount();
+        long stored = store.getStoredSize();
+        Assert.assertTrue(nodes > 1);
+        Assert.assertEquals(0, store.getDuplicateCount());
+
+        // the same tree is stored once
+        Assert.assertEquals(id, store.put(tree.copy()));
+        Assert.assertEquals(nodes, store.getNodeCount());
+        Assert.assertEquals(stored, store.getStoredSize());
+        Assert.assertEquals(nodes, store.getDuplicateCount());
+
+        // a changed tree shares all the subtrees it hasn't changed
+        TagCompound changed = tree.copy();
+        ((TagInt) changed.getValue().getTag("int")).setInt(tree.getValue().getInt("int", 0) + 1);
+        long changedId = store.put(changed);
+        Assert.assertNotEquals(id, changedId);
+        Assert.assertEquals(nodes + 1, store.getNodeCount());
+        Assert.assertTrue(store.getStoredSize() - stored < stored / 2);
+        Assert.assertEquals(changed.getValue(), store.get(changedId).getValue());
+        Assert.assertEquals(tree.getValue(), store.get(id).getValue());
+
+        Assert.assertEquals(3, store.getTreeCount());
+        Assert.assertTrue(store.getTotalSize() > 2 * store.getStoredSize());
+
+        // large minimal size keeps trees in single nodes
+        NbtDedupStore single = new NbtDedupStore(Integer.MAX_VALUE);
+        single.put(tree);
+        single.put(changed);
+        Assert.assertEquals(2, single.getNodeCount());
+        Assert.assertEquals(tree.getValue(), single.get(single.put(tree)).getValue());
+
+        try
+        {
+            new NbtDedupStore(-1);
+            Assert.fail("Negative node size accepted");
+        } catch (IllegalArgumentException ignored)
+        {
+        }
+    }
+
+    @Test
+    public void persistenceTest() throws IOException
+    {
+        NbtDedupStore store = new NbtDedupStore(0);
+        long[] ids = new long[5];
+        for (int i = 0; i < ids.length; i++)
+        {
+            ids[i] = store.put(TestTrees.create(i % 3));
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        store.writeTo(output);
+
+        NbtDedupStore read = NbtDedupStore.readFrom(new ByteArrayInputStream(output.toByteArray()));
+        Assert.assertEquals(store.getNodeCount(), read.getNodeCount());
+        Assert.assertEquals(store.getStoredSize(), read.getStoredSize());
+        for (int i = 0; i < ids.length; i++)
+        {
+            CompoundContent expected = TestTrees.create(i % 3).getValue();
+            Assert.assertEquals(expected, read.get(ids[i]).getValue());
+        }
+    }
+
+    private static byte[] ascii(String string)
+    {
+        return string.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mcpg.nbt.test;
+
+import io.github.mcpg.nbt.*;
+import io.github.mcpg.nbt.TagCompound.CompoundContent;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class NbtEncodingTest
+{
+    @Test
+    public void roundTripTest() throws IOException
+    {
+        TagCompound tree = TestTrees.create(1);
+        byte[] expected = TestTrees.write(tree);
+        for (NbtEncoding encoding : NbtEncoding.values())
+        {
+            NbtWriter writer = encoding.newWriter();
+            Assert.assertEquals(encoding, writer.getEncoding());
+            byte[] data = writer.write(tree);
+            Assert.assertEquals(encoding.name(), data.length, writer.getSize(tree));
+
+            NbtReader reader = encoding.newReader(data);
+            Assert.assertEquals(encoding, reader.getEncoding());
+            Assert.assertArrayEquals(encoding.name(), expected, TestTrees.write(reader.readTag()));
+            Assert.assertEquals(0, reader.remaining());
+
+            ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+            direct.put(data);
+            direct.flip();
+            Assert.assertArrayEquals(encoding.name(), expected, TestTrees.write(encoding.newReader(direct).readTag()));
+        }
+    }
+
+    @Test
+    public void lazyTest() throws IOException
+    {
+        TagCompound tree = TestTrees.create(2);
+        byte[] expected = TestTrees.write(tree);
+        for (NbtEncoding encoding : NbtEncoding.values())
+        {
+            byte[] data = encoding.newWriter().write(tree);
+            // tags of the same encoding are copied, others are decoded first
+            Assert.assertArrayEquals(encoding.name(), data, encoding.newWriter().write(readLazy(encoding, data)));
+            Assert.assertArrayEquals(encoding.name(), expected, TestTrees.write(readLazy(encoding, data)));
+            for (NbtEncoding target : NbtEncoding.values())
+            {
+                NbtWriter writer = target.newWriter();
+                Tag<?> lazy = readLazy(encoding, data);
+                Assert.assertEquals(writer.getSize(tree), writer.getSize(lazy));
+                Assert.assertArrayEquals(writer.write(tree), writer.write(lazy));
+            }
+        }
+    }
+
+    @Test
+    public void vectorTest() throws IOException
+    {
+        CompoundContent content = new CompoundContent();
+        content.addTag(new TagInt("a", -1));
+        content.addTag(new TagLong("b", 300));
+        content.addTag(new TagString("s", "hi"));
+        content.addTag(new TagIntArray("c", new int[]{1, -2}));
+        TagCompound root = new TagCompound("", content);
+
+        byte[] littleEndian = bytes(
+                0x0a, 0x00, 0x00,
+                0x03, 0x01, 0x00, 'a', 0xff, 0xff, 0xff, 0xff,
+                0x04, 0x01, 0x00, 'b', 0x2c, 0x01, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
+                0x08, 0x01, 0x00, 's', 0x02, 0x00, 'h', 'i',
+                0x0b, 0x01, 0x00, 'c', 0x02, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0xfe, 0xff, 0xff, 0xff,
+                0x00);
+        byte[] network = bytes(
+                0x0a, 0x00,
+                0x03, 0x01, 'a', 0x01,
+                0x04, 0x01, 'b', 0xd8, 0x04,
+                0x08, 0x01, 's', 0x02, 'h', 'i',
+                0x0b, 0x01, 'c', 0x04, 0x02, 0x03,
+                0x00);
+        Assert.assertArrayEquals(littleEndian, NbtEncoding.BEDROCK.newWriter().write(root));
+        Assert.assertArrayEquals(network, NbtEncoding.BEDROCK_NETWORK.newWriter().write(root));
+
+        byte[] expected = TestTrees.write(root);
+        Assert.assertArrayEquals(expected, TestTrees.write(NbtEncoding.BEDROCK.newReader(littleEndian).readTag()));
+        Assert.assertArrayEquals(expected, TestTrees.write(NbtEncoding.BEDROCK_NETWORK.newReader(network).readTag()));
+    }
+
+    @Test
+    public void extremeValuesTest() throws IOException
+    {
+        CompoundContent content = new CompoundContent();
+        content.addTag(new TagInt("minInt", Integer.MIN_VALUE));
+        content.addTag(new TagInt("maxInt", Integer.MAX_VALUE));
+        content.addTag(new TagLong("minLong", Long.MIN_VALUE));
+        content.addTag(new TagLong("maxLong", Long.MAX_VALUE));
+        content.addTag(new TagList("ints", new int[]{0, 63, -64, 64, -65, Integer.MIN_VALUE}));
+        content.addTag(new TagLongArray("longs", new long[]{0, Long.MIN_VALUE, Long.MAX_VALUE, -1}));
+        TagCompound root = new TagCompound("root", content);
+
+        NbtWriter writer = NbtEncoding.BEDROCK_NETWORK.newWriter();
+        byte[] data = writer.write(root);
+        Assert.assertEquals(data.length, writer.getSize(root));
+        Assert.assertArrayEquals(TestTrees.write(root),
+                TestTrees.write(NbtEncoding.BEDROCK_NETWORK.newReader(data).readTag()));
+    }
+
+    @Test
+    public void pathTest() throws IOException
+    {
+        TagCompound tree = TestTrees.create(3);
+        for (NbtEncoding encoding : NbtEncoding.values())
+        {
+            byte[] data = encoding.newWriter().write(tree);
+            for (String path : new String[]{"Inventory[{Slot:3b}].id", "Inventory[-1].tag.Damage", "nested[2][0]",
+                    "longArray[99]", "intArray[50]", "Pos[1]"})
+            {
+                NbtPath compiled = NbtPath.compile(path);
+                Assert.assertArrayEquals(encoding + " " + path, TestTrees.write(compiled.selectFirst(tree)),
+                        TestTrees.write(compiled.selectFirst(encoding.newReader(data))));
+            }
+        }
+    }
+
+    @Test(expected = EOFException.class)
+    public void truncatedTest() throws IOException
+    {
+        byte[] data = NbtEncoding.BEDROCK_NETWORK.newWriter().write(TestTrees.create(4));
+        NbtEncoding.BEDROCK_NETWORK.newReader(Arrays.copyOf(data, data.length - 1)).readTag();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void longVarIntTest() throws IOException
+    {
+        byte[] data = bytes(0x03, 0x00, 0x80, 0x80, 0x80, 0x80, 0x80, 0x01);
+        NbtEncoding.BEDROCK_NETWORK.newReader(data).readTag();
+    }
+
+    private static Tag<?> readLazy(NbtEncoding encoding, byte[] data) throws IOException
+    {
+        NbtReader reader = encoding.newReader(data);
+        reader.setLazyCompounds(true);
+        return reader.readTag();
+    }
+
+    private static byte[] bytes(int... values)
+    {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++)
+        {
+            bytes[i] = (byte) values[i];
+        }
+        return bytes;
+    }
+}
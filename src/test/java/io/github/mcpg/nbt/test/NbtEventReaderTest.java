@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mcpg.nbt.test;
+
+import io.github.mcpg.nbt.*;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+
+public class NbtEventReaderTest
+{
+    @Test
+    public void walkTest() throws IOException
+    {
+        TagCompound root = TestTrees.create(4);
+        NbtEventReader reader = reader(root);
+        Assert.assertEquals(NbtToken.START_COMPOUND, reader.next());
+        Assert.assertEquals("root", reader.getName());
+        Assert.assertEquals(0, reader.getDepth());
+
+        int values = 0;
+        int compounds = 1;
+        int ends = 0;
+        NbtToken token;
+        while ((token = reader.next()) != NbtToken.END_DOCUMENT)
+        {
+            switch (token)
+            {
+                case VALUE:
+                    values++;
+                    if (reader.getDepth() == 1 && "int".equals(reader.getName()))
+                    {
+                        Assert.assertEquals(root.getValue().getTag("int").getValue(), reader.getInt());
+                    }
+                    if (reader.getDepth() == 1 && "string".equals(reader.getName()))
+                    {
+                        Assert.assertEquals(root.getValue().getTag("string").getValue(), reader.getString());
+                    }
+                    break;
+                case START_COMPOUND:
+                    compounds++;
+                    break;
+                case END_COMPOUND:
+                    ends++;
+                    break;
+                case START_LIST:
+                    if ("Pos".equals(reader.getName()))
+                    {
+                        Assert.assertEquals(TagType.TAG_DOUBLE, reader.getListType());
+                        Assert.assertEquals(3, reader.getListSize());
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        // 11 root values + 3 Pos + 10 items * 5 + 3 nested ints
+        Assert.assertEquals(67, values);
+        Assert.assertEquals(21, compounds);
+        Assert.assertEquals(21, ends);
+        Assert.assertEquals(NbtToken.END_DOCUMENT, reader.next());
+    }
+
+    @Test
+    public void skipAndReadTest() throws IOException
+    {
+        TagCompound root = TestTrees.create(5);
+        NbtEventReader reader = reader(root);
+        reader.next();
+        Tag<?> inventory = null;
+        Tag<?> longArray = null;
+        while (reader.next() != NbtToken.END_COMPOUND)
+        {
+            if ("Inventory".equals(reader.getName()))
+            {
+                inventory = reader.readTag();
+                Assert.assertEquals(NbtToken.END_LIST, reader.getToken());
+            }
+            else if ("longArray".equals(reader.getName()))
+            {
+                Assert.assertEquals(100, reader.getArrayLength());
+                longArray = reader.readTag();
+            }
+            else
+            {
+                reader.skipValue();
+            }
+        }
+        Assert.assertEquals(0, reader.getDepth());
+        Assert.assertEquals(NbtToken.END_DOCUMENT, reader.next());
+        Assert.assertNotNull(inventory);
+        Assert.assertArrayEquals(TestTrees.write(root.getValue().getTag("Inventory")), TestTrees.write(inventory));
+        Assert.assertNotNull(longArray);
+        Assert.assertArrayEquals((long[]) root.getValue().getTag("longArray").getValue(), (long[]) longArray.getValue());
+    }
+
+    private static NbtEventReader reader(Tag<?> tag) throws IOException
+    {
+        return new NbtEventReader(new DataInputStream(new ByteArrayInputStream(TestTrees.write(tag))));
+    }
+}
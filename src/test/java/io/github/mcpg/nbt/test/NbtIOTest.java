@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mcpg.nbt.test;
+
+import io.github.mcpg.nbt.*;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class NbtIOTest
+{
+    @Test
+    public void roundTripTest() throws IOException
+    {
+        Tag<?> tag = TestTrees.create(1);
+        byte[] data = TestTrees.write(tag);
+        for (NbtCompression compression : NbtCompression.values())
+        {
+            for (int level : new int[]{Deflater.DEFAULT_COMPRESSION, Deflater.BEST_SPEED, Deflater.BEST_COMPRESSION})
+            {
+                byte[] compressed = NbtIO.writeCompressed(tag, compression, level);
+                Assert.assertEquals(compression, NbtIO.detectCompression(compressed));
+                Assert.assertArrayEquals(data, TestTrees.write(NbtIO.readCompressed(compressed)));
+                Assert.assertArrayEquals(data, NbtIO.decompress(compressed, 0, compressed.length));
+                Assert.assertArrayEquals(data, TestTrees.write(NbtIO.readCompressed(new ByteArrayInputStream(compressed))));
+            }
+        }
+    }
+
+    @Test
+    public void compatibilityTest() throws IOException
+    {
+        Tag<?> tag = TestTrees.create(2);
+        byte[] data = TestTrees.write(tag);
+
+        byte[] gzip = NbtIO.writeCompressed(tag, NbtCompression.GZIP);
+        Tag<?> read = TagReadingUtils.readTag(new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(gzip))));
+        Assert.assertArrayEquals(data, TestTrees.write(read));
+
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (OutputStream outputStream = new GZIPOutputStream(byteArrayOutputStream))
+        {
+            outputStream.write(data);
+        }
+        Assert.assertArrayEquals(data, TestTrees.write(NbtIO.readCompressed(byteArrayOutputStream.toByteArray())));
+
+        byteArrayOutputStream.reset();
+        try (OutputStream outputStream = new DeflaterOutputStream(byteArrayOutputStream))
+        {
+            outputStream.write(data);
+        }
+        byte[] zlib = byteArrayOutputStream.toByteArray();
+        Assert.assertEquals(NbtCompression.ZLIB, NbtIO.detectCompression(zlib));
+        Assert.assertArrayEquals(data, TestTrees.write(NbtIO.readCompressed(zlib)));
+    }
+
+    @Test
+    public void multipleMembersTest() throws IOException
+    {
+        byte[] data = TestTrees.write(TestTrees.create(3));
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        int half = data.length / 2;
+        try (OutputStream outputStream = new GZIPOutputStream(byteArrayOutputStream))
+        {
+            outputStream.write(data, 0, half);
+        }
+        try (OutputStream outputStream = new GZIPOutputStream(byteArrayOutputStream))
+        {
+            outputStream.write(data, half, data.length - half);
+        }
+        byte[] gzip = byteArrayOutputStream.toByteArray();
+        Assert.assertArrayEquals(data, NbtIO.decompress(gzip, 0, gzip.length));
+    }
+
+    @Test(expected = IOException.class)
+    public void corruptedTest() throws IOException
+    {
+        byte[] gzip = NbtIO.writeCompressed(TestTrees.create(4), NbtCompression.GZIP);
+        gzip[gzip.length - 6]++;
+        NbtIO.readCompressed(gzip);
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedTest() throws IOException
+    {
+        byte[] zlib = NbtIO.writeCompressed(TestTrees.create(5), NbtCompression.ZLIB);
+        NbtIO.readCompressed(Arrays.copyOf(zlib, zlib.length / 2));
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mcpg.nbt.test;
+
+import io.github.mcpg.nbt.*;
+import io.github.mcpg.nbt.TagCompound.CompoundContent;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+public class NbtPathTest
+{
+    private static final String[] PATHS = {
+            "",
+            "int",
+            "Pos[1]",
+            "Pos[-1]",
+            "Pos[]",
+            "intArray[5]",
+            "longArray[-1]",
+            "byteArray[]",
+            "Inventory[3].id",
+            "Inventory[].tag.Lore[0]",
+            "Inventory[{Slot:3b}]",
+            "Inventory[{Slot:3b}].id",
+            "Inventory[{Slot:3}]",
+            "Inventory[{tag:{}}].Count",
+            "Inventory[].tag{Damage:5}",
+            "nested[2][0]",
+            "\"string\"",
+            "{int:1}",
+            "missing",
+            "int.missing",
+            "Inventory[10]",
+            "emptyList[]"
+    };
+
+    @Test
+    public void treeAndBytesTest() throws IOException
+    {
+        TagCompound tree = TestTrees.create(1);
+        byte[] data = TestTrees.write(tree);
+        for (String path : PATHS)
+        {
+            NbtPath compiled = NbtPath.compile(path);
+            Assert.assertEquals(path, compiled.toString());
+            List<Tag<?>> fromTree = compiled.select(tree);
+            List<Tag<?>> fromBytes = compiled.select(data);
+            Assert.assertEquals(path, fromTree.size(), fromBytes.size());
+            for (int i = 0; i < fromTree.size(); i++)
+            {
+                Assert.assertArrayEquals(path, TestTrees.write(fromTree.get(i)), TestTrees.write(fromBytes.get(i)));
+            }
+            Tag<?> first = compiled.selectFirst(data);
+            if (fromTree.isEmpty())
+            {
+                Assert.assertNull(path, first);
+                Assert.assertNull(path, compiled.selectFirst(tree));
+            }
+            else
+            {
+                Assert.assertArrayEquals(path, TestTrees.write(fromTree.get(0)), TestTrees.write(first));
+            }
+        }
+    }
+
+    @Test
+    public void selectTest() throws IOException
+    {
+        TagCompound tree = TestTrees.create(2);
+        CompoundContent content = tree.getValue();
+        List<Tag<?>> items = ((TagList) content.getTag("Inventory")).getValue();
+        byte[] data = TestTrees.write(tree);
+
+        Assert.assertSame(tree, NbtPath.compile("").selectFirst(tree));
+        Assert.assertSame(items.get(3), NbtPath.compile("Inventory[{Slot:3b}]").selectFirst(tree));
+        Assert.assertSame(items.get(9), NbtPath.compile("Inventory[-1]").selectFirst(tree));
+        Assert.assertEquals(10, NbtPath.compile("Inventory[].id").select(data).size());
+        Assert.assertEquals(0, NbtPath.compile("Inventory[{Slot:3}]").select(data).size());
+        Assert.assertEquals(3, NbtPath.compile("Pos[]").select(tree).size());
+
+        Tag<?> lore = NbtPath.compile("Inventory[{Slot:7b, tag:{Damage:-1}}]").selectFirst(tree);
+        Assert.assertNull(lore);
+        Tag<?> id = NbtPath.compile("Inventory[{Slot:4b}].id").selectFirst(data);
+        Assert.assertEquals("id", id.getName());
+        Assert.assertEquals(((CompoundContent) items.get(4).getValue()).getTag("id").getValue(), id.getValue());
+
+        String value = (String) id.getValue();
+        Tag<?> byId = NbtPath.compile("Inventory[{id:\"" + value + "\"}]").selectFirst(data);
+        Assert.assertEquals(value, ((CompoundContent) byId.getValue()).getTag("id").getValue());
+    }
+
+    @Test
+    public void packedTest() throws IOException
+    {
+        TagCompound tree = TestTrees.create(2);
+        TagCompound read = (TagCompound) new NbtReader(TestTrees.write(tree)).readTag();
+        TagList pos = (TagList) read.getValue().getTag("Pos");
+        Assert.assertTrue(pos.isPacked());
+
+        // elements of packed lists are selected without unpacking the list
+        Tag<?> x = NbtPath.compile("Pos[0]").selectFirst(read);
+        List<Tag<?>> all = NbtPath.compile("Pos[]").select(read);
+        Assert.assertTrue(pos.isPacked());
+        List<Tag<?>> expected = ((TagList) tree.getValue().getTag("Pos")).getValue();
+        Assert.assertEquals(expected.get(0), x);
+        Assert.assertEquals(expected, all);
+        Assert.assertEquals(expected.get(2), NbtPath.compile("Pos[-1]").selectFirst(read));
+        Assert.assertTrue(pos.isPacked());
+    }
+
+    @Test
+    public void malformedTest()
+    {
+        String[] malformed = {"a.", ".a", "a..b", "a[", "a[x]", "a[1", "a[{b}]", "a{b:}", "a{b:\"c}", "a]"};
+        for (String path : malformed)
+        {
+            try
+            {
+                NbtPath.compile(path);
+                Assert.fail(path);
+            } catch (IllegalArgumentException expected)
+            {
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mcpg.nbt.test;
+
+import io.github.mcpg.nbt.*;
+import io.github.mcpg.nbt.TagCompound.CompoundContent;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.List;
+
+public class NbtProjectionTest
+{
+    @Test
+    public void projectionTest() throws IOException
+    {
+        TagCompound tree = TestTrees.create(1);
+        CompoundContent content = tree.getValue();
+        byte[] data = TestTrees.write(tree);
+
+        NbtProjection projection = NbtProjection.of("Inventory", "int", "missing.tag");
+        TagCompound projected = (TagCompound) read(projection, data);
+        Assert.assertEquals("root", projected.getName());
+        List<Tag<?>> tags = projected.getValue().getTagsList();
+        Assert.assertEquals(2, tags.size());
+        Assert.assertArrayEquals(TestTrees.write(content.getTag("int")), TestTrees.write(tags.get(0)));
+        Assert.assertArrayEquals(TestTrees.write(content.getTag("Inventory")), TestTrees.write(tags.get(1)));
+
+        projected = (TagCompound) read(NbtProjection.of("Inventory[].id", "Inventory[].tag.Damage"), data);
+        List<Tag<?>> items = ((TagList) projected.getValue().getTag("Inventory")).getValue();
+        List<Tag<?>> originalItems = ((TagList) content.getTag("Inventory")).getValue();
+        Assert.assertEquals(originalItems.size(), items.size());
+        for (int i = 0; i < items.size(); i++)
+        {
+            CompoundContent item = (CompoundContent) items.get(i).getValue();
+            CompoundContent originalItem = (CompoundContent) originalItems.get(i).getValue();
+            Assert.assertEquals(2, item.size());
+            Assert.assertEquals(originalItem.getTag("id").getValue(), item.getTag("id").getValue());
+            CompoundContent tag = ((TagCompound) item.getTag("tag")).getValue();
+            Assert.assertEquals(1, tag.size());
+            Assert.assertEquals(((TagCompound) originalItem.getTag("tag")).getValue().getTag("Damage").getValue(),
+                    tag.getTag("Damage").getValue());
+        }
+
+        projected = (TagCompound) read(NbtProjection.of("Inventory", "Inventory[].id"), data);
+        Assert.assertArrayEquals(TestTrees.write(content.getTag("Inventory")),
+                TestTrees.write(projected.getValue().getTag("Inventory")));
+
+        projected = (TagCompound) read(NbtProjection.of("nested[]", "Pos[].x", "int.x"), data);
+        Assert.assertEquals(2, projected.getValue().size());
+        Assert.assertArrayEquals(TestTrees.write(content.getTag("nested")),
+                TestTrees.write(projected.getValue().getTag("nested")));
+        Assert.assertEquals(0, ((TagList) projected.getValue().getTag("Pos")).getSize());
+
+        Assert.assertEquals(0, ((TagCompound) read(NbtProjection.of(), data)).getValue().size());
+        Assert.assertArrayEquals(data, TestTrees.write(read(NbtProjection.of(""), data)));
+    }
+
+    @Test
+    public void wholeElementsTest() throws IOException
+    {
+        CompoundContent content = new CompoundContent();
+        content.addTag(new TagList("Pos", new double[] {1.5, 2.5}));
+        content.addTag(new TagInt("int", 1));
+        byte[] data = TestTrees.write(new TagCompound("", content));
+
+        TagCompound projected = (TagCompound) read(NbtProjection.of("Pos[]"), data);
+        Assert.assertEquals(1, projected.getValue().size());
+        TagList pos = (TagList) projected.getValue().getTag("Pos");
+        Assert.assertEquals(2, pos.getSize());
+        Assert.assertEquals(1.5, pos.getDouble(0), 0);
+        Assert.assertEquals(2.5, pos.getDouble(1), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void indexTest()
+    {
+        NbtProjection.of("Inventory[0].id");
+    }
+
+    /**
+     * Reads the projection from both array and stream, checking that results are the same.
+     */
+    private static Tag<?> read(NbtProjection projection, byte[] data) throws IOException
+    {
+        Tag<?> fromArray = projection.read(data);
+        Tag<?> fromStream = projection.read(new DataInputStream(new ByteArrayInputStream(data)));
+        Assert.assertArrayEquals(TestTrees.write(fromArray), TestTrees.write(fromStream));
+        return fromArray;
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mcpg.nbt.test;
+
+import io.github.mcpg.nbt.*;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+public class NbtReaderTest
+{
+    @Test
+    public void arrayTest() throws IOException
+    {
+        byte[] data = TestTrees.write(TestTrees.create(1));
+        Tag<?> tag = new NbtReader(data).readTag();
+        Assert.assertEquals(TagType.TAG_COMPOUND, tag.getType());
+        Assert.assertEquals("root", tag.getName());
+        Assert.assertArrayEquals(data, TestTrees.write(tag));
+    }
+
+    @Test
+    public void bufferTest() throws IOException
+    {
+        byte[] data = TestTrees.write(TestTrees.create(2));
+        byte[] padded = new byte[data.length + 10];
+        System.arraycopy(data, 0, padded, 5, data.length);
+
+        ByteBuffer heap = ByteBuffer.wrap(padded, 5, data.length).slice();
+        Assert.assertArrayEquals(data, TestTrees.write(new NbtReader(heap).readTag()));
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(padded.length);
+        direct.put(padded);
+        direct.position(5);
+        direct.limit(5 + data.length);
+        NbtReader reader = new NbtReader(direct);
+        Assert.assertArrayEquals(data, TestTrees.write(reader.readTag()));
+        Assert.assertEquals(0, reader.remaining());
+        Assert.assertEquals(5, direct.position());
+    }
+
+    @Test(expected = EOFException.class)
+    public void truncatedTest() throws IOException
+    {
+        byte[] data = TestTrees.write(TestTrees.create(3));
+        new NbtReader(Arrays.copyOf(data, data.length - 1)).readTag();
+    }
+
+    @Test
+    public void lazyTest() throws IOException
+    {
+        byte[] data = TestTrees.write(TestTrees.create(6));
+        NbtReader reader = new NbtReader(data);
+        reader.setLazyCompounds(true);
+        TagCompound lazy = (TagCompound) reader.readTag();
+        Assert.assertArrayEquals(data, TestTrees.write(lazy));
+
+        TagCompound eager = (TagCompound) new NbtReader(data).readTag();
+        Assert.assertEquals(eager.getValue().size(), lazy.getValue().size());
+        Assert.assertEquals(eager.getValue().getTag("int").getValue(), lazy.getValue().getTag("int").getValue());
+        Assert.assertArrayEquals(TestTrees.write(eager.getValue().getTag("Inventory")),
+                TestTrees.write(lazy.getValue().getTag("Inventory")));
+
+        eager.getValue().replaceTag(new TagString("string", "changed"));
+        lazy.getValue().replaceTag(new TagString("string", "changed"));
+        eager.getValue().removeTag("byteArray");
+        lazy.getValue().removeTag("byteArray");
+        ((TagInt) lazy.getValue().getTag("int")).setValue(5);
+        ((TagInt) eager.getValue().getTag("int")).setValue(5);
+        Assert.assertArrayEquals(TestTrees.write(eager), TestTrees.write(lazy));
+    }
+
+    @Test
+    public void concurrentLazyTest() throws IOException
+    {
+        int trees = 64;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < trees; i++)
+        {
+            out.write(TestTrees.write(TestTrees.create(i)));
+        }
+        byte[] data = out.toByteArray();
+        ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+        direct.put(data);
+        direct.flip();
+
+        for (ByteBuffer buffer : new ByteBuffer[]{ByteBuffer.wrap(data), direct})
+        {
+            NbtReader reader = new NbtReader(buffer);
+            reader.setLazyCompounds(true);
+            List<Tag<?>> lazy = new ArrayList<>();
+            for (int i = 0; i < trees; i++)
+            {
+                lazy.add(reader.readTag());
+            }
+
+            // trees read by one reader are decoded and written by many threads at once
+            Assert.assertTrue(IntStream.range(0, trees).parallel().allMatch(i ->
+            {
+                try
+                {
+                    byte[] expected = TestTrees.write(TestTrees.create(i));
+                    return Arrays.equals(expected, TestTrees.write(lazy.get(i)))
+                            && TestTrees.create(i).equals(lazy.get(i))
+                            && Arrays.equals(expected, TestTrees.write(lazy.get(i)));
+                } catch (IOException e)
+                {
+                    throw new IllegalStateException(e);
+                }
+            }));
+        }
+    }
+}
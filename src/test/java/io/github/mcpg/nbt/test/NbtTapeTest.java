@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mcpg.nbt.test;
+
+import io.github.mcpg.nbt.*;
+import io.github.mcpg.nbt.TagCompound.CompoundContent;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+public class NbtTapeTest
+{
+    @Test
+    public void conversionTest() throws IOException
+    {
+        TagCompound tree = TestTrees.create(1);
+        byte[] data = TestTrees.write(tree);
+        Assert.assertArrayEquals(data, TestTrees.write(NbtTape.parse(data).toTag()));
+        Assert.assertArrayEquals(data, TestTrees.write(NbtTape.of(tree).toTag()));
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(data.length + 3);
+        direct.position(3);
+        direct.put(data);
+        direct.position(3);
+        NbtTape tape = NbtTape.parse(direct);
+        Assert.assertArrayEquals(data, TestTrees.write(tape.toTag()));
+        Assert.assertEquals("root", tape.getName(tape.getRoot()));
+
+        int inventory = tape.get("Inventory");
+        Assert.assertArrayEquals(TestTrees.write(tree.getValue().getTag("Inventory")),
+                TestTrees.write(tape.toTag(inventory)));
+    }
+
+    @Test
+    public void navigationTest() throws IOException
+    {
+        TagCompound tree = TestTrees.create(2);
+        CompoundContent content = tree.getValue();
+        NbtTape tape = NbtTape.parse(TestTrees.write(tree));
+        int root = tape.getRoot();
+
+        Assert.assertEquals(TagType.TAG_COMPOUND, tape.getType(root));
+        Assert.assertEquals(content.size(), tape.getSize(root));
+        int child = tape.getFirstChild(root);
+        for (Tag<?> tag : content.getTagsList())
+        {
+            Assert.assertEquals(tag.getName(), tape.getName(child));
+            Assert.assertEquals(tag.getType(), tape.getType(child));
+            child = tape.getNextSibling(child);
+        }
+        Assert.assertEquals(-1, child);
+
+        Assert.assertEquals(content.getTag("byte").getValue(), tape.getByte(tape.get("byte")));
+        Assert.assertEquals(content.getTag("short").getValue(), tape.getShort(tape.get("short")));
+        Assert.assertEquals(content.getTag("int").getValue(), tape.getInt(tape.get("int")));
+        Assert.assertEquals(content.getTag("long").getValue(), tape.getLong(tape.get("long")));
+        Assert.assertEquals(content.getTag("float").getValue(), tape.getFloat(tape.get("float")));
+        Assert.assertEquals(content.getTag("double").getValue(), tape.getDouble(tape.get("double")));
+        Assert.assertEquals((double) ((TagInt) content.getTag("int")).getInt(), tape.getDouble(tape.get("int")), 0);
+        Assert.assertEquals(content.getTag("string").getValue(), tape.getString(tape.get("string")));
+        Assert.assertEquals("", tape.getString(tape.get("empty")));
+
+        byte[] bytes = (byte[]) content.getTag("byteArray").getValue();
+        Assert.assertArrayEquals(bytes, tape.getByteArray(tape.get("byteArray")));
+        Assert.assertEquals(bytes[7], tape.getByte(tape.get("byteArray"), 7));
+        int[] ints = (int[]) content.getTag("intArray").getValue();
+        Assert.assertArrayEquals(ints, tape.getIntArray(tape.get("intArray")));
+        Assert.assertEquals(ints[99], tape.getInt(tape.get("intArray"), 99));
+        long[] longs = (long[]) content.getTag("longArray").getValue();
+        Assert.assertArrayEquals(longs, tape.getLongArray(tape.get("longArray")));
+        Assert.assertEquals(longs[0], tape.getLong(tape.get("longArray"), 0));
+
+        TagList pos = (TagList) content.getTag("Pos");
+        int posNode = tape.get("Pos");
+        Assert.assertEquals(TagType.TAG_DOUBLE, tape.getListType(posNode));
+        Assert.assertEquals(3, tape.getSize(posNode));
+        Assert.assertEquals(-1, tape.getFirstChild(posNode));
+        Assert.assertEquals(pos.getDouble(2), tape.getDouble(posNode, 2), 0);
+        Assert.assertEquals(0, tape.getSize(tape.get("emptyList")));
+        Assert.assertEquals(-1, tape.getFirstChild(tape.get("emptyList")));
+
+        List<Tag<?>> items = ((TagList) content.getTag("Inventory")).getValue();
+        CompoundContent item = (CompoundContent) items.get(4).getValue();
+        Assert.assertEquals(item.getTag("id").getValue(), tape.getString(tape.get("Inventory[4].id")));
+        Assert.assertEquals("line 9", tape.getString(tape.get("Inventory[9].tag.Lore[0]")));
+        Assert.assertEquals("", tape.getName(tape.get("Inventory[9]")));
+        Assert.assertEquals(2, tape.getInt(tape.get("nested[2]"), 0));
+        Assert.assertEquals(-1, tape.get("Inventory[10]"));
+        Assert.assertEquals(-1, tape.get("missing.tag"));
+        Assert.assertEquals(-1, tape.get("int.tag"));
+        Assert.assertEquals(root, tape.get(""));
+    }
+
+    @Test
+    public void wrongTypeTest() throws IOException
+    {
+        NbtTape tape = NbtTape.parse(TestTrees.write(TestTrees.create(3)));
+        try
+        {
+            tape.getInt(tape.get("string"));
+            Assert.fail();
+        } catch (IllegalStateException expected)
+        {
+        }
+        try
+        {
+            tape.getFloat(tape.get("Pos"), 0);
+            Assert.fail();
+        } catch (IllegalStateException expected)
+        {
+        }
+        try
+        {
+            tape.getDouble(tape.get("Pos"), 3);
+            Assert.fail();
+        } catch (IndexOutOfBoundsException expected)
+        {
+        }
+        try
+        {
+            tape.get("Inventory[x]");
+            Assert.fail();
+        } catch (IllegalArgumentException expected)
+        {
+        }
+    }
+
+    @Test(expected = EOFException.class)
+    public void truncatedTest() throws IOException
+    {
+        byte[] data = TestTrees.write(TestTrees.create(4));
+        NbtTape.parse(Arrays.copyOf(data, data.length - 1));
+    }
+}
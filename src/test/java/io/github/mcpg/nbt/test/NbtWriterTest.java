@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mcpg.nbt.test;
+
+import io.github.mcpg.nbt.*;
+import io.github.mcpg.nbt.TagCompound.CompoundContent;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class NbtWriterTest
+{
+    @Test
+    public void arrayTest() throws IOException
+    {
+        Tag<?> tag = TestTrees.create(1);
+        byte[] expected = TestTrees.write(tag);
+        NbtWriter writer = new NbtWriter();
+        Assert.assertEquals(expected.length, writer.getSize(tag));
+        Assert.assertArrayEquals(expected, writer.write(tag));
+        // second write uses cached names and strings
+        Assert.assertArrayEquals(expected, writer.write(tag));
+
+        byte[] padded = new byte[expected.length + 10];
+        Assert.assertEquals(expected.length, writer.write(tag, padded, 5));
+        Assert.assertArrayEquals(expected, Arrays.copyOfRange(padded, 5, 5 + expected.length));
+    }
+
+    @Test
+    public void bufferTest() throws IOException
+    {
+        Tag<?> tag = TestTrees.create(2);
+        byte[] expected = TestTrees.write(tag);
+        ByteBuffer direct = ByteBuffer.allocateDirect(expected.length + 3);
+        direct.position(3);
+        Assert.assertEquals(expected.length, new NbtWriter().write(tag, direct));
+        Assert.assertEquals(expected.length + 3, direct.position());
+        byte[] written = new byte[expected.length];
+        direct.position(3);
+        direct.get(written);
+        Assert.assertArrayEquals(expected, written);
+    }
+
+    @Test(expected = BufferOverflowException.class)
+    public void overflowTest()
+    {
+        Tag<?> tag = TestTrees.create(3);
+        NbtWriter writer = new NbtWriter();
+        writer.write(tag, ByteBuffer.allocate(writer.getSize(tag) - 1));
+    }
+
+    @Test
+    public void changedTagsTest() throws IOException
+    {
+        TagCompound root = TestTrees.create(4);
+        NbtWriter writer = new NbtWriter();
+        writer.write(root);
+        CompoundContent content = root.getValue();
+        content.getTag("string").setName("renamed");
+        ((TagString) content.getTag("renamed")).setValue("changed \u017c");
+        Assert.assertArrayEquals(TestTrees.write(root), writer.write(root));
+    }
+
+    @Test
+    public void lazyTest() throws IOException
+    {
+        byte[] data = TestTrees.write(TestTrees.create(5));
+        ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+        direct.put(data);
+        direct.position(0);
+        NbtReader reader = new NbtReader(direct);
+        reader.setLazyCompounds(true);
+        TagCompound lazy = (TagCompound) reader.readTag();
+        Assert.assertArrayEquals(data, new NbtWriter().write(lazy));
+        lazy.getValue().getTag("int");
+        Assert.assertArrayEquals(data, new NbtWriter().write(lazy));
+    }
+
+    @Test
+    public void namelessRootTest() throws IOException
+    {
+        TagCompound root = TestTrees.create(6);
+        byte[] named = TestTrees.write(root);
+        // type id, then payload that follows the 2-byte length and "root"
+        byte[] expected = new byte[named.length - 6];
+        expected[0] = named[0];
+        System.arraycopy(named, 7, expected, 1, expected.length - 1);
+
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        root.writeNamelessTag(new DataOutputStream(byteArrayOutputStream));
+        Assert.assertArrayEquals(expected, byteArrayOutputStream.toByteArray());
+
+        NbtWriter writer = new NbtWriter();
+        writer.setNamelessRoot(true);
+        Assert.assertEquals(expected.length, writer.getSize(root));
+        Assert.assertArrayEquals(expected, writer.write(root));
+        ByteBuffer direct = ByteBuffer.allocateDirect(expected.length + 4);
+        direct.position(4);
+        Assert.assertEquals(expected.length, writer.write(root, direct.slice()));
+        byte[] written = new byte[expected.length];
+        direct.get(written);
+        Assert.assertArrayEquals(expected, written);
+
+        NbtReader reader = new NbtReader(expected);
+        reader.setNamelessRoot(true);
+        Tag<?> read = reader.readTag();
+        Assert.assertEquals("", read.getName());
+        Assert.assertArrayEquals(expected, writer.write(read));
+        Assert.assertArrayEquals(expected,
+                writer.write(TagReadingUtils.readNamelessTag(new DataInputStream(new ByteArrayInputStream(expected)))));
+
+        NbtEventReader eventReader = new NbtEventReader(new DataInputStream(new ByteArrayInputStream(expected)));
+        eventReader.setNamelessRoot(true);
+        Assert.assertEquals(NbtToken.START_COMPOUND, eventReader.next());
+        Assert.assertArrayEquals(expected, writer.write(eventReader.readTag()));
+
+        reader = new NbtReader(expected);
+        reader.setNamelessRoot(true);
+        Assert.assertEquals(root.getValue().getTag("int").getValue(), NbtPath.compile("int").selectFirst(reader).getValue());
+        reader = new NbtReader(expected);
+        reader.setNamelessRoot(true);
+        TagCompound projected = (TagCompound) NbtProjection.of("int").read(reader);
+        Assert.assertEquals("", projected.getName());
+        Assert.assertEquals(root.getValue().getTag("int").getValue(), projected.getValue().getTag("int").getValue());
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mcpg.nbt.test;
+
+import io.github.mcpg.nbt.*;
+import io.github.mcpg.nbt.TagCompound.CompoundContent;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+public class OffHeapNbtDocumentTest
+{
+    @Test
+    public void copyTest() throws IOException
+    {
+        TagCompound tree = TestTrees.create(1);
+        byte[] data = TestTrees.write(tree);
+        byte[] padded = new byte[data.length + 8];
+        System.arraycopy(data, 0, padded, 3, data.length);
+
+        OffHeapNbtDocument document = OffHeapNbtDocument.of(padded, 3, padded.length - 3);
+        padded[3 + data.length / 2] ^= 1;
+        Assert.assertEquals(data.length, document.getLength());
+        Assert.assertTrue(document.getMemorySize() >= data.length + document.getNodeCount() * 16);
+        Assert.assertArrayEquals(data, document.toByteArray());
+        Assert.assertArrayEquals(data, TestTrees.write(document.toTag()));
+        Assert.assertArrayEquals(data, OffHeapNbtDocument.of(tree).toByteArray());
+
+        ByteBuffer target = ByteBuffer.allocate(data.length + 1);
+        target.put((byte) 1);
+        document.copyTo(target);
+        Assert.assertEquals(data.length + 1, target.position());
+        Assert.assertEquals(tree.getValue().getTag("string").getValue(),
+                document.getString(document.get("string")));
+    }
+
+    @Test
+    public void updateTest() throws IOException
+    {
+        TagCompound tree = TestTrees.create(2);
+        OffHeapNbtDocument document = OffHeapNbtDocument.of(tree);
+
+        document.setInt(document.get("int"), 42);
+        document.setDouble(document.get("double"), 0.5);
+        document.setByte(document.get("Inventory[3].Count"), (byte) 64);
+        document.setDouble(document.get("Pos"), 1, 70.0);
+        document.setLong(document.get("longArray"), 99, -1L);
+        document.setByte(document.get("byteArray"), 0, (byte) 7);
+
+        CompoundContent content = tree.getValue();
+        ((TagInt) content.getTag("int")).setInt(42);
+        ((TagDouble) content.getTag("double")).setDouble(0.5);
+        List<Tag<?>> items = ((TagList) content.getTag("Inventory")).getValue();
+        ((TagByte) ((CompoundContent) items.get(3).getValue()).getTag("Count")).setByte((byte) 64);
+        ((TagList) content.getTag("Pos")).setDouble(1, 70.0);
+        ((long[]) content.getTag("longArray").getValue())[99] = -1L;
+        ((byte[]) content.getTag("byteArray").getValue())[0] = 7;
+
+        Assert.assertEquals(42, document.getInt(document.get("int")));
+        Assert.assertArrayEquals(TestTrees.write(tree), document.toByteArray());
+        Assert.assertArrayEquals(TestTrees.write(tree), TestTrees.write(document.toTag()));
+    }
+
+    @Test
+    public void wrongTypeTest()
+    {
+        OffHeapNbtDocument document = OffHeapNbtDocument.of(TestTrees.create(3));
+        try
+        {
+            document.setLong(document.get("int"), 1L);
+            Assert.fail();
+        } catch (IllegalStateException expected)
+        {
+        }
+        try
+        {
+            document.setInt(document.get("intArray"), 100, 1);
+            Assert.fail();
+        } catch (IndexOutOfBoundsException expected)
+        {
+        }
+    }
+}
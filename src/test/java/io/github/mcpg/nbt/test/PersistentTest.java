@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mcpg.nbt.test;
+
+import io.github.mcpg.nbt.*;
+import io.github.mcpg.nbt.TagCompound.CompoundContent;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class PersistentTest
+{
+    @Test
+    public void conversionTest() throws IOException
+    {
+        TagCompound tree = TestTrees.create(1);
+        PersistentCompound compound = PersistentCompound.of(tree.getValue());
+        Assert.assertEquals(tree.getValue().size(), compound.size());
+        Assert.assertEquals(tree.getValue().getInt("int", 0), compound.getInt("int", 1));
+        Assert.assertEquals("Hello, \u015bwiecie! \u4e16\u754c", compound.getString("string", null));
+        Assert.assertEquals(10, compound.getList("Inventory").size());
+        Assert.assertEquals("line 3", compound.getList("Inventory").getCompound(3).getCompound("tag")
+                .getList("Lore").get(0));
+
+        TagCompound converted = compound.toTag("root");
+        Assert.assertEquals(compound, PersistentCompound.of(converted.getValue()));
+        Assert.assertEquals(compound.hashCode(), PersistentCompound.of(converted.getValue()).hashCode());
+        // order of tags isn't kept, but the written tree has the same tags
+        byte[] expected = TestTrees.write(tree);
+        Assert.assertEquals(expected.length, TestTrees.write(converted).length);
+        Assert.assertEquals(PersistentCompound.of(tree.getValue()),
+                PersistentCompound.of(((TagCompound) new NbtReader(new NbtWriter().write(converted)).readTag()).getValue()));
+
+        // arrays are copied on the way in and out
+        int[] ints = ((TagIntArray) tree.getValue().getTag("intArray")).getValue();
+        ints[0]++;
+        Assert.assertEquals(ints[0] - 1, ((int[]) compound.get("intArray"))[0]);
+        ((int[]) compound.get("intArray"))[0] = 0;
+        Assert.assertEquals(ints[0] - 1, ((int[]) compound.get("intArray"))[0]);
+    }
+
+    @Test
+    public void sharingTest()
+    {
+        PersistentCompound item = PersistentCompound.of(TestTrees.create(2).getValue());
+        PersistentList inventory = item.getList("Inventory");
+        PersistentCompound slot = inventory.getCompound(4);
+        PersistentCompound changed = item.with("Inventory",
+                inventory.with(4, slot.with("Count", new TagByte("", (byte) 100))));
+
+        Assert.assertEquals(100, changed.getList("Inventory").getCompound(4).getByte("Count", (byte) 0));
+        Assert.assertSame(slot, item.getList("Inventory").getCompound(4));
+        Assert.assertNotEquals(100, slot.getByte("Count", (byte) 0));
+        Assert.assertNotEquals(item, changed);
+        Assert.assertSame(item.getList("nested"), changed.getList("nested"));
+        Assert.assertSame(inventory.getCompound(3), changed.getList("Inventory").getCompound(3));
+        Assert.assertSame(slot.getCompound("tag"), changed.getList("Inventory").getCompound(4).getCompound("tag"));
+
+        Assert.assertSame(item, item.without("missing"));
+        PersistentCompound removed = item.without("int");
+        Assert.assertFalse(removed.contains("int"));
+        Assert.assertTrue(item.contains("int"));
+        Assert.assertEquals(item.size() - 1, removed.size());
+        Assert.assertEquals(item, removed.with("int", item.getTag("int")));
+    }
+
+    @Test
+    public void compoundTest()
+    {
+        Random random = new Random(3);
+        Map<String, Integer> expected = new HashMap<>();
+        PersistentCompound compound = PersistentCompound.empty();
+        // "Aa" and "BB" have the same hash code
+        String[] names = {"Aa", "BB", "AaAa", "BBBB", "AaBB", "BBAa"};
+        for (int i = 0; i < 20000; i++)
+        {
+            String name = random.nextInt(4) == 0 ? names[random.nextInt(names.length)] : "tag" + random.nextInt(3000);
+            if (random.nextInt(3) == 0)
+            {
+                expected.remove(name);
+                compound = compound.without(name);
+            }
+            else
+            {
+                expected.put(name, i);
+                compound = compound.with(name, new TagInt("", i));
+            }
+            Assert.assertEquals(expected.size(), compound.size());
+        }
+        for (Map.Entry<String, Integer> entry : expected.entrySet())
+        {
+            Assert.assertEquals((int) entry.getValue(), compound.getInt(entry.getKey(), -1));
+        }
+        Assert.assertEquals(expected.size(), compound.getNames().size());
+        for (String name : compound.getNames())
+        {
+            Assert.assertTrue(expected.containsKey(name));
+        }
+        for (String name : expected.keySet())
+        {
+            compound = compound.without(name);
+        }
+        Assert.assertTrue(compound.isEmpty());
+        Assert.assertEquals(PersistentCompound.empty(), compound);
+    }
+
+    @Test
+    public void listTest()
+    {
+        int[] values = new int[40000];
+        PersistentList list = PersistentList.empty();
+        for (int i = 0; i < values.length; i++)
+        {
+            values[i] = i * 7;
+            list = list.append(new TagInt("", values[i]));
+        }
+        Assert.assertEquals(TagType.TAG_INT, list.getListType());
+        PersistentList built = PersistentList.of(new TagList("", values));
+        Assert.assertEquals(list, built);
+        Assert.assertEquals(list.hashCode(), built.hashCode());
+
+        PersistentList changed = built;
+        for (int i = 0; i < values.length; i += 997)
+        {
+            changed = changed.with(i, new TagInt("", -i));
+        }
+        changed = changed.append(new TagInt("", 1));
+        for (int i = 0; i < values.length; i++)
+        {
+            Assert.assertEquals(i * 7, built.get(i));
+            Assert.assertEquals(i % 997 == 0 ? -i : i * 7, changed.get(i));
+        }
+        Assert.assertEquals(values.length + 1, changed.size());
+        Assert.assertArrayEquals(values, built.toTag("list").getInts());
+    }
+
+    @Test
+    public void wrongTypeTest()
+    {
+        PersistentList list = PersistentList.empty().append(new TagString("", "a"));
+        try
+        {
+            list.append(new TagInt("", 1));
+            Assert.fail("TAG_Int was added to list of TAG_String");
+        } catch (IllegalArgumentException ignored)
+        {
+        }
+        try
+        {
+            list.with(0, PersistentCompound.empty());
+            Assert.fail("Compound was put into list of TAG_String");
+        } catch (IllegalArgumentException ignored)
+        {
+        }
+        try
+        {
+            list.get(1);
+            Assert.fail("Element out of bounds was returned");
+        } catch (IndexOutOfBoundsException ignored)
+        {
+        }
+        CompoundContent content = new CompoundContent();
+        content.addTag(new TagList("mixed", new ArrayList<>(Arrays.asList(new TagInt("", 1), new TagString("", "a"))),
+                TagType.TAG_INT));
+        try
+        {
+            PersistentCompound.of(content);
+            Assert.fail("List with mixed types was converted");
+        } catch (IllegalArgumentException ignored)
+        {
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mcpg.nbt.test;
+
+import io.github.mcpg.nbt.*;
+import io.github.mcpg.nbt.TagCompound.CompoundContent;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+public class RegionFileTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readWriteTest() throws IOException
+    {
+        Path path = folder.getRoot().toPath().resolve("r.1.-1.mca");
+        NbtCompression[] compressions = NbtCompression.values();
+        try (RegionFile region = new RegionFile(path))
+        {
+            Assert.assertFalse(region.hasChunk(0, 0));
+            Assert.assertNull(region.readChunk(0, 0));
+            for (int i = 0; i < 40; i++)
+            {
+                region.writeChunk(i % 32, i / 32, TestTrees.create(i), compressions[i % compressions.length]);
+            }
+        }
+        try (RegionFile region = new RegionFile(path, true))
+        {
+            for (int i = 0; i < 40; i++)
+            {
+                Assert.assertTrue(region.hasChunk(i % 32, i / 32));
+                Assert.assertTrue(region.getTimestamp(i % 32, i / 32) > 0);
+                Assert.assertArrayEquals(TestTrees.write(TestTrees.create(i)),
+                        TestTrees.write(region.readChunk(i % 32, i / 32)));
+            }
+            Assert.assertFalse(region.hasChunk(31, 31));
+        }
+        Assert.assertEquals(0, Files.size(path) % RegionFile.SECTOR_SIZE);
+    }
+
+    @Test
+    public void sectorReuseTest() throws IOException
+    {
+        Path path = folder.getRoot().toPath().resolve("r.0.0.mca");
+        try (RegionFile region = new RegionFile(path))
+        {
+            for (int i = 0; i < 10; i++)
+            {
+                region.writeChunk(i, 0, big("chunk" + i, 3 * RegionFile.SECTOR_SIZE), NbtCompression.NONE);
+            }
+            long size = Files.size(path);
+            for (int i = 0; i < 10; i += 2)
+            {
+                region.deleteChunk(i, 0);
+            }
+            for (int i = 0; i < 10; i += 2)
+            {
+                region.writeChunk(i, 1, big("moved" + i, 3 * RegionFile.SECTOR_SIZE), NbtCompression.NONE);
+            }
+            Assert.assertEquals(size, Files.size(path));
+            Assert.assertFalse(region.hasChunk(0, 0));
+            Assert.assertEquals("moved4", region.readChunk(4, 1).getName());
+            Assert.assertEquals("chunk5", region.readChunk(5, 0).getName());
+        }
+    }
+
+    @Test
+    public void openChunkAfterWriteTest() throws IOException
+    {
+        Path path = folder.getRoot().toPath().resolve("r.0.1.mca");
+        try (RegionFile region = new RegionFile(path))
+        {
+            region.writeChunk(0, 0, big("old", RegionFile.SECTOR_SIZE), NbtCompression.NONE);
+            NbtReader reader = region.openChunk(0, 0);
+            region.deleteChunk(0, 0);
+            region.writeChunk(1, 0, big("new", RegionFile.SECTOR_SIZE), NbtCompression.NONE);
+            Assert.assertEquals("old", reader.readTag().getName());
+        }
+    }
+
+    @Test
+    public void externalChunkTest() throws IOException
+    {
+        Path path = folder.getRoot().toPath().resolve("r.-1.2.mca");
+        try (RegionFile region = new RegionFile(path))
+        {
+            region.writeChunk(3, 4, big("huge", 2 * 1024 * 1024), NbtCompression.NONE);
+            Assert.assertTrue(Files.exists(path.resolveSibling("c.-29.68.mcc")));
+            Assert.assertEquals(2 * 1024 * 1024,
+                    ((byte[]) ((TagCompound) region.readChunk(3, 4)).getValue().getTag("data").getValue()).length);
+
+            region.writeChunk(3, 4, big("small", 100), NbtCompression.ZLIB);
+            Assert.assertFalse(Files.exists(path.resolveSibling("c.-29.68.mcc")));
+            Assert.assertEquals("small", region.readChunk(3, 4).getName());
+        }
+    }
+
+    private static TagCompound big(String name, int size)
+    {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        CompoundContent content = new CompoundContent();
+        content.addTag(new TagByteArray("data", data));
+        return new TagCompound(name, content);
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mcpg.nbt.test;
+
+import io.github.mcpg.nbt.*;
+import io.github.mcpg.nbt.TagCompound.CompoundContent;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+public class SnbtTest
+{
+    @Test
+    public void roundTripTest() throws IOException
+    {
+        for (long seed = 0; seed < 5; seed++)
+        {
+            TagCompound tree = TestTrees.create(seed);
+            String snbt = Snbt.toString(tree);
+            Tag<?> parsed = Snbt.parse(snbt);
+            Assert.assertEquals(snbt, parsed.toString());
+            tree.setName("");
+            Assert.assertArrayEquals(TestTrees.write(tree), TestTrees.write(parsed));
+
+            StringWriter writer = new StringWriter();
+            Snbt.write(tree, writer);
+            Assert.assertEquals(snbt, writer.toString());
+            StringBuilder builder = new StringBuilder("x");
+            Snbt.write(tree, builder);
+            Assert.assertEquals("x" + snbt, builder.toString());
+        }
+    }
+
+    @Test
+    public void printTest()
+    {
+        CompoundContent content = new CompoundContent();
+        content.addTag(new TagByte("b", (byte) -1));
+        content.addTag(new TagShort("s", (short) 2));
+        content.addTag(new TagInt("i", 3));
+        content.addTag(new TagLong("l", 4L));
+        content.addTag(new TagFloat("f", 0.5f));
+        content.addTag(new TagDouble("d", 1.0));
+        content.addTag(new TagString("id", "minecraft:stone"));
+        content.addTag(new TagString("quote\"d key", "it's \"quoted\"\n\\"));
+        content.addTag(new TagIntArray("UUID", new int[] {1, -2}));
+        content.addTag(new TagList("Pos", new double[] {1.5, 2.0}));
+        content.addTag(new TagByteArray("empty", new byte[0]));
+        Assert.assertEquals("{b:-1b,s:2s,i:3,l:4L,f:0.5f,d:1.0d,id:\"minecraft:stone\","
+                + "'quote\"d key':\"it's \\\"quoted\\\"\\n\\\\\",UUID:[I;1,-2],Pos:[1.5d,2.0d],empty:[B;]}",
+                new TagCompound("root", content).toString());
+        Assert.assertEquals("'say \"hi\"'", new TagString("", "say \"hi\"").toString());
+    }
+
+    @Test
+    public void nonFiniteTest()
+    {
+        Assert.assertEquals("NaNf", new TagFloat("", Float.NaN).toString());
+        Assert.assertEquals("-Infinityd", new TagDouble("", Double.NEGATIVE_INFINITY).toString());
+        // SNBT can't hold them, so they're read back as strings
+        Tag<?> parsed = Snbt.parse("[NaNf,-Infinityd]");
+        Assert.assertEquals(TagType.TAG_STRING, ((TagList) parsed).getListType());
+        Assert.assertEquals("NaNf", ((TagList) parsed).getValue().get(0).getValue());
+    }
+
+    @Test
+    public void parseTest()
+    {
+        TagCompound compound = (TagCompound) Snbt.parse(" { Count : 1b , 'id':\"minecraft:stone\", Damage:3s,"
+                + " big:3000000000, long:-9223372036854775808L, ratio:.5f, scale:1e3, flag:true, word:abc,"
+                + " nums:[1,2,3], empty:[], longs:[L; 1L,2l], text:\"a\\u00e9\\tb\\\\\" } ");
+        CompoundContent content = compound.getValue();
+        Assert.assertEquals(TagType.TAG_BYTE, content.getTag("Count").getType());
+        Assert.assertEquals("minecraft:stone", content.getTag("id").getValue());
+        Assert.assertEquals((short) 3, content.getTag("Damage").getValue());
+        Assert.assertEquals("3000000000", content.getTag("big").getValue());
+        Assert.assertEquals(Long.MIN_VALUE, content.getTag("long").getValue());
+        Assert.assertEquals(0.5f, content.getTag("ratio").getValue());
+        Assert.assertEquals(1000.0, content.getTag("scale").getValue());
+        Assert.assertEquals((byte) 1, content.getTag("flag").getValue());
+        Assert.assertEquals("abc", content.getTag("word").getValue());
+        TagList nums = (TagList) content.getTag("nums");
+        Assert.assertEquals(TagType.TAG_INT, nums.getListType());
+        Assert.assertEquals(3, nums.getInt(2));
+        Assert.assertEquals(0, ((TagList) content.getTag("empty")).getSize());
+        Assert.assertArrayEquals(new long[] {1, 2}, (long[]) content.getTag("longs").getValue());
+        Assert.assertEquals("a\u00e9\tb\\", content.getTag("text").getValue());
+    }
+
+    @Test
+    public void malformedTest()
+    {
+        String[] malformed = {"", "{", "{a}", "{a:1,}", "{a:1 b:2}", "[1,2b]", "[B;1,2]", "[I;1b]", "[X;1]",
+                "\"unterminated", "'bad\\q'", "{a:1}}", "[{},1]", "[1,{}]"};
+        for (String snbt : malformed)
+        {
+            try
+            {
+                Snbt.parse(snbt);
+                Assert.fail(snbt);
+            } catch (IllegalArgumentException expected)
+            {
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mcpg.nbt.test;
+
+import io.github.mcpg.nbt.*;
+import io.github.mcpg.nbt.TagCompound.CompoundContent;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class StringCacheTest
+{
+    @Test
+    public void cacheTest() throws IOException
+    {
+        StringCache cache = new StringCache(16, 8);
+        byte[] data = ModifiedUtf8.encode("xxid\u00e9xxid\u00e9");
+        String first = cache.get(data, 2, 4);
+        Assert.assertEquals("id\u00e9", first);
+        Assert.assertSame(first, cache.get(data, 8, 4));
+
+        byte[] longData = ModifiedUtf8.encode("longer than eight");
+        String longString = cache.get(longData, 0, longData.length);
+        Assert.assertEquals("longer than eight", longString);
+        Assert.assertNotSame(longString, cache.get(longData, 0, longData.length));
+
+        // every lookup must return the right string, even when slots are replaced
+        for (int i = 0; i < 1000; i++)
+        {
+            byte[] bytes = ModifiedUtf8.encode("n" + i);
+            Assert.assertEquals("n" + i, cache.get(bytes, 0, bytes.length));
+        }
+
+        cache.clear();
+        Assert.assertNotSame(first, cache.get(data, 2, 4));
+    }
+
+    @Test
+    public void readerTest() throws IOException
+    {
+        CompoundContent content = new CompoundContent();
+        List<Tag<?>> items = new ArrayList<>();
+        for (int i = 0; i < 3; i++)
+        {
+            CompoundContent item = new CompoundContent();
+            item.addTag(new TagString("id", "minecraft:stone"));
+            item.addTag(new TagByte("Count", (byte) i));
+            items.add(new TagCompound("", item));
+        }
+        content.addTag(new TagList("Items", items, TagType.TAG_COMPOUND));
+        byte[] data = TestTrees.write(new TagCompound("root", content));
+
+        NbtReader reader = new NbtReader(data);
+        reader.setValueCache(new StringCache(64, 32));
+        List<Tag<?>> read = ((TagList) ((TagCompound) reader.readTag()).getValue().getTag("Items")).getValue();
+        CompoundContent first = (CompoundContent) read.get(0).getValue();
+        CompoundContent second = (CompoundContent) read.get(1).getValue();
+        Assert.assertSame(first.getTag("id").getName(), second.getTag("id").getName());
+        Assert.assertSame(first.getTag("id").getValue(), second.getTag("id").getValue());
+
+        reader = new NbtReader(data);
+        reader.setNameCache(null);
+        read = ((TagList) ((TagCompound) reader.readTag()).getValue().getTag("Items")).getValue();
+        first = (CompoundContent) read.get(0).getValue();
+        second = (CompoundContent) read.get(1).getValue();
+        Assert.assertEquals(first.getTag("id").getName(), second.getTag("id").getName());
+        Assert.assertNotSame(first.getTag("id").getName(), second.getTag("id").getName());
+        Assert.assertNotSame(first.getTag("id").getValue(), second.getTag("id").getValue());
+
+        TagCompound streamed = (TagCompound) TagReadingUtils.readTag(new DataInputStream(new ByteArrayInputStream(data)));
+        read = ((TagList) streamed.getValue().getTag("Items")).getValue();
+        first = (CompoundContent) read.get(0).getValue();
+        second = (CompoundContent) read.get(2).getValue();
+        Assert.assertSame(first.getTag("Count").getName(), second.getTag("Count").getName());
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mcpg.nbt.test;
+
+import io.github.mcpg.nbt.*;
+import io.github.mcpg.nbt.TagCompound.CompoundContent;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TagListTest
+{
+    @Test
+    public void packedReadTest() throws IOException
+    {
+        CompoundContent content = new CompoundContent();
+        content.addTag(new TagList("bytes", new byte[]{1, -2, 3}));
+        content.addTag(new TagList("shorts", new short[]{-300, 4}));
+        content.addTag(new TagList("ints", new int[]{7, 1 << 20}));
+        content.addTag(new TagList("longs", new long[]{-1L << 40}));
+        content.addTag(new TagList("Rotation", new float[]{90.5f, -12f}));
+        content.addTag(new TagList("Pos", new double[]{1.5, 64, -2.25}));
+        TagCompound root = new TagCompound("", content);
+        byte[] data = TestTrees.write(root);
+
+        List<Tag<?>> reads = new ArrayList<>();
+        reads.add(new NbtReader(data).readTag());
+        reads.add(TagReadingUtils.readTag(new DataInputStream(new ByteArrayInputStream(data))));
+        NbtEventReader eventReader = new NbtEventReader(new DataInputStream(new ByteArrayInputStream(data)));
+        eventReader.next();
+        reads.add(eventReader.readTag());
+        for (Tag<?> read : reads)
+        {
+            CompoundContent readContent = ((TagCompound) read).getValue();
+            TagList pos = (TagList) readContent.getTag("Pos");
+            Assert.assertTrue(pos.isPacked());
+            Assert.assertEquals(3, pos.getSize());
+            Assert.assertEquals(-2.25, pos.getDouble(2), 0);
+            Assert.assertEquals(-12f, ((TagList) readContent.getTag("Rotation")).getFloat(1), 0);
+            Assert.assertEquals(-300, ((TagList) readContent.getTag("shorts")).getShort(0));
+            Assert.assertArrayEquals(data, TestTrees.write(read));
+            Assert.assertArrayEquals(data, new NbtWriter().write(read));
+        }
+    }
+
+    @Test
+    public void unpackTest()
+    {
+        TagList list = new TagList("Motion", new double[]{0.5, 1, 2});
+        list.setDouble(0, 4);
+        List<Tag<?>> tags = list.getValue();
+        Assert.assertEquals(4.0, tags.get(0).getValue());
+        Assert.assertEquals(3, tags.size());
+
+        // reading doesn't unpack the list, and read tags aren't its elements
+        ((TagDouble) tags.get(1)).setDouble(-1);
+        Assert.assertTrue(list.isPacked());
+        Assert.assertArrayEquals(new double[]{4, 1, 2}, list.getDoubles(), 0);
+
+        // a change through the view unpacks the list, and changes of its tags are seen
+        // by typed accessors from then on
+        tags.set(1, new TagDouble("", 0));
+        Assert.assertFalse(list.isPacked());
+        ((TagDouble) tags.get(1)).setDouble(8);
+        tags.add(new TagDouble("", 16));
+        Assert.assertArrayEquals(new double[]{4, 8, 2, 16}, list.getDoubles(), 0);
+        list.setDouble(3, 32);
+        Assert.assertEquals(32.0, tags.get(3).getValue());
+
+        list.setDoubles(new double[]{1});
+        Assert.assertTrue(list.isPacked());
+        Assert.assertEquals(1, list.getSize());
+    }
+
+    @Test
+    public void byteAndShortTest()
+    {
+        TagList bytes = new TagList("bytes", new byte[]{1, -2, 3});
+        bytes.setByte(1, (byte) 5);
+        Assert.assertArrayEquals(new byte[]{1, 5, 3}, bytes.getBytes());
+        bytes.setBytes(new byte[]{9});
+        Assert.assertTrue(bytes.isPacked());
+        Assert.assertEquals(9, bytes.getByte(0));
+        ((TagByte) bytes.getValue().get(0)).setByte((byte) 10);
+        bytes.setByte(0, (byte) (bytes.getByte(0) + 1));
+        Assert.assertArrayEquals(new byte[]{10}, bytes.getBytes());
+
+        TagList shorts = new TagList("shorts", new short[]{-300, 4});
+        shorts.setShort(0, (short) 300);
+        Assert.assertArrayEquals(new short[]{300, 4}, shorts.getShorts());
+        shorts.setShorts(new short[]{1, 2, 3});
+        Assert.assertEquals(3, shorts.getSize());
+        shorts.getValue().add(new TagShort("", (short) 4));
+        shorts.setShort(3, (short) 5);
+        Assert.assertArrayEquals(new short[]{1, 2, 3, 5}, shorts.getShorts());
+
+        try
+        {
+            shorts.setBytes(null);
+            Assert.fail("Null elements accepted");
+        } catch (NullPointerException ignored)
+        {
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void wrongTypeTest()
+    {
+        new TagList("ints", new int[]{1}).getDouble(0);
+    }
+}
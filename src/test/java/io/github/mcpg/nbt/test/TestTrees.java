@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mcpg.nbt.test;
+
+import io.github.mcpg.nbt.*;
+import io.github.mcpg.nbt.TagCompound.CompoundContent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tag trees shared by the tests.
+ */
+final class TestTrees
+{
+    private TestTrees()
+    {
+    }
+
+    /**
+     * Creates a tree containing every tag type, nested compounds and lists.
+     */
+    static TagCompound create(long seed)
+    {
+        Random random = new Random(seed);
+        CompoundContent root = new CompoundContent();
+        root.addTag(new TagByte("byte", (byte) random.nextInt()));
+        root.addTag(new TagShort("short", (short) random.nextInt()));
+        root.addTag(new TagInt("int", random.nextInt()));
+        root.addTag(new TagLong("long", random.nextLong()));
+        root.addTag(new TagFloat("float", random.nextFloat()));
+        root.addTag(new TagDouble("double", random.nextDouble()));
+        byte[] bytes = new byte[300];
+        random.nextBytes(bytes);
+        root.addTag(new TagByteArray("byteArray", bytes));
+        root.addTag(new TagString("string", "Hello, \u015bwiecie! \u4e16\u754c"));
+        root.addTag(new TagString("empty", ""));
+        int[] ints = new int[100];
+        for (int i = 0; i < ints.length; i++)
+        {
+            ints[i] = random.nextInt();
+        }
+        root.addTag(new TagIntArray("intArray", ints));
+        long[] longs = new long[100];
+        for (int i = 0; i < longs.length; i++)
+        {
+            longs[i] = random.nextLong();
+        }
+        root.addTag(new TagLongArray("longArray", longs));
+
+        List<Tag<?>> doubles = new ArrayList<>();
+        for (int i = 0; i < 3; i++)
+        {
+            doubles.add(new TagDouble("", random.nextDouble()));
+        }
+        root.addTag(new TagList("Pos", doubles, TagType.TAG_DOUBLE));
+        root.addTag(new TagList("emptyList", new ArrayList<>(), TagType.TAG_END));
+
+        List<Tag<?>> items = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+        {
+            CompoundContent item = new CompoundContent();
+            item.addTag(new TagByte("Slot", (byte) i));
+            item.addTag(new TagString("id", "minecraft:item_" + random.nextInt(5)));
+            item.addTag(new TagByte("Count", (byte) (1 + random.nextInt(64))));
+            CompoundContent tag = new CompoundContent();
+            tag.addTag(new TagInt("Damage", random.nextInt(100)));
+            List<Tag<?>> lore = new ArrayList<>();
+            lore.add(new TagString("", "line " + i));
+            tag.addTag(new TagList("Lore", lore, TagType.TAG_STRING));
+            item.addTag(new TagCompound("tag", tag));
+            items.add(new TagCompound("", item));
+        }
+        root.addTag(new TagList("Inventory", items, TagType.TAG_COMPOUND));
+
+        List<Tag<?>> nested = new ArrayList<>();
+        for (int i = 0; i < 3; i++)
+        {
+            List<Tag<?>> inner = new ArrayList<>();
+            inner.add(new TagInt("", i));
+            nested.add(new TagList("", inner, TagType.TAG_INT));
+        }
+        root.addTag(new TagList("nested", nested, TagType.TAG_LIST));
+        return new TagCompound("root", root);
+    }
+
+    /**
+     * Serializes tag with {@link Tag#writeTag(DataOutputStream)}.
+     */
+    static byte[] write(Tag<?> tag) throws IOException
+    {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        tag.writeTag(new DataOutputStream(byteArrayOutputStream));
+        return byteArrayOutputStream.toByteArray();
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2018 Paweł Cholewa
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mcpg.nbt.test;
+
+import io.github.mcpg.nbt.*;
+import io.github.mcpg.nbt.TagCompound.CompoundContent;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class WorldScannerTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void scanTest() throws IOException
+    {
+        Path directory = createWorld();
+        Set<String> visited = ConcurrentHashMap.newKeySet();
+        WorldScanner.Statistics statistics = new WorldScanner(directory)
+                .setParallelism(4)
+                .setMaxInFlightBytes(4096)
+                .scan((x, z, chunk) ->
+                {
+                    CompoundContent content = (CompoundContent) chunk.getValue();
+                    Assert.assertEquals(x, content.getTag("xPos").getValue());
+                    Assert.assertEquals(z, content.getTag("zPos").getValue());
+                    Assert.assertTrue(visited.add(x + "," + z));
+                    return true;
+                });
+        Assert.assertEquals(3, statistics.getRegions());
+        Assert.assertEquals(3 * 100, statistics.getChunks());
+        Assert.assertEquals(300, visited.size());
+        Assert.assertTrue(visited.contains("-32,0"));
+        Assert.assertTrue(visited.contains("35,66"));
+        Assert.assertFalse(statistics.isCancelled());
+        Assert.assertTrue(statistics.getBytes() > 0);
+        long chunks = 0;
+        for (WorldScanner.ThreadStatistics thread : statistics.getThreads())
+        {
+            chunks += thread.getChunks();
+        }
+        Assert.assertEquals(300, chunks);
+    }
+
+    @Test
+    public void cancelTest() throws IOException
+    {
+        Path directory = createWorld();
+        AtomicInteger visited = new AtomicInteger();
+        WorldScanner.Statistics statistics = new WorldScanner(directory)
+                .setParallelism(2)
+                .scanRaw((x, z, reader) -> visited.incrementAndGet() < 10);
+        Assert.assertTrue(statistics.isCancelled());
+        Assert.assertTrue(visited.get() < 300);
+    }
+
+    private Path createWorld() throws IOException
+    {
+        Path directory = folder.newFolder("region").toPath();
+        int[][] regions = {{-1, 0}, {0, 0}, {1, 2}};
+        for (int[] coordinates : regions)
+        {
+            Path path = directory.resolve("r." + coordinates[0] + "." + coordinates[1] + ".mca");
+            try (RegionFile region = new RegionFile(path))
+            {
+                for (int i = 0; i < 100; i++)
+                {
+                    int x = i % 10;
+                    int z = i / 10;
+                    CompoundContent content = new CompoundContent();
+                    content.addTag(new TagInt("xPos", coordinates[0] * 32 + x));
+                    content.addTag(new TagInt("zPos", coordinates[1] * 32 + z));
+                    content.addTag(new TagByteArray("data", new byte[2000]));
+                    region.writeChunk(x, z, new TagCompound("", content));
+                }
+            }
+        }
+        return directory;
+    }
+}